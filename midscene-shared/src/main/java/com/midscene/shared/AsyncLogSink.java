@@ -0,0 +1,267 @@
+package com.midscene.shared;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Opt-in asynchronous sink for debug log lines. Every topic owns a bounded ring
+ * buffer that the calling thread appends to, and a single background writer drains
+ * all buffers and writes them to disk in batches, flushing once per batch instead
+ * of once per line.
+ */
+final class AsyncLogSink implements AutoCloseable {
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+    static final long DEFAULT_FLUSH_INTERVAL_MS = 200;
+    static final int DEFAULT_SAMPLE_RATE = 10;
+
+    /**
+     * What to do when a topic buffer is full.
+     */
+    enum Backpressure {
+        /** Discard the new line. */
+        DROP,
+        /** Park the calling thread until the writer frees a slot. */
+        BLOCK,
+        /** Keep one line out of every {@code sampleRate} (blocking for it) and drop the rest. */
+        SAMPLE;
+
+        static Backpressure fromString(String value) {
+            if (value == null || value.isBlank()) {
+                return BLOCK;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unknown log backpressure policy: " + value, ex);
+            }
+        }
+    }
+
+    record Config(int bufferSize, long flushIntervalMillis, Backpressure backpressure, int sampleRate) {
+        Config {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+            }
+            if (flushIntervalMillis <= 0) {
+                throw new IllegalArgumentException("flushIntervalMillis must be positive: " + flushIntervalMillis);
+            }
+            Objects.requireNonNull(backpressure, "backpressure");
+            sampleRate = Math.max(1, sampleRate);
+        }
+
+        static Config fromEnvironment() {
+            int bufferSize = EnvironmentUtils.getEnv(EnvKeys.MIDSCENE_DEBUG_LOG_BUFFER_SIZE)
+                    .flatMap(EnvironmentUtils::toInteger)
+                    .orElse(DEFAULT_BUFFER_SIZE);
+            long flushInterval = EnvironmentUtils.getEnv(EnvKeys.MIDSCENE_DEBUG_LOG_FLUSH_INTERVAL_MS)
+                    .flatMap(EnvironmentUtils::toInteger)
+                    .map(Integer::longValue)
+                    .orElse(DEFAULT_FLUSH_INTERVAL_MS);
+            Backpressure backpressure = Backpressure.fromString(
+                    EnvironmentUtils.getEnv(EnvKeys.MIDSCENE_DEBUG_LOG_BACKPRESSURE).orElse(null));
+            int sampleRate = EnvironmentUtils.getEnv(EnvKeys.MIDSCENE_DEBUG_LOG_SAMPLE_RATE)
+                    .flatMap(EnvironmentUtils::toInteger)
+                    .orElse(DEFAULT_SAMPLE_RATE);
+            return new Config(bufferSize, flushInterval, backpressure, sampleRate);
+        }
+    }
+
+    private record PendingLine(long millis, String message) {}
+
+    private final Config config;
+    private final Map<String, TopicBuffer> buffers = new ConcurrentHashMap<>();
+    private final Thread writerThread;
+    private final Thread shutdownHook;
+    private final Object drainLock = new Object();
+    private volatile boolean running = true;
+
+    AsyncLogSink(Config config) {
+        this.config = Objects.requireNonNull(config, "config");
+        this.writerThread = new Thread(this::writerLoop, "midscene-log-writer");
+        this.writerThread.setDaemon(true);
+        this.shutdownHook = new Thread(this::close, "midscene-log-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        this.writerThread.start();
+    }
+
+    static boolean isEnabled() {
+        return EnvironmentUtils.getEnv(EnvKeys.MIDSCENE_DEBUG_LOG_ASYNC)
+                .map(EnvironmentUtils::toBoolean)
+                .orElse(false);
+    }
+
+    Config config() {
+        return config;
+    }
+
+    TopicBuffer register(String topic, Path logFile) {
+        Objects.requireNonNull(topic, "topic");
+        Objects.requireNonNull(logFile, "logFile");
+        return buffers.computeIfAbsent(topic, ignored -> new TopicBuffer(topic, logFile));
+    }
+
+    /**
+     * Synchronously writes everything buffered so far and flushes the files.
+     */
+    void drain() {
+        synchronized (drainLock) {
+            for (TopicBuffer buffer : buffers.values()) {
+                buffer.drainTo();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (drainLock) {
+            drain();
+            buffers.values().forEach(TopicBuffer::closeWriter);
+            buffers.clear();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+            // Already shutting down: this call is coming from the hook itself.
+        }
+    }
+
+    private void writerLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.flushIntervalMillis());
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            try {
+                drain();
+            } catch (RuntimeException ex) {
+                // Keep the writer alive; a broken topic file must not stop other topics.
+            }
+        }
+    }
+
+    /**
+     * Bounded per-topic buffer. Producers append from any thread, the writer thread is
+     * the only consumer.
+     */
+    final class TopicBuffer {
+        private final String topic;
+        private final Path logFile;
+        private final ArrayBlockingQueue<PendingLine> queue;
+        private final List<PendingLine> batch;
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong sampleCounter = new AtomicLong();
+        private final int wakeThreshold;
+        private Writer writer;
+
+        private TopicBuffer(String topic, Path logFile) {
+            this.topic = topic;
+            this.logFile = logFile;
+            this.queue = new ArrayBlockingQueue<>(config.bufferSize());
+            this.batch = new ArrayList<>(config.bufferSize());
+            this.wakeThreshold = Math.max(1, config.bufferSize() / 2);
+        }
+
+        void append(String message) {
+            PendingLine line = new PendingLine(System.currentTimeMillis(), message);
+            if (queue.offer(line)) {
+                if (queue.size() >= wakeThreshold) {
+                    LockSupport.unpark(writerThread);
+                }
+                return;
+            }
+            LockSupport.unpark(writerThread);
+            switch (config.backpressure()) {
+                case DROP -> dropped.incrementAndGet();
+                case BLOCK -> put(line);
+                case SAMPLE -> {
+                    if (sampleCounter.getAndIncrement() % config.sampleRate() == 0) {
+                        put(line);
+                    } else {
+                        dropped.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        long droppedCount() {
+            return dropped.get();
+        }
+
+        private void put(PendingLine line) {
+            try {
+                while (!queue.offer(line, config.flushIntervalMillis(), TimeUnit.MILLISECONDS)) {
+                    if (!running) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    LockSupport.unpark(writerThread);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                dropped.incrementAndGet();
+            }
+        }
+
+        private void drainTo() {
+            if (queue.isEmpty()) {
+                return;
+            }
+            try {
+                Writer out = writer();
+                while (queue.drainTo(batch, config.bufferSize()) > 0) {
+                    for (PendingLine line : batch) {
+                        out.write(MidsceneLoggerFactory.formatLine(line.millis(), line.message()));
+                    }
+                    batch.clear();
+                }
+                out.flush();
+            } catch (IOException ex) {
+                batch.clear();
+                throw new UncheckedIOException("Failed to write log for topic " + topic, ex);
+            }
+        }
+
+        private Writer writer() throws IOException {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+            }
+            return writer;
+        }
+
+        private void closeWriter() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // Best effort on shutdown.
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.midscene.shared;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background reload of one JSON config file into a {@link ConfigManager}, created by
+ * {@link ConfigManager#watch(Path, Duration)}. A daemon thread waits on a
+ * {@link WatchService} for the file's directory, waits until events have been quiet for
+ * the debounce interval, then re-parses the file and applies the differences.
+ */
+public final class ConfigFileWatcher implements AutoCloseable {
+    private final ConfigManager manager;
+    private final Path file;
+    private final long debounceNanos;
+    private final WatchService watchService;
+    private final Thread thread;
+    private Map<String, String> loaded;
+    private volatile long reloadCount;
+    private volatile boolean closed;
+
+    ConfigFileWatcher(ConfigManager manager, Path file, Duration debounce) {
+        if (debounce.isNegative()) {
+            throw new IllegalArgumentException("debounce must not be negative: " + debounce);
+        }
+        this.manager = manager;
+        this.file = file;
+        this.debounceNanos = debounce.toNanos();
+        this.loaded = manager.readJson(file);
+        manager.replaceFileEntries(Map.of(), loaded);
+        try {
+            this.watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to watch config file " + file, ex);
+        }
+        this.thread = new Thread(this::watchLoop, "midscene-config-watch");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /** Number of successful reloads after the initial load. */
+    public long reloadCount() {
+        return reloadCount;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to stop watching " + file, ex);
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                boolean touched = drain(key);
+                // Debounce: keep absorbing events until the directory has been quiet.
+                WatchKey next;
+                while ((next = watchService.poll(debounceNanos, TimeUnit.NANOSECONDS)) != null) {
+                    touched |= drain(next);
+                }
+                if (touched) {
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ex) {
+            // Closed: exit quietly.
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+
+    private void reload() {
+        Map<String, String> next;
+        try {
+            next = manager.readJson(file);
+        } catch (RuntimeException ex) {
+            // Half-written or deleted file: keep serving the last good snapshot.
+            debug().log("skipping reload of", file, ex.getMessage());
+            return;
+        }
+        Map<String, String> previous = loaded;
+        loaded = next;
+        reloadCount++;
+        manager.replaceFileEntries(previous, next);
+        debug().log("reloaded", file);
+    }
+
+    /** Looked up when logging, like ConfigManager, so class loading does not pick the log file. */
+    private static MidsceneLoggerFactory.DebugFunction debug() {
+        return MidsceneLoggerFactory.getDebug("config:watch");
+    }
+}
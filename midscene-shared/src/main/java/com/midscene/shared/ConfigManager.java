@@ -4,75 +4,311 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Configuration manager that merges environment variables with JSON overrides.
+ *
+ * <p>Values are published as an immutable {@link Snapshot} through one volatile
+ * reference. Every write builds a new snapshot, so readers never lock and always see a
+ * consistent version. Each entry is parsed once into its string, boolean and int forms;
+ * keys that fall through to the environment are cached per snapshot until
+ * {@link EnvironmentUtils} overrides change.
+ *
+ * <p>{@link #watch(Path, Duration)} keeps a JSON file applied as it changes, and
+ * {@link Listener}s are told which keys differ between two snapshots.
  */
 public final class ConfigManager {
-    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final List<Registration> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Change> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock notifyLock = new ReentrantLock();
+    private volatile Snapshot current = new Snapshot(0, Map.of());
 
     public ConfigManager() {
         reloadFromEnvironment();
     }
 
     public void reloadFromEnvironment() {
+        Map<String, String> entries = new HashMap<>();
         EnvKeys.basicEnvKeys().forEach(key ->
-                EnvironmentUtils.getBasicEnvValue(key).ifPresent(value -> values.put(key, value)));
+                EnvironmentUtils.getBasicEnvValue(key).ifPresent(value -> entries.put(key, value)));
+        update(values -> values.putAll(entries));
     }
 
     public void loadFromJson(Path path) {
+        Map<String, String> entries = readJson(path);
+        update(values -> values.putAll(entries));
+    }
+
+    /**
+     * Loads {@code path} now and again whenever it changes, until the returned watcher
+     * is closed. Bursts of file events within {@code debounce} cause one reload, parsing
+     * happens on the watcher thread, and keys removed from the file are removed from the
+     * configuration. A file that fails to parse leaves the current snapshot in place.
+     */
+    public ConfigFileWatcher watch(Path path, Duration debounce) {
+        Objects.requireNonNull(debounce, "debounce");
+        Path file = Objects.requireNonNull(path, "path").toAbsolutePath();
+        ConfigFileWatcher watcher = new ConfigFileWatcher(this, file, debounce);
+        watcher.start();
+        return watcher;
+    }
+
+    /**
+     * Registers {@code listener} for changes to any of {@code keys}, or to any key when
+     * none are given. Listeners run after the new snapshot is published, outside the
+     * write lock, on a writing thread and in version order; a change made from inside a
+     * listener is delivered once that listener returns. A listener that throws is
+     * logged and does not stop the others.
+     */
+    public void addListener(Listener listener, String... keys) {
+        Objects.requireNonNull(listener, "listener");
+        listeners.add(new Registration(listener, keys.length == 0 ? null : Set.of(keys)));
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.removeIf(registration -> registration.listener == listener);
+    }
+
+    public void set(String key, String value) {
+        Objects.requireNonNull(key, "key");
+        update(values -> {
+            if (value == null) {
+                values.remove(key);
+            } else {
+                values.put(key, value);
+            }
+        });
+    }
+
+    /** The current snapshot; hold on to it to read several keys from one version. */
+    public Snapshot current() {
+        return current;
+    }
+
+    public Optional<String> get(String key) {
+        return current.entry(key).value;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return current.getBoolean(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return current.getInt(key, defaultValue);
+    }
+
+    public Map<String, String> snapshot() {
+        return current.asMap();
+    }
+
+    Map<String, String> readJson(Path path) {
         Objects.requireNonNull(path, "path");
         if (!Files.exists(path)) {
             throw new IllegalArgumentException("Config file does not exist: " + path);
         }
-        try {
-            String content = Files.readString(path, StandardCharsets.UTF_8);
-            Map<String, Object> raw = SimpleJsonParser.parseObject(content);
-            merge(flatten(raw, ""));
+        try (JsonReader reader = JsonReader.of(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            Map<String, Object> raw = SimpleJsonParser.parseObject(reader);
+            return flatten(raw, "");
         } catch (IOException ex) {
             throw new IllegalStateException("Failed to load config from " + path, ex);
         }
     }
 
-    public void set(String key, String value) {
-        if (value == null) {
-            values.remove(key);
-        } else {
-            values.put(key, value);
+    /**
+     * Swaps the entries previously loaded from a watched file for {@code next} in one
+     * snapshot.
+     */
+    void replaceFileEntries(Map<String, String> previous, Map<String, String> next) {
+        update(values -> {
+            previous.keySet().forEach(key -> {
+                if (!next.containsKey(key)) {
+                    values.remove(key);
+                }
+            });
+            values.putAll(next);
+        });
+    }
+
+    private void update(Consumer<Map<String, String>> change) {
+        synchronized (writeLock) {
+            Snapshot previous = current;
+            Map<String, String> values = new HashMap<>(previous.values);
+            change.accept(values);
+            if (values.equals(previous.values)) {
+                return;
+            }
+            Snapshot next = new Snapshot(previous.version + 1, values);
+            current = next;
+            if (listeners.isEmpty()) {
+                return;
+            }
+            // Queued under the write lock so changes are delivered in version order.
+            pendingChanges.add(new Change(previous, next, changedKeys(previous.values, next.values)));
         }
+        deliverChanges();
     }
 
-    public Optional<String> get(String key) {
-        if (values.containsKey(key)) {
-            return Optional.ofNullable(values.get(key));
+    /**
+     * Delivers queued changes unless another thread is already doing so; that thread
+     * picks up this change too, so a writer never waits on someone else's listeners.
+     */
+    private void deliverChanges() {
+        if (notifyLock.isHeldByCurrentThread()) {
+            return;
+        }
+        while (!pendingChanges.isEmpty() && notifyLock.tryLock()) {
+            try {
+                Change change;
+                while ((change = pendingChanges.poll()) != null) {
+                    notifyListeners(change);
+                }
+            } finally {
+                notifyLock.unlock();
+            }
         }
-        return EnvironmentUtils.getEnv(key);
     }
 
-    public boolean getBoolean(String key, boolean defaultValue) {
-        return get(key).map(EnvironmentUtils::toBoolean).orElse(defaultValue);
+    private void notifyListeners(Change change) {
+        for (Registration registration : listeners) {
+            if (registration.keys == null || !Collections.disjoint(registration.keys, change.changedKeys())) {
+                try {
+                    registration.listener.onChange(change);
+                } catch (RuntimeException ex) {
+                    // Looked up here rather than held statically: ConfigManager is loaded
+                    // before the run directory is configured, which picks the log file.
+                    MidsceneLoggerFactory.getDebug("config").log("config listener failed for", change.changedKeys(), ex);
+                }
+            }
+        }
     }
 
-    public int getInt(String key, int defaultValue) {
-        return get(key).flatMap(EnvironmentUtils::toInteger).orElse(defaultValue);
+    private static Set<String> changedKeys(Map<String, String> before, Map<String, String> after) {
+        Set<String> changed = new HashSet<>();
+        before.forEach((key, value) -> {
+            if (!value.equals(after.get(key))) {
+                changed.add(key);
+            }
+        });
+        after.keySet().forEach(key -> {
+            if (!before.containsKey(key)) {
+                changed.add(key);
+            }
+        });
+        return Set.copyOf(changed);
     }
 
-    public Map<String, String> snapshot() {
-        return Collections.unmodifiableMap(new HashMap<>(values));
+    /**
+     * Receives the snapshots on both sides of a change.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onChange(Change change);
     }
 
-    private void merge(Map<String, String> entries) {
-        entries.forEach((key, value) -> {
-            if (value != null) {
-                values.put(key, value);
+    /**
+     * Keys that were added, removed or modified between two snapshots.
+     */
+    public record Change(Snapshot previous, Snapshot current, Set<String> changedKeys) {}
+
+    private record Registration(Listener listener, Set<String> keys) {}
+
+    /**
+     * Immutable view of the configuration at one version. Lookups do not allocate once
+     * a key has been read.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final Map<String, String> values;
+        private final Map<String, Entry> entries;
+        private volatile EnvCache envCache = new EnvCache(EnvironmentUtils.version());
+
+        private Snapshot(long version, Map<String, String> values) {
+            this.version = version;
+            this.values = Map.copyOf(values);
+            Map<String, Entry> parsed = new HashMap<>();
+            this.values.forEach((key, value) -> parsed.put(key, new Entry(value)));
+            this.entries = Map.copyOf(parsed);
+        }
+
+        /** Increases by one on every change to the manager. */
+        public long version() {
+            return version;
+        }
+
+        public Optional<String> get(String key) {
+            return entry(key).value;
+        }
+
+        public boolean getBoolean(String key, boolean defaultValue) {
+            Entry entry = entry(key);
+            return entry.value.isPresent() ? entry.booleanValue : defaultValue;
+        }
+
+        public int getInt(String key, int defaultValue) {
+            Entry entry = entry(key);
+            return entry.hasInt ? entry.intValue : defaultValue;
+        }
+
+        /** Explicit values only, without environment fallbacks. */
+        public Map<String, String> asMap() {
+            return values;
+        }
+
+        private Entry entry(String key) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                return entry;
             }
-        });
+            EnvCache cache = envCache;
+            long envVersion = EnvironmentUtils.version();
+            if (cache.version != envVersion) {
+                cache = new EnvCache(envVersion);
+                envCache = cache;
+            }
+            entry = cache.entries.get(key);
+            if (entry == null) {
+                entry = new Entry(EnvironmentUtils.getEnv(key).orElse(null));
+                cache.entries.putIfAbsent(key, entry);
+            }
+            return entry;
+        }
+    }
+
+    private record EnvCache(long version, Map<String, Entry> entries) {
+        private EnvCache(long version) {
+            this(version, new ConcurrentHashMap<>());
+        }
+    }
+
+    private static final class Entry {
+        private final Optional<String> value;
+        private final boolean booleanValue;
+        private final boolean hasInt;
+        private final int intValue;
+
+        private Entry(String raw) {
+            this.value = Optional.ofNullable(raw);
+            this.booleanValue = EnvironmentUtils.toBoolean(raw);
+            Optional<Integer> parsed = EnvironmentUtils.toInteger(raw);
+            this.hasInt = parsed.isPresent();
+            this.intValue = parsed.orElse(0);
+        }
     }
 
     private Map<String, String> flatten(Map<String, Object> input, String prefix) {
@@ -83,6 +319,12 @@ public final class ConfigManager {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> cast = (Map<String, Object>) nested;
                 result.putAll(flatten(cast, fullKey));
+            } else if (value instanceof List<?> list) {
+                Map<String, Object> indexed = new LinkedHashMap<>();
+                for (int i = 0; i < list.size(); i++) {
+                    indexed.put(Integer.toString(i), list.get(i));
+                }
+                result.putAll(flatten(indexed, fullKey));
             } else if (value instanceof Number number) {
                 if (number.doubleValue() == number.longValue()) {
                     result.put(fullKey, Long.toString(number.longValue()));
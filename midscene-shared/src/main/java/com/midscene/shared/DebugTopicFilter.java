@@ -0,0 +1,90 @@
+package com.midscene.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Topic filter following the {@code DEBUG} environment variable syntax of the
+ * {@code debug} npm package: a comma or whitespace separated list of globs such as
+ * {@code midscene:*}, where a leading {@code -} excludes matching topics.
+ */
+final class DebugTopicFilter {
+    /** Filter matching every topic; {@link #parse} returns it for a {@code null} spec. */
+    static final DebugTopicFilter ALL = new DebugTopicFilter(null, List.of(), List.of());
+
+    private final String spec;
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+
+    private DebugTopicFilter(String spec, List<Pattern> includes, List<Pattern> excludes) {
+        this.spec = spec;
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    static DebugTopicFilter parse(String spec) {
+        if (spec == null) {
+            return ALL;
+        }
+        List<Pattern> includes = new ArrayList<>();
+        List<Pattern> excludes = new ArrayList<>();
+        for (String token : spec.split("[\\s,]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (token.startsWith("-")) {
+                excludes.add(toPattern(token.substring(1)));
+            } else {
+                includes.add(toPattern(token));
+            }
+        }
+        return new DebugTopicFilter(spec, List.copyOf(includes), List.copyOf(excludes));
+    }
+
+    String spec() {
+        return spec;
+    }
+
+    DebugTopicFilter withEnabled(String fullTopic) {
+        if (this == ALL || isEnabled(fullTopic)) {
+            return this;
+        }
+        return parse(spec + "," + fullTopic);
+    }
+
+    boolean isEnabled(String fullTopic) {
+        if (this == ALL) {
+            return true;
+        }
+        for (Pattern exclude : excludes) {
+            if (exclude.matcher(fullTopic).matches()) {
+                return false;
+            }
+        }
+        for (Pattern include : includes) {
+            if (include.matcher(fullTopic).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Pattern toPattern(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 8);
+        int start = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) == '*') {
+                if (i > start) {
+                    regex.append(Pattern.quote(glob.substring(start, i)));
+                }
+                regex.append(".*?");
+                start = i + 1;
+            }
+        }
+        if (start < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(start)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,402 @@
+package com.midscene.shared;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compact, read-only model of an {@code ElementTreeNode} document as produced by
+ * {@code packages/shared/src/extractor}. Nodes are stored in pre-order in parallel
+ * primitive arrays: links are int indices, rects live in one {@code float[]} and all
+ * strings go through a per-tree pool, so a snapshot costs a handful of arrays rather
+ * than a graph of maps.
+ *
+ * <p>Container nodes ({@code "node": null}) keep their slot so the structure is
+ * preserved; {@link #hasElement(int)} tells them apart from real elements.
+ */
+public final class ElementTree {
+    /** Index value used for "no node" and "no string". */
+    public static final int NONE = -1;
+
+    private final int size;
+    private final int elementCount;
+    private final int[] parent;
+    private final int[] subtreeEnd;
+    private final float[] rects;
+    private final float[] zoom;
+    private final int[] indexId;
+    private final int[] id;
+    private final int[] nodeHashId;
+    private final int[] nodeType;
+    private final int[] locator;
+    private final int[] content;
+    private final int[] attributeStart;
+    private final int[] attributeEnd;
+    private final int[] attributes;
+    private final String[] strings;
+    private final int screenWidth;
+    private final int screenHeight;
+
+    private ElementTree(Builder builder) {
+        this.size = builder.size;
+        this.elementCount = builder.elementCount;
+        this.parent = Arrays.copyOf(builder.parent, size);
+        this.subtreeEnd = Arrays.copyOf(builder.subtreeEnd, size);
+        this.rects = Arrays.copyOf(builder.rects, size * 4);
+        this.zoom = Arrays.copyOf(builder.zoom, size);
+        this.indexId = Arrays.copyOf(builder.indexId, size);
+        this.id = Arrays.copyOf(builder.id, size);
+        this.nodeHashId = Arrays.copyOf(builder.nodeHashId, size);
+        this.nodeType = Arrays.copyOf(builder.nodeType, size);
+        this.locator = Arrays.copyOf(builder.locator, size);
+        this.content = Arrays.copyOf(builder.content, size);
+        this.attributeStart = Arrays.copyOf(builder.attributeStart, size);
+        this.attributeEnd = Arrays.copyOf(builder.attributeEnd, size);
+        this.attributes = Arrays.copyOf(builder.attributes, builder.attributeCount * 2);
+        this.strings = builder.strings.toArray();
+        this.screenWidth = builder.screenWidth;
+        this.screenHeight = builder.screenHeight;
+    }
+
+    /**
+     * Memory-maps {@code file} and decodes it straight from the mapping, without
+     * reading it into a heap {@code byte[]} or {@code String} first.
+     */
+    public static ElementTree load(Path file) {
+        Objects.requireNonNull(file, "file");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Element tree file is too large to map: " + file);
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to load element tree from " + file, ex);
+        }
+    }
+
+    public static ElementTree read(ByteBuffer utf8) {
+        try (JsonReader reader = JsonReader.of(utf8)) {
+            return read(reader);
+        }
+    }
+
+    public static ElementTree read(JsonReader reader) {
+        Builder builder = new Builder();
+        builder.readTreeNode(reader, NONE);
+        return new ElementTree(builder);
+    }
+
+    /** Total number of tree nodes, containers included. */
+    public int size() {
+        return size;
+    }
+
+    /** Number of nodes that carry an element. */
+    public int elementCount() {
+        return elementCount;
+    }
+
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    /** Exclusive end of the pre-order range holding {@code node} and its descendants. */
+    public int subtreeEnd(int node) {
+        return subtreeEnd[node];
+    }
+
+    public int firstChild(int node) {
+        int child = node + 1;
+        return child < subtreeEnd[node] ? child : NONE;
+    }
+
+    public int nextSibling(int node) {
+        int p = parent[node];
+        if (p == NONE) {
+            return NONE;
+        }
+        int sibling = subtreeEnd[node];
+        return sibling < subtreeEnd[p] ? sibling : NONE;
+    }
+
+    public boolean hasElement(int node) {
+        return id[node] != NONE;
+    }
+
+    public float left(int node) {
+        return rects[node * 4];
+    }
+
+    public float top(int node) {
+        return rects[node * 4 + 1];
+    }
+
+    public float width(int node) {
+        return rects[node * 4 + 2];
+    }
+
+    public float height(int node) {
+        return rects[node * 4 + 3];
+    }
+
+    public float zoom(int node) {
+        return zoom[node];
+    }
+
+    public int indexId(int node) {
+        return indexId[node];
+    }
+
+    public String id(int node) {
+        return string(id[node]);
+    }
+
+    public String nodeHashId(int node) {
+        return string(nodeHashId[node]);
+    }
+
+    public String nodeType(int node) {
+        return string(nodeType[node]);
+    }
+
+    public String locator(int node) {
+        return string(locator[node]);
+    }
+
+    public String content(int node) {
+        return string(content[node]);
+    }
+
+    public int attributeCount(int node) {
+        return attributeEnd[node] - attributeStart[node];
+    }
+
+    public String attributeName(int node, int attribute) {
+        return strings[attributes[(attributeStart[node] + attribute) * 2]];
+    }
+
+    public String attributeValue(int node, int attribute) {
+        return strings[attributes[(attributeStart[node] + attribute) * 2 + 1]];
+    }
+
+    public String attribute(int node, String name) {
+        for (int i = attributeStart[node]; i < attributeEnd[node]; i++) {
+            if (strings[attributes[i * 2]].equals(name)) {
+                return strings[attributes[i * 2 + 1]];
+            }
+        }
+        return null;
+    }
+
+    /** Returns the node holding the element with {@code elementId}, or {@link #NONE}. */
+    public int findById(String elementId) {
+        for (int i = 0; i < size; i++) {
+            if (id[i] != NONE && strings[id[i]].equals(elementId)) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    public int screenWidth() {
+        return screenWidth;
+    }
+
+    public int screenHeight() {
+        return screenHeight;
+    }
+
+    private String string(int ref) {
+        return ref == NONE ? null : strings[ref];
+    }
+
+    private static final class StringPool {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private String[] values = new String[64];
+
+        int ref(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer existing = refs.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            int ref = refs.size();
+            if (ref == values.length) {
+                values = Arrays.copyOf(values, ref * 2);
+            }
+            values[ref] = value;
+            refs.put(value, ref);
+            return ref;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(values, refs.size());
+        }
+    }
+
+    private static final class Builder {
+        private int size;
+        private int elementCount;
+        private int[] parent = new int[256];
+        private int[] subtreeEnd = new int[256];
+        private float[] rects = new float[256 * 4];
+        private float[] zoom = new float[256];
+        private int[] indexId = new int[256];
+        private int[] id = new int[256];
+        private int[] nodeHashId = new int[256];
+        private int[] nodeType = new int[256];
+        private int[] locator = new int[256];
+        private int[] content = new int[256];
+        private int[] attributeStart = new int[256];
+        private int[] attributeEnd = new int[256];
+        private int[] attributes = new int[512];
+        private int attributeCount;
+        private final StringPool strings = new StringPool();
+        private int screenWidth;
+        private int screenHeight;
+
+        private void readTreeNode(JsonReader reader, int parentIndex) {
+            int index = add(parentIndex);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "node" -> {
+                        if (reader.peek() == JsonReader.Token.NULL) {
+                            reader.nextNull();
+                        } else {
+                            readElement(reader, index);
+                        }
+                    }
+                    case "children" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readTreeNode(reader, index);
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            subtreeEnd[index] = size;
+        }
+
+        private int add(int parentIndex) {
+            if (size == parent.length) {
+                int capacity = size * 2;
+                parent = Arrays.copyOf(parent, capacity);
+                subtreeEnd = Arrays.copyOf(subtreeEnd, capacity);
+                rects = Arrays.copyOf(rects, capacity * 4);
+                zoom = Arrays.copyOf(zoom, capacity);
+                indexId = Arrays.copyOf(indexId, capacity);
+                id = Arrays.copyOf(id, capacity);
+                nodeHashId = Arrays.copyOf(nodeHashId, capacity);
+                nodeType = Arrays.copyOf(nodeType, capacity);
+                locator = Arrays.copyOf(locator, capacity);
+                content = Arrays.copyOf(content, capacity);
+                attributeStart = Arrays.copyOf(attributeStart, capacity);
+                attributeEnd = Arrays.copyOf(attributeEnd, capacity);
+            }
+            int index = size++;
+            parent[index] = parentIndex;
+            zoom[index] = 1f;
+            indexId[index] = NONE;
+            id[index] = NONE;
+            nodeHashId[index] = NONE;
+            nodeType[index] = NONE;
+            locator[index] = NONE;
+            content[index] = NONE;
+            attributeStart[index] = 0;
+            attributeEnd[index] = 0;
+            return index;
+        }
+
+        private void readElement(JsonReader reader, int index) {
+            elementCount++;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id[index] = strings.ref(readText(reader));
+                    case "indexId" -> indexId[index] = reader.nextInt();
+                    case "nodeHashId" -> nodeHashId[index] = strings.ref(readText(reader));
+                    case "nodeType" -> nodeType[index] = strings.ref(readText(reader));
+                    case "locator" -> locator[index] = strings.ref(readText(reader));
+                    case "content" -> content[index] = strings.ref(readText(reader));
+                    case "zoom" -> zoom[index] = (float) reader.nextDouble();
+                    case "screenWidth" -> screenWidth = reader.nextInt();
+                    case "screenHeight" -> screenHeight = reader.nextInt();
+                    case "rect" -> readRect(reader, index);
+                    case "attributes" -> readAttributes(reader, index);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (id[index] == NONE) {
+                id[index] = strings.ref("");
+            }
+        }
+
+        private void readRect(JsonReader reader, int index) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "left" -> rects[index * 4] = (float) reader.nextDouble();
+                    case "top" -> rects[index * 4 + 1] = (float) reader.nextDouble();
+                    case "width" -> rects[index * 4 + 2] = (float) reader.nextDouble();
+                    case "height" -> rects[index * 4 + 3] = (float) reader.nextDouble();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        private void readAttributes(JsonReader reader, int index) {
+            attributeStart[index] = attributeCount;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                String value = readText(reader);
+                if (value == null) {
+                    continue;
+                }
+                if ((attributeCount + 1) * 2 > attributes.length) {
+                    attributes = Arrays.copyOf(attributes, attributes.length * 2);
+                }
+                attributes[attributeCount * 2] = strings.ref(name);
+                attributes[attributeCount * 2 + 1] = strings.ref(value);
+                attributeCount++;
+            }
+            reader.endObject();
+            attributeEnd[index] = attributeCount;
+        }
+
+        private static String readText(JsonReader reader) {
+            return switch (reader.peek()) {
+                case STRING -> reader.nextString();
+                case NUMBER -> {
+                    double value = reader.nextDouble();
+                    yield value == (long) value ? Long.toString((long) value) : Double.toString(value);
+                }
+                case BOOLEAN -> Boolean.toString(reader.nextBoolean());
+                case NULL -> {
+                    reader.nextNull();
+                    yield null;
+                }
+                default -> {
+                    reader.skipValue();
+                    yield null;
+                }
+            };
+        }
+    }
+}
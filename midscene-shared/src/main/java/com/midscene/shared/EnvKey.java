@@ -0,0 +1,329 @@
+package com.midscene.shared;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Typed registry of the env keys declared in {@code packages/shared/src/env/types.ts}.
+ * Each key knows its value type, scope and default, and model keys also know the
+ * {@link ModelIntent} and {@link ModelField} they configure, which replaces the
+ * {@code *_MODEL_CONFIG_KEYS} tables of {@code constants.ts}. Values resolved for a
+ * key set live in arrays indexed by {@link #ordinal()}; see {@link EnvValues}.
+ *
+ * <p>{@link EnvKeys} keeps the plain string constants for existing callers.
+ */
+public enum EnvKey {
+    // Basic keys: read straight from the environment, never overridden by model config.
+    MIDSCENE_DEBUG_MODE(Type.BOOLEAN, Scope.BASIC),
+    MIDSCENE_DEBUG_AI_PROFILE(Type.BOOLEAN, Scope.BASIC),
+    MIDSCENE_DEBUG_AI_RESPONSE(Type.BOOLEAN, Scope.BASIC),
+    MIDSCENE_RUN_DIR(Type.STRING, Scope.BASIC, RunDirectoryHelper.DEFAULT_RUN_DIR_NAME),
+
+    // Global keys.
+    MIDSCENE_CACHE(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_LANGSMITH_DEBUG(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_FORCE_DEEP_THINK(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_MCP_USE_PUPPETEER_MODE(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_MCP_ANDROID_MODE(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_CACHE_MAX_FILENAME_LENGTH(Type.NUMBER, Scope.GLOBAL, "200"),
+    MIDSCENE_REPLANNING_CYCLE_LIMIT(Type.NUMBER, Scope.GLOBAL),
+    OPENAI_MAX_TOKENS(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_ADB_PATH(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_ADB_REMOTE_HOST(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_ADB_REMOTE_PORT(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_ANDROID_IME_STRATEGY(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_IOS_DEVICE_UDID(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_IOS_SIMULATOR_UDID(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_REPORT_TAG_NAME(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_PREFERRED_LANGUAGE(Type.STRING, Scope.GLOBAL),
+    MATCH_BY_POSITION(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_MCP_CHROME_PATH(Type.STRING, Scope.GLOBAL),
+    DOCKER_CONTAINER(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_DANGEROUSLY_PRINT_ALL_CONFIG(Type.BOOLEAN, Scope.UNUSED),
+
+    // JVM-only keys.
+    DEBUG(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_DEBUG_LOG_ASYNC(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_DEBUG_LOG_BUFFER_SIZE(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_DEBUG_LOG_FLUSH_INTERVAL_MS(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_DEBUG_LOG_BACKPRESSURE(Type.STRING, Scope.GLOBAL),
+    MIDSCENE_DEBUG_LOG_SAMPLE_RATE(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_AI_CACHE_MAX_BYTES(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_AI_CACHE_TTL_MS(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_AI_CACHE_STRIPES(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_SCREENSHOT_DIFF_TILE_SIZE(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_SCREENSHOT_DIFF_PIXEL_THRESHOLD(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_SCREENSHOT_DIFF_MIN_PIXELS(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_SCREENSHOT_HASH_DISTANCE(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_METRICS_PORT(Type.NUMBER, Scope.GLOBAL),
+    MIDSCENE_METRICS_DUMP(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_JFR_EVENTS(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_PLAYER_SPECULATE(Type.BOOLEAN, Scope.GLOBAL),
+    MIDSCENE_PLAYER_PARALLELISM(Type.NUMBER, Scope.GLOBAL),
+
+    // Model keys for the default intent.
+    MIDSCENE_MODEL_NAME(ModelIntent.DEFAULT, ModelField.MODEL_NAME),
+    MIDSCENE_OPENAI_SOCKS_PROXY(ModelIntent.DEFAULT, ModelField.SOCKS_PROXY),
+    MIDSCENE_OPENAI_HTTP_PROXY(ModelIntent.DEFAULT, ModelField.HTTP_PROXY),
+    MIDSCENE_OPENAI_BASE_URL(ModelIntent.DEFAULT, ModelField.OPENAI_BASE_URL),
+    MIDSCENE_OPENAI_API_KEY(ModelIntent.DEFAULT, ModelField.OPENAI_API_KEY),
+    MIDSCENE_OPENAI_INIT_CONFIG_JSON(ModelIntent.DEFAULT, ModelField.OPENAI_EXTRA_CONFIG),
+    MIDSCENE_OPENAI_USE_AZURE(ModelIntent.DEFAULT, ModelField.OPENAI_USE_AZURE_DEPRECATED),
+    MIDSCENE_USE_AZURE_OPENAI(ModelIntent.DEFAULT, ModelField.USE_AZURE_OPENAI),
+    MIDSCENE_AZURE_OPENAI_SCOPE(ModelIntent.DEFAULT, ModelField.AZURE_OPENAI_SCOPE),
+    MIDSCENE_AZURE_OPENAI_KEY(ModelIntent.DEFAULT, ModelField.AZURE_OPENAI_KEY),
+    MIDSCENE_AZURE_OPENAI_ENDPOINT(ModelIntent.DEFAULT, ModelField.AZURE_OPENAI_ENDPOINT),
+    MIDSCENE_AZURE_OPENAI_API_VERSION(ModelIntent.DEFAULT, ModelField.AZURE_OPENAI_API_VERSION),
+    MIDSCENE_AZURE_OPENAI_DEPLOYMENT(ModelIntent.DEFAULT, ModelField.AZURE_OPENAI_DEPLOYMENT),
+    MIDSCENE_AZURE_OPENAI_INIT_CONFIG_JSON(ModelIntent.DEFAULT, ModelField.AZURE_EXTRA_CONFIG),
+    MIDSCENE_USE_ANTHROPIC_SDK(ModelIntent.DEFAULT, ModelField.USE_ANTHROPIC_SDK),
+    MIDSCENE_ANTHROPIC_API_KEY(ModelIntent.DEFAULT, ModelField.ANTHROPIC_API_KEY),
+    MIDSCENE_VL_MODE(ModelIntent.DEFAULT, ModelField.VL_MODE),
+    MIDSCENE_MODEL_MAX_CONCURRENCY(ModelIntent.DEFAULT, ModelField.MAX_CONCURRENCY),
+    MIDSCENE_MODEL_INITIAL_CONCURRENCY(ModelIntent.DEFAULT, ModelField.INITIAL_CONCURRENCY),
+
+    // Model keys for the VQA intent.
+    MIDSCENE_VQA_MODEL_NAME(ModelIntent.VQA, ModelField.MODEL_NAME),
+    MIDSCENE_VQA_OPENAI_SOCKS_PROXY(ModelIntent.VQA, ModelField.SOCKS_PROXY),
+    MIDSCENE_VQA_OPENAI_HTTP_PROXY(ModelIntent.VQA, ModelField.HTTP_PROXY),
+    MIDSCENE_VQA_OPENAI_BASE_URL(ModelIntent.VQA, ModelField.OPENAI_BASE_URL),
+    MIDSCENE_VQA_OPENAI_API_KEY(ModelIntent.VQA, ModelField.OPENAI_API_KEY),
+    MIDSCENE_VQA_OPENAI_INIT_CONFIG_JSON(ModelIntent.VQA, ModelField.OPENAI_EXTRA_CONFIG),
+    MIDSCENE_VQA_OPENAI_USE_AZURE(ModelIntent.VQA, ModelField.OPENAI_USE_AZURE_DEPRECATED),
+    MIDSCENE_VQA_USE_AZURE_OPENAI(ModelIntent.VQA, ModelField.USE_AZURE_OPENAI),
+    MIDSCENE_VQA_AZURE_OPENAI_SCOPE(ModelIntent.VQA, ModelField.AZURE_OPENAI_SCOPE),
+    MIDSCENE_VQA_AZURE_OPENAI_KEY(ModelIntent.VQA, ModelField.AZURE_OPENAI_KEY),
+    MIDSCENE_VQA_AZURE_OPENAI_ENDPOINT(ModelIntent.VQA, ModelField.AZURE_OPENAI_ENDPOINT),
+    MIDSCENE_VQA_AZURE_OPENAI_API_VERSION(ModelIntent.VQA, ModelField.AZURE_OPENAI_API_VERSION),
+    MIDSCENE_VQA_AZURE_OPENAI_DEPLOYMENT(ModelIntent.VQA, ModelField.AZURE_OPENAI_DEPLOYMENT),
+    MIDSCENE_VQA_AZURE_OPENAI_INIT_CONFIG_JSON(ModelIntent.VQA, ModelField.AZURE_EXTRA_CONFIG),
+    MIDSCENE_VQA_USE_ANTHROPIC_SDK(ModelIntent.VQA, ModelField.USE_ANTHROPIC_SDK),
+    MIDSCENE_VQA_ANTHROPIC_API_KEY(ModelIntent.VQA, ModelField.ANTHROPIC_API_KEY),
+    MIDSCENE_VQA_VL_MODE(ModelIntent.VQA, ModelField.VL_MODE),
+    MIDSCENE_VQA_MODEL_MAX_CONCURRENCY(ModelIntent.VQA, ModelField.MAX_CONCURRENCY),
+    MIDSCENE_VQA_MODEL_INITIAL_CONCURRENCY(ModelIntent.VQA, ModelField.INITIAL_CONCURRENCY),
+
+    // Model keys for the planning intent.
+    MIDSCENE_PLANNING_MODEL_NAME(ModelIntent.PLANNING, ModelField.MODEL_NAME),
+    MIDSCENE_PLANNING_OPENAI_SOCKS_PROXY(ModelIntent.PLANNING, ModelField.SOCKS_PROXY),
+    MIDSCENE_PLANNING_OPENAI_HTTP_PROXY(ModelIntent.PLANNING, ModelField.HTTP_PROXY),
+    MIDSCENE_PLANNING_OPENAI_BASE_URL(ModelIntent.PLANNING, ModelField.OPENAI_BASE_URL),
+    MIDSCENE_PLANNING_OPENAI_API_KEY(ModelIntent.PLANNING, ModelField.OPENAI_API_KEY),
+    MIDSCENE_PLANNING_OPENAI_INIT_CONFIG_JSON(ModelIntent.PLANNING, ModelField.OPENAI_EXTRA_CONFIG),
+    MIDSCENE_PLANNING_OPENAI_USE_AZURE(ModelIntent.PLANNING, ModelField.OPENAI_USE_AZURE_DEPRECATED),
+    MIDSCENE_PLANNING_USE_AZURE_OPENAI(ModelIntent.PLANNING, ModelField.USE_AZURE_OPENAI),
+    MIDSCENE_PLANNING_AZURE_OPENAI_SCOPE(ModelIntent.PLANNING, ModelField.AZURE_OPENAI_SCOPE),
+    MIDSCENE_PLANNING_AZURE_OPENAI_KEY(ModelIntent.PLANNING, ModelField.AZURE_OPENAI_KEY),
+    MIDSCENE_PLANNING_AZURE_OPENAI_ENDPOINT(ModelIntent.PLANNING, ModelField.AZURE_OPENAI_ENDPOINT),
+    MIDSCENE_PLANNING_AZURE_OPENAI_API_VERSION(ModelIntent.PLANNING, ModelField.AZURE_OPENAI_API_VERSION),
+    MIDSCENE_PLANNING_AZURE_OPENAI_DEPLOYMENT(ModelIntent.PLANNING, ModelField.AZURE_OPENAI_DEPLOYMENT),
+    MIDSCENE_PLANNING_AZURE_OPENAI_INIT_CONFIG_JSON(ModelIntent.PLANNING, ModelField.AZURE_EXTRA_CONFIG),
+    MIDSCENE_PLANNING_USE_ANTHROPIC_SDK(ModelIntent.PLANNING, ModelField.USE_ANTHROPIC_SDK),
+    MIDSCENE_PLANNING_ANTHROPIC_API_KEY(ModelIntent.PLANNING, ModelField.ANTHROPIC_API_KEY),
+    MIDSCENE_PLANNING_VL_MODE(ModelIntent.PLANNING, ModelField.VL_MODE),
+    MIDSCENE_PLANNING_MODEL_MAX_CONCURRENCY(ModelIntent.PLANNING, ModelField.MAX_CONCURRENCY),
+    MIDSCENE_PLANNING_MODEL_INITIAL_CONCURRENCY(ModelIntent.PLANNING, ModelField.INITIAL_CONCURRENCY),
+
+    // Model keys for the grounding intent.
+    MIDSCENE_GROUNDING_MODEL_NAME(ModelIntent.GROUNDING, ModelField.MODEL_NAME),
+    MIDSCENE_GROUNDING_OPENAI_SOCKS_PROXY(ModelIntent.GROUNDING, ModelField.SOCKS_PROXY),
+    MIDSCENE_GROUNDING_OPENAI_HTTP_PROXY(ModelIntent.GROUNDING, ModelField.HTTP_PROXY),
+    MIDSCENE_GROUNDING_OPENAI_BASE_URL(ModelIntent.GROUNDING, ModelField.OPENAI_BASE_URL),
+    MIDSCENE_GROUNDING_OPENAI_API_KEY(ModelIntent.GROUNDING, ModelField.OPENAI_API_KEY),
+    MIDSCENE_GROUNDING_OPENAI_INIT_CONFIG_JSON(ModelIntent.GROUNDING, ModelField.OPENAI_EXTRA_CONFIG),
+    MIDSCENE_GROUNDING_OPENAI_USE_AZURE(ModelIntent.GROUNDING, ModelField.OPENAI_USE_AZURE_DEPRECATED),
+    MIDSCENE_GROUNDING_USE_AZURE_OPENAI(ModelIntent.GROUNDING, ModelField.USE_AZURE_OPENAI),
+    MIDSCENE_GROUNDING_AZURE_OPENAI_SCOPE(ModelIntent.GROUNDING, ModelField.AZURE_OPENAI_SCOPE),
+    MIDSCENE_GROUNDING_AZURE_OPENAI_KEY(ModelIntent.GROUNDING, ModelField.AZURE_OPENAI_KEY),
+    MIDSCENE_GROUNDING_AZURE_OPENAI_ENDPOINT(ModelIntent.GROUNDING, ModelField.AZURE_OPENAI_ENDPOINT),
+    MIDSCENE_GROUNDING_AZURE_OPENAI_API_VERSION(ModelIntent.GROUNDING, ModelField.AZURE_OPENAI_API_VERSION),
+    MIDSCENE_GROUNDING_AZURE_OPENAI_DEPLOYMENT(ModelIntent.GROUNDING, ModelField.AZURE_OPENAI_DEPLOYMENT),
+    MIDSCENE_GROUNDING_AZURE_OPENAI_INIT_CONFIG_JSON(ModelIntent.GROUNDING, ModelField.AZURE_EXTRA_CONFIG),
+    MIDSCENE_GROUNDING_USE_ANTHROPIC_SDK(ModelIntent.GROUNDING, ModelField.USE_ANTHROPIC_SDK),
+    MIDSCENE_GROUNDING_ANTHROPIC_API_KEY(ModelIntent.GROUNDING, ModelField.ANTHROPIC_API_KEY),
+    MIDSCENE_GROUNDING_VL_MODE(ModelIntent.GROUNDING, ModelField.VL_MODE),
+    MIDSCENE_GROUNDING_MODEL_MAX_CONCURRENCY(ModelIntent.GROUNDING, ModelField.MAX_CONCURRENCY),
+    MIDSCENE_GROUNDING_MODEL_INITIAL_CONCURRENCY(ModelIntent.GROUNDING, ModelField.INITIAL_CONCURRENCY),
+
+    // Legacy model keys, only read by the process.env fallback.
+    OPENAI_API_KEY(Type.STRING, Scope.MODEL),
+    OPENAI_BASE_URL(Type.STRING, Scope.MODEL),
+    OPENAI_USE_AZURE(Type.BOOLEAN, Scope.MODEL),
+    AZURE_OPENAI_ENDPOINT(Type.STRING, Scope.MODEL),
+    AZURE_OPENAI_KEY(Type.STRING, Scope.MODEL),
+    AZURE_OPENAI_API_VERSION(Type.STRING, Scope.MODEL),
+    AZURE_OPENAI_DEPLOYMENT(Type.STRING, Scope.MODEL),
+    ANTHROPIC_API_KEY(Type.STRING, Scope.MODEL),
+    MIDSCENE_USE_VLM_UI_TARS(Type.STRING, Scope.MODEL),
+    MIDSCENE_USE_QWEN_VL(Type.BOOLEAN, Scope.MODEL),
+    MIDSCENE_USE_QWEN3_VL(Type.BOOLEAN, Scope.MODEL),
+    MIDSCENE_USE_DOUBAO_VISION(Type.BOOLEAN, Scope.MODEL),
+    MIDSCENE_USE_GEMINI(Type.BOOLEAN, Scope.MODEL),
+    MIDSCENE_USE_VL_MODEL(Type.BOOLEAN, Scope.MODEL),
+    MIDSCENE_API_TYPE("MIDSCENE-API-TYPE", Type.STRING, Scope.MODEL, null, null, null);
+
+    /**
+     * How a raw value is interpreted.
+     */
+    public enum Type {
+        STRING,
+        BOOLEAN,
+        NUMBER,
+        JSON
+    }
+
+    /**
+     * Where a key may be set, following {@code BASIC_ENV_KEYS}, {@code GLOBAL_ENV_KEYS}
+     * and {@code MODEL_ENV_KEYS}.
+     */
+    public enum Scope {
+        BASIC,
+        GLOBAL,
+        MODEL,
+        UNUSED
+    }
+
+    /**
+     * Fields of a model config, one per entry of {@code IModelConfigKeys}, followed by
+     * the JVM-only request limits.
+     */
+    public enum ModelField {
+        MODEL_NAME,
+        SOCKS_PROXY,
+        HTTP_PROXY,
+        OPENAI_BASE_URL,
+        OPENAI_API_KEY,
+        OPENAI_EXTRA_CONFIG,
+        OPENAI_USE_AZURE_DEPRECATED,
+        USE_AZURE_OPENAI,
+        AZURE_OPENAI_SCOPE,
+        AZURE_OPENAI_KEY,
+        AZURE_OPENAI_ENDPOINT,
+        AZURE_OPENAI_API_VERSION,
+        AZURE_OPENAI_DEPLOYMENT,
+        AZURE_EXTRA_CONFIG,
+        USE_ANTHROPIC_SDK,
+        ANTHROPIC_API_KEY,
+        VL_MODE,
+        MAX_CONCURRENCY,
+        INITIAL_CONCURRENCY
+    }
+
+    private static final EnvKey[] VALUES = values();
+    private static final Map<String, EnvKey> BY_KEY = new HashMap<>();
+    private static final EnvKey[][] MODEL_KEYS = new EnvKey[ModelIntent.values().length][ModelField.values().length];
+    private static final EnvKey[] LEGACY_MODEL_KEYS = new EnvKey[ModelField.values().length];
+
+    static {
+        for (EnvKey key : VALUES) {
+            BY_KEY.put(key.key, key);
+            if (key.intent != null) {
+                MODEL_KEYS[key.intent.ordinal()][key.field.ordinal()] = key;
+            }
+        }
+        System.arraycopy(MODEL_KEYS[ModelIntent.DEFAULT.ordinal()], 0, LEGACY_MODEL_KEYS, 0, LEGACY_MODEL_KEYS.length);
+        LEGACY_MODEL_KEYS[ModelField.OPENAI_BASE_URL.ordinal()] = OPENAI_BASE_URL;
+        LEGACY_MODEL_KEYS[ModelField.OPENAI_API_KEY.ordinal()] = OPENAI_API_KEY;
+        LEGACY_MODEL_KEYS[ModelField.OPENAI_USE_AZURE_DEPRECATED.ordinal()] = OPENAI_USE_AZURE;
+        LEGACY_MODEL_KEYS[ModelField.AZURE_OPENAI_KEY.ordinal()] = AZURE_OPENAI_KEY;
+        LEGACY_MODEL_KEYS[ModelField.AZURE_OPENAI_ENDPOINT.ordinal()] = AZURE_OPENAI_ENDPOINT;
+        LEGACY_MODEL_KEYS[ModelField.AZURE_OPENAI_API_VERSION.ordinal()] = AZURE_OPENAI_API_VERSION;
+        LEGACY_MODEL_KEYS[ModelField.AZURE_OPENAI_DEPLOYMENT.ordinal()] = AZURE_OPENAI_DEPLOYMENT;
+        LEGACY_MODEL_KEYS[ModelField.ANTHROPIC_API_KEY.ordinal()] = ANTHROPIC_API_KEY;
+        // The legacy table has no VL mode key; it is derived from the MIDSCENE_USE_* flags.
+        LEGACY_MODEL_KEYS[ModelField.VL_MODE.ordinal()] = null;
+    }
+
+    private final String key;
+    private final Type type;
+    private final Scope scope;
+    private final String defaultValue;
+    private final ModelIntent intent;
+    private final ModelField field;
+
+    EnvKey(Type type, Scope scope) {
+        this(null, type, scope, null, null, null);
+    }
+
+    EnvKey(Type type, Scope scope, String defaultValue) {
+        this(null, type, scope, defaultValue, null, null);
+    }
+
+    EnvKey(ModelIntent intent, ModelField field) {
+        this(null, typeOf(field), Scope.MODEL, null, intent, field);
+    }
+
+    EnvKey(String key, Type type, Scope scope, String defaultValue, ModelIntent intent, ModelField field) {
+        this.key = key != null ? key : name();
+        this.type = type;
+        this.scope = scope;
+        this.defaultValue = defaultValue;
+        this.intent = intent;
+        this.field = field;
+    }
+
+    private static Type typeOf(ModelField field) {
+        return switch (field) {
+            case OPENAI_EXTRA_CONFIG, AZURE_EXTRA_CONFIG -> Type.JSON;
+            case OPENAI_USE_AZURE_DEPRECATED, USE_AZURE_OPENAI, USE_ANTHROPIC_SDK -> Type.BOOLEAN;
+            case MAX_CONCURRENCY, INITIAL_CONCURRENCY -> Type.NUMBER;
+            default -> Type.STRING;
+        };
+    }
+
+    /** The environment variable name. */
+    public String key() {
+        return key;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public Scope scope() {
+        return scope;
+    }
+
+    /** Value used when the key is unset, or {@code null}. */
+    public String defaultValue() {
+        return defaultValue;
+    }
+
+    /** The intent a model key configures, or {@code null} for non-model keys. */
+    public ModelIntent intent() {
+        return intent;
+    }
+
+    /** The model config field a model key sets, or {@code null}. */
+    public ModelField field() {
+        return field;
+    }
+
+    public static Optional<EnvKey> lookup(String key) {
+        return Optional.ofNullable(BY_KEY.get(Objects.requireNonNull(key, "key")));
+    }
+
+    /** Number of registered keys, the length of ordinal-indexed value arrays. */
+    public static int count() {
+        return VALUES.length;
+    }
+
+    static EnvKey byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /** The key holding {@code field} for {@code intent}, as in {@code constants.ts}. */
+    public static EnvKey modelKey(ModelIntent intent, ModelField field) {
+        return MODEL_KEYS[intent.ordinal()][field.ordinal()];
+    }
+
+    /**
+     * The key holding {@code field} in {@code DEFAULT_MODEL_CONFIG_KEYS_LEGACY}, or
+     * {@code null} when the legacy table has none.
+     */
+    public static EnvKey legacyModelKey(ModelField field) {
+        return LEGACY_MODEL_KEYS[field.ordinal()];
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Set;
 
 /**
  * Constants that mirror the env key declarations from the TypeScript shared package.
+ * {@link EnvKey} is the typed registry covering the full key set.
  */
 public final class EnvKeys {
     private EnvKeys() {}
@@ -20,12 +21,38 @@ public final class EnvKeys {
     public static final String MIDSCENE_MCP_USE_PUPPETEER_MODE = "MIDSCENE_MCP_USE_PUPPETEER_MODE";
     public static final String MIDSCENE_MCP_CHROME_PATH = "MIDSCENE_MCP_CHROME_PATH";
     public static final String MIDSCENE_MCP_ANDROID_MODE = "MIDSCENE_MCP_ANDROID_MODE";
+    public static final String DEBUG = "DEBUG";
     public static final String DOCKER_CONTAINER = "DOCKER_CONTAINER";
     public static final String MIDSCENE_FORCE_DEEP_THINK = "MIDSCENE_FORCE_DEEP_THINK";
     public static final String MIDSCENE_RUN_DIR = "MIDSCENE_RUN_DIR";
     public static final String MIDSCENE_CACHE = "MIDSCENE_CACHE";
     public static final String MIDSCENE_REPORT_TAG_NAME = "MIDSCENE_REPORT_TAG_NAME";
     public static final String MIDSCENE_CACHE_MAX_FILENAME_LENGTH = "MIDSCENE_CACHE_MAX_FILENAME_LENGTH";
+    public static final String MIDSCENE_DEBUG_LOG_ASYNC = "MIDSCENE_DEBUG_LOG_ASYNC";
+    public static final String MIDSCENE_DEBUG_LOG_BUFFER_SIZE = "MIDSCENE_DEBUG_LOG_BUFFER_SIZE";
+    public static final String MIDSCENE_DEBUG_LOG_FLUSH_INTERVAL_MS = "MIDSCENE_DEBUG_LOG_FLUSH_INTERVAL_MS";
+    public static final String MIDSCENE_DEBUG_LOG_BACKPRESSURE = "MIDSCENE_DEBUG_LOG_BACKPRESSURE";
+    public static final String MIDSCENE_DEBUG_LOG_SAMPLE_RATE = "MIDSCENE_DEBUG_LOG_SAMPLE_RATE";
+    public static final String MIDSCENE_AI_CACHE_MAX_BYTES = "MIDSCENE_AI_CACHE_MAX_BYTES";
+    public static final String MIDSCENE_AI_CACHE_TTL_MS = "MIDSCENE_AI_CACHE_TTL_MS";
+    public static final String MIDSCENE_AI_CACHE_STRIPES = "MIDSCENE_AI_CACHE_STRIPES";
+    public static final String MIDSCENE_SCREENSHOT_DIFF_TILE_SIZE = "MIDSCENE_SCREENSHOT_DIFF_TILE_SIZE";
+    public static final String MIDSCENE_SCREENSHOT_DIFF_PIXEL_THRESHOLD = "MIDSCENE_SCREENSHOT_DIFF_PIXEL_THRESHOLD";
+    public static final String MIDSCENE_SCREENSHOT_DIFF_MIN_PIXELS = "MIDSCENE_SCREENSHOT_DIFF_MIN_PIXELS";
+    public static final String MIDSCENE_SCREENSHOT_HASH_DISTANCE = "MIDSCENE_SCREENSHOT_HASH_DISTANCE";
+    public static final String MIDSCENE_METRICS_PORT = "MIDSCENE_METRICS_PORT";
+    public static final String MIDSCENE_METRICS_DUMP = "MIDSCENE_METRICS_DUMP";
+    public static final String MIDSCENE_JFR_EVENTS = "MIDSCENE_JFR_EVENTS";
+    public static final String MIDSCENE_PLAYER_SPECULATE = "MIDSCENE_PLAYER_SPECULATE";
+    public static final String MIDSCENE_PLAYER_PARALLELISM = "MIDSCENE_PLAYER_PARALLELISM";
+    public static final String MIDSCENE_MODEL_MAX_CONCURRENCY = "MIDSCENE_MODEL_MAX_CONCURRENCY";
+    public static final String MIDSCENE_MODEL_INITIAL_CONCURRENCY = "MIDSCENE_MODEL_INITIAL_CONCURRENCY";
+    public static final String MIDSCENE_VQA_MODEL_MAX_CONCURRENCY = "MIDSCENE_VQA_MODEL_MAX_CONCURRENCY";
+    public static final String MIDSCENE_VQA_MODEL_INITIAL_CONCURRENCY = "MIDSCENE_VQA_MODEL_INITIAL_CONCURRENCY";
+    public static final String MIDSCENE_PLANNING_MODEL_MAX_CONCURRENCY = "MIDSCENE_PLANNING_MODEL_MAX_CONCURRENCY";
+    public static final String MIDSCENE_PLANNING_MODEL_INITIAL_CONCURRENCY = "MIDSCENE_PLANNING_MODEL_INITIAL_CONCURRENCY";
+    public static final String MIDSCENE_GROUNDING_MODEL_MAX_CONCURRENCY = "MIDSCENE_GROUNDING_MODEL_MAX_CONCURRENCY";
+    public static final String MIDSCENE_GROUNDING_MODEL_INITIAL_CONCURRENCY = "MIDSCENE_GROUNDING_MODEL_INITIAL_CONCURRENCY";
 
     private static final Set<String> BASIC_ENV_KEYS;
     private static final Set<String> BOOLEAN_ENV_KEYS;
@@ -44,6 +71,10 @@ public final class EnvKeys {
         booleanKeys.add(MIDSCENE_FORCE_DEEP_THINK);
         booleanKeys.add(MIDSCENE_MCP_USE_PUPPETEER_MODE);
         booleanKeys.add(MIDSCENE_MCP_ANDROID_MODE);
+        booleanKeys.add(MIDSCENE_DEBUG_LOG_ASYNC);
+        booleanKeys.add(MIDSCENE_METRICS_DUMP);
+        booleanKeys.add(MIDSCENE_JFR_EVENTS);
+        booleanKeys.add(MIDSCENE_PLAYER_SPECULATE);
         BOOLEAN_ENV_KEYS = Collections.unmodifiableSet(booleanKeys);
     }
 
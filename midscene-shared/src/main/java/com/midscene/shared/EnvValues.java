@@ -0,0 +1,73 @@
+package com.midscene.shared;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Immutable values for every {@link EnvKey}, resolved once and stored in arrays indexed
+ * by ordinal. Booleans and numbers are parsed up front, so reads are plain array loads.
+ */
+public final class EnvValues {
+    private final String[] raw;
+    private final boolean[] booleans;
+    private final boolean[] hasInt;
+    private final int[] ints;
+
+    private EnvValues(Function<String, Optional<String>> source) {
+        int count = EnvKey.count();
+        this.raw = new String[count];
+        this.booleans = new boolean[count];
+        this.hasInt = new boolean[count];
+        this.ints = new int[count];
+        for (int i = 0; i < count; i++) {
+            EnvKey key = EnvKey.byOrdinal(i);
+            String value = source.apply(key.key()).orElse(key.defaultValue());
+            raw[i] = value;
+            booleans[i] = EnvironmentUtils.toBoolean(value);
+            Optional<Integer> parsed = EnvironmentUtils.toInteger(value);
+            hasInt[i] = parsed.isPresent();
+            ints[i] = parsed.orElse(0);
+        }
+    }
+
+    /** Reads every key through {@link EnvironmentUtils#getEnv(String)}. */
+    public static EnvValues fromEnvironment() {
+        return new EnvValues(EnvironmentUtils::getEnv);
+    }
+
+    /** Reads every key from a config snapshot, which falls back to the environment. */
+    public static EnvValues from(ConfigManager.Snapshot snapshot) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        return new EnvValues(snapshot::get);
+    }
+
+    public static EnvValues of(Map<String, String> values) {
+        Objects.requireNonNull(values, "values");
+        return new EnvValues(key -> Optional.ofNullable(values.get(key)));
+    }
+
+    /** The raw value, the key's default, or {@code null}. */
+    public String get(EnvKey key) {
+        return raw[key.ordinal()];
+    }
+
+    /**
+     * Whether the value is a non-empty string. This is the JavaScript truthiness check
+     * the TS config code applies to flags such as {@code MIDSCENE_USE_AZURE_OPENAI}.
+     */
+    public boolean isSet(EnvKey key) {
+        String value = raw[key.ordinal()];
+        return value != null && !value.isEmpty();
+    }
+
+    public boolean getBoolean(EnvKey key) {
+        return booleans[key.ordinal()];
+    }
+
+    public int getInt(EnvKey key, int defaultValue) {
+        int ordinal = key.ordinal();
+        return hasInt[ordinal] ? ints[ordinal] : defaultValue;
+    }
+}
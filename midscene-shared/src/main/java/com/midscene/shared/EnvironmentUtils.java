@@ -5,6 +5,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
@@ -14,6 +15,7 @@ import java.util.function.Function;
 public final class EnvironmentUtils {
     private static final Map<String, String> OVERRIDES = new ConcurrentHashMap<>();
     private static volatile Function<String, String> envProvider = System::getenv;
+    private static final AtomicLong VERSION = new AtomicLong();
 
     private EnvironmentUtils() {}
 
@@ -72,18 +74,29 @@ public final class EnvironmentUtils {
         } else {
             OVERRIDES.put(key, value);
         }
+        VERSION.incrementAndGet();
     }
 
     public static void clearOverrides() {
         OVERRIDES.clear();
+        VERSION.incrementAndGet();
     }
 
     public static void setEnvProvider(Function<String, String> provider) {
         envProvider = provider != null ? provider : System::getenv;
+        VERSION.incrementAndGet();
     }
 
     public static void resetEnvProvider() {
         envProvider = System::getenv;
         clearOverrides();
     }
+
+    /**
+     * Changes whenever an override or the env provider changes, so callers that cache
+     * {@link #getEnv(String)} results know when to drop them.
+     */
+    static long version() {
+        return VERSION.get();
+    }
 }
@@ -0,0 +1,606 @@
+package com.midscene.shared;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.UnaryOperator;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Screenshot transforms from {@code packages/shared/src/img/transform.ts}, implemented
+ * on packed ARGB {@code int[]} buffers instead of Jimp, Sharp or Photon.
+ *
+ * <p>A {@link Pipeline} decodes once, then crops, resamples (Catmull-Rom, like the
+ * Photon path) and pads in the same pass over the pixels before encoding. Pixel
+ * buffers come from a small shared pool, and {@link Pipeline#applyAll(List)} spreads a
+ * batch of screenshots over the available cores.
+ */
+public final class ImageTransform {
+    /** Block size used by {@code paddingToMatchBlock} for Qwen-VL style models. */
+    public static final int DEFAULT_BLOCK_SIZE = 28;
+    public static final float DEFAULT_JPEG_QUALITY = 0.9f;
+
+    private static final MidsceneLoggerFactory.DebugFunction DEBUG = MidsceneLoggerFactory.getDebug("img");
+    private static final LatencyHistogram TRANSFORM_LATENCY = Metrics.step(Metrics.Step.IMAGE_TRANSFORM);
+    private static final int WHITE = 0xffffffff;
+    private static final String BASE64_SEPARATOR = ";base64,";
+    private static final PixelPool POOL = new PixelPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 3));
+    private static final ColorModel RGB = new DirectColorModel(24, 0xff0000, 0xff00, 0xff);
+
+    private ImageTransform() {
+    }
+
+    public record Size(int width, int height) {
+        public Size {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("size must be positive: " + width + "x" + height);
+            }
+        }
+    }
+
+    public record Rect(int left, int top, int width, int height) {
+    }
+
+    /**
+     * Encoded image bytes; {@code format} is the sub type used in data URLs, e.g.
+     * {@code "jpeg"} or {@code "png"}.
+     */
+    public record EncodedImage(byte[] data, String format, int width, int height) {
+        public String toBase64() {
+            return createImgBase64ByFormat(format, Base64.getEncoder().encodeToString(data));
+        }
+    }
+
+    /** Parts of a {@code data:<mime>;base64,<body>} string. */
+    public record Base64Image(String mimeType, String body) {
+        public byte[] decode() {
+            return Base64.getMimeDecoder().decode(body);
+        }
+
+        public String format() {
+            int slash = mimeType.indexOf('/');
+            return slash < 0 ? mimeType : mimeType.substring(slash + 1);
+        }
+    }
+
+    /**
+     * Decoded pixels in a pooled buffer, row-major with stride {@link #width()}. Close
+     * it to hand the buffer back to the pool.
+     */
+    public static final class Pixels implements AutoCloseable {
+        private final int width;
+        private final int height;
+        private int[] argb;
+
+        private Pixels(int[] argb, int width, int height) {
+            this.argb = argb;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int width() {
+            return width;
+        }
+
+        public int height() {
+            return height;
+        }
+
+        public int argb(int x, int y) {
+            Objects.checkIndex(x, width);
+            Objects.checkIndex(y, height);
+            return buffer()[y * width + x];
+        }
+
+        /** Copies row {@code y} into {@code target}, which needs room for {@link #width()} pixels. */
+        public int[] row(int y, int[] target) {
+            Objects.checkIndex(y, height);
+            System.arraycopy(buffer(), y * width, target, 0, width);
+            return target;
+        }
+
+        private int[] buffer() {
+            if (argb == null) {
+                throw new IllegalStateException("Pixels already closed");
+            }
+            return argb;
+        }
+
+        @Override
+        public void close() {
+            if (argb != null) {
+                POOL.release(argb);
+                argb = null;
+            }
+        }
+    }
+
+    public static String createImgBase64ByFormat(String format, String body) {
+        return "data:image/" + format + BASE64_SEPARATOR + body;
+    }
+
+    public static Base64Image parseBase64(String fullBase64String) {
+        Objects.requireNonNull(fullBase64String, "fullBase64String");
+        int index = fullBase64String.indexOf(BASE64_SEPARATOR);
+        if (!fullBase64String.startsWith("data:") || index < 0) {
+            String preview = fullBase64String.length() > 64 ? fullBase64String.substring(0, 64) + "..." : fullBase64String;
+            throw new IllegalArgumentException("parseBase64 fail because input is not a valid base64 string: " + preview);
+        }
+        return new Base64Image(fullBase64String.substring(5, index),
+                fullBase64String.substring(index + BASE64_SEPARATOR.length()));
+    }
+
+    /**
+     * Fits the size into 2048x768 keeping the aspect ratio, as recommended for the
+     * high detail mode of GPT-4o.
+     */
+    public static Size zoomForGPT4o(int originalWidth, int originalHeight) {
+        double newWidth = originalWidth;
+        double newHeight = originalHeight;
+        double aspectRatio = (double) originalWidth / originalHeight;
+        if (originalWidth > 2048) {
+            newWidth = 2048;
+            newHeight = newWidth / aspectRatio;
+        }
+        if (newHeight > 768) {
+            newHeight = 768;
+            newWidth = newHeight * aspectRatio;
+        }
+        return new Size((int) Math.round(newWidth), (int) Math.round(newHeight));
+    }
+
+    /** Rounds both sides up to a multiple of {@code blockSize}. */
+    public static Size paddedSize(int width, int height, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        return new Size(ceilToBlock(width, blockSize), ceilToBlock(height, blockSize));
+    }
+
+    /** Reads width and height from the image header without decoding the pixels. */
+    public static Size readSize(byte[] input) {
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(input))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                return new Size(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read image header", ex);
+        }
+    }
+
+    public static Pixels decode(byte[] input) {
+        Objects.requireNonNull(input, "input");
+        BufferedImage image;
+        try {
+            // In-memory streams: ImageIO would otherwise spool to a temp file.
+            image = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(input)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to decode image", ex);
+        }
+        if (image == null) {
+            throw new IllegalArgumentException("Unsupported image format");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = POOL.acquire(width * height);
+        unpack(image, argb);
+        return new Pixels(argb, width, height);
+    }
+
+    /** Counterpart of {@code jimpFromBase64}. */
+    public static Pixels fromBase64(String base64) {
+        return decode(parseBase64(base64).decode());
+    }
+
+    /**
+     * Resizes to {@code newSize} and re-encodes as JPEG at quality 90. When the size
+     * already matches, the input is returned untouched in its original format.
+     */
+    public static EncodedImage resizeAndConvert(String inputFormat, byte[] input, Size newSize) {
+        Objects.requireNonNull(newSize, "newSize");
+        Size original = readSize(input);
+        if (original.equals(newSize)) {
+            return new EncodedImage(input, inputFormat, original.width(), original.height());
+        }
+        return pipeline().resize(newSize).apply(input);
+    }
+
+    public static String resizeImgBase64(String inputBase64, Size newSize) {
+        Base64Image parsed = parseBase64(inputBase64);
+        return resizeAndConvert(parsed.format(), parsed.decode(), newSize).toBase64();
+    }
+
+    /** Pads right and bottom with white up to a multiple of {@code blockSize}. */
+    public static EncodedImage paddingToMatchBlock(byte[] input, int blockSize) {
+        return pipeline().padToBlock(blockSize).apply(input);
+    }
+
+    public static EncodedImage cropByRect(byte[] input, Rect rect, boolean paddingImage) {
+        Pipeline pipeline = pipeline().crop(rect);
+        return (paddingImage ? pipeline.padToBlock(DEFAULT_BLOCK_SIZE) : pipeline).apply(input);
+    }
+
+    public static Pipeline pipeline() {
+        return new Pipeline(null, UnaryOperator.identity(), 0, "jpeg", DEFAULT_JPEG_QUALITY);
+    }
+
+    /**
+     * Immutable description of decode, crop, resize, pad and encode steps, applied in
+     * that order. Every step method returns a new pipeline.
+     */
+    public static final class Pipeline {
+        private final Rect crop;
+        private final UnaryOperator<Size> sizing;
+        private final int blockSize;
+        private final String format;
+        private final float quality;
+
+        private Pipeline(Rect crop, UnaryOperator<Size> sizing, int blockSize, String format, float quality) {
+            this.crop = crop;
+            this.sizing = sizing;
+            this.blockSize = blockSize;
+            this.format = format;
+            this.quality = quality;
+        }
+
+        public Pipeline crop(Rect rect) {
+            return new Pipeline(Objects.requireNonNull(rect, "rect"), sizing, blockSize, format, quality);
+        }
+
+        public Pipeline resize(Size size) {
+            Objects.requireNonNull(size, "size");
+            return resize(current -> size);
+        }
+
+        /** Resizes to a size derived from the (cropped) input, e.g. {@code s -> zoomForGPT4o(...)}. */
+        public Pipeline resize(UnaryOperator<Size> sizing) {
+            return new Pipeline(crop, Objects.requireNonNull(sizing, "sizing"), blockSize, format, quality);
+        }
+
+        public Pipeline padToBlock(int blockSize) {
+            if (blockSize <= 0) {
+                throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+            }
+            return new Pipeline(crop, sizing, blockSize, format, quality);
+        }
+
+        public Pipeline jpeg(float quality) {
+            if (quality <= 0 || quality > 1) {
+                throw new IllegalArgumentException("quality must be in (0, 1]: " + quality);
+            }
+            return new Pipeline(crop, sizing, blockSize, "jpeg", quality);
+        }
+
+        public Pipeline png() {
+            return new Pipeline(crop, sizing, blockSize, "png", quality);
+        }
+
+        public EncodedImage apply(byte[] input) {
+            long start = System.nanoTime();
+            MidsceneEvents.ImageTransformEvent event = MidsceneEvents.beginImageTransform();
+            try (Pixels source = decode(input)) {
+                EncodedImage result = apply(source);
+                TRANSFORM_LATENCY.recordSince(start);
+                if (event != null) {
+                    event.finish(source.width, source.height, result, input.length);
+                }
+                if (DEBUG.isEnabled()) {
+                    DEBUG.log("transform done, target size: " + result.width() + "x" + result.height()
+                            + ", cost: " + (System.nanoTime() - start) / 1_000_000 + "ms");
+                }
+                return result;
+            }
+        }
+
+        public EncodedImage apply(Pixels source) {
+            Rect window = crop == null
+                    ? new Rect(0, 0, source.width, source.height)
+                    : clamp(crop, source.width, source.height);
+            Size scaled = Objects.requireNonNull(sizing.apply(new Size(window.width(), window.height())), "size");
+            Size out = blockSize > 0 ? paddedSize(scaled.width(), scaled.height(), blockSize) : scaled;
+            int[] target = POOL.acquire(out.width() * out.height());
+            try {
+                if (scaled.width() == window.width() && scaled.height() == window.height()) {
+                    copy(source.buffer(), source.width, window, target, out.width());
+                } else {
+                    resample(source.buffer(), source.width, window, scaled, target, out.width());
+                }
+                fillPadding(target, out, scaled);
+                return new EncodedImage(encode(target, out, format, quality), format, out.width(), out.height());
+            } finally {
+                POOL.release(target);
+            }
+        }
+
+        /** Transforms each input on the common fork-join pool; results keep input order. */
+        public List<EncodedImage> applyAll(List<byte[]> inputs) {
+            return inputs.parallelStream().map(this::apply).toList();
+        }
+    }
+
+    private static int ceilToBlock(int value, int blockSize) {
+        return (value + blockSize - 1) / blockSize * blockSize;
+    }
+
+    private static Rect clamp(Rect rect, int width, int height) {
+        int left = Math.max(0, rect.left());
+        int top = Math.max(0, rect.top());
+        int right = Math.min(width, rect.left() + rect.width());
+        int bottom = Math.min(height, rect.top() + rect.height());
+        if (right <= left || bottom <= top) {
+            throw new IllegalArgumentException("crop rect " + rect + " is outside the " + width + "x" + height + " image");
+        }
+        return new Rect(left, top, right - left, bottom - top);
+    }
+
+    private static void unpack(BufferedImage image, int[] argb) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int pixels = width * height;
+        WritableRaster raster = image.getRaster();
+        boolean plain = raster.getParent() == null && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0;
+        switch (plain ? image.getType() : BufferedImage.TYPE_CUSTOM) {
+            case BufferedImage.TYPE_INT_ARGB -> System.arraycopy(
+                    ((DataBufferInt) raster.getDataBuffer()).getData(), 0, argb, 0, pixels);
+            case BufferedImage.TYPE_INT_RGB -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                for (int i = 0; i < pixels; i++) {
+                    argb[i] = 0xff000000 | data[i];
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR -> {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                for (int i = 0, p = 0; i < pixels; i++, p += 3) {
+                    argb[i] = 0xff000000 | (data[p + 2] & 0xff) << 16 | (data[p + 1] & 0xff) << 8 | data[p] & 0xff;
+                }
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR -> {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                for (int i = 0, p = 0; i < pixels; i++, p += 4) {
+                    argb[i] = (data[p] & 0xff) << 24 | (data[p + 3] & 0xff) << 16 | (data[p + 2] & 0xff) << 8 | data[p + 1] & 0xff;
+                }
+            }
+            default -> image.getRGB(0, 0, width, height, argb, 0, width);
+        }
+    }
+
+    private static byte[] encode(int[] argb, Size size, String format, float quality) {
+        int width = size.width();
+        int height = size.height();
+        boolean jpeg = format.equals("jpeg");
+        ColorModel model = jpeg ? RGB : ColorModel.getRGBdefault();
+        int[] masks = jpeg
+                ? new int[] {0xff0000, 0xff00, 0xff}
+                : new int[] {0xff0000, 0xff00, 0xff, 0xff000000};
+        // Wraps the pooled buffer directly; no copy into a separate raster.
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(argb, width * height), width, height, width, masks, null);
+        BufferedImage image = new BufferedImage(model, raster, false, null);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(1024, width * height / 4));
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (jpeg) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to encode " + format, ex);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /** Crop and pad without resampling: a row copy from the window into the target. */
+    private static void copy(int[] source, int sourceWidth, Rect window, int[] target, int targetWidth) {
+        for (int y = 0; y < window.height(); y++) {
+            System.arraycopy(source, (window.top() + y) * sourceWidth + window.left(), target, y * targetWidth, window.width());
+        }
+    }
+
+    private static void fillPadding(int[] target, Size out, Size content) {
+        if (content.width() < out.width()) {
+            for (int y = 0; y < content.height(); y++) {
+                int row = y * out.width();
+                Arrays.fill(target, row + content.width(), row + out.width(), WHITE);
+            }
+        }
+        if (content.height() < out.height()) {
+            Arrays.fill(target, content.height() * out.width(), out.height() * out.width(), WHITE);
+        }
+    }
+
+    /**
+     * Separable Catmull-Rom resampling of {@code window} to {@code scaled}: a horizontal
+     * pass into a pooled scratch buffer, then a vertical pass straight into the target
+     * rows, leaving room for padding on the right.
+     */
+    private static void resample(int[] source, int sourceWidth, Rect window, Size scaled, int[] target, int targetWidth) {
+        Kernel horizontal = Kernel.of(window.width(), scaled.width());
+        Kernel vertical = Kernel.of(window.height(), scaled.height());
+        int width = scaled.width();
+        int[] scratch = POOL.acquire(width * window.height());
+        try {
+            float[] acc = new float[4];
+            for (int y = 0; y < window.height(); y++) {
+                int rowStart = (window.top() + y) * sourceWidth + window.left();
+                int scratchRow = y * width;
+                for (int x = 0; x < width; x++) {
+                    int start = horizontal.start[x];
+                    int base = x * horizontal.taps;
+                    acc[0] = acc[1] = acc[2] = acc[3] = 0;
+                    for (int k = 0; k < horizontal.count[x]; k++) {
+                        accumulate(acc, source[rowStart + start + k], horizontal.weights[base + k]);
+                    }
+                    scratch[scratchRow + x] = pack(acc);
+                }
+            }
+            float[] row = new float[width * 4];
+            for (int y = 0; y < scaled.height(); y++) {
+                Arrays.fill(row, 0);
+                int start = vertical.start[y];
+                int base = y * vertical.taps;
+                for (int k = 0; k < vertical.count[y]; k++) {
+                    float weight = vertical.weights[base + k];
+                    int scratchRow = (start + k) * width;
+                    for (int x = 0, r = 0; x < width; x++, r += 4) {
+                        int pixel = scratch[scratchRow + x];
+                        row[r] += (pixel >>> 24) * weight;
+                        row[r + 1] += (pixel >>> 16 & 0xff) * weight;
+                        row[r + 2] += (pixel >>> 8 & 0xff) * weight;
+                        row[r + 3] += (pixel & 0xff) * weight;
+                    }
+                }
+                int targetRow = y * targetWidth;
+                for (int x = 0, r = 0; x < width; x++, r += 4) {
+                    target[targetRow + x] = channel(row[r]) << 24 | channel(row[r + 1]) << 16
+                            | channel(row[r + 2]) << 8 | channel(row[r + 3]);
+                }
+            }
+        } finally {
+            POOL.release(scratch);
+        }
+    }
+
+    private static void accumulate(float[] acc, int pixel, float weight) {
+        acc[0] += (pixel >>> 24) * weight;
+        acc[1] += (pixel >>> 16 & 0xff) * weight;
+        acc[2] += (pixel >>> 8 & 0xff) * weight;
+        acc[3] += (pixel & 0xff) * weight;
+    }
+
+    private static int pack(float[] acc) {
+        return channel(acc[0]) << 24 | channel(acc[1]) << 16 | channel(acc[2]) << 8 | channel(acc[3]);
+    }
+
+    private static int channel(float value) {
+        int rounded = Math.round(value);
+        return rounded < 0 ? 0 : Math.min(rounded, 255);
+    }
+
+    /**
+     * Precomputed, normalized filter taps for one axis. When shrinking, the filter is
+     * widened by the scale factor so every source pixel contributes.
+     */
+    private static final class Kernel {
+        private final int taps;
+        private final int[] start;
+        private final int[] count;
+        private final float[] weights;
+
+        private Kernel(int taps, int[] start, int[] count, float[] weights) {
+            this.taps = taps;
+            this.start = start;
+            this.count = count;
+            this.weights = weights;
+        }
+
+        private static Kernel of(int sourceSize, int targetSize) {
+            double scale = (double) sourceSize / targetSize;
+            double filterScale = Math.max(1, scale);
+            double support = 2 * filterScale;
+            int taps = (int) Math.ceil(support) * 2 + 1;
+            int[] start = new int[targetSize];
+            int[] count = new int[targetSize];
+            float[] weights = new float[targetSize * taps];
+            for (int i = 0; i < targetSize; i++) {
+                double center = (i + 0.5) * scale;
+                int low = Math.max(0, (int) Math.floor(center - support));
+                int high = Math.min(sourceSize, (int) Math.ceil(center + support));
+                high = Math.min(high, low + taps);
+                double sum = 0;
+                for (int j = low; j < high; j++) {
+                    double weight = catmullRom((j + 0.5 - center) / filterScale);
+                    weights[i * taps + j - low] = (float) weight;
+                    sum += weight;
+                }
+                if (sum != 0) {
+                    for (int j = 0; j < high - low; j++) {
+                        weights[i * taps + j] /= (float) sum;
+                    }
+                }
+                start[i] = low;
+                count[i] = high - low;
+            }
+            return new Kernel(taps, start, count, weights);
+        }
+
+        private static double catmullRom(double x) {
+            x = Math.abs(x);
+            if (x < 1) {
+                return 1.5 * x * x * x - 2.5 * x * x + 1;
+            }
+            if (x < 2) {
+                return -0.5 * x * x * x + 2.5 * x * x - 4 * x + 2;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Bounded set of reusable pixel buffers, sized for source, scratch and target per
+     * core. A buffer may be longer than requested; callers only touch the prefix they
+     * asked for. Buffers above {@link #MAX_POOLED_PIXELS} are left to the GC.
+     */
+    private static final class PixelPool {
+        private static final int MAX_POOLED_PIXELS = 4096 * 2048;
+        private final ArrayBlockingQueue<int[]> free;
+
+        private PixelPool(int capacity) {
+            this.free = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private int[] acquire(int length) {
+            for (int i = free.size(); i > 0; i--) {
+                int[] buffer = free.poll();
+                if (buffer == null) {
+                    break;
+                }
+                if (buffer.length >= length) {
+                    return buffer;
+                }
+                free.offer(buffer);
+            }
+            return new int[length];
+        }
+
+        private void release(int[] buffer) {
+            if (buffer.length <= MAX_POOLED_PIXELS) {
+                // Dropped when the pool is full.
+                free.offer(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,750 @@
+package com.midscene.shared;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Pull parser for JSON documents. Input is decoded through a fixed-size window so
+ * multi-megabyte files never exist as a single {@code String}; callers walk the
+ * token stream, read primitives without boxing and skip subtrees they don't need.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public final class JsonReader implements Closeable {
+    /**
+     * Token kinds returned by {@link #peek()}.
+     */
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT
+    }
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int NAME_CACHE_SIZE = 256;
+    private static final int MAX_CACHED_NAME_LENGTH = 64;
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_BEGIN_OBJECT = 1;
+    private static final int PEEKED_END_OBJECT = 2;
+    private static final int PEEKED_BEGIN_ARRAY = 3;
+    private static final int PEEKED_END_ARRAY = 4;
+    private static final int PEEKED_TRUE = 5;
+    private static final int PEEKED_FALSE = 6;
+    private static final int PEEKED_NULL = 7;
+    private static final int PEEKED_STRING = 8;
+    private static final int PEEKED_NAME = 9;
+    private static final int PEEKED_LONG = 10;
+    private static final int PEEKED_DOUBLE = 11;
+    private static final int PEEKED_EOF = 12;
+
+    private final Reader reader;
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private boolean decoderFlushed;
+
+    private char[] buffer;
+    private int pos;
+    private int limit;
+    private long consumed;
+
+    private int[] stack = new int[32];
+    private int stackSize = 1;
+
+    private int peeked = PEEKED_NONE;
+    private long peekedLong;
+    private double peekedDouble;
+
+    private final String[] nameCache = new String[NAME_CACHE_SIZE];
+
+    JsonReader(Reader reader, int bufferSize) {
+        this(Objects.requireNonNull(reader, "reader"), null, bufferSize);
+    }
+
+    JsonReader(ByteBuffer bytes, int bufferSize) {
+        this(null, Objects.requireNonNull(bytes, "bytes"), bufferSize);
+    }
+
+    private JsonReader(Reader reader, ByteBuffer bytes, int bufferSize) {
+        if (bufferSize < 8) {
+            throw new IllegalArgumentException("bufferSize must be at least 8: " + bufferSize);
+        }
+        this.reader = reader;
+        this.bytes = bytes;
+        this.decoder = bytes == null ? null : StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = new char[bufferSize];
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+    public static JsonReader of(Reader reader) {
+        return new JsonReader(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public static JsonReader of(String text) {
+        return new JsonReader(new StringReader(Objects.requireNonNull(text, "text")), DEFAULT_BUFFER_SIZE);
+    }
+
+    public static JsonReader of(byte[] utf8) {
+        return new JsonReader(ByteBuffer.wrap(Objects.requireNonNull(utf8, "utf8")), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Reads UTF-8 from the remaining bytes of {@code utf8}, which may be a direct or
+     * memory-mapped buffer. The buffer's position is advanced as input is consumed.
+     */
+    public static JsonReader of(ByteBuffer utf8) {
+        return new JsonReader(utf8, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Token peek() {
+        return switch (peeked()) {
+            case PEEKED_BEGIN_OBJECT -> Token.BEGIN_OBJECT;
+            case PEEKED_END_OBJECT -> Token.END_OBJECT;
+            case PEEKED_BEGIN_ARRAY -> Token.BEGIN_ARRAY;
+            case PEEKED_END_ARRAY -> Token.END_ARRAY;
+            case PEEKED_NAME -> Token.NAME;
+            case PEEKED_STRING -> Token.STRING;
+            case PEEKED_LONG, PEEKED_DOUBLE -> Token.NUMBER;
+            case PEEKED_TRUE, PEEKED_FALSE -> Token.BOOLEAN;
+            case PEEKED_NULL -> Token.NULL;
+            default -> Token.END_DOCUMENT;
+        };
+    }
+
+    public void beginObject() {
+        expectPeeked(PEEKED_BEGIN_OBJECT, Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+        peeked = PEEKED_NONE;
+    }
+
+    public void endObject() {
+        expectPeeked(PEEKED_END_OBJECT, Token.END_OBJECT);
+        stackSize--;
+        peeked = PEEKED_NONE;
+    }
+
+    public void beginArray() {
+        expectPeeked(PEEKED_BEGIN_ARRAY, Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+        peeked = PEEKED_NONE;
+    }
+
+    public void endArray() {
+        expectPeeked(PEEKED_END_ARRAY, Token.END_ARRAY);
+        stackSize--;
+        peeked = PEEKED_NONE;
+    }
+
+    /**
+     * Returns whether the current object or array has another element.
+     */
+    public boolean hasNext() {
+        int p = peeked();
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+    }
+
+    /**
+     * Returns the next property name. Short names that repeat across the document are
+     * served from a small symbol cache, so they are only allocated once.
+     */
+    public String nextName() {
+        expectPeeked(PEEKED_NAME, Token.NAME);
+        String name = readName();
+        peeked = PEEKED_NONE;
+        return name;
+    }
+
+    public String nextString() {
+        expectPeeked(PEEKED_STRING, Token.STRING);
+        String value = readString();
+        peeked = PEEKED_NONE;
+        return value;
+    }
+
+    public boolean nextBoolean() {
+        int p = peeked();
+        if (p != PEEKED_TRUE && p != PEEKED_FALSE) {
+            throw unexpected(Token.BOOLEAN);
+        }
+        peeked = PEEKED_NONE;
+        return p == PEEKED_TRUE;
+    }
+
+    public void nextNull() {
+        expectPeeked(PEEKED_NULL, Token.NULL);
+        peeked = PEEKED_NONE;
+    }
+
+    public long nextLong() {
+        int p = peeked();
+        if (p == PEEKED_LONG) {
+            peeked = PEEKED_NONE;
+            return peekedLong;
+        }
+        if (p == PEEKED_DOUBLE) {
+            long value = (long) peekedDouble;
+            if (value != peekedDouble) {
+                throw error("Expected a long but was " + peekedDouble);
+            }
+            peeked = PEEKED_NONE;
+            return value;
+        }
+        throw unexpected(Token.NUMBER);
+    }
+
+    public int nextInt() {
+        int p = peeked();
+        if (p == PEEKED_LONG || p == PEEKED_DOUBLE) {
+            long value = p == PEEKED_LONG ? peekedLong : (long) peekedDouble;
+            if (value != (int) value || (p == PEEKED_DOUBLE && value != peekedDouble)) {
+                throw error("Expected an int but was " + (p == PEEKED_LONG ? peekedLong : peekedDouble));
+            }
+            peeked = PEEKED_NONE;
+            return (int) value;
+        }
+        throw unexpected(Token.NUMBER);
+    }
+
+    public double nextDouble() {
+        int p = peeked();
+        if (p == PEEKED_LONG) {
+            peeked = PEEKED_NONE;
+            return peekedLong;
+        }
+        if (p == PEEKED_DOUBLE) {
+            peeked = PEEKED_NONE;
+            return peekedDouble;
+        }
+        throw unexpected(Token.NUMBER);
+    }
+
+    /**
+     * Skips the next value, including whole objects and arrays, without materializing
+     * any of its strings. When positioned on a name, only the name is skipped.
+     */
+    public void skipValue() {
+        int depth = 0;
+        do {
+            int p = peeked();
+            switch (p) {
+                case PEEKED_BEGIN_OBJECT -> {
+                    push(EMPTY_OBJECT);
+                    depth++;
+                }
+                case PEEKED_BEGIN_ARRAY -> {
+                    push(EMPTY_ARRAY);
+                    depth++;
+                }
+                case PEEKED_END_OBJECT, PEEKED_END_ARRAY -> {
+                    if (depth == 0) {
+                        throw error("Nothing to skip");
+                    }
+                    stackSize--;
+                    depth--;
+                }
+                case PEEKED_NAME, PEEKED_STRING -> skipQuoted();
+                case PEEKED_EOF -> throw error("Unexpected end of input");
+                default -> {
+                    // Literals and numbers are fully consumed while peeking.
+                }
+            }
+            peeked = PEEKED_NONE;
+        } while (depth > 0);
+    }
+
+    /**
+     * Materializes the next value as {@link Map}, {@link List}, {@link String},
+     * {@link Long}, {@link Double}, {@link Boolean} or {@code null}.
+     */
+    public Object readValue() {
+        switch (peeked()) {
+            case PEEKED_BEGIN_OBJECT -> {
+                beginObject();
+                Map<String, Object> result = new HashMap<>();
+                while (hasNext()) {
+                    String name = nextName();
+                    result.put(name, readValue());
+                }
+                endObject();
+                return result;
+            }
+            case PEEKED_BEGIN_ARRAY -> {
+                beginArray();
+                List<Object> result = new ArrayList<>();
+                while (hasNext()) {
+                    result.add(readValue());
+                }
+                endArray();
+                return result;
+            }
+            case PEEKED_STRING -> {
+                return nextString();
+            }
+            case PEEKED_LONG -> {
+                return nextLong();
+            }
+            case PEEKED_DOUBLE -> {
+                return nextDouble();
+            }
+            case PEEKED_TRUE, PEEKED_FALSE -> {
+                return nextBoolean();
+            }
+            case PEEKED_NULL -> {
+                nextNull();
+                return null;
+            }
+            default -> throw error("Expected a value but was " + peek());
+        }
+    }
+
+    /**
+     * Nesting depth of the current position; {@code 0} outside the top-level value.
+     */
+    public int depth() {
+        return stackSize - 1;
+    }
+
+    @Override
+    public void close() {
+        peeked = PEEKED_NONE;
+        stack[0] = NONEMPTY_DOCUMENT;
+        stackSize = 1;
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private int peeked() {
+        int p = peeked;
+        return p == PEEKED_NONE ? doPeek() : p;
+    }
+
+    private void expectPeeked(int expected, Token token) {
+        if (peeked() != expected) {
+            throw unexpected(token);
+        }
+    }
+
+    private int doPeek() {
+        int top = stackSize - 1;
+        int scope = stack[top];
+        if (scope == EMPTY_ARRAY) {
+            stack[top] = NONEMPTY_ARRAY;
+        } else if (scope == NONEMPTY_ARRAY) {
+            int c = nextNonWhitespace(true);
+            if (c == ']') {
+                return peeked = PEEKED_END_ARRAY;
+            }
+            if (c != ',') {
+                throw error("Unterminated array");
+            }
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            stack[top] = DANGLING_NAME;
+            if (scope == NONEMPTY_OBJECT) {
+                int c = nextNonWhitespace(true);
+                if (c == '}') {
+                    return peeked = PEEKED_END_OBJECT;
+                }
+                if (c != ',') {
+                    throw error("Unterminated object");
+                }
+            }
+            int c = nextNonWhitespace(true);
+            if (c == '"') {
+                return peeked = PEEKED_NAME;
+            }
+            if (c == '}' && scope == EMPTY_OBJECT) {
+                return peeked = PEEKED_END_OBJECT;
+            }
+            throw error("Expected name");
+        } else if (scope == DANGLING_NAME) {
+            stack[top] = NONEMPTY_OBJECT;
+            if (nextNonWhitespace(true) != ':') {
+                throw error("Expected ':'");
+            }
+        } else if (scope == EMPTY_DOCUMENT) {
+            stack[top] = NONEMPTY_DOCUMENT;
+        } else {
+            if (nextNonWhitespace(false) == -1) {
+                return peeked = PEEKED_EOF;
+            }
+            pos--;
+            throw error("Unexpected content after end of document");
+        }
+
+        int c = nextNonWhitespace(true);
+        switch (c) {
+            case ']' -> {
+                if (scope == EMPTY_ARRAY) {
+                    return peeked = PEEKED_END_ARRAY;
+                }
+                throw error("Unexpected value");
+            }
+            case '"' -> {
+                return peeked = PEEKED_STRING;
+            }
+            case '{' -> {
+                return peeked = PEEKED_BEGIN_OBJECT;
+            }
+            case '[' -> {
+                return peeked = PEEKED_BEGIN_ARRAY;
+            }
+            case 't' -> {
+                readLiteral("rue");
+                return peeked = PEEKED_TRUE;
+            }
+            case 'f' -> {
+                readLiteral("alse");
+                return peeked = PEEKED_FALSE;
+            }
+            case 'n' -> {
+                readLiteral("ull");
+                return peeked = PEEKED_NULL;
+            }
+            default -> {
+                pos--;
+                return peeked = readNumber();
+            }
+        }
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private int readNumber() {
+        int length = 0;
+        boolean integral = true;
+        scan:
+        while (true) {
+            if (pos + length == limit && !fill(length + 1)) {
+                break;
+            }
+            switch (buffer[pos + length]) {
+                case '-', '+', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> length++;
+                case '.', 'e', 'E' -> {
+                    integral = false;
+                    length++;
+                }
+                default -> {
+                    break scan;
+                }
+            }
+        }
+        if (length == 0) {
+            throw error("Unexpected character '" + buffer[pos] + "'");
+        }
+        if (integral && length <= 18 && parseLong(pos, length)) {
+            pos += length;
+            return PEEKED_LONG;
+        }
+        String text = new String(buffer, pos, length);
+        if (integral) {
+            try {
+                peekedLong = Long.parseLong(text);
+                pos += length;
+                return PEEKED_LONG;
+            } catch (NumberFormatException ignored) {
+                // Out of range or malformed: fall through to double parsing.
+            }
+        }
+        try {
+            peekedDouble = Double.parseDouble(text);
+        } catch (NumberFormatException ex) {
+            throw error("Invalid number " + text);
+        }
+        pos += length;
+        return PEEKED_DOUBLE;
+    }
+
+    private boolean parseLong(int start, int length) {
+        int i = start;
+        int end = start + length;
+        boolean negative = buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char c = buffer[i];
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            value = value * 10 + (c - '0');
+        }
+        peekedLong = negative ? -value : value;
+        return true;
+    }
+
+    private void readLiteral(String rest) {
+        int length = rest.length();
+        if (pos + length > limit && !fill(length)) {
+            throw error("Unexpected end of input");
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[pos + i] != rest.charAt(i)) {
+                throw error("Invalid literal");
+            }
+        }
+        pos += length;
+    }
+
+    private String readName() {
+        for (int i = pos; i < limit; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                String name = cachedName(pos, i - pos);
+                pos = i + 1;
+                return name;
+            }
+            if (c == '\\') {
+                break;
+            }
+        }
+        return readString();
+    }
+
+    private String cachedName(int offset, int length) {
+        if (length > MAX_CACHED_NAME_LENGTH) {
+            return new String(buffer, offset, length);
+        }
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+        String cached = nameCache[slot];
+        if (cached != null && cached.length() == length) {
+            boolean same = true;
+            for (int i = 0; i < length; i++) {
+                if (cached.charAt(i) != buffer[offset + i]) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                return cached;
+            }
+        }
+        String name = new String(buffer, offset, length);
+        nameCache[slot] = name;
+        return name;
+    }
+
+    private String readString() {
+        StringBuilder builder = null;
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    if (builder == null) {
+                        return new String(buffer, start, pos - start - 1);
+                    }
+                    builder.append(buffer, start, pos - start - 1);
+                    return builder.toString();
+                }
+                if (c == '\\') {
+                    if (builder == null) {
+                        builder = new StringBuilder(Math.max(16, (pos - start) * 2));
+                    }
+                    builder.append(buffer, start, pos - start - 1);
+                    builder.append(readEscape());
+                    start = pos;
+                }
+            }
+            if (builder == null) {
+                builder = new StringBuilder(Math.max(16, (pos - start) * 2));
+            }
+            builder.append(buffer, start, pos - start);
+            if (!fill(1)) {
+                throw error("Unterminated string");
+            }
+        }
+    }
+
+    private void skipQuoted() {
+        while (true) {
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    return;
+                }
+                if (c == '\\') {
+                    readEscape();
+                }
+            }
+            if (!fill(1)) {
+                throw error("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() {
+        if (pos == limit && !fill(1)) {
+            throw error("Unexpected end of input inside string");
+        }
+        char escaped = buffer[pos++];
+        switch (escaped) {
+            case '"', '\\', '/' -> {
+                return escaped;
+            }
+            case 'b' -> {
+                return '\b';
+            }
+            case 'f' -> {
+                return '\f';
+            }
+            case 'n' -> {
+                return '\n';
+            }
+            case 'r' -> {
+                return '\r';
+            }
+            case 't' -> {
+                return '\t';
+            }
+            case 'u' -> {
+                if (pos + 4 > limit && !fill(4)) {
+                    throw error("Invalid unicode escape");
+                }
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(buffer[pos + i], 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                pos += 4;
+                return (char) value;
+            }
+            default -> throw error("Invalid escape character: " + escaped);
+        }
+    }
+
+    private int nextNonWhitespace(boolean throwOnEof) {
+        while (true) {
+            if (pos == limit && !fill(1)) {
+                if (throwOnEof) {
+                    throw error("Unexpected end of input");
+                }
+                return -1;
+            }
+            char c = buffer[pos++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Compacts the window so the unread characters start at index 0 and reads until at
+     * least {@code minimum} characters are available.
+     */
+    private boolean fill(int minimum) {
+        if (pos > 0) {
+            consumed += pos;
+            limit -= pos;
+            System.arraycopy(buffer, pos, buffer, 0, limit);
+            pos = 0;
+        }
+        if (minimum > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, minimum));
+        }
+        while (limit < minimum) {
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            if (read == 0 && bytes != null && buffer.length - limit < 2) {
+                // The decoder needs room for a surrogate pair.
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private int read(char[] target, int offset, int length) {
+        if (reader != null) {
+            try {
+                return reader.read(target, offset, length);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        if (decoderFlushed) {
+            return -1;
+        }
+        CharBuffer out = CharBuffer.wrap(target, offset, length);
+        CoderResult result = decoder.decode(bytes, out, true);
+        if (result.isError()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        if (result.isUnderflow() && !bytes.hasRemaining()) {
+            decoder.flush(out);
+            decoderFlushed = true;
+        }
+        int written = out.position() - offset;
+        return written == 0 && decoderFlushed ? -1 : written;
+    }
+
+    private IllegalArgumentException unexpected(Token expected) {
+        return error("Expected " + expected + " but was " + peek());
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + (consumed + pos));
+    }
+}
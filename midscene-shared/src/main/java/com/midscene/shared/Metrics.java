@@ -0,0 +1,229 @@
+package com.midscene.shared;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and {@link LatencyHistogram}s, keyed by the same topic names
+ * as {@link MidsceneLoggerFactory#getDebug(String)} so a slow step in the metrics can
+ * be looked up in the matching debug log. Recording never takes a lock and costs the
+ * same whether or not anything is exported.
+ *
+ * <p>{@link #configure(ConfigManager)} starts a Prometheus text endpoint on
+ * {@link EnvKeys#MIDSCENE_METRICS_PORT} and, with {@link EnvKeys#MIDSCENE_METRICS_DUMP},
+ * writes {@code metrics-summary.json} into the run log directory at shutdown.
+ */
+public final class Metrics {
+    static final String SUMMARY_FILE = "metrics-summary.json";
+
+    /** Prometheus bucket bounds in seconds; finer buckets stay in the JSON summary. */
+    private static final double[] EXPORT_BOUNDS = {
+            0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Object EXPORTER_LOCK = new Object();
+    private static final AtomicBoolean DUMP_HOOK_INSTALLED = new AtomicBoolean();
+    private static MetricsExporter exporter;
+
+    private Metrics() {}
+
+    /**
+     * The stages of one agent step, each timed under its own topic.
+     */
+    public enum Step {
+        SCREENSHOT("screenshot"),
+        IMAGE_TRANSFORM("img"),
+        PROMPT_BUILD("ai:prompt"),
+        MODEL_CALL("ai:call"),
+        RESPONSE_PARSE("ai:parse"),
+        ACTION("action");
+
+        private final String topic;
+
+        Step(String topic) {
+            this.topic = topic;
+        }
+
+        public String topic() {
+            return topic;
+        }
+    }
+
+    /**
+     * Monotonic count backed by a {@link LongAdder}.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {}
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long sum() {
+            return value.sum();
+        }
+    }
+
+    public static Counter counter(String topic) {
+        Objects.requireNonNull(topic, "topic");
+        return COUNTERS.computeIfAbsent(topic, ignored -> new Counter());
+    }
+
+    public static LatencyHistogram histogram(String topic) {
+        Objects.requireNonNull(topic, "topic");
+        return HISTOGRAMS.computeIfAbsent(topic, LatencyHistogram::new);
+    }
+
+    public static LatencyHistogram step(Step step) {
+        return histogram(step.topic());
+    }
+
+    /**
+     * Starts or stops the exporter and the shutdown dump from {@code config}. A port of
+     * {@code 0} or less, or no port, stops a running exporter.
+     */
+    public static void configure(ConfigManager config) {
+        Objects.requireNonNull(config, "config");
+        int port = config.getInt(EnvKeys.MIDSCENE_METRICS_PORT, 0);
+        synchronized (EXPORTER_LOCK) {
+            if (exporter != null && exporter.port() != port) {
+                exporter.close();
+                exporter = null;
+            }
+            if (port > 0 && exporter == null) {
+                exporter = MetricsExporter.start(port);
+            }
+        }
+        if (config.getBoolean(EnvKeys.MIDSCENE_METRICS_DUMP, false)
+                && DUMP_HOOK_INSTALLED.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    dumpSummary();
+                } catch (RuntimeException ex) {
+                    // Shutting down: nothing useful to do with the failure.
+                }
+            }, "midscene-metrics-dump"));
+        }
+    }
+
+    /** Writes the JSON summary to {@code <run dir>/log/metrics-summary.json}. */
+    public static Path dumpSummary() {
+        Path file = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG).resolve(SUMMARY_FILE);
+        writeSummary(file);
+        return file;
+    }
+
+    public static void writeSummary(Path file) {
+        try {
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), SUMMARY_FILE, ".tmp");
+            try {
+                Files.writeString(temp, summaryJson(), StandardCharsets.UTF_8);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write metrics summary " + file, ex);
+        }
+    }
+
+    /**
+     * {@code {"counters":{topic:n},"histograms":{topic:{"count":..,"meanMs":..,
+     * "p50Ms":..,"p90Ms":..,"p99Ms":..,"maxMs":..}}}}, topics sorted.
+     */
+    public static String summaryJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            JsonStrings.appendQuoted(json, entry.getKey());
+            json.append(':').append(entry.getValue().sum());
+        }
+        json.append("},\"histograms\":{");
+        first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            JsonStrings.appendQuoted(json, entry.getKey());
+            json.append(":{\"count\":").append(snapshot.count())
+                    .append(",\"meanMs\":").append(millis(snapshot.meanNanos()));
+            if (snapshot.count() > 0) {
+                json.append(",\"p50Ms\":").append(millis(snapshot.valueAtPercentile(50)))
+                        .append(",\"p90Ms\":").append(millis(snapshot.valueAtPercentile(90)))
+                        .append(",\"p99Ms\":").append(millis(snapshot.valueAtPercentile(99)));
+            }
+            json.append(",\"maxMs\":").append(millis(snapshot.maxNanos())).append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Prometheus text exposition format 0.0.4: counters as {@code midscene_<topic>_total},
+     * histograms as {@code midscene_<topic>_seconds}.
+     */
+    public static String prometheusText() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            String name = metricName(entry.getKey()) + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(entry.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            String name = metricName(entry.getKey()) + "_seconds";
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            out.append("# TYPE ").append(name).append(" histogram\n");
+            for (double bound : EXPORT_BOUNDS) {
+                out.append(name).append("_bucket{le=\"").append(bound).append("\"} ")
+                        .append(snapshot.countAtOrBelow((long) (bound * 1e9))).append('\n');
+            }
+            out.append(name).append("_bucket{le=\"+Inf\"} ").append(snapshot.count()).append('\n');
+            out.append(name).append("_sum ").append(snapshot.sumNanos() / 1e9).append('\n');
+            out.append(name).append("_count ").append(snapshot.count()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /** {@code midscene_} plus the topic with every character outside {@code [A-Za-z0-9_]} as {@code _}. */
+    static String metricName(String topic) {
+        StringBuilder name = new StringBuilder("midscene_");
+        for (int i = 0; i < topic.length(); i++) {
+            char c = topic.charAt(i);
+            name.append((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ? c : '_');
+        }
+        return name.toString();
+    }
+
+    static MetricsExporter exporter() {
+        synchronized (EXPORTER_LOCK) {
+            return exporter;
+        }
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
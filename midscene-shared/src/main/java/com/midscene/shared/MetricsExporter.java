@@ -0,0 +1,102 @@
+package com.midscene.shared;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Serves {@link Metrics#prometheusText()} at {@code http://127.0.0.1:<port>/metrics}.
+ * Bound to loopback only; requests are handled on virtual threads.
+ */
+public final class MetricsExporter implements AutoCloseable {
+    static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private MetricsExporter(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /** @param port local port, or {@code 0} for any free port */
+    public static MetricsExporter start(int port) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Invalid metrics port: " + port);
+        }
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("midscene-metrics-", 0).factory());
+        try {
+            return new MetricsExporter(startOnDaemonThread(port, executor), executor);
+        } catch (RuntimeException ex) {
+            executor.shutdown();
+            throw ex;
+        }
+    }
+
+    /**
+     * The server's dispatcher thread inherits daemon status from the thread that
+     * starts the server, so start it from a daemon thread: a running exporter must
+     * not keep the JVM alive.
+     */
+    private static HttpServer startOnDaemonThread(int port, ExecutorService executor) {
+        FutureTask<HttpServer> create = new FutureTask<>(() -> {
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.setExecutor(executor);
+            server.createContext(PATH, MetricsExporter::handle);
+            server.start();
+            return server;
+        });
+        Thread creator = new Thread(create, "midscene-metrics-start");
+        creator.setDaemon(true);
+        creator.start();
+        try {
+            return create.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting metrics exporter", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException io) {
+                throw new UncheckedIOException("Failed to start metrics exporter on port " + port, io);
+            }
+            throw new IllegalStateException("Failed to start metrics exporter on port " + port, cause);
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.prometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.midscene.shared;
+
+import java.util.List;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom JFR events for agent steps, so a recording from a busy host shows which
+ * model call, cache lookup, image transform or run directory write a stall belongs
+ * to. Events are only registered while {@link EnvKeys#MIDSCENE_JFR_EVENTS} is on.
+ *
+ * <p>Call sites go through the {@code begin...} factories, which return {@code null}
+ * when events are off, so the disabled path is one volatile read and no allocation:
+ *
+ * <pre>{@code
+ * MidsceneEvents.CacheLookupEvent event = MidsceneEvents.beginCacheLookup();
+ * Optional<String> value = lookup(...);
+ * if (event != null) {
+ *     event.finish("task", "LOCATE", prompt, value.isPresent());
+ * }
+ * }</pre>
+ *
+ * <p>With events on but no recording running, {@link Event#shouldCommit()} is false and
+ * field values are never computed.
+ */
+public final class MidsceneEvents {
+    private static final int MAX_TEXT_LENGTH = 256;
+    private static final List<Class<? extends Event>> EVENT_TYPES = List.of(
+            AiCallEvent.class, CacheLookupEvent.class, ImageTransformEvent.class, RunDirectoryWriteEvent.class);
+    private static final Object REGISTER_LOCK = new Object();
+    private static volatile boolean enabled;
+
+    static {
+        setEnabled(EnvironmentUtils.getEnv(EnvKeys.MIDSCENE_JFR_EVENTS)
+                .map(EnvironmentUtils::toBoolean)
+                .orElse(false));
+    }
+
+    private MidsceneEvents() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Registers or unregisters the event types with the flight recorder. */
+    public static void setEnabled(boolean value) {
+        synchronized (REGISTER_LOCK) {
+            if (value == enabled) {
+                return;
+            }
+            for (Class<? extends Event> type : EVENT_TYPES) {
+                if (value) {
+                    FlightRecorder.register(type);
+                } else {
+                    FlightRecorder.unregister(type);
+                }
+            }
+            enabled = value;
+        }
+    }
+
+    public static void configure(ConfigManager config) {
+        setEnabled(config.getBoolean(EnvKeys.MIDSCENE_JFR_EVENTS, false));
+    }
+
+    public static AiCallEvent beginAiCall() {
+        if (!enabled) {
+            return null;
+        }
+        AiCallEvent event = new AiCallEvent();
+        event.begin();
+        return event;
+    }
+
+    public static CacheLookupEvent beginCacheLookup() {
+        if (!enabled) {
+            return null;
+        }
+        CacheLookupEvent event = new CacheLookupEvent();
+        event.begin();
+        return event;
+    }
+
+    public static ImageTransformEvent beginImageTransform() {
+        if (!enabled) {
+            return null;
+        }
+        ImageTransformEvent event = new ImageTransformEvent();
+        event.begin();
+        return event;
+    }
+
+    public static RunDirectoryWriteEvent beginRunDirectoryWrite() {
+        if (!enabled) {
+            return null;
+        }
+        RunDirectoryWriteEvent event = new RunDirectoryWriteEvent();
+        event.begin();
+        return event;
+    }
+
+    static String truncate(String text) {
+        if (text == null || text.length() <= MAX_TEXT_LENGTH) {
+            return text;
+        }
+        return text.substring(0, MAX_TEXT_LENGTH);
+    }
+
+    @Name("midscene.AiCall")
+    @Label("AI Call")
+    @Category({"Midscene", "AI"})
+    @Description("One model request, from sending the body to parsing the response")
+    @Registered(false)
+    public static final class AiCallEvent extends Event {
+        @Label("Model")
+        private String model;
+
+        @Label("Intent")
+        private String intent;
+
+        @Label("Bytes Sent")
+        @DataAmount
+        private long bytesSent;
+
+        @Label("Bytes Received")
+        @DataAmount
+        private long bytesReceived;
+
+        @Label("Success")
+        private boolean success;
+
+        public void finish(String model, String intent, long bytesSent, long bytesReceived, boolean success) {
+            end();
+            if (shouldCommit()) {
+                this.model = model;
+                this.intent = intent;
+                this.bytesSent = bytesSent;
+                this.bytesReceived = bytesReceived;
+                this.success = success;
+                commit();
+            }
+        }
+    }
+
+    @Name("midscene.CacheLookup")
+    @Label("Cache Lookup")
+    @Category({"Midscene", "Cache"})
+    @Description("A plan, locate or model response cache lookup")
+    @StackTrace(false)
+    @Registered(false)
+    public static final class CacheLookupEvent extends Event {
+        @Label("Cache")
+        private String cache;
+
+        @Label("Type")
+        private String type;
+
+        @Label("Key")
+        @Description("Prompt or digest, truncated")
+        private String key;
+
+        @Label("Hit")
+        private boolean hit;
+
+        public void finish(String cache, String type, String key, boolean hit) {
+            end();
+            if (shouldCommit()) {
+                this.cache = cache;
+                this.type = type;
+                this.key = truncate(key);
+                this.hit = hit;
+                commit();
+            }
+        }
+    }
+
+    @Name("midscene.ImageTransform")
+    @Label("Image Transform")
+    @Category({"Midscene", "Image"})
+    @Description("Decode, crop, resize, pad and encode of one screenshot")
+    @StackTrace(false)
+    @Registered(false)
+    public static final class ImageTransformEvent extends Event {
+        @Label("Source Width")
+        private int sourceWidth;
+
+        @Label("Source Height")
+        private int sourceHeight;
+
+        @Label("Target Width")
+        private int targetWidth;
+
+        @Label("Target Height")
+        private int targetHeight;
+
+        @Label("Format")
+        private String format;
+
+        @Label("Input Size")
+        @DataAmount
+        private long inputBytes;
+
+        @Label("Output Size")
+        @DataAmount
+        private long outputBytes;
+
+        public void finish(int sourceWidth, int sourceHeight, ImageTransform.EncodedImage result, long inputBytes) {
+            end();
+            if (shouldCommit()) {
+                this.sourceWidth = sourceWidth;
+                this.sourceHeight = sourceHeight;
+                this.targetWidth = result.width();
+                this.targetHeight = result.height();
+                this.format = result.format();
+                this.inputBytes = inputBytes;
+                this.outputBytes = result.data().length;
+                commit();
+            }
+        }
+    }
+
+    @Name("midscene.RunDirectoryWrite")
+    @Label("Run Directory Write")
+    @Category({"Midscene", "I/O"})
+    @Description("A dump, report or screenshot blob written under the run directory")
+    @Registered(false)
+    public static final class RunDirectoryWriteEvent extends Event {
+        @Label("Kind")
+        private String kind;
+
+        @Label("Path")
+        private String path;
+
+        @Label("Bytes Written")
+        @DataAmount
+        private long bytes;
+
+        public void finish(String kind, String path, long bytes) {
+            end();
+            if (shouldCommit()) {
+                this.kind = kind;
+                this.path = path;
+                this.bytes = bytes;
+                commit();
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -16,28 +17,73 @@ import java.util.logging.Logger;
 
 /**
  * Logging facade that mimics the behaviour of the TypeScript {@code getDebug} helper.
+ * Setting {@link EnvKeys#MIDSCENE_DEBUG_LOG_ASYNC} hands lines to an {@link AsyncLogSink}
+ * instead of flushing a {@link FileHandler} on the calling thread.
+ *
+ * <p>As in TS, every topic is written to its file under the run log directory. The
+ * {@link EnvKeys#DEBUG} globs (for example {@code midscene:ai:*}) only decide which
+ * topics are also echoed to standard error, like the {@code debug} npm package; an
+ * unrelated value such as {@code DEBUG=express:*} therefore leaves the file logs alone.
  */
 public final class MidsceneLoggerFactory {
     private static final String TOPIC_PREFIX = "midscene";
     private static final Map<String, DebugFunction> DEBUG_FUNCTIONS = new ConcurrentHashMap<>();
     private static final Map<String, FileHandler> FILE_HANDLERS = new ConcurrentHashMap<>();
+    private static final Object ASYNC_SINK_LOCK = new Object();
+    private static volatile AsyncLogSink asyncSink;
+    private static final Object FILTER_LOCK = new Object();
+    private static volatile DebugTopicFilter topicFilter;
 
     private MidsceneLoggerFactory() {}
 
     public static DebugFunction getDebug(String topic) {
         Objects.requireNonNull(topic, "topic");
-        String sanitizedTopic = RunDirectoryHelper.sanitizeTopic(topic);
-        String fullTopic = TOPIC_PREFIX + ":" + topic;
-        return DEBUG_FUNCTIONS.computeIfAbsent(fullTopic, key -> createDebugFunction(topic, sanitizedTopic));
+        DebugFunction existing = DEBUG_FUNCTIONS.get(topic);
+        if (existing != null) {
+            return existing;
+        }
+        return DEBUG_FUNCTIONS.computeIfAbsent(topic,
+                key -> new ConsoleEcho(TOPIC_PREFIX + ":" + key, createDebugFunction(key, RunDirectoryHelper.sanitizeTopic(key))));
+    }
+
+    /** Whether {@code topic} is echoed to standard error; file logging does not depend on it. */
+    public static boolean isEnabled(String topic) {
+        Objects.requireNonNull(topic, "topic");
+        return topicFilter().isEnabled(TOPIC_PREFIX + ":" + topic);
     }
 
     public static void enableDebug(String topic) {
         Objects.requireNonNull(topic, "topic");
         Logger logger = Logger.getLogger(TOPIC_PREFIX + "." + topic);
         logger.setLevel(Level.FINE);
+        synchronized (FILTER_LOCK) {
+            topicFilter = topicFilter().withEnabled(TOPIC_PREFIX + ":" + topic);
+        }
+    }
+
+    /**
+     * Replaces the console filter with {@code spec}, using the {@code DEBUG} glob syntax.
+     * {@code null} falls back to the environment; with {@link EnvKeys#DEBUG} unset no
+     * topic is echoed. Functions handed out earlier follow the new filter.
+     */
+    public static void setDebugTopics(String spec) {
+        synchronized (FILTER_LOCK) {
+            topicFilter = spec != null ? DebugTopicFilter.parse(spec) : filterFromEnvironment();
+        }
+    }
+
+    public static void configure(ConfigManager config) {
+        Objects.requireNonNull(config, "config");
+        setDebugTopics(config.get(EnvKeys.DEBUG).orElse(null));
     }
 
     public static void cleanupLogStreams() {
+        synchronized (ASYNC_SINK_LOCK) {
+            if (asyncSink != null) {
+                asyncSink.close();
+                asyncSink = null;
+            }
+        }
         FILE_HANDLERS.values().forEach(handler -> {
             handler.flush();
             handler.close();
@@ -46,7 +92,27 @@ public final class MidsceneLoggerFactory {
         DEBUG_FUNCTIONS.clear();
     }
 
+    private static DebugTopicFilter topicFilter() {
+        DebugTopicFilter filter = topicFilter;
+        if (filter == null) {
+            synchronized (FILTER_LOCK) {
+                if (topicFilter == null) {
+                    topicFilter = filterFromEnvironment();
+                }
+                filter = topicFilter;
+            }
+        }
+        return filter;
+    }
+
+    private static DebugTopicFilter filterFromEnvironment() {
+        return DebugTopicFilter.parse(EnvironmentUtils.getEnv(EnvKeys.DEBUG).orElse(""));
+    }
+
     private static DebugFunction createDebugFunction(String originalTopic, String sanitizedTopic) {
+        if (AsyncLogSink.isEnabled()) {
+            return createAsyncDebugFunction(originalTopic, sanitizedTopic);
+        }
         Logger logger = Logger.getLogger(TOPIC_PREFIX + "." + originalTopic);
         logger.setUseParentHandlers(false);
         logger.setLevel(Level.FINE);
@@ -77,31 +143,158 @@ public final class MidsceneLoggerFactory {
         };
     }
 
+    private static DebugFunction createAsyncDebugFunction(String originalTopic, String sanitizedTopic) {
+        Path logFile = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG)
+                .resolve(sanitizedTopic + ".log");
+        AsyncLogSink.TopicBuffer buffer = asyncSink().register(originalTopic, logFile);
+        return args -> {
+            if (args.length == 0) {
+                return;
+            }
+            buffer.append(formatArgs(args));
+        };
+    }
+
+    private static AsyncLogSink asyncSink() {
+        AsyncLogSink sink = asyncSink;
+        if (sink != null) {
+            return sink;
+        }
+        synchronized (ASYNC_SINK_LOCK) {
+            if (asyncSink == null) {
+                asyncSink = new AsyncLogSink(AsyncLogSink.Config.fromEnvironment());
+            }
+            return asyncSink;
+        }
+    }
+
+    /**
+     * File-backed function that also prints to standard error while the topic passes
+     * the console filter. The match is cached per filter instance, so a call costs a
+     * volatile read once the filter is settled.
+     */
+    private static final class ConsoleEcho implements DebugFunction {
+        private final String fullTopic;
+        private final DebugFunction file;
+        private volatile DebugTopicFilter checkedFilter;
+        private volatile boolean echo;
+
+        private ConsoleEcho(String fullTopic, DebugFunction file) {
+            this.fullTopic = fullTopic;
+            this.file = file;
+        }
+
+        @Override
+        public void log(Object... args) {
+            if (args.length == 0) {
+                return;
+            }
+            file.log(args);
+            if (echo()) {
+                System.err.println(fullTopic + " " + formatArgs(args));
+            }
+        }
+
+        private boolean echo() {
+            DebugTopicFilter filter = topicFilter();
+            if (filter != checkedFilter) {
+                echo = filter.isEnabled(fullTopic);
+                checkedFilter = filter;
+            }
+            return echo;
+        }
+    }
+
+    static String formatLine(long millis, String message) {
+        return String.format("[%1$tFT%1$tT.%1$tL%1$tz] %2$s%n", millis, message);
+    }
+
     private static String formatArgs(Object[] args) {
         if (args.length == 1) {
             Object arg = args[0];
             return Objects.toString(arg);
         }
-        return Arrays.stream(args)
-                .map(obj -> {
-                    if (obj instanceof String str && str.contains("{0}")) {
-                        return MessageFormat.format(str, Arrays.copyOfRange(args, 1, args.length));
-                    }
-                    return Objects.toString(obj);
-                })
-                .reduce((left, right) -> left + " " + right)
-                .orElse("");
+        StringBuilder message = new StringBuilder();
+        Object[] formatArgs = null;
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                message.append(' ');
+            }
+            Object obj = args[i];
+            if (obj instanceof String str && str.contains("{0}")) {
+                if (formatArgs == null) {
+                    formatArgs = Arrays.copyOfRange(args, 1, args.length);
+                }
+                message.append(MessageFormat.format(str, formatArgs));
+            } else {
+                message.append(obj);
+            }
+        }
+        return message.toString();
     }
 
     private static final class IsoLikeFormatter extends Formatter {
         @Override
         public String format(LogRecord record) {
-            return String.format("[%1$tFT%1$tT.%1$tL%1$tz] %2$s%n", record.getMillis(), formatMessage(record));
+            return formatLine(record.getMillis(), formatMessage(record));
         }
     }
 
+    /**
+     * Debug sink for one topic. The fixed-arity and {@link Supplier} overloads let hot
+     * paths skip the varargs array and message construction when the topic is disabled.
+     */
     @FunctionalInterface
     public interface DebugFunction {
+        /** Function that discards every message. */
+        DebugFunction NOOP = new NoopDebugFunction();
+
         void log(Object... args);
+
+        default boolean isEnabled() {
+            return true;
+        }
+
+        default void log(Object arg) {
+            if (arg instanceof Object[] array) {
+                log(array);
+            } else {
+                log(new Object[] {arg});
+            }
+        }
+
+        default void log(Object first, Object second) {
+            log(new Object[] {first, second});
+        }
+
+        default void log(Object first, Object second, Object third) {
+            log(new Object[] {first, second, third});
+        }
+
+        default void log(Supplier<?> message) {
+            log(new Object[] {message.get()});
+        }
+    }
+
+    private static final class NoopDebugFunction implements DebugFunction {
+        @Override
+        public void log(Object... args) {}
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void log(Object arg) {}
+
+        @Override
+        public void log(Object first, Object second) {}
+
+        @Override
+        public void log(Object first, Object second, Object third) {}
+
+        @Override
+        public void log(Supplier<?> message) {}
     }
 }
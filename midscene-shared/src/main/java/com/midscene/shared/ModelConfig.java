@@ -0,0 +1,75 @@
+package com.midscene.shared;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolved model settings for one {@link ModelIntent}, mirroring {@code IModelConfig}.
+ * Instances are built by {@link ModelConfigManager} and shared by every call for that
+ * intent. {@link #toString()} masks credentials. {@code maxConcurrency} and
+ * {@code initialConcurrency} are JVM-only request limits, {@code null} when unset.
+ */
+public record ModelConfig(
+        ModelIntent intent,
+        Source from,
+        String modelName,
+        String socksProxy,
+        String httpProxy,
+        String openaiBaseUrl,
+        String openaiApiKey,
+        Map<String, Object> openaiExtraConfig,
+        boolean openaiUseAzureDeprecated,
+        boolean useAzureOpenai,
+        String azureOpenaiScope,
+        String azureOpenaiKey,
+        String azureOpenaiEndpoint,
+        String azureOpenaiApiVersion,
+        String azureOpenaiDeployment,
+        Map<String, Object> azureExtraConfig,
+        boolean useAnthropicSdk,
+        String anthropicApiKey,
+        String vlModeRaw,
+        String vlMode,
+        String uiTarsModelVersion,
+        String modelDescription,
+        Integer maxConcurrency,
+        Integer initialConcurrency) {
+
+    /**
+     * Where the config came from, like {@code IModelConfig.from}.
+     */
+    public enum Source {
+        MODEL_CONFIG,
+        ENV,
+        LEGACY_ENV
+    }
+
+    public ModelConfig {
+        openaiExtraConfig = copy(openaiExtraConfig);
+        azureExtraConfig = copy(azureExtraConfig);
+    }
+
+    @Override
+    public String toString() {
+        return "ModelConfig[intent=" + intent + ", from=" + from + ", modelName=" + modelName
+                + ", openaiBaseUrl=" + openaiBaseUrl + ", openaiApiKey=" + mask(openaiApiKey)
+                + ", useAzureOpenai=" + useAzureOpenai + ", azureOpenaiEndpoint=" + azureOpenaiEndpoint
+                + ", azureOpenaiKey=" + mask(azureOpenaiKey) + ", useAnthropicSdk=" + useAnthropicSdk
+                + ", anthropicApiKey=" + mask(anthropicApiKey) + ", vlMode=" + vlMode
+                + ", uiTarsModelVersion=" + uiTarsModelVersion + "]";
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> value) {
+        // JSON objects may hold null values, which Map.copyOf rejects.
+        return value == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(value));
+    }
+
+    /** Keeps the first and last three characters, like {@code maskKey} in the TS helper. */
+    static String mask(String key) {
+        if (key == null || key.length() <= 6) {
+            return key;
+        }
+        return key.substring(0, 3) + "*".repeat(key.length() - 6) + key.substring(key.length() - 3);
+    }
+}
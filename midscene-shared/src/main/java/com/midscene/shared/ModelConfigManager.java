@@ -0,0 +1,332 @@
+package com.midscene.shared;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Resolves a {@link ModelConfig} per {@link ModelIntent} once and hands out the same
+ * immutable records afterwards, following {@code decide-model-config.ts} and
+ * {@code ModelConfigManager} in the TS shared package.
+ *
+ * <p>{@link #fromEnv(EnvValues)} applies the env rules: an intent with its own model
+ * name uses its own keys, everything else takes the legacy default keys.
+ * {@link #fromIntentConfigs(Function)} is the isolated mode used when an agent passes a
+ * model config function. {@link #forConfig(ConfigManager)} re-resolves only when the
+ * config snapshot changes.
+ */
+public final class ModelConfigManager {
+    private static final ModelIntent[] INTENTS = ModelIntent.values();
+    static final List<String> VL_MODE_RAW_VALID_VALUES = List.of(
+            "doubao-vision", "gemini", "qwen-vl", "qwen3-vl", "vlm-ui-tars", "vlm-ui-tars-doubao",
+            "vlm-ui-tars-doubao-1.5");
+    static final String UI_TARS_V1_0 = "1.0";
+    static final String UI_TARS_DOUBAO_1_5_20B = "doubao-1.5-20B";
+
+    private final ModelConfig[] configs;
+    private final ConfigManager source;
+    private volatile Resolved resolved;
+
+    private record Resolved(ConfigManager.Snapshot snapshot, ModelConfig[] configs) {}
+
+    private ModelConfigManager(ModelConfig[] configs, ConfigManager source) {
+        this.configs = configs;
+        this.source = source;
+    }
+
+    public static ModelConfigManager fromEnv(EnvValues values) {
+        Objects.requireNonNull(values, "values");
+        return new ModelConfigManager(resolveFromEnv(values), null);
+    }
+
+    /**
+     * Isolated mode: {@code intentConfig} is asked once per intent and the environment
+     * is ignored.
+     */
+    public static ModelConfigManager fromIntentConfigs(Function<ModelIntent, Map<String, String>> intentConfig) {
+        Objects.requireNonNull(intentConfig, "intentConfig");
+        ModelConfig[] configs = new ModelConfig[INTENTS.length];
+        for (ModelIntent intent : INTENTS) {
+            Map<String, String> config = intentConfig.apply(intent);
+            if (config == null) {
+                throw new IllegalArgumentException("The model config function returned null for intent " + intent
+                        + ", which should be an object.");
+            }
+            configs[intent.ordinal()] = decideFromIntentConfig(intent, config);
+        }
+        return new ModelConfigManager(configs, null);
+    }
+
+    /** Tracks {@code config}: configs are resolved again after the snapshot changes. */
+    public static ModelConfigManager forConfig(ConfigManager config) {
+        return new ModelConfigManager(null, Objects.requireNonNull(config, "config"));
+    }
+
+    public ModelConfig get(ModelIntent intent) {
+        Objects.requireNonNull(intent, "intent");
+        if (configs != null) {
+            return configs[intent.ordinal()];
+        }
+        ConfigManager.Snapshot snapshot = source.current();
+        Resolved current = resolved;
+        if (current == null || current.snapshot() != snapshot) {
+            current = new Resolved(snapshot, resolveFromEnv(EnvValues.from(snapshot)));
+            resolved = current;
+        }
+        return current.configs()[intent.ordinal()];
+    }
+
+    /** Throws unless {@code intent} is served by a visual language model. */
+    public void throwErrorIfNonVlModel(ModelIntent intent) {
+        if (get(intent).vlMode() == null) {
+            throw new IllegalStateException("No visual language model (VL model) detected for the current scenario. "
+                    + "Element localization may be inaccurate. Please verify your model configuration. "
+                    + "Learn more: https://midscenejs.com/choose-a-model");
+        }
+    }
+
+    private static ModelConfig[] resolveFromEnv(EnvValues values) {
+        ModelConfig[] resolvedConfigs = new ModelConfig[INTENTS.length];
+        for (ModelIntent intent : INTENTS) {
+            resolvedConfigs[intent.ordinal()] = decideFromEnv(intent, values);
+        }
+        return resolvedConfigs;
+    }
+
+    static ModelConfig decideFromEnv(ModelIntent intent, EnvValues values) {
+        EnvKey intentModelName = EnvKey.modelKey(intent, EnvKey.ModelField.MODEL_NAME);
+        if (intent != ModelIntent.DEFAULT && values.isSet(intentModelName)) {
+            String modelName = values.get(intentModelName);
+            Provider provider = new Provider(field -> EnvKey.modelKey(intent, field), values::get,
+                    intentModelName.key(), "process.env", modelName);
+            ModelConfig config = build(intent, ModelConfig.Source.ENV, modelName, provider, null);
+            debug().log("decideModelConfig result by process.env with intent", intent, config);
+            return config;
+        }
+        Provider provider = new Provider(EnvKey::legacyModelKey, values::get,
+                EnvKey.MIDSCENE_MODEL_NAME.key(), "process.env", null);
+        VlMode vlMode = VlMode.fromLegacyFlags(values);
+        String modelName = values.isSet(EnvKey.MIDSCENE_MODEL_NAME) ? values.get(EnvKey.MIDSCENE_MODEL_NAME) : "gpt-4o";
+        ModelConfig config = build(intent, ModelConfig.Source.LEGACY_ENV, modelName, provider, vlMode);
+        debug().log("decideModelConfig result by legacy logic with intent", intent, config);
+        return config;
+    }
+
+    static ModelConfig decideFromIntentConfig(ModelIntent intent, Map<String, String> intentConfig) {
+        EnvKey intentModelName = EnvKey.modelKey(intent, EnvKey.ModelField.MODEL_NAME);
+        String candidate = intentConfig.get(intentModelName.key());
+        ModelIntent keysIntent = intent;
+        if (candidate == null || candidate.isEmpty()) {
+            String defaultName = intentConfig.get(EnvKey.MIDSCENE_MODEL_NAME.key());
+            if (defaultName == null || defaultName.isEmpty()) {
+                throw new IllegalArgumentException("The return value of agent.modelConfig do not have a valid value with key "
+                        + EnvKey.MIDSCENE_MODEL_NAME.key() + ".");
+            }
+            keysIntent = ModelIntent.DEFAULT;
+        }
+        ModelIntent chosen = keysIntent;
+        EnvKey chosenModelName = EnvKey.modelKey(chosen, EnvKey.ModelField.MODEL_NAME);
+        Provider provider = new Provider(field -> EnvKey.modelKey(chosen, field), key -> intentConfig.get(key.key()),
+                chosenModelName.key(), "modelConfig", candidate);
+        ModelConfig config = build(intent, ModelConfig.Source.MODEL_CONFIG, intentConfig.get(chosenModelName.key()),
+                provider, null);
+        debug().log("decideModelConfig result by agent.modelConfig() with intent", intent, config);
+        return config;
+    }
+
+    /**
+     * Chooses the SDK settings like {@code decideOpenaiSdkConfig}: deprecated Azure
+     * flag, then Azure, then Anthropic, then plain OpenAI. {@code legacyVlMode} is set
+     * on the legacy path only; otherwise the mode comes from the chosen VL mode key.
+     */
+    private static ModelConfig build(ModelIntent intent, ModelConfig.Source from, String modelName,
+                                     Provider provider, VlMode legacyVlMode) {
+        String socksProxy = provider.get(EnvKey.ModelField.SOCKS_PROXY);
+        String httpProxy = provider.get(EnvKey.ModelField.HTTP_PROXY);
+        String vlModeRaw = provider.get(EnvKey.ModelField.VL_MODE);
+        boolean useAzureDeprecated = provider.isSet(EnvKey.ModelField.OPENAI_USE_AZURE_DEPRECATED);
+        boolean useAzure = !useAzureDeprecated && provider.isSet(EnvKey.ModelField.USE_AZURE_OPENAI);
+        boolean useAnthropic = !useAzureDeprecated && !useAzure && provider.isSet(EnvKey.ModelField.USE_ANTHROPIC_SDK);
+
+        String openaiBaseUrl = null;
+        String openaiApiKey = null;
+        Map<String, Object> openaiExtraConfig = null;
+        String azureScope = null;
+        String azureKey = null;
+        String azureEndpoint = null;
+        String azureApiVersion = null;
+        String azureDeployment = null;
+        Map<String, Object> azureExtraConfig = null;
+        String anthropicApiKey = null;
+        if (useAnthropic) {
+            anthropicApiKey = provider.get(EnvKey.ModelField.ANTHROPIC_API_KEY);
+            provider.require(EnvKey.ModelField.ANTHROPIC_API_KEY, EnvKey.ModelField.USE_ANTHROPIC_SDK);
+            vlModeRaw = null;
+        } else if (useAzure) {
+            azureScope = provider.get(EnvKey.ModelField.AZURE_OPENAI_SCOPE);
+            azureKey = provider.get(EnvKey.ModelField.AZURE_OPENAI_KEY);
+            azureEndpoint = provider.get(EnvKey.ModelField.AZURE_OPENAI_ENDPOINT);
+            azureDeployment = provider.get(EnvKey.ModelField.AZURE_OPENAI_DEPLOYMENT);
+            azureApiVersion = provider.get(EnvKey.ModelField.AZURE_OPENAI_API_VERSION);
+            azureExtraConfig = provider.json(EnvKey.ModelField.AZURE_EXTRA_CONFIG);
+            openaiExtraConfig = provider.json(EnvKey.ModelField.OPENAI_EXTRA_CONFIG);
+            provider.require(EnvKey.ModelField.AZURE_OPENAI_KEY, EnvKey.ModelField.USE_AZURE_OPENAI);
+        } else {
+            openaiBaseUrl = provider.get(EnvKey.ModelField.OPENAI_BASE_URL);
+            openaiApiKey = provider.get(EnvKey.ModelField.OPENAI_API_KEY);
+            openaiExtraConfig = provider.json(EnvKey.ModelField.OPENAI_EXTRA_CONFIG);
+            provider.require(EnvKey.ModelField.OPENAI_API_KEY,
+                    useAzureDeprecated ? EnvKey.ModelField.OPENAI_USE_AZURE_DEPRECATED : null);
+        }
+        VlMode vlMode = legacyVlMode != null ? legacyVlMode : VlMode.fromRaw(vlModeRaw);
+        return new ModelConfig(intent, from, modelName, socksProxy, httpProxy, openaiBaseUrl, openaiApiKey,
+                openaiExtraConfig, useAzureDeprecated, useAzure, azureScope, azureKey, azureEndpoint,
+                azureApiVersion, azureDeployment, azureExtraConfig, useAnthropic, anthropicApiKey, vlModeRaw,
+                vlMode.mode, vlMode.uiTarsVersion, vlMode.description(),
+                provider.positiveInt(EnvKey.ModelField.MAX_CONCURRENCY),
+                provider.positiveInt(EnvKey.ModelField.INITIAL_CONCURRENCY));
+    }
+
+    /**
+     * Field lookups against one key table and value source, plus the
+     * {@code createAssert} error messages.
+     */
+    private record Provider(Function<EnvKey.ModelField, EnvKey> keys, Function<EnvKey, String> values,
+                            String modelNameKey, String origin, String modelName) {
+
+        String get(EnvKey.ModelField field) {
+            EnvKey key = keys.apply(field);
+            return key == null ? null : values.apply(key);
+        }
+
+        boolean isSet(EnvKey.ModelField field) {
+            String value = get(field);
+            return value != null && !value.isEmpty();
+        }
+
+        Map<String, Object> json(EnvKey.ModelField field) {
+            String value = get(field);
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                return SimpleJsonParser.parseObject(value);
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Failed to parse " + keys.apply(field).key() + " as a JSON. "
+                        + ex.getMessage(), ex);
+            }
+        }
+
+        Integer positiveInt(EnvKey.ModelField field) {
+            String value = get(field);
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            int parsed;
+            try {
+                parsed = Integer.parseInt(value.trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Failed to parse " + keys.apply(field).key() + " as a number: "
+                        + value, ex);
+            }
+            if (parsed <= 0) {
+                throw new IllegalArgumentException("The " + keys.apply(field).key() + " must be positive, but got: "
+                        + value + ". Please check your config.");
+            }
+            return parsed;
+        }
+
+        void require(EnvKey.ModelField field, EnvKey.ModelField vendorFlag) {
+            String value = get(field);
+            if (value != null && !value.isEmpty()) {
+                return;
+            }
+            String key = keys.apply(field).key();
+            String message;
+            if (modelName == null || modelName.isEmpty()) {
+                message = "The " + key + " must be a non-empty string, but got: " + value + ". Please check your config.";
+            } else if (vendorFlag != null) {
+                message = "The " + key + " must be a non-empty string because of the " + modelNameKey
+                        + " is declared as " + modelName + " and " + keys.apply(vendorFlag).key()
+                        + " has also been specified in " + origin + ", but got: " + value + ". Please check your config.";
+            } else {
+                message = "The " + key + " must be a non-empty string because of the " + modelNameKey
+                        + " is declared as " + modelName + " in " + origin + ", but got: " + value
+                        + ". Please check your config.";
+            }
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * VL mode and UI-TARS version, as produced by the {@code parse.ts} helpers.
+     */
+    private record VlMode(String mode, String uiTarsVersion) {
+        private static final VlMode NONE = new VlMode(null, null);
+
+        static VlMode fromRaw(String raw) {
+            if (raw == null || raw.isEmpty()) {
+                return NONE;
+            }
+            if (!VL_MODE_RAW_VALID_VALUES.contains(raw)) {
+                throw new IllegalArgumentException("the value " + raw + " is not a valid VL_MODE value, must be one of "
+                        + String.join(",", VL_MODE_RAW_VALID_VALUES));
+            }
+            return switch (raw) {
+                case "vlm-ui-tars" -> new VlMode("vlm-ui-tars", UI_TARS_V1_0);
+                case "vlm-ui-tars-doubao", "vlm-ui-tars-doubao-1.5" -> new VlMode("vlm-ui-tars", UI_TARS_DOUBAO_1_5_20B);
+                default -> new VlMode(raw, null);
+            };
+        }
+
+        static VlMode fromLegacyFlags(EnvValues values) {
+            EnvKey[] flags = {EnvKey.MIDSCENE_USE_DOUBAO_VISION, EnvKey.MIDSCENE_USE_QWEN_VL,
+                EnvKey.MIDSCENE_USE_QWEN3_VL, EnvKey.MIDSCENE_USE_VLM_UI_TARS, EnvKey.MIDSCENE_USE_GEMINI};
+            StringBuilder enabled = new StringBuilder();
+            int count = 0;
+            for (EnvKey flag : flags) {
+                if (values.isSet(flag)) {
+                    enabled.append(count++ == 0 ? "" : ", ").append(flag.key());
+                }
+            }
+            if (count > 1) {
+                throw new IllegalArgumentException("Only one vision mode can be enabled at a time. Currently enabled modes: "
+                        + enabled + ". Please disable all but one mode.");
+            }
+            if (values.isSet(EnvKey.MIDSCENE_USE_QWEN3_VL)) {
+                return new VlMode("qwen3-vl", null);
+            }
+            if (values.isSet(EnvKey.MIDSCENE_USE_QWEN_VL)) {
+                return new VlMode("qwen-vl", null);
+            }
+            if (values.isSet(EnvKey.MIDSCENE_USE_DOUBAO_VISION)) {
+                return new VlMode("doubao-vision", null);
+            }
+            if (values.isSet(EnvKey.MIDSCENE_USE_GEMINI)) {
+                return new VlMode("gemini", null);
+            }
+            if (values.isSet(EnvKey.MIDSCENE_USE_VLM_UI_TARS)) {
+                String uiTars = values.get(EnvKey.MIDSCENE_USE_VLM_UI_TARS);
+                return switch (uiTars) {
+                    case "1" -> new VlMode("vlm-ui-tars", UI_TARS_V1_0);
+                    case "DOUBAO", "DOUBAO-1.5" -> new VlMode("vlm-ui-tars", UI_TARS_DOUBAO_1_5_20B);
+                    default -> new VlMode("vlm-ui-tars", uiTars);
+                };
+            }
+            return NONE;
+        }
+
+        String description() {
+            if (mode == null) {
+                return "";
+            }
+            return uiTarsVersion != null ? "UI-TARS=" + uiTarsVersion : mode + " mode";
+        }
+    }
+
+    /** Looked up when logging so class loading does not pick the log file's run directory. */
+    private static MidsceneLoggerFactory.DebugFunction debug() {
+        return MidsceneLoggerFactory.getDebug("ai:config");
+    }
+}
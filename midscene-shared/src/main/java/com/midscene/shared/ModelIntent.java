@@ -0,0 +1,12 @@
+package com.midscene.shared;
+
+/**
+ * What a model call is used for, mirroring {@code TIntent}. Each intent can point at
+ * its own model; unset intents fall back to {@link #DEFAULT}.
+ */
+public enum ModelIntent {
+    VQA,
+    PLANNING,
+    GROUNDING,
+    DEFAULT
+}
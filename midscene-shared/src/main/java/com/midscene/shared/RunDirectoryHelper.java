@@ -5,13 +5,26 @@ import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * File system helpers mirroring {@code packages/shared/src/common.ts}.
  */
 public final class RunDirectoryHelper {
     public static final String DEFAULT_RUN_DIR_NAME = "midscene_run";
+    /** Directory under the run root holding one directory per {@link RunSession}. */
+    public static final String SESSIONS_DIR_NAME = "sessions";
+    private static final Object RESOLVE_LOCK = new Object();
+    private static final AtomicLong SESSION_IDS = new AtomicLong();
+    private static volatile Resolved resolved;
 
     private RunDirectoryHelper() {}
 
@@ -49,9 +62,94 @@ public final class RunDirectoryHelper {
                 .orElse(DEFAULT_RUN_DIR_NAME);
     }
 
+    /**
+     * The run root, created on first use. The resolved path is memoized until
+     * {@code user.dir} or {@link EnvKeys#MIDSCENE_RUN_DIR} change, or {@link #invalidate()}
+     * is called, so repeated lookups cost no file system calls. Overrides of other keys
+     * keep the memoized directories and open sessions.
+     */
     public static Path getRunBaseDir() {
-        Path workingDirectory = Paths.get(System.getProperty("user.dir"));
-        Path candidate = workingDirectory.resolve(getRunDirName());
+        return resolved().base;
+    }
+
+    public static Path getRunSubDir(SubDirectory subDirectory) {
+        Resolved current = resolved();
+        int index = subDirectory.ordinal();
+        Path cached = current.subDirs.get(index);
+        if (cached != null) {
+            return cached;
+        }
+        Path sub = createSubDir(current.base, subDirectory);
+        current.subDirs.compareAndSet(index, null, sub);
+        return sub;
+    }
+
+    public static Path getRunSubDir(String name) {
+        return getRunSubDir(SubDirectory.fromString(name));
+    }
+
+    /**
+     * Returns the isolated run root {@code <run dir>/sessions/<sessionId>}, with its own
+     * memoized sub directories. Sessions are registered until {@link RunSession#close()}.
+     * Ids are used as directory names as given, so they may only contain letters,
+     * digits, {@code '.'}, {@code '_'} and {@code '-'}; anything else is rejected rather
+     * than rewritten, so two different ids never share a directory.
+     */
+    public static RunSession session(String sessionId) {
+        String id = validateSessionId(sessionId);
+        Resolved current = resolved();
+        return current.sessions.computeIfAbsent(id, key -> new RunSession(key,
+                current.base.resolve(SESSIONS_DIR_NAME).resolve(key),
+                session -> current.sessions.remove(session.id(), session)));
+    }
+
+    /** Starts a session with a fresh, unique id. */
+    public static RunSession newSession() {
+        String id = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss", Locale.ROOT).format(LocalDateTime.now())
+                + "-" + Long.toHexString(SESSION_IDS.incrementAndGet()) + "-" + Integer.toHexString(ThreadLocalRandom.current().nextInt());
+        return session(id);
+    }
+
+    /**
+     * Drops every memoized path and registered session, for example after the run
+     * directory was deleted by a cleanup step.
+     */
+    public static void invalidate() {
+        synchronized (RESOLVE_LOCK) {
+            resolved = null;
+        }
+    }
+
+    private static Resolved resolved() {
+        Resolved current = resolved;
+        String userDir = System.getProperty("user.dir");
+        long envVersion = EnvironmentUtils.version();
+        if (current != null && current.envVersion == envVersion && current.userDir.equals(userDir)) {
+            return current;
+        }
+        synchronized (RESOLVE_LOCK) {
+            current = resolved;
+            if (current != null && current.envVersion == envVersion && current.userDir.equals(userDir)) {
+                return current;
+            }
+            // The environment version only tells that some override changed; the
+            // directory depends on user.dir and the run dir name alone.
+            String runDirName = getRunDirName();
+            if (current != null && current.userDir.equals(userDir) && current.runDirName.equals(runDirName)) {
+                current = current.restamp(envVersion);
+            } else {
+                Path base = resolveBaseDir(userDir, runDirName);
+                current = current != null && current.base.equals(base)
+                        ? current.rekey(userDir, runDirName, envVersion)
+                        : new Resolved(userDir, runDirName, envVersion, base);
+            }
+            resolved = current;
+            return current;
+        }
+    }
+
+    private static Path resolveBaseDir(String userDir, String runDirName) {
+        Path candidate = Paths.get(userDir).resolve(runDirName);
         try {
             return ensureDirectory(candidate);
         } catch (IOException ex) {
@@ -64,21 +162,57 @@ public final class RunDirectoryHelper {
         }
     }
 
-    public static Path getRunSubDir(SubDirectory subDirectory) {
-        Path base = getRunBaseDir();
-        Path sub = base.resolve(subDirectory.dirName());
+    static Path createSubDir(Path base, SubDirectory subDirectory) {
         try {
-            return ensureDirectory(sub);
+            return ensureDirectory(base.resolve(subDirectory.dirName()));
         } catch (IOException ex) {
             throw new IllegalStateException("Failed to create sub directory " + subDirectory.dirName(), ex);
         }
     }
 
-    public static Path getRunSubDir(String name) {
-        return getRunSubDir(SubDirectory.fromString(name));
+    static String validateSessionId(String sessionId) {
+        Objects.requireNonNull(sessionId, "sessionId");
+        if (!sessionId.matches("[A-Za-z0-9._-]+") || sessionId.equals(".") || sessionId.equals("..")) {
+            throw new IllegalArgumentException("Invalid session id: " + sessionId);
+        }
+        return sessionId;
+    }
+
+    private static final class Resolved {
+        private final String userDir;
+        private final String runDirName;
+        private final long envVersion;
+        private final Path base;
+        private final AtomicReferenceArray<Path> subDirs;
+        private final Map<String, RunSession> sessions;
+
+        private Resolved(String userDir, String runDirName, long envVersion, Path base) {
+            this(userDir, runDirName, envVersion, base,
+                    new AtomicReferenceArray<>(SubDirectory.values().length), new ConcurrentHashMap<>());
+        }
+
+        private Resolved(String userDir, String runDirName, long envVersion, Path base,
+                         AtomicReferenceArray<Path> subDirs, Map<String, RunSession> sessions) {
+            this.userDir = userDir;
+            this.runDirName = runDirName;
+            this.envVersion = envVersion;
+            this.base = base;
+            this.subDirs = subDirs;
+            this.sessions = sessions;
+        }
+
+        /** Same directory, seen at a newer environment version. */
+        private Resolved restamp(long version) {
+            return new Resolved(userDir, runDirName, version, base, subDirs, sessions);
+        }
+
+        /** Same directory reached through a different user.dir or run dir name. */
+        private Resolved rekey(String newUserDir, String newRunDirName, long version) {
+            return new Resolved(newUserDir, newRunDirName, version, base, subDirs, sessions);
+        }
     }
 
-    private static Path ensureDirectory(Path path) throws IOException {
+    static Path ensureDirectory(Path path) throws IOException {
         try {
             Files.createDirectories(path);
         } catch (FileAlreadyExistsException ignored) {
@@ -0,0 +1,64 @@
+package com.midscene.shared;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Isolated run root for one agent session, {@code <run dir>/sessions/<id>}, obtained from
+ * {@link RunDirectoryHelper#session(String)}. Concurrent sessions write their dumps,
+ * logs and reports under separate directories. Each sub directory is created once and
+ * then served from memory.
+ */
+public final class RunSession implements AutoCloseable {
+    private final String id;
+    private final Path root;
+    private final Consumer<RunSession> onClose;
+    private final AtomicReferenceArray<Path> subDirs =
+            new AtomicReferenceArray<>(RunDirectoryHelper.SubDirectory.values().length);
+    private volatile boolean rootCreated;
+
+    RunSession(String id, Path root, Consumer<RunSession> onClose) {
+        this.id = id;
+        this.root = root;
+        this.onClose = onClose;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /** The session root, created on first use. */
+    public Path root() {
+        if (!rootCreated) {
+            try {
+                RunDirectoryHelper.ensureDirectory(root);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to create session directory " + root, ex);
+            }
+            rootCreated = true;
+        }
+        return root;
+    }
+
+    public Path subDir(RunDirectoryHelper.SubDirectory subDirectory) {
+        int index = subDirectory.ordinal();
+        Path cached = subDirs.get(index);
+        if (cached != null) {
+            return cached;
+        }
+        Path sub = RunDirectoryHelper.createSubDir(root(), subDirectory);
+        subDirs.compareAndSet(index, null, sub);
+        return sub;
+    }
+
+    /**
+     * Unregisters the session; files on disk are kept. Closing a stale session leaves a
+     * newer session with the same id registered.
+     */
+    @Override
+    public void close() {
+        onClose.accept(this);
+    }
+}
@@ -3,12 +3,26 @@ package com.midscene.shared;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 final class ConfigManagerTest {
 
-    static void run() throws IOException {
+    static void run() throws Exception {
+        runSnapshots();
+        runListeners();
+        runListenerFailuresAndWrites();
+        runWatch();
+    }
+
+    private static void runSnapshots() throws IOException {
         Map<String, String> env = new HashMap<>();
         env.put(EnvKeys.MIDSCENE_DEBUG_MODE, "true");
         env.put(EnvKeys.MIDSCENE_RUN_DIR, "run");
@@ -21,7 +35,7 @@ final class ConfigManagerTest {
         Path tempFile = Files.createTempFile("midscene-config", ".json");
         Files.writeString(tempFile, "{" +
                 "\"MIDSCENE_DEBUG_MODE\": false,\n" +
-                "\"custom\": { \"nested\": 123 }\n" +
+                "\"custom\": { \"nested\": 123, \"list\": [\"a\", { \"b\": true }] }\n" +
                 "}");
 
         manager.loadFromJson(tempFile);
@@ -29,7 +43,100 @@ final class ConfigManagerTest {
         TestSupport.assertFalse(manager.getBoolean(EnvKeys.MIDSCENE_DEBUG_MODE, true), "json overrides env");
         TestSupport.assertEquals(123, manager.getInt("custom.nested", 0), "nested override");
         TestSupport.assertEquals("123", manager.get("custom.nested").orElse(null), "nested string");
+        TestSupport.assertEquals("a", manager.get("custom.list.0").orElse(null), "array element");
+        TestSupport.assertTrue(manager.getBoolean("custom.list.1.b", false), "object inside array");
+
+        ConfigManager.Snapshot before = manager.current();
+        manager.set("custom.nested", "456");
+        TestSupport.assertEquals(before.version() + 1, manager.current().version(), "write publishes a new version");
+        TestSupport.assertEquals(123, before.getInt("custom.nested", 0), "old snapshot is immutable");
+        TestSupport.assertEquals(456, manager.getInt("custom.nested", 0), "new value visible");
+        manager.set("custom.nested", null);
+        TestSupport.assertEquals(0, manager.getInt("custom.nested", 0), "removed key falls back to default");
+        TestSupport.assertEquals(7, manager.getInt("custom.list.0", 7), "non-numeric value keeps int default");
+
+        TestSupport.assertFalse(manager.get("MIDSCENE_TEST_FALLBACK").isPresent(), "unset env key");
+        EnvironmentUtils.override("MIDSCENE_TEST_FALLBACK", "42");
+        TestSupport.assertEquals(42, manager.getInt("MIDSCENE_TEST_FALLBACK", 0), "env override seen after caching a miss");
+        EnvironmentUtils.override("MIDSCENE_TEST_FALLBACK", null);
+        TestSupport.assertFalse(manager.get("MIDSCENE_TEST_FALLBACK").isPresent(), "env override removal seen");
 
         EnvironmentUtils.resetEnvProvider();
     }
+
+    private static void runListeners() {
+        ConfigManager manager = new ConfigManager();
+        List<Set<String>> modelChanges = new ArrayList<>();
+        List<Set<String>> allChanges = new ArrayList<>();
+        manager.addListener(change -> modelChanges.add(change.changedKeys()), EnvKeys.MIDSCENE_MODEL_NAME);
+        ConfigManager.Listener all = change -> allChanges.add(change.changedKeys());
+        manager.addListener(all);
+
+        manager.set("unrelated", "1");
+        manager.set(EnvKeys.MIDSCENE_MODEL_NAME, "gpt-4o");
+        manager.set(EnvKeys.MIDSCENE_MODEL_NAME, "gpt-4o");
+        TestSupport.assertEquals(List.of(Set.of(EnvKeys.MIDSCENE_MODEL_NAME)), modelChanges,
+                "keyed listener only sees its key");
+        TestSupport.assertEquals(2, allChanges.size(), "no-op writes do not notify");
+        manager.removeListener(all);
+        manager.set("unrelated", "2");
+        TestSupport.assertEquals(2, allChanges.size(), "removed listener not notified");
+    }
+
+    private static void runListenerFailuresAndWrites() throws InterruptedException {
+        ConfigManager manager = new ConfigManager();
+        List<String> seen = new ArrayList<>();
+        manager.addListener(change -> {
+            throw new IllegalStateException("listener bug");
+        });
+        manager.addListener(change -> seen.addAll(change.changedKeys()));
+        manager.set("first", "1");
+        TestSupport.assertEquals("1", manager.get("first").orElse(null), "write survives a failing listener");
+        TestSupport.assertEquals(List.of("first"), seen, "later listeners still run");
+
+        Thread[] writer = new Thread[1];
+        manager.addListener(change -> {
+            writer[0] = Thread.ofVirtual().start(() -> manager.set("fromOtherThread", "x"));
+            try {
+                writer[0].join(5000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, "trigger");
+        manager.addListener(change -> manager.set("echo", "y"), "trigger");
+        manager.set("trigger", "go");
+        TestSupport.assertFalse(writer[0].isAlive(), "listener can wait on a write from another thread");
+        TestSupport.assertEquals("x", manager.get("fromOtherThread").orElse(null), "other thread's write applied");
+        TestSupport.assertEquals(List.of("first", "trigger", "fromOtherThread", "echo"), seen,
+                "changes delivered in version order");
+    }
+
+    private static void runWatch() throws Exception {
+        Path dir = Files.createTempDirectory("midscene-watch");
+        Path file = dir.resolve("config.json");
+        Files.writeString(file, "{\"model\": {\"name\": \"a\", \"url\": \"http://one\"}, \"flag\": true}");
+        ConfigManager manager = new ConfigManager();
+        BlockingQueue<ConfigManager.Change> changes = new LinkedBlockingQueue<>();
+        manager.addListener(changes::add, "model.name", "flag");
+
+        try (ConfigFileWatcher watcher = manager.watch(file, Duration.ofMillis(50))) {
+            TestSupport.assertEquals("a", manager.get("model.name").orElse(null), "initial load");
+            ConfigManager.Change initial = changes.poll(5, TimeUnit.SECONDS);
+            TestSupport.assertTrue(initial != null && initial.changedKeys().contains("model.name"), "initial load notifies");
+
+            Files.writeString(file, "{\"model\": {\"name\": \"b\", \"url\": \"http://one\"}}");
+            ConfigManager.Change change = changes.poll(10, TimeUnit.SECONDS);
+            TestSupport.assertTrue(change != null, "file change observed");
+            TestSupport.assertEquals(Set.of("model.name", "flag"), change.changedKeys(), "diff of flattened keys");
+            TestSupport.assertEquals("a", change.previous().get("model.name").orElse(null), "previous snapshot kept");
+            TestSupport.assertEquals("b", manager.get("model.name").orElse(null), "new value applied");
+            TestSupport.assertFalse(manager.get("flag").isPresent(), "removed key dropped");
+
+            long reloads = watcher.reloadCount();
+            Files.writeString(file, "{\"model\": ");
+            Thread.sleep(500);
+            TestSupport.assertEquals(reloads, watcher.reloadCount(), "broken file is not applied");
+            TestSupport.assertEquals("b", manager.get("model.name").orElse(null), "last good value kept");
+        }
+    }
 }
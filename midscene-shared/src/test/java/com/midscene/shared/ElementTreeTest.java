@@ -0,0 +1,55 @@
+package com.midscene.shared;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+final class ElementTreeTest {
+
+    static void run() throws IOException {
+        Path file = Files.createTempFile("midscene-element-tree", ".json");
+        Files.writeString(file, "{\n"
+                + "  \"node\": null,\n"
+                + "  \"children\": [\n"
+                + "    {\"children\": [\n"
+                + "       {\"node\": {\"id\": \"bkdon\", \"indexId\": 1, \"nodeType\": \"TEXT Node\","
+                + " \"content\": \"Learn\", \"rect\": {\"left\": 5, \"top\": 6, \"width\": 7.5, \"height\": 8}},"
+                + " \"children\": []}\n"
+                + "     ],\n"
+                + "     \"node\": {\"id\": \"fpael\", \"indexId\": 0, \"nodeHashId\": \"fpael\", \"nodeType\": \"TEXT Node\","
+                + " \"locator\": \"\", \"attributes\": {\"nodeType\": \"TEXT Node\", \"htmlTagName\": \"<h3>\"},"
+                + " \"center\": [51, 43], \"content\": \"React\","
+                + " \"rect\": {\"left\": 18, \"top\": 28, \"width\": 65, \"height\": 29, \"zoom\": 1},"
+                + " \"zoom\": 1, \"screenWidth\": 1280, \"screenHeight\": 720}},\n"
+                + "    {\"node\": null, \"children\": []}\n"
+                + "  ]\n"
+                + "}");
+
+        ElementTree tree = ElementTree.load(file);
+        TestSupport.assertEquals(4, tree.size(), "node count");
+        TestSupport.assertEquals(2, tree.elementCount(), "element count");
+        TestSupport.assertFalse(tree.hasElement(0), "root is a container");
+        TestSupport.assertEquals(1, tree.firstChild(0), "root first child");
+        TestSupport.assertEquals(3, tree.nextSibling(1), "sibling skips subtree");
+        TestSupport.assertEquals(ElementTree.NONE, tree.nextSibling(3), "last sibling");
+        TestSupport.assertEquals(1, tree.parent(2), "parent link");
+        TestSupport.assertEquals(4, tree.subtreeEnd(0), "root subtree");
+
+        int react = tree.findById("fpael");
+        TestSupport.assertEquals(1, react, "element found by id");
+        TestSupport.assertEquals("React", tree.content(react), "content");
+        TestSupport.assertEquals(18f, tree.left(react), "rect left");
+        TestSupport.assertEquals(29f, tree.height(react), "rect height");
+        TestSupport.assertEquals("<h3>", tree.attribute(react, "htmlTagName"), "attribute lookup");
+        TestSupport.assertEquals(2, tree.attributeCount(react), "attribute count");
+        TestSupport.assertEquals(1280, tree.screenWidth(), "screen width");
+
+        int learn = tree.findById("bkdon");
+        TestSupport.assertEquals(7.5f, tree.width(learn), "fractional rect");
+        TestSupport.assertEquals(0, tree.attributeCount(learn), "no attributes");
+        TestSupport.assertTrue(tree.nodeType(learn) == tree.nodeType(react), "strings are pooled");
+        TestSupport.assertEquals(ElementTree.NONE, tree.findById("missing"), "missing id");
+
+        Files.deleteIfExists(file);
+    }
+}
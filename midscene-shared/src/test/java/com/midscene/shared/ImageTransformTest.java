@@ -0,0 +1,128 @@
+package com.midscene.shared;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+final class ImageTransformTest {
+
+    static void run() throws IOException {
+        runSizes();
+        runBase64();
+        runResize();
+        runCropAndPad();
+        runPipeline();
+    }
+
+    private static void runSizes() {
+        TestSupport.assertEquals(new ImageTransform.Size(1000, 500), ImageTransform.zoomForGPT4o(1000, 500), "small image untouched");
+        TestSupport.assertEquals(new ImageTransform.Size(1365, 768), ImageTransform.zoomForGPT4o(2560, 1440), "fit into 2048x768");
+        TestSupport.assertEquals(new ImageTransform.Size(420, 924), ImageTransform.paddedSize(400, 905, 28), "padded to block");
+        TestSupport.assertEquals(new ImageTransform.Size(28, 56), ImageTransform.paddedSize(28, 56, 28), "aligned size kept");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> new ImageTransform.Size(0, 10), "zero size rejected");
+    }
+
+    private static void runBase64() throws IOException {
+        byte[] png = png(quadrants(8, 6));
+        String base64 = ImageTransform.createImgBase64ByFormat("png", Base64.getEncoder().encodeToString(png));
+        ImageTransform.Base64Image parsed = ImageTransform.parseBase64(base64);
+        TestSupport.assertEquals("image/png", parsed.mimeType(), "mime type");
+        TestSupport.assertEquals("png", parsed.format(), "format");
+        try (ImageTransform.Pixels pixels = ImageTransform.fromBase64(base64)) {
+            TestSupport.assertEquals(8, pixels.width(), "decoded width");
+            TestSupport.assertEquals(0xffff0000, pixels.argb(0, 0), "top left red");
+            TestSupport.assertEquals(0xff0000ff, pixels.argb(7, 5), "bottom right blue");
+        }
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> ImageTransform.parseBase64("not-an-image"), "invalid base64");
+    }
+
+    private static void runResize() throws IOException {
+        byte[] png = png(quadrants(200, 100));
+        ImageTransform.EncodedImage same = ImageTransform.resizeAndConvert("png", png, new ImageTransform.Size(200, 100));
+        TestSupport.assertTrue(same.data() == png, "same size returns input");
+        TestSupport.assertEquals("png", same.format(), "same size keeps format");
+
+        ImageTransform.EncodedImage half = ImageTransform.resizeAndConvert("png", png, new ImageTransform.Size(100, 50));
+        TestSupport.assertEquals("jpeg", half.format(), "resized is jpeg");
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(half.data()));
+        TestSupport.assertEquals(100, decoded.getWidth(), "resized width");
+        TestSupport.assertEquals(50, decoded.getHeight(), "resized height");
+        assertNear(0xff0000, decoded.getRGB(10, 10), "red quadrant kept");
+        assertNear(0x0000ff, decoded.getRGB(90, 40), "blue quadrant kept");
+
+        ImageTransform.EncodedImage up = ImageTransform.pipeline().resize(new ImageTransform.Size(400, 200)).png().apply(png);
+        try (ImageTransform.Pixels pixels = ImageTransform.decode(up.data())) {
+            TestSupport.assertEquals(0xffff0000, pixels.argb(50, 50), "upscaled red");
+            TestSupport.assertEquals(0xff00ff00, pixels.argb(350, 50), "upscaled green");
+        }
+    }
+
+    private static void runCropAndPad() throws IOException {
+        byte[] png = png(quadrants(100, 60));
+        ImageTransform.EncodedImage padded = ImageTransform.pipeline().padToBlock(28).png().apply(png);
+        TestSupport.assertEquals(112, padded.width(), "padded width");
+        TestSupport.assertEquals(84, padded.height(), "padded height");
+        try (ImageTransform.Pixels pixels = ImageTransform.decode(padded.data())) {
+            TestSupport.assertEquals(0xffffffff, pixels.argb(105, 10), "right padding white");
+            TestSupport.assertEquals(0xffffffff, pixels.argb(10, 70), "bottom padding white");
+            TestSupport.assertEquals(0xff0000ff, pixels.argb(99, 59), "content kept");
+        }
+
+        ImageTransform.EncodedImage cropped = ImageTransform.cropByRect(png, new ImageTransform.Rect(40, 20, 20, 20), false);
+        TestSupport.assertEquals(20, cropped.width(), "crop width");
+        TestSupport.assertEquals("jpeg", cropped.format(), "crop encodes jpeg");
+        ImageTransform.EncodedImage croppedPadded = ImageTransform.pipeline()
+                .crop(new ImageTransform.Rect(50, 30, 100, 100)).padToBlock(28).png().apply(png);
+        TestSupport.assertEquals(56, croppedPadded.width(), "crop clamped then padded");
+        try (ImageTransform.Pixels pixels = ImageTransform.decode(croppedPadded.data())) {
+            TestSupport.assertEquals(0xff0000ff, pixels.argb(0, 0), "crop origin");
+            TestSupport.assertEquals(0xffffffff, pixels.argb(50, 0), "crop padding");
+        }
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> ImageTransform.cropByRect(png, new ImageTransform.Rect(200, 200, 10, 10), true), "crop outside");
+    }
+
+    private static void runPipeline() throws IOException {
+        List<byte[]> inputs = List.of(png(quadrants(300, 120)), png(quadrants(3000, 1000)), png(quadrants(90, 30)));
+        List<ImageTransform.EncodedImage> results = ImageTransform.pipeline()
+                .resize(size -> ImageTransform.zoomForGPT4o(size.width(), size.height()))
+                .applyAll(inputs);
+        TestSupport.assertEquals(3, results.size(), "all transformed");
+        TestSupport.assertEquals(300, results.get(0).width(), "order kept");
+        TestSupport.assertEquals(new ImageTransform.Size(2048, 683),
+                new ImageTransform.Size(results.get(1).width(), results.get(1).height()), "zoomed");
+        TestSupport.assertEquals(90, results.get(2).width(), "small kept");
+    }
+
+    /** Red, green, black and blue quadrants, clockwise from the top left. */
+    private static BufferedImage quadrants(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean right = x >= width / 2;
+                boolean bottom = y >= height / 2;
+                int rgb = bottom ? (right ? 0x0000ff : 0x000000) : (right ? 0x00ff00 : 0xff0000);
+                image.setRGB(x, y, 0xff000000 | rgb);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void assertNear(int expectedRgb, int actualArgb, String message) {
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int expected = expectedRgb >>> shift & 0xff;
+            int actual = actualArgb >>> shift & 0xff;
+            TestSupport.assertTrue(Math.abs(expected - actual) <= 12, message + " (channel " + shift + ": " + actual + ")");
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.midscene.shared;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+final class JsonReaderTest {
+
+    private static final String DOCUMENT = "{\n"
+            + "  \"node\": null,\n"
+            + "  \"children\": [\n"
+            + "    {\"node\": {\"id\": \"fpael\", \"content\": \"Re\\\"act \\u4e2d\\n\", \"center\": [51, 43],"
+            + " \"zoom\": 1.5, \"visible\": true, \"big\": 12345678901234567890}, \"children\": []},\n"
+            + "    {\"node\": {\"id\": \"bkdon\", \"content\": \"文字\"}, \"children\": [{}, [], -7]}\n"
+            + "  ]\n"
+            + "}";
+
+    static void run() {
+        readsTokens(JsonReader.of(DOCUMENT));
+        readsTokens(new JsonReader(new StringReader(DOCUMENT), 8));
+        readsTokens(JsonReader.of(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+        readsTokens(new JsonReader(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)), 8));
+        ByteBuffer direct = ByteBuffer.allocateDirect(DOCUMENT.length() * 3);
+        direct.put(DOCUMENT.getBytes(StandardCharsets.UTF_8)).flip();
+        readsTokens(JsonReader.of(direct));
+
+        skipsSubtrees();
+        materializesValues();
+        quotesRoundTrip();
+        rejectsMalformedInput();
+    }
+
+    private static void readsTokens(JsonReader reader) {
+        reader.beginObject();
+        TestSupport.assertEquals("node", reader.nextName(), "first name");
+        reader.nextNull();
+        TestSupport.assertEquals("children", reader.nextName(), "children name");
+        reader.beginArray();
+
+        reader.beginObject();
+        TestSupport.assertEquals("node", reader.nextName(), "child node name");
+        reader.beginObject();
+        TestSupport.assertEquals("id", reader.nextName(), "id name");
+        TestSupport.assertEquals("fpael", reader.nextString(), "id value");
+        TestSupport.assertEquals("content", reader.nextName(), "content name");
+        TestSupport.assertEquals("Re\"act 中\n", reader.nextString(), "escaped content");
+        TestSupport.assertEquals("center", reader.nextName(), "center name");
+        reader.beginArray();
+        TestSupport.assertEquals(51, reader.nextInt(), "center x");
+        TestSupport.assertEquals(43L, reader.nextLong(), "center y");
+        reader.endArray();
+        TestSupport.assertEquals("zoom", reader.nextName(), "zoom name");
+        TestSupport.assertEquals(1.5, reader.nextDouble(), "zoom value");
+        TestSupport.assertEquals("visible", reader.nextName(), "visible name");
+        TestSupport.assertTrue(reader.nextBoolean(), "visible value");
+        TestSupport.assertEquals("big", reader.nextName(), "big name");
+        TestSupport.assertEquals(1.2345678901234567e19, reader.nextDouble(), "overflowing integer");
+        TestSupport.assertFalse(reader.hasNext(), "end of node");
+        reader.endObject();
+        TestSupport.assertEquals("children", reader.nextName(), "nested children");
+        reader.beginArray();
+        reader.endArray();
+        reader.endObject();
+
+        reader.beginObject();
+        reader.nextName();
+        reader.beginObject();
+        reader.nextName();
+        reader.nextString();
+        reader.nextName();
+        TestSupport.assertEquals("文字", reader.nextString(), "multi-byte content");
+        reader.endObject();
+        reader.nextName();
+        reader.beginArray();
+        TestSupport.assertEquals(JsonReader.Token.BEGIN_OBJECT, reader.peek(), "empty object token");
+        reader.beginObject();
+        reader.endObject();
+        reader.beginArray();
+        reader.endArray();
+        TestSupport.assertEquals(-7, reader.nextInt(), "negative number");
+        reader.endArray();
+        reader.endObject();
+
+        reader.endArray();
+        reader.endObject();
+        TestSupport.assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek(), "end of document");
+        reader.close();
+    }
+
+    private static void quotesRoundTrip() {
+        String value = "a\"b\\c\n\u0001中";
+        TestSupport.assertEquals("\"a\\\"b\\\\c\\n\\u0001中\"", JsonStrings.quote(value), "quoted form");
+        TestSupport.assertEquals(value, JsonReader.of(JsonStrings.quote(value)).nextString(), "quote round trip");
+    }
+
+    private static void skipsSubtrees() {
+        JsonReader reader = new JsonReader(new StringReader(DOCUMENT), 8);
+        reader.beginObject();
+        reader.nextName();
+        reader.skipValue();
+        TestSupport.assertEquals("children", reader.nextName(), "name after skipped null");
+        reader.beginArray();
+        reader.skipValue();
+        reader.beginObject();
+        TestSupport.assertEquals("node", reader.nextName(), "second child after skip");
+        reader.skipValue();
+        TestSupport.assertEquals("children", reader.nextName(), "name after skipped object");
+        reader.skipValue();
+        reader.endObject();
+        reader.endArray();
+        reader.endObject();
+        TestSupport.assertEquals(0, reader.depth(), "depth after document");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void materializesValues() {
+        Map<String, Object> root = SimpleJsonParser.parseObject(DOCUMENT);
+        List<Object> children = (List<Object>) root.get("children");
+        TestSupport.assertEquals(2, children.size(), "array size");
+        Map<String, Object> node = (Map<String, Object>) ((Map<String, Object>) children.getFirst()).get("node");
+        TestSupport.assertEquals(List.of(51L, 43L), node.get("center"), "array values");
+        TestSupport.assertEquals(Boolean.TRUE, node.get("visible"), "boolean value");
+        TestSupport.assertTrue(root.containsKey("node") && root.get("node") == null, "null value");
+    }
+
+    private static void rejectsMalformedInput() {
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> SimpleJsonParser.parseObject("[1, 2]"), "top-level array rejected by parseObject");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> JsonReader.of("{\"a\": [1, 2,]}").readValue(), "trailing comma");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> JsonReader.of("{\"a\": \"unterminated").readValue(), "unterminated string");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> JsonReader.of("{\"a\" 1}").readValue(), "missing colon");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> JsonReader.of("{\"a\": tru}").readValue(), "bad literal");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> {
+            JsonReader reader = JsonReader.of("[\"x\"]");
+            reader.beginArray();
+            reader.nextInt();
+        }, "type mismatch");
+    }
+}
@@ -0,0 +1,143 @@
+package com.midscene.shared;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+final class MetricsTest {
+
+    static void run() throws Exception {
+        bucketsRoundTrip();
+        percentilesWithinBucketPrecision();
+        concurrentRecording();
+        prometheusText();
+        exporterServesMetrics();
+        dumpsSummary();
+    }
+
+    private static void bucketsRoundTrip() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1_000, 999_999, 1_000_000_007L, 1L << 40};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            TestSupport.assertTrue(LatencyHistogram.bucketUpperBound(index) >= value, "upper bound covers " + value);
+            TestSupport.assertTrue(index == 0 || LatencyHistogram.bucketUpperBound(index - 1) < value,
+                    "previous bucket ends below " + value);
+        }
+        TestSupport.assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE),
+                "overflow lands in last bucket");
+        TestSupport.assertEquals(0, LatencyHistogram.bucketIndex(-5), "negative treated as zero");
+    }
+
+    private static void percentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram("test:percentiles");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        TestSupport.assertEquals(1000L, snapshot.count(), "count");
+        TestSupport.assertEquals(1_000_000_000L, snapshot.maxNanos(), "max");
+        TestSupport.assertEquals(500_500_000_000L, snapshot.sumNanos(), "sum");
+        assertNear(500_000_000L, snapshot.valueAtPercentile(50), "p50");
+        assertNear(990_000_000L, snapshot.valueAtPercentile(99), "p99");
+        TestSupport.assertEquals(1_000_000_000L, snapshot.valueAtPercentile(100), "p100 capped at max");
+        TestSupport.assertEquals(0L, new LatencyHistogram("test:empty").snapshot().valueAtPercentile(50), "empty");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> snapshot.valueAtPercentile(0), "p0 rejected");
+    }
+
+    private static void concurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = Metrics.histogram("test:concurrent");
+        Metrics.Counter counter = Metrics.counter("test:concurrent");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                    counter.increment();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        TestSupport.assertEquals(80_000L, histogram.snapshot().count(), "no lost histogram updates");
+        TestSupport.assertEquals(80_000L, counter.sum(), "no lost counter updates");
+        TestSupport.assertTrue(Metrics.histogram("test:concurrent") == histogram, "histogram registered once");
+    }
+
+    private static void prometheusText() {
+        Metrics.counter("test:prom").add(3);
+        LatencyHistogram histogram = Metrics.histogram("test:prom");
+        histogram.record(2_000_000L);
+        histogram.record(20_000_000_000L);
+        String text = Metrics.prometheusText();
+        TestSupport.assertContains(text, "# TYPE midscene_test_prom_total counter\nmidscene_test_prom_total 3\n", "counter");
+        TestSupport.assertContains(text, "# TYPE midscene_test_prom_seconds histogram\n", "histogram type");
+        TestSupport.assertContains(text, "midscene_test_prom_seconds_bucket{le=\"0.001\"} 0\n", "below first sample");
+        TestSupport.assertContains(text, "midscene_test_prom_seconds_bucket{le=\"0.005\"} 1\n", "cumulative bucket");
+        TestSupport.assertContains(text, "midscene_test_prom_seconds_bucket{le=\"+Inf\"} 2\n", "inf bucket");
+        TestSupport.assertContains(text, "midscene_test_prom_seconds_count 2\n", "count");
+        TestSupport.assertEquals("midscene_ai_call_proxy", Metrics.metricName("ai:call-proxy"), "metric name");
+    }
+
+    private static void exporterServesMetrics() throws IOException, InterruptedException {
+        Metrics.counter("test:http").increment();
+        try (MetricsExporter exporter = MetricsExporter.start(0)) {
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("http://127.0.0.1:" + exporter.port() + MetricsExporter.PATH);
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            TestSupport.assertEquals(200, response.statusCode(), "status");
+            TestSupport.assertContains(response.headers().firstValue("Content-Type").orElse(""), "version=0.0.4",
+                    "content type");
+            TestSupport.assertContains(response.body(), "midscene_test_http_total 1", "body");
+            HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            TestSupport.assertEquals(405, post.statusCode(), "only GET");
+        }
+
+        ConfigManager config = new ConfigManager();
+        try (MetricsExporter probe = MetricsExporter.start(0)) {
+            int port = probe.port();
+            probe.close();
+            config.set(EnvKeys.MIDSCENE_METRICS_PORT, Integer.toString(port));
+            Metrics.configure(config);
+            TestSupport.assertEquals(port, Metrics.exporter().port(), "configured port");
+        } finally {
+            config.set(EnvKeys.MIDSCENE_METRICS_PORT, null);
+            Metrics.configure(config);
+        }
+        TestSupport.assertEquals(null, Metrics.exporter(), "exporter stopped without port");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void dumpsSummary() throws IOException {
+        String originalUserDir = System.getProperty("user.dir");
+        Path tempDir = Files.createTempDirectory("midscene-metrics");
+        System.setProperty("user.dir", tempDir.toString());
+        try {
+            Metrics.histogram("test:summary").record(3_000_000L);
+            Path file = Metrics.dumpSummary();
+            TestSupport.assertEquals(tempDir.resolve("midscene_run/log/" + Metrics.SUMMARY_FILE), file, "summary path");
+            Map<String, Object> summary = SimpleJsonParser.parseObject(Files.readString(file));
+            Map<String, Object> histogram = (Map<String, Object>) ((Map<String, Object>) summary.get("histograms"))
+                    .get("test:summary");
+            TestSupport.assertEquals(1L, histogram.get("count"), "summary count");
+            TestSupport.assertEquals(3.0, histogram.get("maxMs"), "summary max");
+            TestSupport.assertTrue(summary.get("counters") instanceof Map, "counters present");
+        } finally {
+            System.setProperty("user.dir", originalUserDir);
+        }
+    }
+
+    private static void assertNear(long expected, long actual, String message) {
+        TestSupport.assertTrue(Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS,
+                message + " expected~" + expected + " actual=" + actual);
+    }
+}
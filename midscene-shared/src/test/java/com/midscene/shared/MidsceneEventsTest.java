@@ -0,0 +1,87 @@
+package com.midscene.shared;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.imageio.ImageIO;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+final class MidsceneEventsTest {
+
+    static void run() throws Exception {
+        boolean original = MidsceneEvents.isEnabled();
+        try {
+            disabledAllocatesNothing();
+            recordsWhenEnabled();
+            configureFollowsKey();
+        } finally {
+            MidsceneEvents.setEnabled(original);
+        }
+    }
+
+    private static void disabledAllocatesNothing() {
+        MidsceneEvents.setEnabled(false);
+        TestSupport.assertEquals(null, MidsceneEvents.beginAiCall(), "no AI call event");
+        TestSupport.assertEquals(null, MidsceneEvents.beginCacheLookup(), "no cache event");
+        TestSupport.assertEquals(null, MidsceneEvents.beginImageTransform(), "no image event");
+        TestSupport.assertEquals(null, MidsceneEvents.beginRunDirectoryWrite(), "no write event");
+    }
+
+    private static void recordsWhenEnabled() throws Exception {
+        MidsceneEvents.setEnabled(true);
+        BufferedImage image = new BufferedImage(64, 32, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        Path file = Files.createTempFile("midscene-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("midscene.ImageTransform");
+            recording.enable("midscene.AiCall");
+            recording.enable("midscene.CacheLookup");
+            recording.start();
+            ImageTransform.pipeline().resize(new ImageTransform.Size(32, 16)).png().apply(png.toByteArray());
+            MidsceneEvents.beginAiCall().finish("qwen-vl", "planning", 2048, 512, true);
+            MidsceneEvents.beginCacheLookup().finish("task", "LOCATE", "x".repeat(1000), false);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.deleteIfExists(file);
+
+        RecordedEvent transform = find(events, "midscene.ImageTransform");
+        TestSupport.assertEquals(64, transform.getInt("sourceWidth"), "source width");
+        TestSupport.assertEquals(16, transform.getInt("targetHeight"), "target height");
+        TestSupport.assertEquals("png", transform.getString("format"), "format");
+        TestSupport.assertEquals((long) png.size(), transform.getLong("inputBytes"), "input bytes");
+
+        RecordedEvent call = find(events, "midscene.AiCall");
+        TestSupport.assertEquals("planning", call.getString("intent"), "intent");
+        TestSupport.assertEquals(2048L, call.getLong("bytesSent"), "bytes sent");
+
+        RecordedEvent lookup = find(events, "midscene.CacheLookup");
+        TestSupport.assertFalse(lookup.getBoolean("hit"), "miss recorded");
+        TestSupport.assertEquals(256, lookup.getString("key").length(), "key truncated");
+    }
+
+    private static void configureFollowsKey() {
+        ConfigManager config = new ConfigManager();
+        config.set(EnvKeys.MIDSCENE_JFR_EVENTS, "true");
+        MidsceneEvents.configure(config);
+        TestSupport.assertTrue(MidsceneEvents.isEnabled(), "enabled by key");
+        config.set(EnvKeys.MIDSCENE_JFR_EVENTS, "false");
+        MidsceneEvents.configure(config);
+        TestSupport.assertFalse(MidsceneEvents.isEnabled(), "disabled by key");
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        throw new AssertionError("No " + name + " event in " + events.size() + " events");
+    }
+}
@@ -1,6 +1,9 @@
 package com.midscene.shared;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -27,5 +30,113 @@ final class MidsceneLoggerFactoryTest {
             System.setProperty("user.dir", originalUserDir);
             MidsceneLoggerFactory.cleanupLogStreams();
         }
+
+        runAsync();
+        runTopicFilter();
+        runUnrelatedDebugValue();
+    }
+
+    private static void runTopicFilter() throws IOException {
+        String originalUserDir = System.getProperty("user.dir");
+        PrintStream originalErr = System.err;
+        Path tempDir = Files.createTempDirectory("midscene-logger-filter");
+        System.setProperty("user.dir", tempDir.toString());
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(console, true, StandardCharsets.UTF_8));
+
+        try {
+            MidsceneLoggerFactory.setDebugTopics("midscene:ai:*, -midscene:ai:noisy");
+            TestSupport.assertTrue(MidsceneLoggerFactory.isEnabled("ai:call"), "glob enables topic");
+            TestSupport.assertFalse(MidsceneLoggerFactory.isEnabled("ai:noisy"), "exclusion wins");
+            TestSupport.assertFalse(MidsceneLoggerFactory.isEnabled("web"), "unmatched topic disabled");
+
+            MidsceneLoggerFactory.DebugFunction web = MidsceneLoggerFactory.getDebug("web");
+            TestSupport.assertTrue(web.isEnabled(), "unmatched topic still logs to file");
+            web.log("file only", 1);
+            MidsceneLoggerFactory.DebugFunction call = MidsceneLoggerFactory.getDebug("ai:call");
+            call.log(() -> "lazy " + 42);
+
+            Path logDir = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG);
+            TestSupport.assertContains(Files.readAllLines(logDir.resolve("web.log")).getFirst(), "file only 1",
+                    "file written for unmatched topic");
+            TestSupport.assertContains(Files.readAllLines(logDir.resolve("ai-call.log")).getFirst(), "lazy 42",
+                    "supplier message written");
+            TestSupport.assertContains(console.toString(StandardCharsets.UTF_8), "midscene:ai:call lazy 42",
+                    "matched topic echoed to console");
+            TestSupport.assertFalse(console.toString(StandardCharsets.UTF_8).contains("file only"),
+                    "unmatched topic not echoed");
+
+            MidsceneLoggerFactory.enableDebug("web");
+            TestSupport.assertTrue(MidsceneLoggerFactory.isEnabled("web"), "enableDebug adds topic");
+            web.log("now echoed");
+            TestSupport.assertContains(console.toString(StandardCharsets.UTF_8), "midscene:web now echoed",
+                    "existing function follows filter change");
+
+            MidsceneLoggerFactory.setDebugTopics("");
+            TestSupport.assertFalse(MidsceneLoggerFactory.isEnabled("ai:call"), "empty spec disables console");
+        } finally {
+            System.setErr(originalErr);
+            System.setProperty("user.dir", originalUserDir);
+            MidsceneLoggerFactory.cleanupLogStreams();
+            MidsceneLoggerFactory.setDebugTopics(null);
+        }
+    }
+
+    private static void runUnrelatedDebugValue() throws IOException {
+        String originalUserDir = System.getProperty("user.dir");
+        PrintStream originalErr = System.err;
+        Path tempDir = Files.createTempDirectory("midscene-logger-unrelated");
+        System.setProperty("user.dir", tempDir.toString());
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(console, true, StandardCharsets.UTF_8));
+        EnvironmentUtils.override(EnvKeys.DEBUG, "express:*");
+
+        try {
+            MidsceneLoggerFactory.setDebugTopics(null);
+            MidsceneLoggerFactory.getDebug("ai:call").log("still", "logged");
+
+            Path logFile = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG).resolve("ai-call.log");
+            TestSupport.assertTrue(Files.exists(logFile), "file log kept with unrelated DEBUG");
+            TestSupport.assertContains(Files.readAllLines(logFile).getFirst(), "still logged", "file log content");
+            TestSupport.assertEquals("", console.toString(StandardCharsets.UTF_8), "nothing echoed to console");
+        } finally {
+            System.setErr(originalErr);
+            System.setProperty("user.dir", originalUserDir);
+            EnvironmentUtils.resetEnvProvider();
+            MidsceneLoggerFactory.cleanupLogStreams();
+            MidsceneLoggerFactory.setDebugTopics(null);
+        }
+    }
+
+    private static void runAsync() throws IOException {
+        String originalUserDir = System.getProperty("user.dir");
+        Path tempDir = Files.createTempDirectory("midscene-logger-async");
+        System.setProperty("user.dir", tempDir.toString());
+        EnvironmentUtils.override(EnvKeys.MIDSCENE_DEBUG_LOG_ASYNC, "true");
+        EnvironmentUtils.override(EnvKeys.MIDSCENE_DEBUG_LOG_BUFFER_SIZE, "16");
+
+        try {
+            MidsceneLoggerFactory.DebugFunction debug = MidsceneLoggerFactory.getDebug("automation:async");
+            for (int i = 0; i < 100; i++) {
+                debug.log("line", i);
+            }
+            MidsceneLoggerFactory.cleanupLogStreams();
+
+            Path logFile = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG)
+                    .resolve("automation-async.log");
+            List<String> lines = Files.readAllLines(logFile);
+            TestSupport.assertEquals(100, lines.size(), "async lines drained on cleanup");
+            TestSupport.assertContains(lines.getFirst(), "line 0", "async first line");
+            TestSupport.assertContains(lines.getLast(), "line 99", "async ordering");
+
+            TestSupport.assertEquals(AsyncLogSink.Backpressure.SAMPLE,
+                    AsyncLogSink.Backpressure.fromString(" sample "), "backpressure parsing");
+            TestSupport.assertThrows(IllegalArgumentException.class,
+                    () -> AsyncLogSink.Backpressure.fromString("unknown"), "unknown backpressure");
+        } finally {
+            System.setProperty("user.dir", originalUserDir);
+            EnvironmentUtils.resetEnvProvider();
+            MidsceneLoggerFactory.cleanupLogStreams();
+        }
     }
 }
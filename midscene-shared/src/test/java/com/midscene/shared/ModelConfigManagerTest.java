@@ -0,0 +1,126 @@
+package com.midscene.shared;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class ModelConfigManagerTest {
+
+    static void run() {
+        registry();
+        legacyEnv();
+        intentEnv();
+        intentConfigs();
+        cachedPerSnapshot();
+    }
+
+    private static void registry() {
+        TestSupport.assertEquals(EnvKey.MIDSCENE_VQA_OPENAI_INIT_CONFIG_JSON,
+                EnvKey.modelKey(ModelIntent.VQA, EnvKey.ModelField.OPENAI_EXTRA_CONFIG), "intent key table");
+        TestSupport.assertEquals(EnvKey.Type.JSON, EnvKey.MIDSCENE_VQA_OPENAI_INIT_CONFIG_JSON.type(), "json type");
+        TestSupport.assertEquals(EnvKey.OPENAI_API_KEY, EnvKey.legacyModelKey(EnvKey.ModelField.OPENAI_API_KEY),
+                "legacy key table");
+        TestSupport.assertEquals(null, EnvKey.legacyModelKey(EnvKey.ModelField.VL_MODE), "legacy table has no vl mode");
+        TestSupport.assertEquals("MIDSCENE-API-TYPE", EnvKey.MIDSCENE_API_TYPE.key(), "explicit key name");
+        for (String key : new String[] {EnvKeys.MIDSCENE_MODEL_NAME, EnvKeys.MIDSCENE_RUN_DIR, EnvKeys.DEBUG,
+                EnvKeys.MIDSCENE_CACHE_MAX_FILENAME_LENGTH, EnvKeys.MIDSCENE_AI_CACHE_MAX_BYTES}) {
+            TestSupport.assertTrue(EnvKey.lookup(key).isPresent(), "registered " + key);
+        }
+        EnvKeys.basicEnvKeys().forEach(key -> TestSupport.assertEquals(EnvKey.Scope.BASIC,
+                EnvKey.lookup(key).orElseThrow().scope(), "basic scope " + key));
+
+        EnvValues values = EnvValues.of(Map.of(EnvKeys.MIDSCENE_CACHE, "true", "MIDSCENE_REPLANNING_CYCLE_LIMIT", "5"));
+        TestSupport.assertTrue(values.getBoolean(EnvKey.MIDSCENE_CACHE), "boolean parsed");
+        TestSupport.assertEquals(5, values.getInt(EnvKey.MIDSCENE_REPLANNING_CYCLE_LIMIT, 10), "number parsed");
+        TestSupport.assertEquals(200, values.getInt(EnvKey.MIDSCENE_CACHE_MAX_FILENAME_LENGTH, 0), "default applied");
+        TestSupport.assertEquals("midscene_run", values.get(EnvKey.MIDSCENE_RUN_DIR), "string default");
+    }
+
+    private static void legacyEnv() {
+        Map<String, String> env = new HashMap<>();
+        env.put("OPENAI_API_KEY", "sk-legacy-123456");
+        env.put("OPENAI_BASE_URL", "https://api.example.com/v1");
+        env.put("MIDSCENE_USE_QWEN_VL", "1");
+        env.put("MIDSCENE_OPENAI_INIT_CONFIG_JSON", "{\"REPORT_SERVER_URL\": \"http://report\"}");
+        ModelConfigManager manager = ModelConfigManager.fromEnv(EnvValues.of(env));
+        ModelConfig config = manager.get(ModelIntent.PLANNING);
+        TestSupport.assertEquals(ModelConfig.Source.LEGACY_ENV, config.from(), "falls back to legacy");
+        TestSupport.assertEquals("gpt-4o", config.modelName(), "legacy default model");
+        TestSupport.assertEquals("sk-legacy-123456", config.openaiApiKey(), "legacy api key");
+        TestSupport.assertEquals("qwen-vl", config.vlMode(), "vl mode from legacy flag");
+        TestSupport.assertEquals("qwen-vl mode", config.modelDescription(), "description");
+        TestSupport.assertEquals("http://report", config.openaiExtraConfig().get("REPORT_SERVER_URL"), "extra config");
+        TestSupport.assertTrue(config == manager.get(ModelIntent.PLANNING), "resolved once and reused");
+        TestSupport.assertContains(config.toString(), "sk-**********456", "api key masked");
+
+        env.put("MIDSCENE_USE_GEMINI", "1");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> ModelConfigManager.fromEnv(EnvValues.of(env)), "conflicting vision modes");
+        env.remove("MIDSCENE_USE_GEMINI");
+        env.remove("OPENAI_API_KEY");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> ModelConfigManager.fromEnv(EnvValues.of(env)), "missing api key");
+    }
+
+    private static void intentEnv() {
+        Map<String, String> env = new HashMap<>();
+        env.put("OPENAI_API_KEY", "sk-default");
+        env.put("MIDSCENE_GROUNDING_MODEL_NAME", "ui-tars");
+        env.put("MIDSCENE_GROUNDING_USE_AZURE_OPENAI", "1");
+        env.put("MIDSCENE_GROUNDING_AZURE_OPENAI_KEY", "azure-key");
+        env.put("MIDSCENE_GROUNDING_AZURE_OPENAI_ENDPOINT", "https://azure");
+        env.put("MIDSCENE_GROUNDING_VL_MODE", "vlm-ui-tars-doubao");
+        env.put("MIDSCENE_GROUNDING_MODEL_MAX_CONCURRENCY", "8");
+        env.put("MIDSCENE_MODEL_MAX_CONCURRENCY", "3");
+        ModelConfigManager manager = ModelConfigManager.fromEnv(EnvValues.of(env));
+        ModelConfig grounding = manager.get(ModelIntent.GROUNDING);
+        TestSupport.assertEquals(ModelConfig.Source.ENV, grounding.from(), "intent keys used");
+        TestSupport.assertEquals("ui-tars", grounding.modelName(), "intent model name");
+        TestSupport.assertTrue(grounding.useAzureOpenai(), "azure chosen");
+        TestSupport.assertEquals("https://azure", grounding.azureOpenaiEndpoint(), "azure endpoint");
+        TestSupport.assertEquals("vlm-ui-tars", grounding.vlMode(), "vl mode");
+        TestSupport.assertEquals("doubao-1.5-20B", grounding.uiTarsModelVersion(), "ui-tars version");
+        TestSupport.assertEquals(8, grounding.maxConcurrency(), "intent concurrency limit");
+        TestSupport.assertEquals(null, grounding.initialConcurrency(), "unset limit is null");
+        TestSupport.assertEquals(3, manager.get(ModelIntent.VQA).maxConcurrency(), "legacy path reads default limit");
+        TestSupport.assertEquals(ModelConfig.Source.LEGACY_ENV, manager.get(ModelIntent.VQA).from(),
+                "intent without model name falls back");
+        TestSupport.assertThrows(IllegalStateException.class,
+                () -> manager.throwErrorIfNonVlModel(ModelIntent.VQA), "non-VL intent rejected");
+
+        env.put("MIDSCENE_GROUNDING_MODEL_MAX_CONCURRENCY", "0");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> ModelConfigManager.fromEnv(EnvValues.of(env)), "non-positive concurrency");
+        env.put("MIDSCENE_GROUNDING_MODEL_MAX_CONCURRENCY", "8");
+        env.put("MIDSCENE_GROUNDING_VL_MODE", "bogus");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> ModelConfigManager.fromEnv(EnvValues.of(env)), "invalid vl mode");
+    }
+
+    private static void intentConfigs() {
+        ModelConfigManager manager = ModelConfigManager.fromIntentConfigs(intent -> intent == ModelIntent.VQA
+                ? Map.of("MIDSCENE_VQA_MODEL_NAME", "qwen", "MIDSCENE_VQA_OPENAI_API_KEY", "vqa-key",
+                        "MIDSCENE_VQA_VL_MODE", "qwen-vl")
+                : Map.of("MIDSCENE_MODEL_NAME", "gpt-4o", "MIDSCENE_USE_ANTHROPIC_SDK", "1",
+                        "MIDSCENE_ANTHROPIC_API_KEY", "anthropic-key"));
+        ModelConfig vqa = manager.get(ModelIntent.VQA);
+        TestSupport.assertEquals(ModelConfig.Source.MODEL_CONFIG, vqa.from(), "model config source");
+        TestSupport.assertEquals("qwen", vqa.modelName(), "vqa model");
+        TestSupport.assertEquals("qwen-vl", vqa.vlMode(), "vqa vl mode");
+        ModelConfig planning = manager.get(ModelIntent.PLANNING);
+        TestSupport.assertEquals("gpt-4o", planning.modelName(), "default keys used");
+        TestSupport.assertTrue(planning.useAnthropicSdk(), "anthropic chosen");
+        TestSupport.assertEquals("anthropic-key", planning.anthropicApiKey(), "anthropic key");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> ModelConfigManager.fromIntentConfigs(intent -> Map.of()), "model name required");
+    }
+
+    private static void cachedPerSnapshot() {
+        ConfigManager config = new ConfigManager();
+        config.set("OPENAI_API_KEY", "sk-one");
+        ModelConfigManager manager = ModelConfigManager.forConfig(config);
+        ModelConfig first = manager.get(ModelIntent.DEFAULT);
+        TestSupport.assertTrue(first == manager.get(ModelIntent.DEFAULT), "reused while config is unchanged");
+        config.set("OPENAI_API_KEY", "sk-two");
+        TestSupport.assertEquals("sk-two", manager.get(ModelIntent.DEFAULT).openaiApiKey(), "re-resolved after change");
+    }
+}
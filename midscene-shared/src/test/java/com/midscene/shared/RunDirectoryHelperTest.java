@@ -3,6 +3,7 @@ package com.midscene.shared;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,11 +26,21 @@ final class RunDirectoryHelperTest {
             Path logDir = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG);
             TestSupport.assertEquals(baseDir.resolve("log"), logDir, "log dir path");
             TestSupport.assertTrue(Files.exists(logDir), "log dir created");
+            TestSupport.assertTrue(logDir == RunDirectoryHelper.getRunSubDir("log"), "sub dir memoized");
+
+            Files.delete(logDir);
+            TestSupport.assertFalse(Files.exists(RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG)),
+                    "memoized path not re-created");
+            RunDirectoryHelper.invalidate();
+            TestSupport.assertTrue(Files.exists(RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG)),
+                    "invalidate re-creates");
+
+            runSessions(baseDir);
+            runUnrelatedOverride(baseDir);
 
             EnvironmentUtils.resetEnvProvider();
 
-            Files.deleteIfExists(baseDir.resolve("log"));
-            Files.deleteIfExists(baseDir);
+            deleteTree(baseDir);
 
             Path conflict = tempDir.resolve(RunDirectoryHelper.DEFAULT_RUN_DIR_NAME);
             Files.writeString(conflict, "conflict");
@@ -41,6 +52,70 @@ final class RunDirectoryHelperTest {
         } finally {
             System.setProperty("user.dir", originalUserDir);
             EnvironmentUtils.resetEnvProvider();
+            RunDirectoryHelper.invalidate();
+        }
+    }
+
+    private static void runSessions(Path baseDir) {
+        try (RunSession first = RunDirectoryHelper.session("agent-1-run");
+             RunSession second = RunDirectoryHelper.newSession()) {
+            TestSupport.assertTrue(first == RunDirectoryHelper.session("agent-1-run"), "session registered");
+            TestSupport.assertFalse(first.id().equals(second.id()), "new sessions unique");
+
+            Path firstDump = first.subDir(RunDirectoryHelper.SubDirectory.DUMP);
+            Path secondDump = second.subDir(RunDirectoryHelper.SubDirectory.DUMP);
+            TestSupport.assertEquals(baseDir.resolve("sessions").resolve("agent-1-run").resolve("dump"), firstDump,
+                    "session dump path");
+            TestSupport.assertTrue(Files.isDirectory(firstDump), "session dump created");
+            TestSupport.assertFalse(firstDump.equals(secondDump), "sessions isolated");
+            TestSupport.assertTrue(firstDump == first.subDir(RunDirectoryHelper.SubDirectory.DUMP), "session dir memoized");
+
+            try (RunSession log = RunDirectoryHelper.session("log")) {
+                TestSupport.assertFalse(log.root().equals(RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG)),
+                        "session named like a sub directory stays in its own tree");
+            }
+
+            first.close();
+            RunSession replacement = RunDirectoryHelper.session("agent-1-run");
+            TestSupport.assertFalse(first == replacement, "closed session unregistered");
+            first.close();
+            TestSupport.assertTrue(replacement == RunDirectoryHelper.session("agent-1-run"),
+                    "closing a stale session keeps the newer one");
+            replacement.close();
+        }
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> RunDirectoryHelper.session(".."), "parent id rejected");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> RunDirectoryHelper.session("agent 1/run"),
+                "ids that would need rewriting are rejected");
+    }
+
+    private static void runUnrelatedOverride(Path baseDir) {
+        Path logDir = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG);
+        try (RunSession session = RunDirectoryHelper.session("kept")) {
+            EnvironmentUtils.override(EnvKeys.MIDSCENE_CACHE, "true");
+            TestSupport.assertTrue(logDir == RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG),
+                    "unrelated override keeps memoized dirs");
+            TestSupport.assertTrue(session == RunDirectoryHelper.session("kept"), "unrelated override keeps sessions");
+
+            EnvironmentUtils.override(EnvKeys.MIDSCENE_RUN_DIR, "other_run");
+            TestSupport.assertEquals(baseDir.resolveSibling("other_run"), RunDirectoryHelper.getRunBaseDir(),
+                    "run dir override moves the base");
+            try (RunSession moved = RunDirectoryHelper.session("kept")) {
+                TestSupport.assertFalse(session == moved, "new base starts without sessions");
+            }
+
+            EnvironmentUtils.override(EnvKeys.MIDSCENE_RUN_DIR, null);
+        } finally {
+            EnvironmentUtils.override(EnvKeys.MIDSCENE_CACHE, null);
+            EnvironmentUtils.override(EnvKeys.MIDSCENE_RUN_DIR, null);
+        }
+        TestSupport.assertEquals(baseDir, RunDirectoryHelper.getRunBaseDir(), "base restored");
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (var paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
         }
     }
 }
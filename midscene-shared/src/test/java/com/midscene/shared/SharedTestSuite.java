@@ -1,5 +1,6 @@
 package com.midscene.shared;
 
+import java.nio.file.Files;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -9,9 +10,22 @@ class SharedTestSuite {
 
     @Test
     void runAllSuites() throws Exception {
-        EnvironmentUtilsTest.run();
-        RunDirectoryHelperTest.run();
-        MidsceneLoggerFactoryTest.run();
-        ConfigManagerTest.run();
+        // Keep run output (debug logs, caches) out of the module directory.
+        String originalUserDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", Files.createTempDirectory("midscene-shared-tests").toString());
+        try {
+            EnvironmentUtilsTest.run();
+            RunDirectoryHelperTest.run();
+            MidsceneLoggerFactoryTest.run();
+            ConfigManagerTest.run();
+            JsonReaderTest.run();
+            ElementTreeTest.run();
+            ModelConfigManagerTest.run();
+            ImageTransformTest.run();
+            MetricsTest.run();
+            MidsceneEventsTest.run();
+        } finally {
+            System.setProperty("user.dir", originalUserDir);
+        }
     }
 }
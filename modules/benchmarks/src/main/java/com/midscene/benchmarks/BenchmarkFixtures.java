@@ -0,0 +1,48 @@
+package com.midscene.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Locates the {@code packages/evaluation/page-data} fixtures the benchmarks run on.
+ * The directory is taken from {@code -Dmidscene.pageData=...} or found by walking up
+ * from the working directory, so the jar runs from the repo root or the module.
+ */
+public final class BenchmarkFixtures {
+    /** Page fixtures from small to large element trees. */
+    public static final String SMALL_PAGE = "todo";
+    public static final String LARGE_PAGE = "taobao";
+
+    private static final Path PAGE_DATA = Path.of("packages", "evaluation", "page-data");
+
+    private BenchmarkFixtures() {}
+
+    public static Path pageData() {
+        String configured = System.getProperty("midscene.pageData");
+        if (configured != null) {
+            return Path.of(configured);
+        }
+        for (Path dir = Path.of("").toAbsolutePath(); dir != null; dir = dir.getParent()) {
+            Path candidate = dir.resolve(PAGE_DATA);
+            if (Files.isDirectory(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("page-data fixtures not found; set -Dmidscene.pageData");
+    }
+
+    public static Path page(String name) {
+        return pageData().resolve(name);
+    }
+
+    public static byte[] read(String page, String file) {
+        Path path = page(page).resolve(file);
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read fixture " + path, ex);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.midscene.benchmarks;
+
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.EnvKeys;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Config reads as every step does them, from several threads at once, and the same
+ * reads while another thread keeps publishing new snapshots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigManagerBenchmark {
+    private final ConfigManager config = new ConfigManager();
+    private int writes;
+
+    @Setup
+    public void setUp() {
+        config.set(EnvKeys.MIDSCENE_MODEL_NAME, "qwen2.5-vl-72b-instruct");
+        config.set(EnvKeys.MIDSCENE_CACHE, "true");
+        config.set(EnvKeys.MIDSCENE_DEBUG_LOG_BUFFER_SIZE, "8192");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<String> get() {
+        return config.get(EnvKeys.MIDSCENE_MODEL_NAME);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean getBoolean() {
+        return config.getBoolean(EnvKeys.MIDSCENE_CACHE, false);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int getInt() {
+        return config.getInt(EnvKeys.MIDSCENE_DEBUG_LOG_BUFFER_SIZE, 0);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(3)
+    public int contendedRead() {
+        return config.getInt(EnvKeys.MIDSCENE_DEBUG_LOG_BUFFER_SIZE, 0);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public void contendedWrite() {
+        config.set(EnvKeys.MIDSCENE_AI_CACHE_TTL_MS, Integer.toString(writes++ & 1023));
+    }
+}
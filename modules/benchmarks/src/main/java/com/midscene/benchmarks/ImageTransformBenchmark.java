@@ -0,0 +1,65 @@
+package com.midscene.benchmarks;
+
+import com.midscene.shared.ImageTransform;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The screenshot path before each model call: header read, decode, and the fused
+ * resize/pad/encode pipeline over a page-data screenshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageTransformBenchmark {
+    @Param({"input.png", "resize-output.png"})
+    public String image;
+
+    private byte[] png;
+    private ImageTransform.Pipeline zoomToJpeg;
+    private ImageTransform.Pipeline padToPng;
+
+    @Setup
+    public void setUp() {
+        png = BenchmarkFixtures.read(BenchmarkFixtures.SMALL_PAGE, image);
+        zoomToJpeg = ImageTransform.pipeline()
+                .resize(size -> ImageTransform.zoomForGPT4o(size.width(), size.height()))
+                .jpeg(0.9f);
+        padToPng = ImageTransform.pipeline().padToBlock(28).png();
+    }
+
+    @Benchmark
+    public ImageTransform.Size readSize() {
+        return ImageTransform.readSize(png);
+    }
+
+    @Benchmark
+    public int decode() {
+        try (ImageTransform.Pixels pixels = ImageTransform.decode(png)) {
+            return pixels.argb(0, 0);
+        }
+    }
+
+    @Benchmark
+    public ImageTransform.EncodedImage zoomForGPT4oJpeg() {
+        return zoomToJpeg.apply(png);
+    }
+
+    @Benchmark
+    public ImageTransform.EncodedImage padToBlockPng() {
+        return padToPng.apply(png);
+    }
+}
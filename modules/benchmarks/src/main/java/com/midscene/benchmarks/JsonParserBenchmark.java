@@ -0,0 +1,119 @@
+package com.midscene.benchmarks;
+
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.ElementTree;
+import com.midscene.shared.JsonReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses configs and page-data element trees through {@link JsonReader#readValue()},
+ * the reader behind the package-private {@code SimpleJsonParser}, and loads config
+ * files through {@link ConfigManager#loadFromJson}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonParserBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ConfigInput {
+        private final ConfigManager config = new ConfigManager();
+        private String json;
+        private Path file;
+
+        @Setup
+        public void setUp() throws IOException {
+            json = """
+                    {
+                      "OPENAI_API_KEY": "sk-0123456789abcdef0123456789abcdef",
+                      "OPENAI_BASE_URL": "https://api.example.com/v1",
+                      "MIDSCENE_MODEL_NAME": "qwen2.5-vl-72b-instruct",
+                      "MIDSCENE_USE_QWEN_VL": true,
+                      "MIDSCENE_CACHE": true,
+                      "MIDSCENE_DEBUG_LOG_ASYNC": false,
+                      "MIDSCENE_DEBUG_LOG_BUFFER_SIZE": 8192,
+                      "MIDSCENE_AI_CACHE_TTL_MS": 600000,
+                      "MIDSCENE_RUN_DIR": "midscene_run",
+                      "MIDSCENE_OPENAI_INIT_CONFIG_JSON": {
+                        "defaultHeaders": {"x-team": "qa", "x-trace": "on"},
+                        "timeout": 30000,
+                        "maxRetries": 2
+                      },
+                      "DEBUG": "midscene:ai:*,midscene:cache:*"
+                    }
+                    """;
+            file = Files.createTempFile("midscene-config", ".json");
+            Files.writeString(file, json);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PageInput {
+        @Param({BenchmarkFixtures.SMALL_PAGE, BenchmarkFixtures.LARGE_PAGE})
+        public String page;
+
+        private String json;
+        private ByteBuffer bytes;
+
+        @Setup
+        public void setUp() {
+            byte[] tree = BenchmarkFixtures.read(page, "element-tree.json");
+            json = new String(tree, StandardCharsets.UTF_8);
+            bytes = ByteBuffer.wrap(tree);
+        }
+    }
+
+    @Benchmark
+    public Object parseConfig(ConfigInput input) {
+        try (JsonReader reader = JsonReader.of(input.json)) {
+            return reader.readValue();
+        }
+    }
+
+    /**
+     * Read, parse and flatten a config file. The contents never change, so after the
+     * first call the load publishes nothing and no listeners run.
+     */
+    @Benchmark
+    public ConfigManager.Snapshot loadConfigFile(ConfigInput input) {
+        input.config.loadFromJson(input.file);
+        return input.config.current();
+    }
+
+    @Benchmark
+    public Object parsePageData(PageInput input) {
+        try (JsonReader reader = JsonReader.of(input.json)) {
+            return reader.readValue();
+        }
+    }
+
+    /** Streaming load of the same document into the columnar tree, for comparison. */
+    @Benchmark
+    public ElementTree readElementTree(PageInput input) {
+        return ElementTree.read(input.bytes.duplicate());
+    }
+}
@@ -0,0 +1,70 @@
+package com.midscene.benchmarks;
+
+import com.midscene.shared.MidsceneLoggerFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a debug call site writing to its log file, against the no-op function as a
+ * lower bound. The topic is left out of the console filter, which is the common case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerBenchmark {
+    private final MidsceneLoggerFactory.DebugFunction noop = MidsceneLoggerFactory.DebugFunction.NOOP;
+    private MidsceneLoggerFactory.DebugFunction file;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        MidsceneLoggerFactory.setDebugTopics("");
+        file = MidsceneLoggerFactory.getDebug("benchmark:file");
+    }
+
+    @TearDown
+    public void tearDown() {
+        MidsceneLoggerFactory.cleanupLogStreams();
+        MidsceneLoggerFactory.setDebugTopics(null);
+    }
+
+    @Benchmark
+    public void noopFixedArity() {
+        noop.log("step", step++);
+    }
+
+    @Benchmark
+    public void noopVarargs() {
+        noop.log("step", step++, "of", 10, "done");
+    }
+
+    @Benchmark
+    public void noopSupplier() {
+        int current = step++;
+        noop.log(() -> "step " + current);
+    }
+
+    @Benchmark
+    public void fileFixedArity() {
+        file.log("step", step++);
+    }
+
+    @Benchmark
+    public void fileSupplier() {
+        int current = step++;
+        file.log(() -> "step " + current);
+    }
+}
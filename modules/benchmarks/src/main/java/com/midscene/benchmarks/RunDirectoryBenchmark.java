@@ -0,0 +1,64 @@
+package com.midscene.benchmarks;
+
+import com.midscene.shared.RunDirectoryHelper;
+import com.midscene.shared.RunSession;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Run directory lookups: the memoized path every log line and dump write takes, and
+ * the cold resolution after {@link RunDirectoryHelper#invalidate()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RunDirectoryBenchmark {
+    private RunSession session;
+
+    @Setup
+    public void setUp() {
+        session = RunDirectoryHelper.session("benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Path getRunSubDir() {
+        return RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG);
+    }
+
+    @Benchmark
+    public Path getRunSubDirByName() {
+        return RunDirectoryHelper.getRunSubDir("report");
+    }
+
+    @Benchmark
+    public Path sessionSubDir() {
+        return session.subDir(RunDirectoryHelper.SubDirectory.DUMP);
+    }
+
+    @Benchmark
+    public Path resolveAfterInvalidate() {
+        RunDirectoryHelper.invalidate();
+        return RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.LOG);
+    }
+}
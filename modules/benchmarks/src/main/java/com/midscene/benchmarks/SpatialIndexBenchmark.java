@@ -0,0 +1,81 @@
+package com.midscene.benchmarks;
+
+import com.midscene.core.ElementStore;
+import com.midscene.core.SpatialIndex;
+import com.midscene.shared.ElementTree;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Point lookups on real page-data trees through {@link SpatialIndex}, against the
+ * linear {@link ElementStore#hitTest} scan it replaces, plus the cost of building it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialIndexBenchmark {
+    private static final int QUERIES = 256;
+
+    @Param({BenchmarkFixtures.SMALL_PAGE, BenchmarkFixtures.LARGE_PAGE})
+    public String page;
+
+    private ElementStore store;
+    private SpatialIndex index;
+    private final float[] xs = new float[QUERIES];
+    private final float[] ys = new float[QUERIES];
+
+    @Setup
+    public void setUp() {
+        ElementTree tree = ElementTree.load(BenchmarkFixtures.page(page).resolve("element-tree.json"));
+        store = ElementStore.of(tree, ElementStore.Storage.HEAP);
+        index = SpatialIndex.build(store);
+        Random random = new Random(42);
+        int width = Math.max(tree.screenWidth(), 1);
+        int height = Math.max(tree.screenHeight(), 1);
+        for (int i = 0; i < QUERIES; i++) {
+            xs[i] = random.nextInt(width);
+            ys[i] = random.nextInt(height);
+        }
+    }
+
+    @Benchmark
+    public SpatialIndex build() {
+        return SpatialIndex.build(store);
+    }
+
+    @Benchmark
+    public void indexHitTest(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(index.hitTest(xs[i], ys[i]));
+        }
+    }
+
+    @Benchmark
+    public void linearHitTest(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(store.hitTest(xs[i], ys[i]));
+        }
+    }
+
+    @Benchmark
+    public void nearest(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(index.nearest(xs[i], ys[i], 5));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.midscene.cli;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-script handle passed to a {@link BatchScript}. It gives access to the runner's
+ * named resource pools and to the shared model request limit, and collects task
+ * failures that do not abort the script.
+ */
+public final class BatchContext {
+    private final String file;
+    private final Map<String, ResourcePool<?>> pools;
+    private final Semaphore modelPermits;
+    private final AtomicInteger failedTasks = new AtomicInteger();
+    private volatile String firstTaskError;
+
+    BatchContext(String file, Map<String, ResourcePool<?>> pools, Semaphore modelPermits) {
+        this.file = file;
+        this.pools = pools;
+        this.modelPermits = modelPermits;
+    }
+
+    public String file() {
+        return file;
+    }
+
+    /**
+     * Leases a resource from the pool registered under {@code poolName}.
+     */
+    @SuppressWarnings("unchecked")
+    public <R, T> T withResource(String poolName, ResourcePool.Lease<R, T> action) throws Exception {
+        ResourcePool<R> pool = (ResourcePool<R>) pools.get(Objects.requireNonNull(poolName, "poolName"));
+        if (pool == null) {
+            throw new IllegalArgumentException("Unknown resource pool: " + poolName);
+        }
+        return pool.withResource(action);
+    }
+
+    /**
+     * Runs a model request under the batch-wide model concurrency limit, which is
+     * independent of how many scripts are running.
+     */
+    public <T> T callModel(Callable<T> request) throws Exception {
+        modelPermits.acquire();
+        try {
+            return request.call();
+        } finally {
+            modelPermits.release();
+        }
+    }
+
+    /**
+     * Records a failed task when the script carries on, which makes the script
+     * {@link BatchResult.Type#PARTIAL_FAILED}.
+     */
+    public void markTaskFailed(String message) {
+        if (failedTasks.getAndIncrement() == 0) {
+            firstTaskError = message;
+        }
+    }
+
+    int failedTasks() {
+        return failedTasks.get();
+    }
+
+    String firstTaskError() {
+        return firstTaskError;
+    }
+}
@@ -0,0 +1,34 @@
+package com.midscene.cli;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Outcome of one script, mirroring {@code MidsceneYamlConfigResult} in the TS cli.
+ */
+public record BatchResult(String file, Type type, Duration duration, String error) {
+
+    /**
+     * Result kinds reported by the TS batch runner, plus scripts skipped by fail-fast.
+     */
+    public enum Type {
+        SUCCESS,
+        PARTIAL_FAILED,
+        FAILED,
+        NOT_EXECUTED
+    }
+
+    public BatchResult {
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(type, "type");
+        Objects.requireNonNull(duration, "duration");
+    }
+
+    public boolean success() {
+        return type == Type.SUCCESS;
+    }
+
+    public boolean executed() {
+        return type != Type.NOT_EXECUTED;
+    }
+}
@@ -0,0 +1,214 @@
+package com.midscene.cli;
+
+import com.midscene.shared.MidsceneLoggerFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * JVM counterpart of the TS {@code BatchRunner}. Every script gets its own virtual
+ * thread, so hundreds of scripts that mostly wait on devices and model calls fit in
+ * one process. Three independent limits apply:
+ *
+ * <ul>
+ *   <li>{@code concurrency} caps how many scripts run at once (the {@code p-limit} cap);
+ *   <li>{@code modelConcurrency} caps in-flight model requests across all scripts;
+ *   <li>named {@link ResourcePool}s hand out exclusive devices or browsers.
+ * </ul>
+ *
+ * <p>With {@link ErrorPolicy#FAIL_FAST} scripts that have not started when one fails are
+ * reported as {@link BatchResult.Type#NOT_EXECUTED}; running ones finish, as in the TS
+ * runner. Results are streamed to the listener as scripts complete. Locks are
+ * {@link ReentrantLock}s so waiting virtual threads never pin their carrier.
+ */
+public final class BatchRunner {
+
+    /**
+     * What to do with pending scripts once a script fails.
+     */
+    public enum ErrorPolicy {
+        CONTINUE_ON_ERROR,
+        FAIL_FAST
+    }
+
+    /**
+     * A named script, usually one YAML file.
+     */
+    public record Job(String file, BatchScript script) {
+        public Job {
+            Objects.requireNonNull(file, "file");
+            Objects.requireNonNull(script, "script");
+        }
+    }
+
+    private final int concurrency;
+    private final int modelConcurrency;
+    private final ErrorPolicy errorPolicy;
+    private final Map<String, ResourcePool<?>> pools;
+    private final Consumer<BatchResult> listener;
+    private final ReentrantLock listenerLock = new ReentrantLock();
+
+    private BatchRunner(Builder builder) {
+        this.concurrency = builder.concurrency;
+        this.modelConcurrency = builder.modelConcurrency;
+        this.errorPolicy = builder.errorPolicy;
+        this.pools = Map.copyOf(builder.pools);
+        this.listener = builder.listener;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Looked up per call rather than held statically, so loading the class does not pick
+     * the log file before the run directory is configured.
+     */
+    private static MidsceneLoggerFactory.DebugFunction debug() {
+        return MidsceneLoggerFactory.getDebug("cli:batch");
+    }
+
+    /**
+     * Runs all jobs and returns their results in submission order.
+     */
+    public List<BatchResult> run(List<Job> jobs) {
+        Objects.requireNonNull(jobs, "jobs");
+        debug().log("running", jobs.size(), "scripts, concurrency", concurrency);
+        AtomicReferenceArray<BatchResult> results = new AtomicReferenceArray<>(jobs.size());
+        Semaphore scriptPermits = new Semaphore(concurrency, true);
+        Semaphore modelPermits = new Semaphore(modelConcurrency, true);
+        AtomicBoolean stopped = new AtomicBoolean();
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("midscene-batch-", 0).factory())) {
+            for (int i = 0; i < jobs.size(); i++) {
+                int slot = i;
+                Job job = jobs.get(i);
+                executor.execute(() -> {
+                    BatchResult result = runJob(job, scriptPermits, modelPermits, stopped);
+                    results.set(slot, result);
+                    publish(result);
+                });
+            }
+        }
+        List<BatchResult> ordered = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            BatchResult result = results.get(i);
+            ordered.add(result != null ? result
+                    : new BatchResult(jobs.get(i).file(), BatchResult.Type.NOT_EXECUTED, Duration.ZERO, null));
+        }
+        return List.copyOf(ordered);
+    }
+
+    private BatchResult runJob(Job job, Semaphore scriptPermits, Semaphore modelPermits, AtomicBoolean stopped) {
+        try {
+            scriptPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return notExecuted(job);
+        }
+        try {
+            if (stopped.get()) {
+                return notExecuted(job);
+            }
+            BatchContext context = new BatchContext(job.file(), pools, modelPermits);
+            long start = System.nanoTime();
+            BatchResult.Type type;
+            String error;
+            try {
+                job.script().run(context);
+                type = context.failedTasks() > 0 ? BatchResult.Type.PARTIAL_FAILED : BatchResult.Type.SUCCESS;
+                error = context.firstTaskError();
+            } catch (Throwable ex) {
+                // Errors such as AssertionError fail the script too, so fail-fast still stops the batch.
+                if (ex instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                type = BatchResult.Type.FAILED;
+                error = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+            }
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            if (type == BatchResult.Type.FAILED && errorPolicy == ErrorPolicy.FAIL_FAST
+                    && stopped.compareAndSet(false, true)) {
+                debug().log("stopping batch after failure in", job.file());
+            }
+            return new BatchResult(job.file(), type, duration, error);
+        } finally {
+            scriptPermits.release();
+        }
+    }
+
+    private static BatchResult notExecuted(Job job) {
+        return new BatchResult(job.file(), BatchResult.Type.NOT_EXECUTED, Duration.ZERO, null);
+    }
+
+    private void publish(BatchResult result) {
+        if (listener == null) {
+            return;
+        }
+        listenerLock.lock();
+        try {
+            listener.accept(result);
+        } finally {
+            listenerLock.unlock();
+        }
+    }
+
+    public static final class Builder {
+        private int concurrency = 1;
+        private int modelConcurrency = Integer.MAX_VALUE;
+        private ErrorPolicy errorPolicy = ErrorPolicy.FAIL_FAST;
+        private final Map<String, ResourcePool<?>> pools = new LinkedHashMap<>();
+        private Consumer<BatchResult> listener;
+
+        private Builder() {}
+
+        /** Maximum number of scripts running at once. */
+        public Builder concurrency(int concurrency) {
+            this.concurrency = positive(concurrency, "concurrency");
+            return this;
+        }
+
+        /** Maximum number of model requests in flight across all scripts. */
+        public Builder modelConcurrency(int modelConcurrency) {
+            this.modelConcurrency = positive(modelConcurrency, "modelConcurrency");
+            return this;
+        }
+
+        public Builder errorPolicy(ErrorPolicy errorPolicy) {
+            this.errorPolicy = Objects.requireNonNull(errorPolicy, "errorPolicy");
+            return this;
+        }
+
+        public Builder pool(String name, ResourcePool<?> pool) {
+            pools.put(Objects.requireNonNull(name, "name"), Objects.requireNonNull(pool, "pool"));
+            return this;
+        }
+
+        /** Receives each result as soon as its script completes, one call at a time. */
+        public Builder listener(Consumer<BatchResult> listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public BatchRunner build() {
+            return new BatchRunner(this);
+        }
+
+        private static int positive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.midscene.cli;
+
+/**
+ * One unit of batch work, typically the playback of a single YAML file.
+ */
+@FunctionalInterface
+public interface BatchScript {
+    void run(BatchContext context) throws Exception;
+}
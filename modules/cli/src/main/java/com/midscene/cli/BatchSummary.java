@@ -0,0 +1,35 @@
+package com.midscene.cli;
+
+import java.util.List;
+
+/**
+ * Counts over a set of {@link BatchResult}s.
+ */
+public record BatchSummary(int total, int succeeded, int partialFailed, int failed, int notExecuted) {
+
+    public static BatchSummary of(List<BatchResult> results) {
+        int succeeded = 0;
+        int partialFailed = 0;
+        int failed = 0;
+        int notExecuted = 0;
+        for (BatchResult result : results) {
+            switch (result.type()) {
+                case SUCCESS -> succeeded++;
+                case PARTIAL_FAILED -> partialFailed++;
+                case FAILED -> failed++;
+                case NOT_EXECUTED -> notExecuted++;
+            }
+        }
+        return new BatchSummary(results.size(), succeeded, partialFailed, failed, notExecuted);
+    }
+
+    public boolean allSucceeded() {
+        return succeeded == total;
+    }
+
+    @Override
+    public String toString() {
+        return "Total: " + total + ", succeeded: " + succeeded + ", partially failed: " + partialFailed
+                + ", failed: " + failed + ", not executed: " + notExecuted;
+    }
+}
@@ -0,0 +1,72 @@
+package com.midscene.cli;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed set of exclusive resources such as devices or browser instances. Scripts lease
+ * one for the duration of a block; callers waiting for a lease park their virtual thread
+ * rather than an OS thread.
+ */
+public final class ResourcePool<R> {
+    private final BlockingQueue<R> available;
+    private final int capacity;
+
+    private ResourcePool(List<R> resources) {
+        if (resources.isEmpty()) {
+            throw new IllegalArgumentException("A resource pool needs at least one resource");
+        }
+        this.capacity = resources.size();
+        this.available = new ArrayBlockingQueue<>(capacity, true, resources);
+    }
+
+    public static <R> ResourcePool<R> of(List<R> resources) {
+        Objects.requireNonNull(resources, "resources");
+        return new ResourcePool<>(List.copyOf(resources));
+    }
+
+    @SafeVarargs
+    public static <R> ResourcePool<R> of(R... resources) {
+        return of(List.of(resources));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int available() {
+        return available.size();
+    }
+
+    public R acquire() throws InterruptedException {
+        return available.take();
+    }
+
+    public void release(R resource) {
+        if (!available.offer(Objects.requireNonNull(resource, "resource"))) {
+            throw new IllegalStateException("Released more resources than the pool holds");
+        }
+    }
+
+    /**
+     * Runs {@code action} with a leased resource and returns it to the pool afterwards.
+     */
+    public <T> T withResource(Lease<R, T> action) throws Exception {
+        R resource = acquire();
+        try {
+            return action.apply(resource);
+        } finally {
+            release(resource);
+        }
+    }
+
+    /**
+     * Work done while holding a resource.
+     */
+    @FunctionalInterface
+    public interface Lease<R, T> {
+        T apply(R resource) throws Exception;
+    }
+}
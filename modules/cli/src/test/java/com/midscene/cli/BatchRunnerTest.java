@@ -0,0 +1,155 @@
+package com.midscene.cli;
+
+import com.midscene.shared.TestSupport;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class BatchRunnerTest {
+
+    static void run() {
+        runsManyScriptsWithinLimits();
+        continueOnError();
+        failFast();
+        errorFailsScript();
+        resourcePoolsAreExclusive();
+        summary();
+    }
+
+    private static void runsManyScriptsWithinLimits() {
+        AtomicInteger runningScripts = new AtomicInteger();
+        AtomicInteger peakScripts = new AtomicInteger();
+        AtomicInteger runningModel = new AtomicInteger();
+        AtomicInteger peakModel = new AtomicInteger();
+        List<BatchResult> streamed = new ArrayList<>();
+        BatchRunner runner = BatchRunner.builder()
+                .concurrency(200)
+                .modelConcurrency(4)
+                .errorPolicy(BatchRunner.ErrorPolicy.CONTINUE_ON_ERROR)
+                .listener(streamed::add)
+                .build();
+        List<BatchRunner.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            jobs.add(new BatchRunner.Job("script-" + i + ".yaml", context -> {
+                peakScripts.accumulateAndGet(runningScripts.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                    context.callModel(() -> {
+                        peakModel.accumulateAndGet(runningModel.incrementAndGet(), Math::max);
+                        Thread.sleep(1);
+                        runningModel.decrementAndGet();
+                        return null;
+                    });
+                } finally {
+                    runningScripts.decrementAndGet();
+                }
+            }));
+        }
+        List<BatchResult> results = runner.run(jobs);
+        TestSupport.assertEquals(500, results.size(), "one result per job");
+        TestSupport.assertEquals("script-42.yaml", results.get(42).file(), "results keep submission order");
+        TestSupport.assertTrue(results.stream().allMatch(BatchResult::success), "all scripts succeed");
+        TestSupport.assertTrue(peakScripts.get() <= 200, "script concurrency respected: " + peakScripts.get());
+        TestSupport.assertTrue(peakScripts.get() > 4, "scripts are not serialized by the model limit");
+        TestSupport.assertTrue(peakModel.get() <= 4, "model concurrency respected: " + peakModel.get());
+        TestSupport.assertEquals(500, streamed.size(), "every result streamed to the listener");
+    }
+
+    private static void continueOnError() {
+        BatchRunner runner = BatchRunner.builder()
+                .concurrency(2)
+                .errorPolicy(BatchRunner.ErrorPolicy.CONTINUE_ON_ERROR)
+                .build();
+        List<BatchResult> results = runner.run(List.of(
+                new BatchRunner.Job("a.yaml", context -> {
+                    throw new IllegalStateException("player failed");
+                }),
+                new BatchRunner.Job("b.yaml", context -> context.markTaskFailed("assertion failed")),
+                new BatchRunner.Job("c.yaml", context -> {})));
+        TestSupport.assertEquals(BatchResult.Type.FAILED, results.get(0).type(), "exception fails the script");
+        TestSupport.assertEquals("player failed", results.get(0).error(), "failure message kept");
+        TestSupport.assertEquals(BatchResult.Type.PARTIAL_FAILED, results.get(1).type(), "task failure is partial");
+        TestSupport.assertEquals("assertion failed", results.get(1).error(), "task failure message kept");
+        TestSupport.assertEquals(BatchResult.Type.SUCCESS, results.get(2).type(), "later scripts still run");
+    }
+
+    private static void failFast() {
+        BatchRunner runner = BatchRunner.builder()
+                .concurrency(1)
+                .errorPolicy(BatchRunner.ErrorPolicy.FAIL_FAST)
+                .build();
+        List<BatchRunner.Job> jobs = new ArrayList<>();
+        jobs.add(new BatchRunner.Job("first.yaml", context -> {
+            throw new IllegalStateException("boom");
+        }));
+        for (int i = 0; i < 5; i++) {
+            jobs.add(new BatchRunner.Job("pending-" + i + ".yaml", context -> {}));
+        }
+        List<BatchResult> results = runner.run(jobs);
+        TestSupport.assertEquals(BatchResult.Type.FAILED, results.get(0).type(), "first script failed");
+        TestSupport.assertTrue(results.subList(1, results.size()).stream()
+                .noneMatch(BatchResult::executed), "pending scripts are not executed");
+    }
+
+    private static void errorFailsScript() {
+        BatchRunner runner = BatchRunner.builder()
+                .concurrency(1)
+                .errorPolicy(BatchRunner.ErrorPolicy.FAIL_FAST)
+                .build();
+        List<BatchResult> results = runner.run(List.of(
+                new BatchRunner.Job("assert.yaml", context -> {
+                    throw new AssertionError("expected title");
+                }),
+                new BatchRunner.Job("pending.yaml", context -> {})));
+        TestSupport.assertEquals(BatchResult.Type.FAILED, results.get(0).type(), "error fails the script");
+        TestSupport.assertEquals("expected title", results.get(0).error(), "error message kept");
+        TestSupport.assertFalse(results.get(1).executed(), "fail-fast stops after an error");
+    }
+
+    private static void resourcePoolsAreExclusive() {
+        ResourcePool<String> devices = ResourcePool.of("emulator-5554", "emulator-5556");
+        Set<String> inUse = ConcurrentHashMap.newKeySet();
+        AtomicInteger conflicts = new AtomicInteger();
+        BatchRunner runner = BatchRunner.builder()
+                .concurrency(16)
+                .errorPolicy(BatchRunner.ErrorPolicy.CONTINUE_ON_ERROR)
+                .pool("android", devices)
+                .build();
+        List<BatchRunner.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            jobs.add(new BatchRunner.Job("device-" + i + ".yaml", context ->
+                    context.<String, Void>withResource("android", device -> {
+                        if (!inUse.add(device)) {
+                            conflicts.incrementAndGet();
+                        }
+                        Thread.sleep(1);
+                        inUse.remove(device);
+                        return null;
+                    })));
+        }
+        jobs.add(new BatchRunner.Job("unknown-pool.yaml", context -> context.withResource("ios", device -> null)));
+        List<BatchResult> results = runner.run(jobs);
+        TestSupport.assertEquals(0, conflicts.get(), "a device is never shared");
+        TestSupport.assertEquals(2, devices.available(), "every device returned to the pool");
+        TestSupport.assertEquals(BatchResult.Type.FAILED, results.get(40).type(), "unknown pool fails the script");
+        TestSupport.assertContains(results.get(40).error(), "ios", "unknown pool named");
+    }
+
+    private static void summary() {
+        BatchSummary summary = BatchSummary.of(BatchRunner.builder()
+                .errorPolicy(BatchRunner.ErrorPolicy.FAIL_FAST)
+                .build()
+                .run(List.of(
+                        new BatchRunner.Job("ok.yaml", context -> {}),
+                        new BatchRunner.Job("bad.yaml", context -> {
+                            throw new IllegalStateException("bad");
+                        }),
+                        new BatchRunner.Job("skipped.yaml", context -> {}))));
+        TestSupport.assertEquals(new BatchSummary(3, 1, 0, 1, 1), summary, "summary counts");
+        TestSupport.assertFalse(summary.allSucceeded(), "not all succeeded");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> BatchRunner.builder().concurrency(0),
+                "concurrency must be positive");
+    }
+}
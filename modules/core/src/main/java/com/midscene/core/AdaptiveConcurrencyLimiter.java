@@ -0,0 +1,277 @@
+package com.midscene.core;
+
+import com.midscene.shared.ModelConfig;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit for one model that adapts with AIMD: each success raises the limit
+ * by {@code 1/limit} (about one per round of calls), while an overload response or
+ * sustained latency inflation multiplies it by {@code backoffRatio}. Calls that were
+ * already running when the limit was cut do not cut it again, so one burst of 429s
+ * backs off once.
+ *
+ * <p>Latency is judged on two moving averages rather than single calls, since one
+ * limiter serves every intent of a model and their calls differ widely in length: a
+ * short-term average (weight 1/8 per sample) is compared against a long-term baseline
+ * (weight 1/64), and the limit is cut when the former exceeds {@code latencyTolerance}
+ * times the latter. A steady mix of fast and slow calls keeps both averages level,
+ * while queueing at the provider lifts the short one first. A model that becomes
+ * slower for good is relearned as the baseline catches up. Waiters park on a
+ * {@link ReentrantLock} condition, which keeps virtual threads unpinned.
+ */
+public final class AdaptiveConcurrencyLimiter {
+    static final int DEFAULT_INITIAL_LIMIT = 4;
+    static final int DEFAULT_MAX_LIMIT = 32;
+    static final double DEFAULT_BACKOFF_RATIO = 0.5;
+    static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+    /** Weight of each sample in the short-term latency average. */
+    private static final double RECENT_WEIGHT = 1.0 / 8;
+    /** Weight of each sample in the long-term baseline. */
+    private static final double BASELINE_WEIGHT = 1.0 / 64;
+
+    /**
+     * Point-in-time state; {@code latencyBackoffs} counts cuts caused by latency
+     * inflation rather than overload responses, and {@code baselineNanos} is the
+     * long-term latency average.
+     */
+    public record Stats(int limit, int inFlight, long successes, long overloads, long latencyBackoffs,
+                        long baselineNanos) {}
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private double baselineNanos;
+    private double recentNanos;
+    private long lastBackoffNanos;
+    private boolean backedOff;
+    private long successes;
+    private long overloads;
+    private long latencyBackoffs;
+
+    private AdaptiveConcurrencyLimiter(Builder builder) {
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyTolerance = builder.latencyTolerance;
+        this.clock = builder.clock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Limiter for a resolved model config: {@code maxConcurrency} caps the limit and
+     * {@code initialConcurrency} is where it starts, each falling back to the defaults.
+     */
+    public static AdaptiveConcurrencyLimiter forModel(ModelConfig config) {
+        Objects.requireNonNull(config, "config");
+        int max = config.maxConcurrency() != null ? config.maxConcurrency() : DEFAULT_MAX_LIMIT;
+        int initial = config.initialConcurrency() != null ? config.initialConcurrency()
+                : Math.min(DEFAULT_INITIAL_LIMIT, max);
+        return builder().maxLimit(max).initialLimit(initial).build();
+    }
+
+    /**
+     * Waits until a call may start. The returned permit must be released exactly once
+     * through {@link Permit#onSuccess()}, {@link Permit#onOverload()} or
+     * {@link Permit#close()}.
+     */
+    public Permit acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+            return new Permit(clock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The current limit, rounded down to whole calls. */
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats((int) limit, inFlight, successes, overloads, latencyBackoffs, (long) baselineNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Permit permit, Outcome outcome) {
+        lock.lock();
+        try {
+            if (permit.released) {
+                return;
+            }
+            permit.released = true;
+            int running = inFlight--;
+            long now = clock.getAsLong();
+            switch (outcome) {
+                case SUCCESS -> onSuccess(permit.startNanos, now, running);
+                case OVERLOAD -> {
+                    overloads++;
+                    backOff(permit.startNanos, now);
+                }
+                case IGNORE -> {
+                    // Failures unrelated to load leave the limit alone.
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long startNanos, long now, int running) {
+        successes++;
+        long latency = Math.max(1, now - startNanos);
+        // Plain means until there are enough samples, so the first call alone does
+        // not become the baseline.
+        baselineNanos += (latency - baselineNanos) * Math.max(BASELINE_WEIGHT, 1.0 / successes);
+        recentNanos += (latency - recentNanos) * Math.max(RECENT_WEIGHT, 1.0 / successes);
+        if (recentNanos > baselineNanos * latencyTolerance) {
+            if (backOff(startNanos, now)) {
+                latencyBackoffs++;
+                // Start the short-term average over, so the next cut needs fresh
+                // evidence instead of the samples that caused this one.
+                recentNanos = baselineNanos;
+            }
+        } else if (running * 2 >= limit) {
+            // Only grow while the limit is actually being used, so an idle period
+            // does not leave a limit the provider has never been tested against.
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private boolean backOff(long startNanos, long now) {
+        if (backedOff && startNanos - lastBackoffNanos < 0) {
+            return false;
+        }
+        limit = Math.max(minLimit, limit * backoffRatio);
+        lastBackoffNanos = now;
+        backedOff = true;
+        return true;
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        OVERLOAD,
+        IGNORE
+    }
+
+    /**
+     * One admitted call. Latency is measured from {@link #acquire()} to the release.
+     */
+    public final class Permit implements AutoCloseable {
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /** Releases after a successful call, feeding its latency to the limit. */
+        public void onSuccess() {
+            release(this, Outcome.SUCCESS);
+        }
+
+        /** Releases after a 429 or 5xx response and backs the limit off. */
+        public void onOverload() {
+            release(this, Outcome.OVERLOAD);
+        }
+
+        /** Releases without adjusting the limit; a no-op after another release. */
+        @Override
+        public void close() {
+            release(this, Outcome.IGNORE);
+        }
+    }
+
+    /**
+     * Limiter settings; the initial limit is clamped into {@code [minLimit, maxLimit]}.
+     */
+    public static final class Builder {
+        private int initialLimit = DEFAULT_INITIAL_LIMIT;
+        private int minLimit = 1;
+        private int maxLimit = DEFAULT_MAX_LIMIT;
+        private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+        private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+        private LongSupplier clock = System::nanoTime;
+
+        private Builder() {}
+
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = positive("initialLimit", initialLimit);
+            return this;
+        }
+
+        public Builder minLimit(int minLimit) {
+            this.minLimit = positive("minLimit", minLimit);
+            return this;
+        }
+
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = positive("maxLimit", maxLimit);
+            return this;
+        }
+
+        /** Factor applied to the limit on overload; between 0 and 1 exclusive. */
+        public Builder backoffRatio(double backoffRatio) {
+            if (!(backoffRatio > 0 && backoffRatio < 1)) {
+                throw new IllegalArgumentException("backoffRatio must be between 0 and 1: " + backoffRatio);
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /** How many times the baseline the short-term latency may reach before the limit is cut. */
+        public Builder latencyTolerance(double latencyTolerance) {
+            if (!(latencyTolerance > 1)) {
+                throw new IllegalArgumentException("latencyTolerance must be greater than 1: " + latencyTolerance);
+            }
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        Builder clock(LongSupplier clock) {
+            this.clock = Objects.requireNonNull(clock, "clock");
+            return this;
+        }
+
+        public AdaptiveConcurrencyLimiter build() {
+            if (minLimit > maxLimit) {
+                throw new IllegalArgumentException("minLimit " + minLimit + " is greater than maxLimit " + maxLimit);
+            }
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+
+        private static int positive(String name, int value) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.midscene.core;
+
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.EnvKeys;
+import com.midscene.shared.MidsceneEvents;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory cache of model responses for the {@code callAI} path of the TS
+ * {@code service-caller}. Entries are content-addressed: the key is a SHA-256 over the
+ * model config, the prompt and the screenshot bytes, so an identical request against an
+ * identical screen is answered without a network round trip.
+ *
+ * <p>The cache is split into lock stripes, each an access-ordered LRU with its own
+ * share of the byte budget. Entries also expire after a TTL. Sizing comes from
+ * {@link ConfigManager} via {@link #fromConfig(ConfigManager)}.
+ */
+public final class AiResponseCache {
+    static final int DEFAULT_MAX_BYTES = 64 << 20;
+    static final int DEFAULT_TTL_MILLIS = 60 * 60 * 1000;
+    static final int DEFAULT_STRIPES = 16;
+    /** Rough per-entry overhead: key, map node and entry object. */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    /**
+     * Content hash identifying one model request.
+     */
+    public record Key(String digest) {
+        public Key {
+            Objects.requireNonNull(digest, "digest");
+        }
+    }
+
+    /**
+     * Point-in-time counters.
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, int entries, long bytes) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    private record Entry(String value, int weight, long expiresAtNanos) {}
+
+    private final Stripe[] stripes;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public AiResponseCache(long maxBytes, long ttlMillis, int stripeCount) {
+        this(maxBytes, ttlMillis, stripeCount, System::nanoTime);
+    }
+
+    AiResponseCache(long maxBytes, long ttlMillis, int stripeCount, LongSupplier clock) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must not be negative: " + ttlMillis);
+        }
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("stripeCount must be positive: " + stripeCount);
+        }
+        this.stripes = new Stripe[stripeCount];
+        long perStripe = Math.max(1, maxBytes / stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.ttlNanos = ttlMillis == 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+    /**
+     * Reads {@link EnvKeys#MIDSCENE_AI_CACHE_MAX_BYTES}, {@link EnvKeys#MIDSCENE_AI_CACHE_TTL_MS}
+     * (0 disables expiry) and {@link EnvKeys#MIDSCENE_AI_CACHE_STRIPES}.
+     */
+    public static AiResponseCache fromConfig(ConfigManager config) {
+        Objects.requireNonNull(config, "config");
+        return new AiResponseCache(
+                config.getInt(EnvKeys.MIDSCENE_AI_CACHE_MAX_BYTES, DEFAULT_MAX_BYTES),
+                config.getInt(EnvKeys.MIDSCENE_AI_CACHE_TTL_MS, DEFAULT_TTL_MILLIS),
+                config.getInt(EnvKeys.MIDSCENE_AI_CACHE_STRIPES, DEFAULT_STRIPES));
+    }
+
+    /**
+     * Hashes a request. Model config entries are sorted first so map order does not
+     * change the key; each part is length-prefixed so boundaries cannot collide.
+     */
+    public static Key key(Map<String, String> modelConfig, String prompt, byte[]... images) {
+        Objects.requireNonNull(modelConfig, "modelConfig");
+        Objects.requireNonNull(prompt, "prompt");
+        MessageDigest digest = sha256();
+        for (Map.Entry<String, String> entry : new TreeMap<>(modelConfig).entrySet()) {
+            update(digest, entry.getKey().getBytes(StandardCharsets.UTF_8));
+            update(digest, String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+        update(digest, prompt.getBytes(StandardCharsets.UTF_8));
+        for (byte[] image : images) {
+            update(digest, Objects.requireNonNull(image, "image"));
+        }
+        return new Key(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    public Optional<String> get(Key key) {
+        MidsceneEvents.CacheLookupEvent event = MidsceneEvents.beginCacheLookup();
+        Optional<String> value = lookup(key);
+        if (event != null) {
+            event.finish("ai-response", null, key.digest(), value.isPresent());
+        }
+        return value;
+    }
+
+    private Optional<String> lookup(Key key) {
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            if (clock.getAsLong() - entry.expiresAtNanos() >= 0) {
+                stripe.remove(key);
+                expirations.increment();
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(entry.value());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void put(Key key, String value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        int weight = ENTRY_OVERHEAD_BYTES + value.length() * 2;
+        Stripe stripe = stripe(key);
+        if (weight > stripe.maxBytes) {
+            // Larger than a whole stripe: caching it would only flush everything else.
+            return;
+        }
+        long now = clock.getAsLong();
+        long expiresAt = ttlNanos == Long.MAX_VALUE ? now + Long.MAX_VALUE / 2 : now + ttlNanos;
+        stripe.lock.lock();
+        try {
+            stripe.remove(key);
+            stripe.entries.put(key, new Entry(value, weight, expiresAt));
+            stripe.bytes += weight;
+            Iterator<Map.Entry<Key, Entry>> eldest = stripe.entries.entrySet().iterator();
+            while (stripe.bytes > stripe.maxBytes && eldest.hasNext()) {
+                Map.Entry<Key, Entry> victim = eldest.next();
+                eldest.remove();
+                stripe.bytes -= victim.getValue().weight();
+                if (now - victim.getValue().expiresAtNanos() >= 0) {
+                    expirations.increment();
+                } else {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the cached response or calls {@code loader} and caches its result.
+     * Concurrent misses on the same key may each call the loader.
+     */
+    public String getOrLoad(Key key, Function<Key, String> loader) {
+        Optional<String> cached = get(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        String value = loader.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    public void invalidate(Key key) {
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            stripe.remove(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.entries.clear();
+                stripe.bytes = 0;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public Stats stats() {
+        int entries = 0;
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                entries += stripe.entries.size();
+                bytes += stripe.bytes;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), entries, bytes);
+    }
+
+    private Stripe stripe(Key key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void update(MessageDigest digest, byte[] bytes) {
+        int length = bytes.length;
+        digest.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        private Stripe(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private void remove(Key key) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                bytes -= removed.weight();
+            }
+        }
+    }
+}
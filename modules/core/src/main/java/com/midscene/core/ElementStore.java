@@ -0,0 +1,385 @@
+package com.midscene.core;
+
+import com.midscene.shared.ElementTree;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar store for one UI element tree, mirroring the {@code ElementTreeNode}
+ * structure built by {@code packages/shared/src/extractor}. Nodes are laid out in
+ * pre-order as a struct of arrays (parent index, subtree end, rect, string refs and
+ * attribute ranges), so the descendants of a node are the contiguous range
+ * {@code (node, subtreeEnd(node))} and a whole tree costs a few buffers instead of
+ * one object per node.
+ *
+ * <p>With {@link Storage#OFF_HEAP} the numeric columns live in direct buffers outside
+ * the Java heap; only the interned text table stays on-heap.
+ */
+public final class ElementStore {
+    /** Index value used for "no node" and "no string". */
+    public static final int NONE = -1;
+
+    private static final int FLAG_ELEMENT = 1;
+    private static final int FLAG_VISIBLE = 1 << 1;
+
+    /**
+     * Where the numeric columns are allocated.
+     */
+    public enum Storage {
+        HEAP,
+        OFF_HEAP
+    }
+
+    private final Storage storage;
+    private final int size;
+    private final int elementCount;
+    private final IntBuffer parent;
+    private final IntBuffer subtreeEnd;
+    private final IntBuffer flags;
+    private final IntBuffer id;
+    private final IntBuffer nodeType;
+    private final IntBuffer content;
+    private final IntBuffer attributeStart;
+    private final IntBuffer attributeEnd;
+    private final IntBuffer attributes;
+    private final FloatBuffer rects;
+    private final String[] text;
+
+    private ElementStore(Builder builder) {
+        this.storage = builder.storage;
+        this.size = builder.size;
+        this.elementCount = builder.elementCount;
+        this.parent = ints(builder.parent, size);
+        this.subtreeEnd = ints(builder.subtreeEnd, size);
+        this.flags = ints(builder.flags, size);
+        this.id = ints(builder.id, size);
+        this.nodeType = ints(builder.nodeType, size);
+        this.content = ints(builder.content, size);
+        this.attributeStart = ints(builder.attributeStart, size);
+        this.attributeEnd = ints(builder.attributeEnd, size);
+        this.attributes = ints(builder.attributes, builder.attributeCount * 2);
+        this.rects = floats(builder.rects, size * 4);
+        this.text = Arrays.copyOf(builder.text, builder.textCount);
+    }
+
+    public static Builder builder(Storage storage) {
+        return new Builder(storage);
+    }
+
+    /**
+     * Copies a tree loaded through {@link ElementTree} into a store. Both use the same
+     * pre-order layout, so node indices are preserved.
+     */
+    public static ElementStore of(ElementTree tree, Storage storage) {
+        Objects.requireNonNull(tree, "tree");
+        Builder builder = new Builder(storage);
+        copy(tree, 0, builder);
+        return builder.build();
+    }
+
+    private static void copy(ElementTree tree, int node, Builder builder) {
+        if (tree.hasElement(node)) {
+            builder.beginElement(tree.id(node), tree.nodeType(node), tree.content(node),
+                    tree.left(node), tree.top(node), tree.width(node), tree.height(node), true);
+            for (int i = 0; i < tree.attributeCount(node); i++) {
+                builder.attribute(tree.attributeName(node, i), tree.attributeValue(node, i));
+            }
+        } else {
+            builder.beginContainer();
+        }
+        for (int child = tree.firstChild(node); child != ElementTree.NONE; child = tree.nextSibling(child)) {
+            copy(tree, child, builder);
+        }
+        builder.endNode();
+    }
+
+    public Storage storage() {
+        return storage;
+    }
+
+    /** Total number of nodes, containers included. */
+    public int size() {
+        return size;
+    }
+
+    public int elementCount() {
+        return elementCount;
+    }
+
+    public int parent(int node) {
+        return parent.get(node);
+    }
+
+    /** Exclusive end of the pre-order range holding {@code node} and its descendants. */
+    public int subtreeEnd(int node) {
+        return subtreeEnd.get(node);
+    }
+
+    public int descendantCount(int node) {
+        return subtreeEnd.get(node) - node - 1;
+    }
+
+    public boolean isAncestor(int ancestor, int node) {
+        return node > ancestor && node < subtreeEnd.get(ancestor);
+    }
+
+    public boolean hasElement(int node) {
+        return (flags.get(node) & FLAG_ELEMENT) != 0;
+    }
+
+    public boolean isVisible(int node) {
+        return (flags.get(node) & FLAG_VISIBLE) != 0;
+    }
+
+    public String id(int node) {
+        return string(id.get(node));
+    }
+
+    public String nodeType(int node) {
+        return string(nodeType.get(node));
+    }
+
+    public String content(int node) {
+        return string(content.get(node));
+    }
+
+    public float left(int node) {
+        return rects.get(node * 4);
+    }
+
+    public float top(int node) {
+        return rects.get(node * 4 + 1);
+    }
+
+    public float width(int node) {
+        return rects.get(node * 4 + 2);
+    }
+
+    public float height(int node) {
+        return rects.get(node * 4 + 3);
+    }
+
+    public String attribute(int node, String name) {
+        int end = attributeEnd.get(node);
+        for (int i = attributeStart.get(node); i < end; i++) {
+            if (text[attributes.get(i * 2)].equals(name)) {
+                return text[attributes.get(i * 2 + 1)];
+            }
+        }
+        return null;
+    }
+
+    /** Visits every descendant of {@code node} in pre-order. */
+    public void forEachDescendant(int node, IntConsumer action) {
+        int end = subtreeEnd.get(node);
+        for (int i = node + 1; i < end; i++) {
+            action.accept(i);
+        }
+    }
+
+    public IntStream descendants(int node) {
+        return IntStream.range(node + 1, subtreeEnd.get(node));
+    }
+
+    public boolean contains(int node, float x, float y) {
+        int base = node * 4;
+        float left = rects.get(base);
+        float top = rects.get(base + 1);
+        return left <= x && x <= left + rects.get(base + 2)
+                && top <= y && y <= top + rects.get(base + 3);
+    }
+
+    /**
+     * Returns the smallest visible element whose rect contains the point, like
+     * {@code elementByPositionWithElementInfo} in the TS core, or {@link #NONE}.
+     */
+    public int hitTest(float x, float y) {
+        int best = NONE;
+        float bestArea = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            if ((flags.get(i) & (FLAG_ELEMENT | FLAG_VISIBLE)) != (FLAG_ELEMENT | FLAG_VISIBLE) || !contains(i, x, y)) {
+                continue;
+            }
+            float area = rects.get(i * 4 + 2) * rects.get(i * 4 + 3);
+            if (area < bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /** Approximate bytes held by the numeric columns. */
+    public long columnBytes() {
+        return (long) (size * 8 + attributes.capacity()) * Integer.BYTES + (long) rects.capacity() * Float.BYTES;
+    }
+
+    private String string(int ref) {
+        return ref == NONE ? null : text[ref];
+    }
+
+    private IntBuffer ints(int[] values, int length) {
+        if (storage == Storage.HEAP) {
+            return IntBuffer.wrap(Arrays.copyOf(values, length)).asReadOnlyBuffer();
+        }
+        IntBuffer buffer = ByteBuffer.allocateDirect(Math.max(1, length) * Integer.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+        buffer.put(values, 0, length).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private FloatBuffer floats(float[] values, int length) {
+        if (storage == Storage.HEAP) {
+            return FloatBuffer.wrap(Arrays.copyOf(values, length)).asReadOnlyBuffer();
+        }
+        FloatBuffer buffer = ByteBuffer.allocateDirect(Math.max(1, length) * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        buffer.put(values, 0, length).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Builds a store in pre-order: every {@code begin*} call opens a node as a child of
+     * the innermost open node and {@link #endNode()} closes it. Attributes apply to the
+     * most recently opened node and must be added before its first child.
+     */
+    public static final class Builder {
+        private final Storage storage;
+        private int size;
+        private int elementCount;
+        private int[] parent = new int[64];
+        private int[] subtreeEnd = new int[64];
+        private int[] flags = new int[64];
+        private int[] id = new int[64];
+        private int[] nodeType = new int[64];
+        private int[] content = new int[64];
+        private int[] attributeStart = new int[64];
+        private int[] attributeEnd = new int[64];
+        private float[] rects = new float[64 * 4];
+        private int[] attributes = new int[64];
+        private int attributeCount;
+        private int[] open = new int[16];
+        private int openDepth;
+        private String[] text = new String[64];
+        private int textCount;
+        private final Map<String, Integer> textRefs = new HashMap<>();
+
+        private Builder(Storage storage) {
+            this.storage = Objects.requireNonNull(storage, "storage");
+        }
+
+        public int beginContainer() {
+            return begin(0);
+        }
+
+        public int beginElement(String elementId, String type, String elementContent,
+                                float left, float top, float width, float height, boolean visible) {
+            int node = begin(FLAG_ELEMENT | (visible ? FLAG_VISIBLE : 0));
+            elementCount++;
+            id[node] = ref(elementId == null ? "" : elementId, false);
+            nodeType[node] = ref(type, true);
+            content[node] = ref(elementContent, false);
+            rects[node * 4] = left;
+            rects[node * 4 + 1] = top;
+            rects[node * 4 + 2] = width;
+            rects[node * 4 + 3] = height;
+            return node;
+        }
+
+        public Builder attribute(String name, String value) {
+            Objects.requireNonNull(name, "name");
+            if (openDepth == 0 || open[openDepth - 1] != size - 1) {
+                throw new IllegalStateException("Attributes must be added right after the node is opened");
+            }
+            if (value == null) {
+                return this;
+            }
+            int node = size - 1;
+            if (attributeCount * 2 + 2 > attributes.length) {
+                attributes = Arrays.copyOf(attributes, attributes.length * 2);
+            }
+            attributes[attributeCount * 2] = ref(name, true);
+            attributes[attributeCount * 2 + 1] = ref(value, false);
+            attributeCount++;
+            attributeEnd[node] = attributeCount;
+            return this;
+        }
+
+        public Builder endNode() {
+            if (openDepth == 0) {
+                throw new IllegalStateException("No open node to end");
+            }
+            subtreeEnd[open[--openDepth]] = size;
+            return this;
+        }
+
+        public ElementStore build() {
+            if (openDepth != 0) {
+                throw new IllegalStateException(openDepth + " node(s) still open");
+            }
+            return new ElementStore(this);
+        }
+
+        private int begin(int nodeFlags) {
+            if (size == parent.length) {
+                grow();
+            }
+            int node = size++;
+            parent[node] = openDepth == 0 ? NONE : open[openDepth - 1];
+            flags[node] = nodeFlags;
+            id[node] = NONE;
+            nodeType[node] = NONE;
+            content[node] = NONE;
+            attributeStart[node] = attributeCount;
+            attributeEnd[node] = attributeCount;
+            if (openDepth == open.length) {
+                open = Arrays.copyOf(open, openDepth * 2);
+            }
+            open[openDepth++] = node;
+            return node;
+        }
+
+        private void grow() {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            subtreeEnd = Arrays.copyOf(subtreeEnd, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            id = Arrays.copyOf(id, capacity);
+            nodeType = Arrays.copyOf(nodeType, capacity);
+            content = Arrays.copyOf(content, capacity);
+            attributeStart = Arrays.copyOf(attributeStart, capacity);
+            attributeEnd = Arrays.copyOf(attributeEnd, capacity);
+            rects = Arrays.copyOf(rects, capacity * 4);
+        }
+
+        /**
+         * Deduplicates text within the store. Vocabulary strings (node types, attribute
+         * names) are also interned JVM-wide, since they repeat across every live tree.
+         */
+        private int ref(String value, boolean vocabulary) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer existing = textRefs.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            if (textCount == text.length) {
+                text = Arrays.copyOf(text, textCount * 2);
+            }
+            text[textCount] = vocabulary ? value.intern() : value;
+            textRefs.put(value, textCount);
+            return textCount++;
+        }
+    }
+}
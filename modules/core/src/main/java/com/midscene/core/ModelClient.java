@@ -0,0 +1,711 @@
+package com.midscene.core;
+
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.EnvKey;
+import com.midscene.shared.ImageTransform;
+import com.midscene.shared.JsonReader;
+import com.midscene.shared.Metrics;
+import com.midscene.shared.MidsceneEvents;
+import com.midscene.shared.MidsceneLoggerFactory;
+import com.midscene.shared.ModelConfig;
+import com.midscene.shared.ModelIntent;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chat client for the model service, configured from a {@link ModelConfig} the way
+ * {@code createChatClient} in {@code service-caller/index.ts} configures the OpenAI,
+ * Azure OpenAI and Anthropic SDKs. Requests go through {@link HttpClient} with HTTP/2
+ * preferred. Clients are pooled per origin and proxy, so every intent and session
+ * talking to one endpoint shares its connections and multiplexes streams over them.
+ *
+ * <p>{@link #stream} parses server-sent events as they arrive and feeds the text to a
+ * {@link StreamingJsonExtractor}. {@link StreamListener#onJson} fires as soon as the
+ * first JSON object of the answer is complete, before the remaining tokens arrive.
+ *
+ * <p>HTTP failures are thrown as {@link ModelRequestException}, so a
+ * {@link ModelRequestCoordinator} set on the builder can back off on overload. With one
+ * set, every request waits for the model's concurrency limit, and identical
+ * {@link #call} requests in flight at the same time share one response; streamed
+ * requests are limited but not shared, since each caller has its own listener. Keyless Azure
+ * ({@code AZURE_OPENAI_SCOPE}) and SOCKS proxies need SDK support the JVM build does
+ * not have and are rejected when the client is built.
+ */
+public final class ModelClient {
+    static final String DEFAULT_OPENAI_BASE_URL = "https://api.openai.com/v1";
+    static final String DEFAULT_ANTHROPIC_BASE_URL = "https://api.anthropic.com/v1";
+    static final String ANTHROPIC_VERSION = "2023-06-01";
+    static final String ANTHROPIC_SYSTEM_PROMPT = "You are a versatile professional in software UI automation";
+    static final int DEFAULT_MAX_TOKENS = 2048;
+    static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofMinutes(10);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final String TROUBLE_SHOOTING = "Trouble shooting: https://midscenejs.com/model-provider.html";
+    private static final int MAX_ERROR_BODY_BYTES = 4096;
+    private static final ConcurrentHashMap<PoolKey, HttpClient> POOLS = new ConcurrentHashMap<>();
+    private static final MidsceneLoggerFactory.DebugFunction DEBUG_CALL = MidsceneLoggerFactory.getDebug("ai:call");
+    private static final MidsceneLoggerFactory.DebugFunction DEBUG_PROFILE_STATS =
+            MidsceneLoggerFactory.getDebug("ai:profile:stats");
+
+    /**
+     * Wire format, like the {@code style} returned by {@code createChatClient}.
+     */
+    public enum Style {
+        OPENAI,
+        ANTHROPIC
+    }
+
+    /**
+     * One part of a message.
+     */
+    public sealed interface Content permits Text, Image {}
+
+    public record Text(String text) implements Content {
+        public Text {
+            Objects.requireNonNull(text, "text");
+        }
+    }
+
+    /**
+     * Image bytes, sent base64-encoded while the request body streams out.
+     */
+    public record Image(String format, byte[] bytes) implements Content {
+        public Image {
+            Objects.requireNonNull(format, "format");
+            Objects.requireNonNull(bytes, "bytes");
+        }
+
+        /** Decodes a {@code data:image/<format>;base64,...} URL. */
+        public static Image fromBase64(String dataUrl) {
+            ImageTransform.Base64Image image = ImageTransform.parseBase64(dataUrl);
+            return new Image(image.format(), image.decode());
+        }
+    }
+
+    public record Message(String role, List<Content> content) {
+        public Message {
+            Objects.requireNonNull(role, "role");
+            content = List.copyOf(content);
+        }
+
+        public static Message system(String text) {
+            return new Message("system", List.of(new Text(text)));
+        }
+
+        public static Message user(Content... content) {
+            return new Message("user", List.of(content));
+        }
+    }
+
+    /**
+     * @param actionType     sent as the {@code MIDSCENE-API-TYPE} header on plain
+     *                       OpenAI requests, or {@code null}
+     * @param responseFormat raw JSON for {@code response_format}, or {@code null}
+     */
+    public record Request(String actionType, List<Message> messages, String responseFormat) {
+        public Request {
+            messages = List.copyOf(messages);
+        }
+    }
+
+    /**
+     * Token counts and timing, like {@code AIUsageInfo}.
+     */
+    public record Usage(long promptTokens, long completionTokens, long totalTokens, long timeCostMillis,
+                        String modelName, String modelDescription, ModelIntent intent) {}
+
+    /**
+     * @param json first complete JSON object in {@code content}, or {@code null}
+     */
+    public record Response(String content, String json, Usage usage, boolean streamed) {}
+
+    /**
+     * Receives a streamed answer. Both methods run on the thread reading the response.
+     */
+    public interface StreamListener {
+        /** Called for every text delta, like {@code onChunk} with {@code isComplete: false}. */
+        default void onChunk(String content, String reasoningContent, String accumulated) {}
+
+        /** Called once, as soon as the first JSON object in the answer is complete. */
+        default void onJson(String json) {}
+    }
+
+    private final ModelConfig config;
+    private final Style style;
+    private final boolean azure;
+    private final URI endpoint;
+    private final Map<String, String> headers;
+    private final HttpClient http;
+    private final int maxTokens;
+    private final Duration requestTimeout;
+    private final ModelRequestCoordinator<Response> coordinator;
+
+    private ModelClient(Builder builder) {
+        ModelConfig config = builder.config;
+        this.config = config;
+        this.coordinator = builder.coordinator;
+        this.maxTokens = builder.maxTokens;
+        this.requestTimeout = builder.requestTimeout;
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (config.openaiUseAzureDeprecated()) {
+            // Deprecated flag: AzureOpenAI with a full base URL and an api-key header.
+            this.style = Style.OPENAI;
+            this.azure = true;
+            this.endpoint = URI.create(trimSlash(required(config.openaiBaseUrl(), "openaiBaseUrl")) + "/chat/completions");
+            headers.put("api-key", required(config.openaiApiKey(), "openaiApiKey"));
+            addDefaultHeaders(headers, config.openaiExtraConfig());
+        } else if (config.useAzureOpenai()) {
+            if (config.azureOpenaiScope() != null && !config.azureOpenaiScope().isEmpty()) {
+                throw new IllegalArgumentException("Keyless Azure OpenAI authentication is not supported by the JVM client");
+            }
+            this.style = Style.OPENAI;
+            this.azure = true;
+            String deployment = config.azureOpenaiDeployment() != null ? config.azureOpenaiDeployment() : config.modelName();
+            this.endpoint = URI.create(trimSlash(required(config.azureOpenaiEndpoint(), "azureOpenaiEndpoint"))
+                    + "/openai/deployments/" + deployment + "/chat/completions?api-version="
+                    + required(config.azureOpenaiApiVersion(), "azureOpenaiApiVersion"));
+            headers.put("api-key", required(config.azureOpenaiKey(), "azureOpenaiKey"));
+            addDefaultHeaders(headers, config.openaiExtraConfig());
+            addDefaultHeaders(headers, config.azureExtraConfig());
+        } else if (config.useAnthropicSdk()) {
+            this.style = Style.ANTHROPIC;
+            this.azure = false;
+            this.endpoint = URI.create(trimSlash(builder.anthropicBaseUrl) + "/messages");
+            headers.put("x-api-key", required(config.anthropicApiKey(), "anthropicApiKey"));
+            headers.put("anthropic-version", ANTHROPIC_VERSION);
+        } else {
+            this.style = Style.OPENAI;
+            this.azure = false;
+            String baseUrl = config.openaiBaseUrl() != null ? config.openaiBaseUrl() : DEFAULT_OPENAI_BASE_URL;
+            this.endpoint = URI.create(trimSlash(baseUrl) + "/chat/completions");
+            headers.put("Authorization", "Bearer " + required(config.openaiApiKey(), "openaiApiKey"));
+            addDefaultHeaders(headers, config.openaiExtraConfig());
+        }
+        this.headers = Map.copyOf(headers);
+        this.http = pooledClient(endpoint, proxy(config));
+    }
+
+    public static Builder builder(ModelConfig config) {
+        return new Builder(config);
+    }
+
+    /** Client for {@code model}, with {@code OPENAI_MAX_TOKENS} read from {@code config}. */
+    public static ModelClient fromConfig(ModelConfig model, ConfigManager config) {
+        Objects.requireNonNull(config, "config");
+        return builder(model).maxTokens(config.getInt(EnvKey.OPENAI_MAX_TOKENS.key(), DEFAULT_MAX_TOKENS)).build();
+    }
+
+    public Style style() {
+        return style;
+    }
+
+    public URI endpoint() {
+        return endpoint;
+    }
+
+    HttpClient httpClient() {
+        return http;
+    }
+
+    /** Sends the request and waits for the whole answer, like {@code callAI} without streaming. */
+    public Response call(Request request) {
+        Objects.requireNonNull(request, "request");
+        if (coordinator == null) {
+            return execute(request, null);
+        }
+        return coordinator.call(config, key(request), () -> execute(request, null));
+    }
+
+    /** Sends a streaming request and reports text and the action JSON as they arrive. */
+    public Response stream(Request request, StreamListener listener) {
+        Objects.requireNonNull(listener, "listener");
+        if (coordinator == null) {
+            return execute(request, listener);
+        }
+        return coordinator.call(config, null, () -> execute(request, listener));
+    }
+
+    /** Identity of a request for coalescing: endpoint, model, options and every message part. */
+    private AiResponseCache.Key key(Request request) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("endpoint", endpoint.toString());
+        options.put("model", String.valueOf(config.modelName()));
+        options.put("maxTokens", String.valueOf(maxTokens));
+        options.put("actionType", String.valueOf(request.actionType()));
+        options.put("responseFormat", String.valueOf(request.responseFormat()));
+        StringBuilder prompt = new StringBuilder();
+        List<byte[]> images = new ArrayList<>();
+        for (Message message : request.messages()) {
+            prompt.append(message.role()).append('\0');
+            for (Content content : message.content()) {
+                if (content instanceof Image image) {
+                    prompt.append("image/").append(image.format()).append('\0');
+                    images.add(image.bytes());
+                } else {
+                    prompt.append(((Text) content).text()).append('\0');
+                }
+            }
+        }
+        return AiResponseCache.key(options, prompt.toString(), images.toArray(byte[][]::new));
+    }
+
+    private Response execute(Request request, StreamListener listener) {
+        Objects.requireNonNull(request, "request");
+        boolean streaming = listener != null;
+        StreamingRequestBody body = style == Style.ANTHROPIC ? anthropicBody(request, streaming) : openaiBody(request, streaming);
+        HttpRequest.Builder httpRequest = HttpRequest.newBuilder(endpoint)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(body.publisher());
+        headers.forEach(httpRequest::header);
+        if (style == Style.OPENAI && !azure && request.actionType() != null) {
+            httpRequest.header(EnvKey.MIDSCENE_API_TYPE.key(), request.actionType());
+        }
+        DEBUG_CALL.log("sending " + (streaming ? "streaming " : "") + "request to " + config.modelName());
+        long start = System.nanoTime();
+        MidsceneEvents.AiCallEvent event = MidsceneEvents.beginAiCall();
+        CountingInputStream received = null;
+        boolean success = false;
+        try {
+            HttpResponse<InputStream> response = http.send(httpRequest.build(), HttpResponse.BodyHandlers.ofInputStream());
+            received = new CountingInputStream(response.body());
+            try (InputStream in = received) {
+                if (response.statusCode() / 100 != 2) {
+                    String error = new String(in.readNBytes(MAX_ERROR_BODY_BYTES), StandardCharsets.UTF_8);
+                    throw new ModelRequestException(response.statusCode(), failure(streaming,
+                            "HTTP " + response.statusCode() + " " + error));
+                }
+                Response result = streaming ? readStream(in, listener, start) : readBody(in, start);
+                success = true;
+                return result;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(failure(streaming, ex.toString()), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(failure(streaming, "interrupted"), ex);
+        } finally {
+            Metrics.step(Metrics.Step.MODEL_CALL).recordSince(start);
+            if (event != null) {
+                event.finish(config.modelName(), config.intent().name(), body.contentLength(),
+                        received == null ? 0 : received.count, success);
+            }
+        }
+    }
+
+    private Response readBody(InputStream in, long start) throws IOException {
+        Map<String, Object> result = object(JsonReader.of(in.readAllBytes()).readValue());
+        String content;
+        long prompt;
+        long completion;
+        Map<String, Object> usage = object(result.get("usage"));
+        if (style == Style.ANTHROPIC) {
+            content = string(object(first(result.get("content"))).get("text"));
+            prompt = number(usage.get("input_tokens"));
+            completion = number(usage.get("output_tokens"));
+        } else {
+            Object choices = result.get("choices");
+            if (!(choices instanceof List<?>)) {
+                throw new IllegalStateException(failure(false, "invalid response from LLM service: " + result));
+            }
+            content = string(object(object(first(choices)).get("message")).get("content"));
+            prompt = number(usage.get("prompt_tokens"));
+            completion = number(usage.get("completion_tokens"));
+        }
+        long timeCost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (content == null || content.isEmpty()) {
+            throw new IllegalStateException(failure(false, "empty content"));
+        }
+        DEBUG_PROFILE_STATS.log("model, " + config.modelName() + ", mode, " + vlMode() + ", ui-tars-version, "
+                + config.uiTarsModelVersion() + ", prompt-tokens, " + prompt + ", completion-tokens, " + completion
+                + ", cost-ms, " + timeCost);
+        DEBUG_CALL.log("response: " + content);
+        long total = usage.containsKey("total_tokens") ? number(usage.get("total_tokens")) : prompt + completion;
+        return new Response(content, new StreamingJsonExtractor().feed(content),
+                usage(prompt, completion, total, timeCost), false);
+    }
+
+    /**
+     * Reads {@code data:} lines of the event stream. Each event is handled as soon as
+     * its terminating blank line arrives; the loop ends at the finish event.
+     */
+    private Response readStream(InputStream in, StreamListener listener, long start) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        StreamState state = new StreamState(listener);
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (!data.isEmpty() && state.event(data.toString())) {
+                    break;
+                }
+                data.setLength(0);
+            } else if (line.startsWith("data:")) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+            }
+            // event:, id: and comment lines carry nothing the payload does not.
+        }
+        if (!data.isEmpty()) {
+            state.event(data.toString());
+        }
+        long timeCost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        String content = state.accumulated.toString();
+        if (content.isEmpty()) {
+            throw new IllegalStateException(failure(true, "empty content"));
+        }
+        DEBUG_PROFILE_STATS.log("streaming model, " + config.modelName() + ", mode, " + vlMode() + ", cost-ms, " + timeCost);
+        Usage usage;
+        if (state.hasUsage) {
+            usage = usage(state.promptTokens, state.completionTokens, state.promptTokens + state.completionTokens, timeCost);
+        } else {
+            // Rough estimate when the stream carries no usage, as the TS caller does.
+            long estimated = Math.max(1, content.length() / 4);
+            usage = usage(estimated, estimated, estimated * 2, timeCost);
+        }
+        return new Response(content, state.extractor.json(), usage, true);
+    }
+
+    /**
+     * Accumulated text and usage of one streamed answer.
+     */
+    private final class StreamState {
+        private final StreamListener listener;
+        private final StringBuilder accumulated = new StringBuilder();
+        private final StreamingJsonExtractor extractor = new StreamingJsonExtractor();
+        private boolean hasUsage;
+        private long promptTokens;
+        private long completionTokens;
+
+        private StreamState(StreamListener listener) {
+            this.listener = listener;
+        }
+
+        /** Handles one event payload; returns {@code true} when the answer is finished. */
+        private boolean event(String data) {
+            if (data.equals("[DONE]")) {
+                return true;
+            }
+            Map<String, Object> chunk = object(JsonReader.of(data).readValue());
+            return style == Style.ANTHROPIC ? anthropic(chunk) : openai(chunk);
+        }
+
+        private boolean openai(Map<String, Object> chunk) {
+            Map<String, Object> usage = object(chunk.get("usage"));
+            if (!usage.isEmpty()) {
+                hasUsage = true;
+                promptTokens = number(usage.get("prompt_tokens"));
+                completionTokens = number(usage.get("completion_tokens"));
+            }
+            Map<String, Object> choice = object(first(chunk.get("choices")));
+            Map<String, Object> delta = object(choice.get("delta"));
+            text(string(delta.get("content")), string(delta.get("reasoning_content")));
+            return choice.get("finish_reason") != null;
+        }
+
+        private boolean anthropic(Map<String, Object> chunk) {
+            switch (String.valueOf(chunk.get("type"))) {
+                case "message_start" -> {
+                    Map<String, Object> usage = object(object(chunk.get("message")).get("usage"));
+                    if (!usage.isEmpty()) {
+                        hasUsage = true;
+                        promptTokens = number(usage.get("input_tokens"));
+                        completionTokens = number(usage.get("output_tokens"));
+                    }
+                }
+                case "content_block_delta" -> text(string(object(chunk.get("delta")).get("text")), null);
+                case "message_delta" -> {
+                    Map<String, Object> usage = object(chunk.get("usage"));
+                    if (!usage.isEmpty()) {
+                        hasUsage = true;
+                        completionTokens = number(usage.get("output_tokens"));
+                    }
+                }
+                case "message_stop" -> {
+                    return true;
+                }
+                case "error" -> {
+                    Map<String, Object> error = object(chunk.get("error"));
+                    // Anthropic reports overload mid-stream; 529 is its overloaded status.
+                    int status = "overloaded_error".equals(error.get("type")) ? 529 : 500;
+                    throw new ModelRequestException(status, failure(true, String.valueOf(error.get("message"))));
+                }
+                default -> {
+                    // ping, content_block_start and content_block_stop carry no text.
+                }
+            }
+            return false;
+        }
+
+        private void text(String content, String reasoning) {
+            boolean hasContent = content != null && !content.isEmpty();
+            boolean hasReasoning = reasoning != null && !reasoning.isEmpty();
+            if (!hasContent && !hasReasoning) {
+                return;
+            }
+            if (hasContent) {
+                accumulated.append(content);
+            }
+            listener.onChunk(hasContent ? content : "", hasReasoning ? reasoning : "", accumulated.toString());
+            if (hasContent) {
+                String json = extractor.feed(content);
+                if (json != null) {
+                    listener.onJson(json);
+                }
+            }
+        }
+    }
+
+    private StreamingRequestBody openaiBody(Request request, boolean streaming) {
+        StreamingRequestBody.Builder body = StreamingRequestBody.builder()
+                .json("{\"model\":").string(config.modelName())
+                .json(",\"messages\":[");
+        for (int i = 0; i < request.messages().size(); i++) {
+            Message message = request.messages().get(i);
+            body.json(i == 0 ? "{\"role\":" : ",{\"role\":").string(message.role()).json(",\"content\":");
+            if (isPlainText(message)) {
+                body.string(((Text) message.content().get(0)).text());
+            } else {
+                body.json("[");
+                for (int j = 0; j < message.content().size(); j++) {
+                    body.json(j == 0 ? "" : ",");
+                    if (message.content().get(j) instanceof Image image) {
+                        body.json("{\"type\":\"image_url\",\"image_url\":{\"url\":").image(image.format(), image.bytes())
+                                .json("}}");
+                    } else {
+                        body.json("{\"type\":\"text\",\"text\":").string(((Text) message.content().get(j)).text())
+                                .json("}");
+                    }
+                }
+                body.json("]");
+            }
+            body.json("}");
+        }
+        body.json("]");
+        if (request.responseFormat() != null) {
+            body.json(",\"response_format\":").json(request.responseFormat());
+        }
+        commonConfig(body, streaming);
+        if ("qwen-vl".equals(config.vlMode()) || "qwen3-vl".equals(config.vlMode())) {
+            body.json(",\"vl_high_resolution_images\":true");
+        }
+        return body.json("}").build();
+    }
+
+    /** Like the TS caller: a fixed system prompt and every message sent as the user. */
+    private StreamingRequestBody anthropicBody(Request request, boolean streaming) {
+        StreamingRequestBody.Builder body = StreamingRequestBody.builder()
+                .json("{\"model\":").string(config.modelName())
+                .json(",\"system\":").string(ANTHROPIC_SYSTEM_PROMPT)
+                .json(",\"messages\":[");
+        for (int i = 0; i < request.messages().size(); i++) {
+            Message message = request.messages().get(i);
+            body.json(i == 0 ? "{\"role\":\"user\",\"content\":" : ",{\"role\":\"user\",\"content\":");
+            if (isPlainText(message)) {
+                body.string(((Text) message.content().get(0)).text());
+            } else {
+                body.json("[");
+                for (int j = 0; j < message.content().size(); j++) {
+                    body.json(j == 0 ? "" : ",");
+                    if (message.content().get(j) instanceof Image image) {
+                        body.json("{\"type\":\"image\",\"source\":{\"type\":\"base64\",\"media_type\":")
+                                .string("image/" + image.format())
+                                .json(",\"data\":").base64(image.bytes()).json("}}");
+                    } else {
+                        body.json("{\"type\":\"text\",\"text\":").string(((Text) message.content().get(j)).text())
+                                .json("}");
+                    }
+                }
+                body.json("]");
+            }
+            body.json("}");
+        }
+        body.json("]");
+        commonConfig(body, streaming);
+        return body.json("}").build();
+    }
+
+    private void commonConfig(StreamingRequestBody.Builder body, boolean streaming) {
+        String temperature = "vlm-ui-tars".equals(config.vlMode()) ? "0.0" : "0.1";
+        body.json(",\"temperature\":" + temperature + ",\"stream\":" + streaming + ",\"max_tokens\":" + maxTokens);
+    }
+
+    private static boolean isPlainText(Message message) {
+        return message.content().size() == 1 && message.content().get(0) instanceof Text;
+    }
+
+    private Usage usage(long prompt, long completion, long total, long timeCost) {
+        return new Usage(prompt, completion, total, timeCost, config.modelName(), config.modelDescription(),
+                config.intent());
+    }
+
+    private String vlMode() {
+        return config.vlMode() != null ? config.vlMode() : "default";
+    }
+
+    private static String failure(boolean streaming, String message) {
+        return "failed to call " + (streaming ? "streaming " : "") + "AI model service: " + message + ". "
+                + TROUBLE_SHOOTING;
+    }
+
+    private static HttpClient pooledClient(URI endpoint, InetSocketAddress proxy) {
+        PoolKey key = new PoolKey(endpoint.getScheme() + "://" + endpoint.getRawAuthority(), proxy);
+        return POOLS.computeIfAbsent(key, k -> {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(CONNECT_TIMEOUT)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor());
+            if (k.proxy() != null) {
+                builder.proxy(ProxySelector.of(k.proxy()));
+            }
+            return builder.build();
+        });
+    }
+
+    private static InetSocketAddress proxy(ModelConfig config) {
+        if (config.httpProxy() != null && !config.httpProxy().isEmpty()) {
+            URI uri = URI.create(config.httpProxy());
+            int port = uri.getPort() != -1 ? uri.getPort() : "https".equals(uri.getScheme()) ? 443 : 80;
+            DEBUG_CALL.log("using http proxy", config.httpProxy());
+            return InetSocketAddress.createUnresolved(uri.getHost(), port);
+        }
+        if (config.socksProxy() != null && !config.socksProxy().isEmpty()) {
+            throw new IllegalArgumentException("SOCKS proxies are not supported by the JVM client: " + config.socksProxy());
+        }
+        return null;
+    }
+
+    private static void addDefaultHeaders(Map<String, String> headers, Map<String, Object> extraConfig) {
+        if (extraConfig != null && extraConfig.get("defaultHeaders") instanceof Map<?, ?> defaults) {
+            defaults.forEach((name, value) -> headers.put(String.valueOf(name), String.valueOf(value)));
+        }
+    }
+
+    private static String required(String value, String name) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " is required by the model client");
+        }
+        return value;
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object value) {
+        return value instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+    }
+
+    private static Object first(Object value) {
+        return value instanceof List<?> list && !list.isEmpty() ? list.get(0) : null;
+    }
+
+    private static String string(Object value) {
+        return value instanceof String text ? text : null;
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    private record PoolKey(String origin, InetSocketAddress proxy) {}
+
+    /**
+     * Counts response bytes for the {@code midscene.AiCall} event.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Client settings beyond the model config.
+     */
+    public static final class Builder {
+        private final ModelConfig config;
+        private int maxTokens = DEFAULT_MAX_TOKENS;
+        private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+        private String anthropicBaseUrl = DEFAULT_ANTHROPIC_BASE_URL;
+        private ModelRequestCoordinator<Response> coordinator;
+
+        private Builder(ModelConfig config) {
+            this.config = Objects.requireNonNull(config, "config");
+        }
+
+        public Builder maxTokens(int maxTokens) {
+            if (maxTokens <= 0) {
+                throw new IllegalArgumentException("maxTokens must be positive: " + maxTokens);
+            }
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /** Time allowed until response headers arrive; streamed bodies may take longer. */
+        public Builder requestTimeout(Duration requestTimeout) {
+            if (requestTimeout.isNegative() || requestTimeout.isZero()) {
+                throw new IllegalArgumentException("requestTimeout must be positive: " + requestTimeout);
+            }
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /** Anthropic API root; the TS SDK always uses the default. */
+        public Builder anthropicBaseUrl(String anthropicBaseUrl) {
+            this.anthropicBaseUrl = Objects.requireNonNull(anthropicBaseUrl, "anthropicBaseUrl");
+            return this;
+        }
+
+        /** Admission and coalescing for this client's requests; none by default. */
+        public Builder coordinator(ModelRequestCoordinator<Response> coordinator) {
+            this.coordinator = Objects.requireNonNull(coordinator, "coordinator");
+            return this;
+        }
+
+        public ModelClient build() {
+            return new ModelClient(this);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.midscene.core;
+
+import com.midscene.shared.ModelConfig;
+import com.midscene.shared.ModelConfigManager;
+import com.midscene.shared.ModelIntent;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Admission for model service calls. The TS {@code callAI} path sends every request
+ * straight to the provider; here identical requests that are in flight at the same
+ * time share one call through a {@link SingleFlight} table keyed by
+ * {@link AiResponseCache.Key}, and each model gets an {@link AdaptiveConcurrencyLimiter}
+ * that backs off on 429/5xx responses and latency inflation.
+ *
+ * <p>Limits come from the intent's {@code MIDSCENE_*_MODEL_MAX_CONCURRENCY} and
+ * {@code MIDSCENE_*_MODEL_INITIAL_CONCURRENCY} keys. Intents resolving to the same
+ * model name share one limiter, created from the first config seen for it.
+ *
+ * @param <T> the response type, e.g. raw text or a {@link ModelClient.Response}
+ */
+public final class ModelRequestCoordinator<T> {
+    private final ModelConfigManager models;
+    private final SingleFlight<AiResponseCache.Key, T> inFlight = new SingleFlight<>();
+    private final ConcurrentHashMap<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ModelRequestCoordinator(ModelConfigManager models) {
+        this.models = Objects.requireNonNull(models, "models");
+    }
+
+    /**
+     * Runs {@code request} for {@code intent}, joining an identical call already in
+     * flight when {@code key} is not {@code null}. The request should throw
+     * {@link ModelRequestException} for HTTP failures so overload can be told apart.
+     */
+    public T call(ModelIntent intent, AiResponseCache.Key key, Supplier<T> request) {
+        return call(models.get(intent), key, request);
+    }
+
+    /**
+     * Like {@link #call(ModelIntent, AiResponseCache.Key, Supplier)} for a config the
+     * caller already resolved, as a {@link ModelClient} holds.
+     */
+    public T call(ModelConfig config, AiResponseCache.Key key, Supplier<T> request) {
+        Objects.requireNonNull(config, "config");
+        Objects.requireNonNull(request, "request");
+        if (key == null) {
+            return limited(config, request);
+        }
+        return inFlight.execute(key, k -> limited(config, request));
+    }
+
+    /** The limiter for {@code config}'s model, created on first use. */
+    public AdaptiveConcurrencyLimiter limiter(ModelConfig config) {
+        String modelName = config.modelName() == null ? "" : config.modelName();
+        return limiters.computeIfAbsent(modelName, name -> AdaptiveConcurrencyLimiter.forModel(config));
+    }
+
+    public SingleFlight.Stats coalescing() {
+        return inFlight.stats();
+    }
+
+    private T limited(ModelConfig config, Supplier<T> request) {
+        AdaptiveConcurrencyLimiter.Permit permit;
+        try {
+            permit = limiter(config).acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to call " + config.modelName(), ex);
+        }
+        // Not try-with-resources: the permit must still be open when the catch reports overload.
+        try {
+            T response = request.get();
+            permit.onSuccess();
+            return response;
+        } catch (ModelRequestException ex) {
+            if (ex.isOverload()) {
+                permit.onOverload();
+            }
+            throw ex;
+        } finally {
+            permit.close();
+        }
+    }
+}
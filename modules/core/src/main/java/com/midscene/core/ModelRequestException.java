@@ -0,0 +1,30 @@
+package com.midscene.core;
+
+/**
+ * A model service call that failed with an HTTP status. {@link ModelRequestCoordinator}
+ * treats 429 and 5xx as overload and backs the model's concurrency limit off.
+ */
+public final class ModelRequestException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public ModelRequestException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public ModelRequestException(int statusCode, String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /** Whether the provider signalled it is rate limiting or failing under load. */
+    public boolean isOverload() {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
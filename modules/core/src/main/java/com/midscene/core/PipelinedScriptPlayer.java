@@ -0,0 +1,397 @@
+package com.midscene.core;
+
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.EnvKeys;
+import com.midscene.shared.Metrics;
+import com.midscene.shared.MidsceneLoggerFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays a flow of script items with the model work of later steps overlapped with the
+ * current one. The TS {@code ScriptPlayer.playTask} runs each item strictly in turn:
+ * screenshot, prompt and model call, action, next screenshot. Here the player splits an
+ * item into {@link Driver#prepare} (prompt building and the model call, free of device
+ * side effects) and {@link Driver#perform} (the action, or reading out the answer), and:
+ *
+ * <ul>
+ *   <li>prepares a run of consecutive observe items ({@code aiQuery}, {@code aiAssert},
+ *       {@code aiLocate}, ...) in parallel against the same screen, since none of them
+ *       changes it, then commits their results in script order;</li>
+ *   <li>while an action is performed, speculatively prepares the next step against the
+ *       screen the action started from.</li>
+ * </ul>
+ *
+ * <p>After each action the screen is captured again and passed through the
+ * {@link ScreenshotDiffer}. If the fingerprint changed, every speculative preparation
+ * is cancelled and the next step is prepared again against the new screen; if not,
+ * the speculation is used as is. Results and failures are reported in script order,
+ * so a failed {@code aiAssert} stops the flow exactly where the sequential player
+ * would, and results prepared past it are dropped.
+ */
+public final class PipelinedScriptPlayer {
+    static final int DEFAULT_PARALLELISM = 4;
+    static final Duration DEFAULT_SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final MidsceneLoggerFactory.DebugFunction DEBUG = MidsceneLoggerFactory.getDebug("yaml:player");
+    private static final Set<String> OBSERVE_TYPES = Set.of(
+            "aiQuery", "aiNumber", "aiString", "aiBoolean", "aiAsk", "aiLocate", "aiAssert");
+
+    /** Whether an item may change the screen. */
+    public enum Mode {
+        /** Reads the screen only; may be prepared alongside its neighbours. */
+        OBSERVE,
+        /** May change the screen; later items must be checked against the new screen. */
+        ACT
+    }
+
+    /**
+     * One parsed flow item, e.g. {@code aiQuery} with its prompt and {@code name}.
+     * {@code options} carries the remaining YAML fields for the driver.
+     */
+    public record FlowItem(String type, String prompt, String name, Map<String, Object> options) {
+        public FlowItem {
+            Objects.requireNonNull(type, "type");
+            options = options == null ? Map.of() : Map.copyOf(options);
+        }
+
+        public FlowItem(String type, String prompt) {
+            this(type, prompt, null, null);
+        }
+
+        public Mode mode() {
+            return OBSERVE_TYPES.contains(type) ? Mode.OBSERVE : Mode.ACT;
+        }
+    }
+
+    /**
+     * The device and model side of the player. {@link #prepare} may be called from
+     * several threads at once and may be cancelled by interruption; {@link #screenshot}
+     * and {@link #perform} are only called from the playing thread.
+     *
+     * <p>A cancelled {@link #prepare} is not waited for while the flow goes on, since it
+     * must not touch the device. Before {@link PipelinedScriptPlayer#play} returns, it
+     * waits up to the builder's {@link Builder#shutdownTimeout} for every preparation to
+     * stop; one that ignores interruption for longer may still be running afterwards.
+     */
+    public interface Driver {
+        byte[] screenshot();
+
+        /**
+         * Builds the prompt for {@code item} from {@code screenshot} and calls the model.
+         * Must not touch the device; the result may be discarded.
+         */
+        Object prepare(FlowItem item, byte[] screenshot);
+
+        /**
+         * Acts on the prepared plan for an {@link Mode#ACT} item, or turns the prepared
+         * answer into the item's result for an {@link Mode#OBSERVE} item. A failed
+         * assertion throws.
+         */
+        Object perform(FlowItem item, Object prepared);
+    }
+
+    /**
+     * Counters for one play: {@code speculated} preparations started ahead of their
+     * turn, of which {@code hits} were used and {@code discarded} were thrown away
+     * because the screen changed; {@code maxParallel} is the most preparations that
+     * were running at once.
+     */
+    public record Stats(int speculated, int hits, int discarded, int maxParallel) {}
+
+    /**
+     * Outcome of a play. Results are keyed by item name, or by a running index for
+     * unnamed items as in the TS player. {@code failedIndex} is -1 when all items ran.
+     */
+    public record Result(Map<String, Object> results, int failedIndex, RuntimeException error, Stats stats) {
+        public boolean ok() {
+            return error == null;
+        }
+    }
+
+    private final Driver driver;
+    private final ScreenshotDiffer differ;
+    private final int parallelism;
+    private final boolean speculate;
+    private final Duration shutdownTimeout;
+
+    private PipelinedScriptPlayer(Builder builder) {
+        this.driver = Objects.requireNonNull(builder.driver, "driver");
+        this.differ = builder.differ != null ? builder.differ
+                : new ScreenshotDiffer(ScreenshotDiffer.DEFAULT_TILE_SIZE, ScreenshotDiffer.DEFAULT_PIXEL_THRESHOLD,
+                        ScreenshotDiffer.DEFAULT_MIN_PIXELS, ScreenshotDiffer.DEFAULT_HASH_DISTANCE);
+        this.parallelism = builder.parallelism;
+        this.speculate = builder.speculate;
+        this.shutdownTimeout = builder.shutdownTimeout;
+    }
+
+    public static Builder builder(Driver driver) {
+        return new Builder(driver);
+    }
+
+    /**
+     * Reads {@link EnvKeys#MIDSCENE_PLAYER_PARALLELISM},
+     * {@link EnvKeys#MIDSCENE_PLAYER_SPECULATE} and the screenshot diff keys.
+     */
+    public static PipelinedScriptPlayer fromConfig(Driver driver, ConfigManager config) {
+        Objects.requireNonNull(config, "config");
+        return builder(driver)
+                .differ(ScreenshotDiffer.fromConfig(config))
+                .parallelism(config.getInt(EnvKeys.MIDSCENE_PLAYER_PARALLELISM, DEFAULT_PARALLELISM))
+                .speculate(config.getBoolean(EnvKeys.MIDSCENE_PLAYER_SPECULATE, true))
+                .build();
+    }
+
+    /**
+     * Plays {@code flow} to the end or to the first failing item, then interrupts
+     * preparations still running and waits for them to stop.
+     */
+    public Result play(List<FlowItem> flow) {
+        Objects.requireNonNull(flow, "flow");
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            return new Run(flow, executor).play();
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    private void shutdown(ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(shutdownTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                DEBUG.log("preparations still running " + shutdownTimeout + " after the flow ended");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** State of one {@link #play} call; only the running counters are touched by preparing threads. */
+    private final class Run {
+        private final List<FlowItem> flow;
+        private final ExecutorService executor;
+        private final Map<Integer, Future<Object>> pending = new HashMap<>();
+        private final Set<Integer> speculative = new HashSet<>();
+        private final Map<String, Object> results = new LinkedHashMap<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxParallel = new AtomicInteger();
+        private byte[] screen;
+        private int unnamedIndex;
+        private int speculated;
+        private int hits;
+        private int discarded;
+
+        private Run(List<FlowItem> flow, ExecutorService executor) {
+            this.flow = List.copyOf(flow);
+            this.executor = executor;
+        }
+
+        Result play() {
+            int index = 0;
+            try {
+                screen = capture().screenshot();
+                while (index < flow.size()) {
+                    if (flow.get(index).mode() == Mode.OBSERVE) {
+                        int end = observeRunEnd(index);
+                        for (int i = index; i < end; i++) {
+                            prepareAhead(i, false);
+                        }
+                        if (speculate && end < flow.size()) {
+                            prepareAhead(end, true);
+                        }
+                        for (; index < end; index++) {
+                            FlowItem item = flow.get(index);
+                            record(item, driver.perform(item, awaitPrepared(index)));
+                        }
+                    } else {
+                        act(index);
+                        index++;
+                    }
+                }
+                return result(-1, null);
+            } catch (RuntimeException ex) {
+                DEBUG.log("flow item " + index + " failed: " + ex.getMessage());
+                discardAll();
+                return result(index, ex);
+            }
+        }
+
+        private void act(int index) {
+            FlowItem item = flow.get(index);
+            Object prepared = awaitPrepared(index);
+            if (speculate) {
+                int next = index + 1;
+                if (next < flow.size()) {
+                    int end = flow.get(next).mode() == Mode.OBSERVE ? observeRunEnd(next) : next + 1;
+                    for (int i = next; i < end; i++) {
+                        prepareAhead(i, true);
+                    }
+                }
+            }
+            long start = System.nanoTime();
+            driver.perform(item, prepared);
+            Metrics.step(Metrics.Step.ACTION).recordSince(start);
+            ScreenshotDiffer.Result observed = capture();
+            if (!observed.unchanged() && !pending.isEmpty()) {
+                DEBUG.log("screen changed after " + item.type() + ", discarding " + pending.size() + " speculative steps");
+                discarded += pending.size();
+                discardAll();
+            }
+            screen = observed.screenshot();
+        }
+
+        /** End (exclusive) of the observe run starting at {@code start}, capped at the parallelism. */
+        private int observeRunEnd(int start) {
+            int end = start;
+            while (end < flow.size() && end - start < parallelism && flow.get(end).mode() == Mode.OBSERVE) {
+                end++;
+            }
+            return end;
+        }
+
+        private ScreenshotDiffer.Result capture() {
+            long start = System.nanoTime();
+            byte[] shot = driver.screenshot();
+            Metrics.step(Metrics.Step.SCREENSHOT).recordSince(start);
+            return differ.observe(shot);
+        }
+
+        private void prepareAhead(int index, boolean ahead) {
+            if (pending.containsKey(index)) {
+                return;
+            }
+            FlowItem item = flow.get(index);
+            byte[] shot = screen;
+            // Not submit(): its futures stop counting toward awaitTermination once cancelled.
+            FutureTask<Object> task = new FutureTask<>(() -> prepareTracked(item, shot));
+            executor.execute(task);
+            pending.put(index, task);
+            if (ahead) {
+                speculative.add(index);
+                speculated++;
+            }
+        }
+
+        private Object prepareTracked(FlowItem item, byte[] shot) {
+            maxParallel.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                return driver.prepare(item, shot);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        private Object awaitPrepared(int index) {
+            Future<Object> future = pending.remove(index);
+            if (future == null) {
+                return prepareTracked(flow.get(index), screen);
+            }
+            if (speculative.remove(index)) {
+                hits++;
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while preparing flow item " + index, ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (ex.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException("Failed to prepare flow item " + index, ex.getCause());
+            } catch (CancellationException ex) {
+                throw new IllegalStateException("Preparation of flow item " + index + " was cancelled", ex);
+            }
+        }
+
+        private void discardAll() {
+            for (Future<Object> future : pending.values()) {
+                future.cancel(true);
+            }
+            pending.clear();
+            speculative.clear();
+        }
+
+        private void record(FlowItem item, Object value) {
+            String key = item.name() != null ? item.name() : String.valueOf(unnamedIndex++);
+            results.put(key, value);
+        }
+
+        private Result result(int failedIndex, RuntimeException error) {
+            Map<String, Object> copy = Collections.unmodifiableMap(new LinkedHashMap<>(results));
+            return new Result(copy, failedIndex, error,
+                    new Stats(speculated, hits, discarded, maxParallel.get()));
+        }
+    }
+
+    /**
+     * Player settings. Parallelism caps how many observe items are prepared at once;
+     * the model limiter still applies per request underneath.
+     */
+    public static final class Builder {
+        private final Driver driver;
+        private ScreenshotDiffer differ;
+        private int parallelism = DEFAULT_PARALLELISM;
+        private boolean speculate = true;
+        private Duration shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+
+        private Builder(Driver driver) {
+            this.driver = Objects.requireNonNull(driver, "driver");
+        }
+
+        /** Differ tracking the played screen; a default-tuned one is created if unset. */
+        public Builder differ(ScreenshotDiffer differ) {
+            this.differ = Objects.requireNonNull(differ, "differ");
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * How long {@link #play} waits for interrupted preparations to stop before it
+         * returns anyway.
+         */
+        public Builder shutdownTimeout(Duration shutdownTimeout) {
+            if (shutdownTimeout.isNegative() || shutdownTimeout.isZero()) {
+                throw new IllegalArgumentException("shutdownTimeout must be positive: " + shutdownTimeout);
+            }
+            this.shutdownTimeout = shutdownTimeout;
+            return this;
+        }
+
+        /** Whether to prepare the next step while the current action runs. */
+        public Builder speculate(boolean speculate) {
+            this.speculate = speculate;
+            return this;
+        }
+
+        public PipelinedScriptPlayer build() {
+            return new PipelinedScriptPlayer(this);
+        }
+    }
+}
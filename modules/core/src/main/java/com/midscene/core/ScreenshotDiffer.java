@@ -0,0 +1,372 @@
+package com.midscene.core;
+
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.EnvKeys;
+import com.midscene.shared.ImageTransform;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Detects whether a new screenshot differs visibly from the previous one of the same
+ * session, so the planning and locate paths can skip a model call or send only the
+ * region that changed.
+ *
+ * <p>Each frame gets a 64-bit DCT perceptual hash and a luma plane. A frame whose hash
+ * is far from the previous one is reported as a full-screen change without further
+ * work; otherwise the luma planes are compared tile by tile and changed tiles are
+ * merged into regions. When nothing changed, {@link Result#screenshot()} is the
+ * previous frame's bytes, so {@link AiResponseCache} keys and {@link TaskCacheStore}
+ * lookups built from it stay stable and hit.
+ *
+ * <p>One instance tracks one screen; {@link #observe(byte[])} may be called from any
+ * thread.
+ */
+public final class ScreenshotDiffer {
+    static final int DEFAULT_TILE_SIZE = 32;
+    static final int DEFAULT_PIXEL_THRESHOLD = 24;
+    static final int DEFAULT_MIN_PIXELS = 4;
+    static final int DEFAULT_HASH_DISTANCE = 12;
+
+    private static final int HASH_SAMPLE = 32;
+    private static final int HASH_BITS = 8;
+    private static final double[][] DCT = dctTable();
+
+    /**
+     * Perceptual summary of one frame.
+     */
+    public record Fingerprint(long hash, int width, int height, byte[] luma) {
+        public Fingerprint {
+            Objects.requireNonNull(luma, "luma");
+        }
+
+        public int distance(Fingerprint other) {
+            return Long.bitCount(hash ^ other.hash);
+        }
+    }
+
+    /** What a model call has to send for an observed frame; see {@link Result#upload(double)}. */
+    public enum UploadKind {
+        /** Nothing visible changed; an answer cached for {@link Result#screenshot()} still applies. */
+        SKIP,
+        /** Only a small region changed; send the crop of that region. */
+        CROP,
+        /** Send the whole frame. */
+        FULL
+    }
+
+    /**
+     * {@code image} is {@code null} for {@link UploadKind#SKIP}, a JPEG crop of
+     * {@code region} for {@link UploadKind#CROP}, and the frame itself for
+     * {@link UploadKind#FULL}, where {@code region} is the full screen. Coordinates the
+     * model returns for a crop are relative to {@code region}.
+     */
+    public record Upload(UploadKind kind, byte[] image, ImageTransform.Rect region) {}
+
+    /**
+     * Outcome of comparing a frame with its predecessor. {@code changedRegions} are
+     * bounding boxes of connected changed tiles, in screenshot pixels.
+     */
+    public record Result(boolean unchanged, int hashDistance, List<ImageTransform.Rect> changedRegions,
+                         byte[] screenshot, Fingerprint fingerprint) {
+
+        /**
+         * Skip and crop decision for the locate, planning and request paths: skip the
+         * call when unchanged, send the changed crop when {@link #bounds()} covers at most
+         * {@code maxCropRatio} of the screen, otherwise the whole frame.
+         */
+        public Upload upload(double maxCropRatio) {
+            if (!(maxCropRatio >= 0 && maxCropRatio <= 1)) {
+                throw new IllegalArgumentException("maxCropRatio must be between 0 and 1: " + maxCropRatio);
+            }
+            ImageTransform.Rect full = new ImageTransform.Rect(0, 0, fingerprint.width(), fingerprint.height());
+            if (unchanged) {
+                return new Upload(UploadKind.SKIP, null, full);
+            }
+            ImageTransform.Rect region = bounds();
+            long area = (long) region.width() * region.height();
+            if (area < (long) full.width() * full.height() && area <= maxCropRatio * full.width() * full.height()) {
+                return new Upload(UploadKind.CROP, ImageTransform.cropByRect(screenshot, region, false).data(), region);
+            }
+            return new Upload(UploadKind.FULL, screenshot, full);
+        }
+
+        /** Smallest rect covering every changed region, or {@code null} when unchanged. */
+        public ImageTransform.Rect bounds() {
+            if (changedRegions.isEmpty()) {
+                return null;
+            }
+            int left = Integer.MAX_VALUE;
+            int top = Integer.MAX_VALUE;
+            int right = 0;
+            int bottom = 0;
+            for (ImageTransform.Rect rect : changedRegions) {
+                left = Math.min(left, rect.left());
+                top = Math.min(top, rect.top());
+                right = Math.max(right, rect.left() + rect.width());
+                bottom = Math.max(bottom, rect.top() + rect.height());
+            }
+            return new ImageTransform.Rect(left, top, right - left, bottom - top);
+        }
+    }
+
+    private final int tileSize;
+    private final int pixelThreshold;
+    private final int minPixels;
+    private final int hashDistance;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Fingerprint previous;
+    private byte[] previousScreenshot;
+
+    /**
+     * @param tileSize       side of a comparison tile in pixels
+     * @param pixelThreshold luma delta (0-255) below which a pixel counts as unchanged,
+     *                       absorbing JPEG noise
+     * @param minPixels      changed pixels needed before a tile counts as changed
+     * @param hashDistance   hash bits that may differ before the whole frame is treated
+     *                       as changed without a tile scan
+     */
+    public ScreenshotDiffer(int tileSize, int pixelThreshold, int minPixels, int hashDistance) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize must be positive: " + tileSize);
+        }
+        if (pixelThreshold < 0 || minPixels < 1 || hashDistance < 0) {
+            throw new IllegalArgumentException("thresholds must not be negative and minPixels must be positive");
+        }
+        this.tileSize = tileSize;
+        this.pixelThreshold = pixelThreshold;
+        this.minPixels = minPixels;
+        this.hashDistance = hashDistance;
+    }
+
+    /**
+     * Reads {@link EnvKeys#MIDSCENE_SCREENSHOT_DIFF_TILE_SIZE},
+     * {@link EnvKeys#MIDSCENE_SCREENSHOT_DIFF_PIXEL_THRESHOLD},
+     * {@link EnvKeys#MIDSCENE_SCREENSHOT_DIFF_MIN_PIXELS} and
+     * {@link EnvKeys#MIDSCENE_SCREENSHOT_HASH_DISTANCE}.
+     */
+    public static ScreenshotDiffer fromConfig(ConfigManager config) {
+        Objects.requireNonNull(config, "config");
+        return new ScreenshotDiffer(
+                config.getInt(EnvKeys.MIDSCENE_SCREENSHOT_DIFF_TILE_SIZE, DEFAULT_TILE_SIZE),
+                config.getInt(EnvKeys.MIDSCENE_SCREENSHOT_DIFF_PIXEL_THRESHOLD, DEFAULT_PIXEL_THRESHOLD),
+                config.getInt(EnvKeys.MIDSCENE_SCREENSHOT_DIFF_MIN_PIXELS, DEFAULT_MIN_PIXELS),
+                config.getInt(EnvKeys.MIDSCENE_SCREENSHOT_HASH_DISTANCE, DEFAULT_HASH_DISTANCE));
+    }
+
+    public static Fingerprint fingerprint(ImageTransform.Pixels pixels) {
+        int width = pixels.width();
+        int height = pixels.height();
+        byte[] luma = new byte[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            pixels.row(y, row);
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                luma[y * width + x] = (byte) (((argb >>> 16 & 0xff) * 77 + (argb >>> 8 & 0xff) * 150 + (argb & 0xff) * 29) >>> 8);
+            }
+        }
+        return new Fingerprint(hash(luma, width, height), width, height, luma);
+    }
+
+    /**
+     * Compares {@code screenshot} with the reference frame; a changed frame becomes the
+     * new reference. The first frame is always reported as changed.
+     */
+    public Result observe(byte[] screenshot) {
+        Fingerprint current;
+        try (ImageTransform.Pixels pixels = ImageTransform.decode(screenshot)) {
+            current = fingerprint(pixels);
+        }
+        lock.lock();
+        try {
+            Result result = compare(previous, previousScreenshot, current, screenshot);
+            if (!result.unchanged()) {
+                // An unchanged frame keeps the old reference, so slow drift below the
+                // thresholds still adds up to a change eventually.
+                previous = current;
+                previousScreenshot = screenshot;
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Forgets the reference frame, e.g. after navigation. */
+    public void reset() {
+        lock.lock();
+        try {
+            previous = null;
+            previousScreenshot = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Result compare(Fingerprint before, byte[] beforeScreenshot, Fingerprint after, byte[] afterScreenshot) {
+        ImageTransform.Rect full = new ImageTransform.Rect(0, 0, after.width(), after.height());
+        if (before == null || before.width() != after.width() || before.height() != after.height()) {
+            return new Result(false, Long.SIZE, List.of(full), afterScreenshot, after);
+        }
+        int distance = before.distance(after);
+        if (distance > hashDistance) {
+            return new Result(false, distance, List.of(full), afterScreenshot, after);
+        }
+        List<ImageTransform.Rect> regions = changedRegions(before.luma(), after.luma(), after.width(), after.height());
+        if (regions.isEmpty()) {
+            return new Result(true, distance, List.of(), beforeScreenshot, before);
+        }
+        return new Result(false, distance, regions, afterScreenshot, after);
+    }
+
+    private List<ImageTransform.Rect> changedRegions(byte[] before, byte[] after, int width, int height) {
+        int columns = (width + tileSize - 1) / tileSize;
+        int rows = (height + tileSize - 1) / tileSize;
+        boolean[] changed = new boolean[columns * rows];
+        boolean any = false;
+        for (int row = 0; row < rows; row++) {
+            int top = row * tileSize;
+            int bottom = Math.min(height, top + tileSize);
+            for (int column = 0; column < columns; column++) {
+                int left = column * tileSize;
+                int right = Math.min(width, left + tileSize);
+                if (tileChanged(before, after, width, left, top, right, bottom)) {
+                    changed[row * columns + column] = true;
+                    any = true;
+                }
+            }
+        }
+        return any ? merge(changed, columns, rows, width, height) : List.of();
+    }
+
+    private boolean tileChanged(byte[] before, byte[] after, int width, int left, int top, int right, int bottom) {
+        int count = 0;
+        for (int y = top; y < bottom; y++) {
+            int row = y * width;
+            for (int i = row + left; i < row + right; i++) {
+                if (Math.abs((before[i] & 0xff) - (after[i] & 0xff)) > pixelThreshold && ++count >= minPixels) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Flood-fills 4-connected changed tiles into bounding boxes. */
+    private List<ImageTransform.Rect> merge(boolean[] changed, int columns, int rows, int width, int height) {
+        List<ImageTransform.Rect> regions = new ArrayList<>();
+        int[] stack = new int[changed.length];
+        for (int start = 0; start < changed.length; start++) {
+            if (!changed[start]) {
+                continue;
+            }
+            changed[start] = false;
+            int size = 0;
+            stack[size++] = start;
+            int minColumn = columns;
+            int minRow = rows;
+            int maxColumn = 0;
+            int maxRow = 0;
+            while (size > 0) {
+                int tile = stack[--size];
+                int column = tile % columns;
+                int row = tile / columns;
+                minColumn = Math.min(minColumn, column);
+                maxColumn = Math.max(maxColumn, column);
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+                if (column > 0 && changed[tile - 1]) {
+                    changed[tile - 1] = false;
+                    stack[size++] = tile - 1;
+                }
+                if (column < columns - 1 && changed[tile + 1]) {
+                    changed[tile + 1] = false;
+                    stack[size++] = tile + 1;
+                }
+                if (row > 0 && changed[tile - columns]) {
+                    changed[tile - columns] = false;
+                    stack[size++] = tile - columns;
+                }
+                if (row < rows - 1 && changed[tile + columns]) {
+                    changed[tile + columns] = false;
+                    stack[size++] = tile + columns;
+                }
+            }
+            int left = minColumn * tileSize;
+            int top = minRow * tileSize;
+            regions.add(new ImageTransform.Rect(left, top,
+                    Math.min(width, (maxColumn + 1) * tileSize) - left,
+                    Math.min(height, (maxRow + 1) * tileSize) - top));
+        }
+        return regions;
+    }
+
+    /**
+     * pHash: box-downsample to 32x32, 2D DCT-II, then one bit per low-frequency
+     * coefficient of the top-left 8x8 block (DC excluded from the median) above the
+     * median.
+     */
+    static long hash(byte[] luma, int width, int height) {
+        double[] sample = new double[HASH_SAMPLE * HASH_SAMPLE];
+        for (int sy = 0; sy < HASH_SAMPLE; sy++) {
+            int y0 = sy * height / HASH_SAMPLE;
+            int y1 = Math.max(y0 + 1, (sy + 1) * height / HASH_SAMPLE);
+            for (int sx = 0; sx < HASH_SAMPLE; sx++) {
+                int x0 = sx * width / HASH_SAMPLE;
+                int x1 = Math.max(x0 + 1, (sx + 1) * width / HASH_SAMPLE);
+                long sum = 0;
+                for (int y = y0; y < Math.min(y1, height); y++) {
+                    for (int x = x0; x < Math.min(x1, width); x++) {
+                        sum += luma[y * width + x] & 0xff;
+                    }
+                }
+                int count = (Math.min(y1, height) - y0) * (Math.min(x1, width) - x0);
+                sample[sy * HASH_SAMPLE + sx] = count > 0 ? (double) sum / count : 0;
+            }
+        }
+        // Only the first HASH_BITS rows and columns of the transform are needed.
+        double[] rowPass = new double[HASH_SAMPLE * HASH_BITS];
+        for (int y = 0; y < HASH_SAMPLE; y++) {
+            for (int u = 0; u < HASH_BITS; u++) {
+                double sum = 0;
+                for (int x = 0; x < HASH_SAMPLE; x++) {
+                    sum += sample[y * HASH_SAMPLE + x] * DCT[u][x];
+                }
+                rowPass[y * HASH_BITS + u] = sum;
+            }
+        }
+        double[] coefficients = new double[HASH_BITS * HASH_BITS];
+        for (int v = 0; v < HASH_BITS; v++) {
+            for (int u = 0; u < HASH_BITS; u++) {
+                double sum = 0;
+                for (int y = 0; y < HASH_SAMPLE; y++) {
+                    sum += rowPass[y * HASH_BITS + u] * DCT[v][y];
+                }
+                coefficients[v * HASH_BITS + u] = sum;
+            }
+        }
+        double[] sorted = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2];
+        long hash = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    private static double[][] dctTable() {
+        double[][] table = new double[HASH_BITS][HASH_SAMPLE];
+        for (int u = 0; u < HASH_BITS; u++) {
+            for (int x = 0; x < HASH_SAMPLE; x++) {
+                table[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * HASH_SAMPLE));
+            }
+        }
+        return table;
+    }
+}
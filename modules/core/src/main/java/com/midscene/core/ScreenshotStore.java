@@ -0,0 +1,304 @@
+package com.midscene.core;
+
+import com.midscene.shared.ImageTransform;
+import com.midscene.shared.MidsceneEvents;
+import com.midscene.shared.RunDirectoryHelper;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for screenshots referenced from report dumps. Each image is
+ * written once to {@code <dump>/blobs/<aa>/<sha256>.<format>}, and dumps carry a short
+ * {@link Ref} string instead of an inline {@code data:image/...;base64,} URL, so the
+ * same screen captured by many tasks and executions costs one file.
+ *
+ * <p>{@link #externalize(String)} swaps inline images in a dump for refs;
+ * {@link #writeResolved(String, OutputStream)} does the reverse while writing a report,
+ * streaming each blob through a base64 encoder instead of loading it into a string.
+ */
+public final class ScreenshotStore {
+    /** Prefix of a ref string, e.g. {@code midscene-blob:3f2a...e1.png}. */
+    public static final String REF_PREFIX = "midscene-blob:";
+    static final String BLOB_DIR = "blobs";
+
+    private static final String DATA_URL_START = "\"data:image/";
+    private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern FORMAT = Pattern.compile("[a-z0-9.+-]{1,16}");
+    private static final Pattern REF = Pattern.compile(Pattern.quote(REF_PREFIX) + "[0-9a-f]{64}\\.[a-z0-9.+-]{1,16}");
+    private static final Pattern INLINE_IMAGE = Pattern.compile("data:image/[A-Za-z0-9.+-]{1,16};base64,[A-Za-z0-9+/]*+={0,2}");
+
+    /**
+     * Reference to one stored image.
+     */
+    public record Ref(String digest, String format) {
+        public Ref {
+            if (!DIGEST.matcher(digest).matches()) {
+                throw new IllegalArgumentException("Invalid blob digest: " + digest);
+            }
+            if (!FORMAT.matcher(format).matches()) {
+                throw new IllegalArgumentException("Invalid blob format: " + format);
+            }
+        }
+
+        public static boolean isRef(String value) {
+            return value != null && value.startsWith(REF_PREFIX);
+        }
+
+        public static Ref parse(String value) {
+            if (!isRef(value)) {
+                throw new IllegalArgumentException("Not a blob ref: " + value);
+            }
+            int dot = value.indexOf('.', REF_PREFIX.length());
+            if (dot < 0) {
+                throw new IllegalArgumentException("Blob ref without format: " + value);
+            }
+            return new Ref(value.substring(REF_PREFIX.length(), dot), value.substring(dot + 1));
+        }
+
+        @Override
+        public String toString() {
+            return REF_PREFIX + digest + "." + format;
+        }
+    }
+
+    /**
+     * Point-in-time counters; {@code deduplicated} counts puts that found the blob
+     * already stored.
+     */
+    public record Stats(long puts, long deduplicated, long bytesWritten) {}
+
+    private final Path directory;
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private ScreenshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /** Opens the store in the run directory's dump folder. */
+    public static ScreenshotStore open() {
+        return open(RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.DUMP).resolve(BLOB_DIR));
+    }
+
+    public static ScreenshotStore open(Path directory) {
+        Objects.requireNonNull(directory, "directory");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open screenshot store at " + directory, ex);
+        }
+        return new ScreenshotStore(directory);
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Stores the image unless an identical one is already present. Concurrent puts of
+     * the same bytes are safe: each writes a temp file and the first rename wins.
+     */
+    public Ref put(String format, byte[] bytes) {
+        Objects.requireNonNull(bytes, "bytes");
+        Ref ref = new Ref(HexFormat.of().formatHex(sha256().digest(bytes)), format);
+        puts.increment();
+        String name = fileName(ref);
+        if (known.contains(name)) {
+            deduplicated.increment();
+            return ref;
+        }
+        Path target = path(ref);
+        try {
+            if (Files.exists(target)) {
+                deduplicated.increment();
+            } else {
+                MidsceneEvents.RunDirectoryWriteEvent event = MidsceneEvents.beginRunDirectoryWrite();
+                Files.createDirectories(target.getParent());
+                Path temp = Files.createTempFile(target.getParent(), ref.digest(), ".tmp");
+                try {
+                    Files.write(temp, bytes);
+                    move(temp, target);
+                    bytesWritten.add(bytes.length);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                if (event != null) {
+                    event.finish("blob", target.toString(), bytes.length);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to store screenshot " + ref, ex);
+        }
+        known.add(name);
+        return ref;
+    }
+
+    /** Stores a {@code data:image/<format>;base64,...} URL. */
+    public Ref putBase64(String dataUrl) {
+        ImageTransform.Base64Image image = ImageTransform.parseBase64(dataUrl);
+        return put(image.format().toLowerCase(Locale.ROOT), image.decode());
+    }
+
+    public Path path(Ref ref) {
+        return directory.resolve(ref.digest().substring(0, 2)).resolve(fileName(ref));
+    }
+
+    public boolean contains(Ref ref) {
+        return known.contains(fileName(ref)) || Files.exists(path(ref));
+    }
+
+    public byte[] read(Ref ref) {
+        try {
+            return Files.readAllBytes(path(ref));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read screenshot " + ref, ex);
+        }
+    }
+
+    /**
+     * Returns the data URL for a ref string, or {@code value} unchanged when it is not
+     * a well-formed ref, so callers can pass dump fields through without checking.
+     */
+    public String resolveBase64(String value) {
+        if (value == null || !REF.matcher(value).matches()) {
+            return value;
+        }
+        Ref ref = Ref.parse(value);
+        return ImageTransform.createImgBase64ByFormat(ref.format(), Base64.getEncoder().encodeToString(read(ref)));
+    }
+
+    /**
+     * Replaces every inline image string in a JSON dump with a quoted ref. Data URLs
+     * quoted inside another string, e.g. {@code \"data:image/...\"} in an HTML
+     * snippet, are text rather than image fields and are left alone, as are URLs with
+     * media type parameters or anything else that is not plain
+     * {@code data:image/<format>;base64,<data>}.
+     */
+    public String externalize(String dumpJson) {
+        Objects.requireNonNull(dumpJson, "dumpJson");
+        int start = dumpJson.indexOf(DATA_URL_START);
+        if (start < 0) {
+            return dumpJson;
+        }
+        StringBuilder out = new StringBuilder(Math.min(dumpJson.length(), 1 << 20));
+        int copied = 0;
+        while (start >= 0) {
+            int end = dumpJson.indexOf('"', start + DATA_URL_START.length());
+            if (end < 0) {
+                break;
+            }
+            String dataUrl = dumpJson.substring(start + 1, end);
+            if (INLINE_IMAGE.matcher(dataUrl).matches() && !escapedQuote(dumpJson, start)
+                    && !escapedQuote(dumpJson, end)) {
+                out.append(dumpJson, copied, start).append('"').append(putBase64(dataUrl)).append('"');
+                copied = end + 1;
+            }
+            start = dumpJson.indexOf(DATA_URL_START, end + 1);
+        }
+        return out.append(dumpJson, copied, dumpJson.length()).toString();
+    }
+
+    /**
+     * Writes {@code dumpJson} as UTF-8 with every quoted ref expanded back into an
+     * inline data URL. Blobs are streamed from disk through the encoder. Strings that
+     * merely start with {@link #REF_PREFIX} are written as they are.
+     */
+    public void writeResolved(String dumpJson, OutputStream out) throws IOException {
+        Objects.requireNonNull(out, "out");
+        String refStart = "\"" + REF_PREFIX;
+        int copied = 0;
+        int start = dumpJson.indexOf(refStart);
+        while (start >= 0) {
+            int end = dumpJson.indexOf('"', start + refStart.length());
+            if (end < 0) {
+                break;
+            }
+            String value = dumpJson.substring(start + 1, end);
+            if (escapedQuote(dumpJson, start) || !REF.matcher(value).matches()) {
+                start = dumpJson.indexOf(refStart, end);
+                continue;
+            }
+            Ref ref = Ref.parse(value);
+            out.write(dumpJson.substring(copied, start).getBytes(StandardCharsets.UTF_8));
+            out.write(("\"data:image/" + ref.format() + ";base64,").getBytes(StandardCharsets.US_ASCII));
+            try (InputStream in = Files.newInputStream(path(ref));
+                 OutputStream encoder = Base64.getEncoder().wrap(new FilterOutputStream(out) {
+                     @Override
+                     public void write(byte[] bytes, int offset, int length) throws IOException {
+                         out.write(bytes, offset, length);
+                     }
+
+                     @Override
+                     public void close() throws IOException {
+                         // Keep the report stream open.
+                         flush();
+                     }
+                 })) {
+                in.transferTo(encoder);
+            }
+            out.write('"');
+            copied = end + 1;
+            start = dumpJson.indexOf(refStart, copied);
+        }
+        out.write(dumpJson.substring(copied).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Stats stats() {
+        return new Stats(puts.sum(), deduplicated.sum(), bytesWritten.sum());
+    }
+
+    /**
+     * Whether the quote at {@code index} is escaped. A quote that opens or closes a
+     * JSON string follows a structural character, never a backslash.
+     */
+    private static boolean escapedQuote(String json, int index) {
+        return index > 0 && json.charAt(index - 1) == '\\';
+    }
+
+    private static String fileName(Ref ref) {
+        return ref.digest() + "." + ref.format();
+    }
+
+    private static void move(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException ex) {
+            // Another writer stored the same content first.
+        } catch (AtomicMoveNotSupportedException ex) {
+            try {
+                Files.move(temp, target);
+            } catch (FileAlreadyExistsException raced) {
+                // Same content already in place.
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.midscene.core;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Table of in-flight loads keyed by request. The first caller for a key runs the
+ * loader; callers that arrive while it is running wait for the same result instead
+ * of starting their own. The entry is dropped as soon as the load finishes, so this
+ * only merges concurrent duplicates; caching finished results is
+ * {@link AiResponseCache}'s job.
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * Point-in-time counters; {@code coalesced} counts calls that joined a load
+     * started by another caller.
+     */
+    public record Stats(long calls, long coalesced, int inFlight) {}
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Runs {@code loader} for {@code key} unless a load for an equal key is already
+     * running, in which case that load's result or exception is returned to this
+     * caller too. If the running load fails because its own caller was interrupted or
+     * cancelled, waiting callers do not inherit that: they start over, and one of them
+     * runs the loader. Waiting is interruptible.
+     */
+    public V execute(K key, Function<K, V> loader) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(loader, "loader");
+        calls.increment();
+        boolean counted = false;
+        while (true) {
+            CompletableFuture<V> own = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+            if (running == null) {
+                return load(key, loader, own);
+            }
+            if (!counted) {
+                coalesced.increment();
+                counted = true;
+            }
+            try {
+                return await(running);
+            } catch (Abandoned ex) {
+                // The leader gave up; look again and possibly take over.
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(calls.sum(), coalesced.sum(), inFlight.size());
+    }
+
+    private V load(K key, Function<K, V> loader, CompletableFuture<V> own) {
+        try {
+            V value = loader.apply(key);
+            inFlight.remove(key, own);
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            inFlight.remove(key, own);
+            own.completeExceptionally(interrupted(ex) ? new Abandoned(ex) : ex);
+            throw ex;
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight load", ex);
+        } catch (ExecutionException ex) {
+            // Rethrow the leader's own exception so followers see the same failure.
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** Whether a load failed because its caller was interrupted or cancelled. */
+    private static boolean interrupted(Throwable failure) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof CancellationException
+                    || t instanceof InterruptedIOException || t instanceof ClosedByInterruptException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Marks a load whose leader stopped for its own reasons; followers retry. */
+    private static final class Abandoned extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private Abandoned(Throwable cause) {
+            super(null, cause, false, false);
+        }
+    }
+}
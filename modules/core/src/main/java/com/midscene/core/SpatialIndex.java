@@ -0,0 +1,407 @@
+package com.midscene.core;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Static, packed R-tree over the element rects of one {@link ElementStore} snapshot.
+ * Elements are ordered along a Hilbert curve and grouped bottom-up into fixed-size
+ * nodes, so the whole index is two flat arrays built once per snapshot. Point,
+ * rect-overlap and k-nearest queries only descend into nodes whose bounds can match.
+ */
+public final class SpatialIndex {
+    static final int DEFAULT_NODE_SIZE = 16;
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    private final ElementStore store;
+    private final int nodeSize;
+    private final int numItems;
+    private final int[] levelBounds;
+    private final float[] boxes;
+    private final int[] indices;
+
+    private SpatialIndex(ElementStore store, int[] items, int nodeSize) {
+        this.store = store;
+        this.nodeSize = nodeSize;
+        this.numItems = items.length;
+
+        int n = numItems;
+        int numNodes = n;
+        int[] bounds = new int[8];
+        int levels = 0;
+        bounds[levels++] = n;
+        do {
+            n = (n + nodeSize - 1) / nodeSize;
+            numNodes += n;
+            if (levels == bounds.length) {
+                bounds = Arrays.copyOf(bounds, levels * 2);
+            }
+            bounds[levels++] = numNodes;
+        } while (n > 1);
+        this.levelBounds = Arrays.copyOf(bounds, levels);
+        this.boxes = new float[numNodes * 4];
+        this.indices = new int[numNodes];
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < numItems; i++) {
+            int element = items[i];
+            float left = store.left(element);
+            float top = store.top(element);
+            float right = left + store.width(element);
+            float bottom = top + store.height(element);
+            boxes[i * 4] = left;
+            boxes[i * 4 + 1] = top;
+            boxes[i * 4 + 2] = right;
+            boxes[i * 4 + 3] = bottom;
+            indices[i] = element;
+            minX = Math.min(minX, left);
+            minY = Math.min(minY, top);
+            maxX = Math.max(maxX, right);
+            maxY = Math.max(maxY, bottom);
+        }
+
+        if (numItems > nodeSize) {
+            float width = maxX - minX > 0 ? maxX - minX : 1;
+            float height = maxY - minY > 0 ? maxY - minY : 1;
+            int[] hilbertValues = new int[numItems];
+            for (int i = 0; i < numItems; i++) {
+                float cx = (boxes[i * 4] + boxes[i * 4 + 2]) / 2;
+                float cy = (boxes[i * 4 + 1] + boxes[i * 4 + 3]) / 2;
+                hilbertValues[i] = hilbert(
+                        (int) (HILBERT_MAX * (cx - minX) / width),
+                        (int) (HILBERT_MAX * (cy - minY) / height));
+            }
+            sort(hilbertValues, 0, numItems - 1);
+        }
+
+        int pos = 0;
+        int out = numItems;
+        for (int level = 0; level < levelBounds.length - 1; level++) {
+            int end = levelBounds[level];
+            while (pos < end) {
+                int first = pos;
+                float nodeMinX = Float.POSITIVE_INFINITY;
+                float nodeMinY = Float.POSITIVE_INFINITY;
+                float nodeMaxX = Float.NEGATIVE_INFINITY;
+                float nodeMaxY = Float.NEGATIVE_INFINITY;
+                for (int i = 0; i < nodeSize && pos < end; i++, pos++) {
+                    nodeMinX = Math.min(nodeMinX, boxes[pos * 4]);
+                    nodeMinY = Math.min(nodeMinY, boxes[pos * 4 + 1]);
+                    nodeMaxX = Math.max(nodeMaxX, boxes[pos * 4 + 2]);
+                    nodeMaxY = Math.max(nodeMaxY, boxes[pos * 4 + 3]);
+                }
+                boxes[out * 4] = nodeMinX;
+                boxes[out * 4 + 1] = nodeMinY;
+                boxes[out * 4 + 2] = nodeMaxX;
+                boxes[out * 4 + 3] = nodeMaxY;
+                indices[out++] = first;
+            }
+        }
+    }
+
+    /** Indexes the visible elements of {@code store}, the ones {@link ElementStore#hitTest} considers. */
+    public static SpatialIndex build(ElementStore store) {
+        return build(store, node -> store.hasElement(node) && store.isVisible(node));
+    }
+
+    public static SpatialIndex build(ElementStore store, IntPredicate filter) {
+        Objects.requireNonNull(store, "store");
+        Objects.requireNonNull(filter, "filter");
+        int[] items = new int[store.size()];
+        int count = 0;
+        for (int node = 0; node < store.size(); node++) {
+            if (store.hasElement(node) && filter.test(node)) {
+                items[count++] = node;
+            }
+        }
+        return new SpatialIndex(store, Arrays.copyOf(items, count), DEFAULT_NODE_SIZE);
+    }
+
+    public ElementStore store() {
+        return store;
+    }
+
+    public int size() {
+        return numItems;
+    }
+
+    /** Visits every indexed element whose rect contains the point, edges included. */
+    public void queryPoint(float x, float y, IntConsumer action) {
+        search(x, y, x, y, false, action);
+    }
+
+    /**
+     * Visits every indexed element whose rect overlaps the given rect with a non-empty
+     * area, matching {@code overlappedRect} in the TS extractor.
+     */
+    public void queryRect(float left, float top, float right, float bottom, IntConsumer action) {
+        search(left, top, right, bottom, true, action);
+    }
+
+    /**
+     * Smallest indexed element containing the point, or {@link ElementStore#NONE}. Ties
+     * go to the lowest node index, as in {@link ElementStore#hitTest}.
+     */
+    public int hitTest(float x, float y) {
+        int[] best = {ElementStore.NONE};
+        float[] bestArea = {Float.POSITIVE_INFINITY};
+        queryPoint(x, y, node -> {
+            float area = store.width(node) * store.height(node);
+            if (area < bestArea[0] || (area == bestArea[0] && node < best[0])) {
+                bestArea[0] = area;
+                best[0] = node;
+            }
+        });
+        return best[0];
+    }
+
+    /**
+     * Returns up to {@code k} elements ordered by the distance from the point to their
+     * rect (zero when the point lies inside).
+     */
+    public int[] nearest(float x, float y, int k) {
+        return nearest(x, y, k, Float.POSITIVE_INFINITY);
+    }
+
+    public int[] nearest(float x, float y, int k, float maxDistance) {
+        if (k <= 0 || numItems == 0) {
+            return new int[0];
+        }
+        float maxDistanceSquared = maxDistance == Float.POSITIVE_INFINITY
+                ? Float.POSITIVE_INFINITY : maxDistance * maxDistance;
+        int[] result = new int[Math.min(k, numItems)];
+        int found = 0;
+        Heap queue = new Heap();
+        int nodeIndex = boxes.length / 4 - 1;
+
+        search:
+        while (true) {
+            int end = Math.min(nodeIndex + nodeSize, upperBound(nodeIndex));
+            boolean leafLevel = nodeIndex < numItems;
+            for (int pos = nodeIndex; pos < end; pos++) {
+                float dx = axisDistance(x, boxes[pos * 4], boxes[pos * 4 + 2]);
+                float dy = axisDistance(y, boxes[pos * 4 + 1], boxes[pos * 4 + 3]);
+                float distance = dx * dx + dy * dy;
+                if (distance <= maxDistanceSquared) {
+                    queue.push(distance, leafLevel ? (indices[pos] << 1) | 1 : indices[pos] << 1);
+                }
+            }
+            while (!queue.isEmpty() && (queue.peekValue() & 1) == 1) {
+                result[found++] = queue.pop() >> 1;
+                if (found == result.length) {
+                    break search;
+                }
+            }
+            if (queue.isEmpty()) {
+                break;
+            }
+            nodeIndex = queue.pop() >> 1;
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    private void search(float minX, float minY, float maxX, float maxY, boolean strict, IntConsumer action) {
+        if (numItems == 0) {
+            return;
+        }
+        int[] stack = new int[16];
+        int stackSize = 0;
+        int nodeIndex = boxes.length / 4 - 1;
+        while (true) {
+            int end = Math.min(nodeIndex + nodeSize, upperBound(nodeIndex));
+            boolean leafLevel = nodeIndex < numItems;
+            for (int pos = nodeIndex; pos < end; pos++) {
+                int base = pos * 4;
+                if (maxX < boxes[base] || maxY < boxes[base + 1] || minX > boxes[base + 2] || minY > boxes[base + 3]) {
+                    continue;
+                }
+                if (!leafLevel) {
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stackSize * 2);
+                    }
+                    stack[stackSize++] = indices[pos];
+                } else if (!strict || (Math.max(minX, boxes[base]) < Math.min(maxX, boxes[base + 2])
+                        && Math.max(minY, boxes[base + 1]) < Math.min(maxY, boxes[base + 3]))) {
+                    action.accept(indices[pos]);
+                }
+            }
+            if (stackSize == 0) {
+                return;
+            }
+            nodeIndex = stack[--stackSize];
+        }
+    }
+
+    private int upperBound(int nodeIndex) {
+        for (int bound : levelBounds) {
+            if (bound > nodeIndex) {
+                return bound;
+            }
+        }
+        return levelBounds[levelBounds.length - 1];
+    }
+
+    private static float axisDistance(float value, float min, float max) {
+        return value < min ? min - value : value > max ? value - max : 0;
+    }
+
+    /** Quicksort by Hilbert value that stops at node granularity, as leaves only need grouping. */
+    private void sort(int[] values, int left, int right) {
+        if (left / nodeSize >= right / nodeSize) {
+            return;
+        }
+        int pivot = values[(left + right) >> 1];
+        int i = left - 1;
+        int j = right + 1;
+        while (true) {
+            do {
+                i++;
+            } while (values[i] < pivot);
+            do {
+                j--;
+            } while (values[j] > pivot);
+            if (i >= j) {
+                break;
+            }
+            swap(values, i, j);
+        }
+        sort(values, left, j);
+        sort(values, j + 1, right);
+    }
+
+    private void swap(int[] values, int i, int j) {
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        int index = indices[i];
+        indices[i] = indices[j];
+        indices[j] = index;
+        for (int c = 0; c < 4; c++) {
+            float box = boxes[i * 4 + c];
+            boxes[i * 4 + c] = boxes[j * 4 + c];
+            boxes[j * 4 + c] = box;
+        }
+    }
+
+    /** Hilbert curve index of a 16-bit point (Warren, "Hacker's Delight" 2nd ed., fig. 16-8). */
+    private static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int aa = a | (b >>> 1);
+        int bb = (a >>> 1) ^ a;
+        int cc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int dd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        aa = (a & (a >>> 2)) ^ (b & (b >>> 2));
+        bb = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+        cc ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+        dd ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        aa = (a & (a >>> 4)) ^ (b & (b >>> 4));
+        bb = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+        cc ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+        dd ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        cc ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+        dd ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+        a = cc ^ (cc >>> 1);
+        b = dd ^ (dd >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        // Flip the sign bit so signed comparison orders values as unsigned.
+        return ((i1 << 1) | i0) ^ Integer.MIN_VALUE;
+    }
+
+    /** Binary min-heap of (distance, value) pairs used by {@link #nearest}. */
+    private static final class Heap {
+        private float[] keys = new float[32];
+        private int[] values = new int[32];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peekValue() {
+            return values[0];
+        }
+
+        void push(float key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[pos] = keys[parent];
+                values[pos] = values[parent];
+                pos = parent;
+            }
+            keys[pos] = key;
+            values[pos] = value;
+        }
+
+        int pop() {
+            int top = values[0];
+            size--;
+            if (size > 0) {
+                float key = keys[size];
+                int value = values[size];
+                int pos = 0;
+                int half = size >> 1;
+                while (pos < half) {
+                    int child = (pos << 1) + 1;
+                    if (child + 1 < size && keys[child + 1] < keys[child]) {
+                        child++;
+                    }
+                    if (keys[child] >= key) {
+                        break;
+                    }
+                    keys[pos] = keys[child];
+                    values[pos] = values[child];
+                    pos = child;
+                }
+                keys[pos] = key;
+                values[pos] = value;
+            }
+            return top;
+        }
+    }
+}
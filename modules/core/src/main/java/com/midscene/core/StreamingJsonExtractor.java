@@ -0,0 +1,61 @@
+package com.midscene.core;
+
+/**
+ * Finds the first complete JSON object in model output that arrives in pieces. The TS
+ * path waits for the whole response and then runs {@code extractJSONFromCodeBlock};
+ * this scanner is fed each delta and reports the object the moment its closing brace
+ * arrives, so the action can start while the model is still sending trailing tokens.
+ *
+ * <p>Text before the first {@code '{'}, such as a {@code ```json} fence or a sentence,
+ * is skipped. Braces inside strings and escaped quotes are tracked, so the object is
+ * cut at its real end. Only the first object is reported. Not thread-safe.
+ */
+public final class StreamingJsonExtractor {
+    private final StringBuilder object = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private String complete;
+
+    /**
+     * Consumes the next piece of output and returns the object if it completed
+     * within {@code delta}, otherwise {@code null}.
+     */
+    public String feed(CharSequence delta) {
+        if (complete != null) {
+            return null;
+        }
+        for (int i = 0; i < delta.length(); i++) {
+            char c = delta.charAt(i);
+            if (depth == 0) {
+                if (c != '{') {
+                    continue;
+                }
+                object.setLength(0);
+            }
+            object.append(c);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if ((c == '}' || c == ']') && --depth == 0) {
+                complete = object.toString();
+                return complete;
+            }
+        }
+        return null;
+    }
+
+    /** The completed object, or {@code null} while it is still open or not started. */
+    public String json() {
+        return complete;
+    }
+}
@@ -0,0 +1,279 @@
+package com.midscene.core;
+
+import com.midscene.shared.JsonStrings;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * JSON request body for the model service caller whose screenshots are base64-encoded
+ * while the body is sent. The TS path builds {@code bytes -> base64 -> data URL -> JSON}
+ * as whole strings ({@code createImgBase64ByFormat}, {@code preProcessImageUrl}); here an
+ * image part keeps a reference to its bytes or file and is encoded chunk by chunk as
+ * {@link HttpRequest.BodyPublisher} pulls, so each in-flight request holds the
+ * screenshot once plus a fixed-size buffer.
+ *
+ * <p>The body is assembled from raw JSON fragments, escaped strings and image parts:
+ *
+ * <pre>{@code
+ * StreamingRequestBody body = StreamingRequestBody.builder()
+ *         .json("{\"model\":").string(modelName)
+ *         .json(",\"messages\":[{\"role\":\"user\",\"content\":[{\"type\":\"image_url\",\"image_url\":{\"url\":")
+ *         .image("png", screenshot)
+ *         .json("}}]}]}")
+ *         .build();
+ * }</pre>
+ *
+ * <p>The content length is known up front and the body can be replayed, e.g. on retry.
+ */
+public final class StreamingRequestBody {
+    /** Source bytes per encoded chunk; a multiple of 3 so chunks need no padding. */
+    static final int CHUNK_SOURCE_BYTES = 3 * 16 * 1024;
+
+    private final List<Part> parts;
+    private final long contentLength;
+
+    private StreamingRequestBody(List<Part> parts) {
+        this.parts = List.copyOf(parts);
+        long length = 0;
+        for (Part part : parts) {
+            length += part.length();
+        }
+        this.contentLength = length;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long contentLength() {
+        return contentLength;
+    }
+
+    /** Publisher with a fixed content length; every subscription re-reads the parts. */
+    public HttpRequest.BodyPublisher publisher() {
+        return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(this::openStream), contentLength);
+    }
+
+    public InputStream openStream() {
+        return new BodyStream(parts);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = openStream()) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Collects body parts in order.
+     */
+    public static final class Builder {
+        private final List<Part> parts = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /** Appends raw JSON text as-is. */
+        public Builder json(String fragment) {
+            parts.add(new Literal(fragment.getBytes(StandardCharsets.UTF_8)));
+            return this;
+        }
+
+        /** Appends a quoted, escaped JSON string. */
+        public Builder string(String value) {
+            parts.add(new Literal(JsonStrings.quote(value).getBytes(StandardCharsets.UTF_8)));
+            return this;
+        }
+
+        /** Appends {@code "data:image/<format>;base64,..."} streamed from {@code bytes}. */
+        public Builder image(String format, byte[] bytes) {
+            Objects.requireNonNull(bytes, "bytes");
+            parts.add(new Base64Part(dataUrlPrefix(format), bytes.length, () -> new ByteArrayInputStream(bytes)));
+            return this;
+        }
+
+        /**
+         * Appends {@code bytes} as a quoted base64 string without a data URL prefix,
+         * the form Anthropic's image {@code source.data} expects.
+         */
+        public Builder base64(byte[] bytes) {
+            Objects.requireNonNull(bytes, "bytes");
+            parts.add(new Base64Part(new byte[] {'"'}, bytes.length, () -> new ByteArrayInputStream(bytes)));
+            return this;
+        }
+
+        /**
+         * Appends a file as a data URL, typed by extension like {@code localImg2Base64}.
+         * The file is read while the body is sent, never fully loaded.
+         */
+        public Builder image(Path file) {
+            long size;
+            try {
+                size = Files.size(file);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to read image " + file, ex);
+            }
+            String name = file.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            String type = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+            String format = type.equals("svg") ? "svg+xml" : type.isEmpty() ? "jpg" : type;
+            parts.add(new Base64Part(dataUrlPrefix(format), size, () -> Files.newInputStream(file)));
+            return this;
+        }
+
+        /**
+         * Appends an image reference as {@code preProcessImageUrl} would pass it on:
+         * data URLs and http(s) URLs are written as strings, anything else is treated
+         * as a local file and streamed.
+         */
+        public Builder imageUrl(String url) {
+            Objects.requireNonNull(url, "url");
+            if (url.startsWith("data:") || url.startsWith("http://") || url.startsWith("https://")) {
+                return string(url);
+            }
+            return image(Path.of(url));
+        }
+
+        public StreamingRequestBody build() {
+            return new StreamingRequestBody(parts);
+        }
+
+        private static byte[] dataUrlPrefix(String format) {
+            Objects.requireNonNull(format, "format");
+            return ("\"data:image/" + format + ";base64,").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private interface Part {
+        long length();
+    }
+
+    private record Literal(byte[] bytes) implements Part {
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+
+    /** Opening quote and prefix, base64 of the source, closing quote. */
+    private record Base64Part(byte[] prefix, long sourceLength, Source source) implements Part {
+        @Override
+        public long length() {
+            return prefix.length + 4 * ((sourceLength + 2) / 3) + 1;
+        }
+    }
+
+    /**
+     * Pulls parts in order. Base64 parts read {@link #CHUNK_SOURCE_BYTES} at a time and
+     * encode into one reused output buffer.
+     */
+    private static final class BodyStream extends InputStream {
+        private static final byte[] QUOTE = {'"'};
+
+        private final List<Part> parts;
+        private final byte[] chunk = new byte[CHUNK_SOURCE_BYTES];
+        private final byte[] encoded = new byte[CHUNK_SOURCE_BYTES / 3 * 4];
+        private int partIndex;
+        private InputStream source;
+        private byte[] current = new byte[0];
+        private int currentLength;
+        private int position;
+        // 0: next part, 1: streaming a base64 source, 2: closing quote pending.
+        private int state;
+
+        private BodyStream(List<Part> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, target.length);
+            if (length == 0) {
+                return 0;
+            }
+            while (position == currentLength) {
+                if (!advance()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(length, currentLength - position);
+            System.arraycopy(current, position, target, offset, n);
+            position += n;
+            return n;
+        }
+
+        private boolean advance() throws IOException {
+            if (state == 1) {
+                int read = source.readNBytes(chunk, 0, chunk.length);
+                if (read > 0) {
+                    byte[] input = read == chunk.length ? chunk : Arrays.copyOf(chunk, read);
+                    show(encoded, Base64.getEncoder().encode(input, encoded));
+                    return true;
+                }
+                source.close();
+                source = null;
+                state = 2;
+            }
+            if (state == 2) {
+                state = 0;
+                show(QUOTE, 1);
+                return true;
+            }
+            if (partIndex == parts.size()) {
+                return false;
+            }
+            Part part = parts.get(partIndex++);
+            if (part instanceof Literal literal) {
+                show(literal.bytes(), literal.bytes().length);
+            } else {
+                Base64Part image = (Base64Part) part;
+                source = image.source().open();
+                state = 1;
+                show(image.prefix(), image.prefix().length);
+            }
+            return true;
+        }
+
+        private void show(byte[] bytes, int length) {
+            current = bytes;
+            currentLength = length;
+            position = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (source != null) {
+                source.close();
+                source = null;
+            }
+            partIndex = parts.size();
+            state = 0;
+            currentLength = position;
+        }
+    }
+}
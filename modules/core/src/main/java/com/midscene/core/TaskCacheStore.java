@@ -0,0 +1,506 @@
+package com.midscene.core;
+
+import com.midscene.shared.EnvKeys;
+import com.midscene.shared.EnvironmentUtils;
+import com.midscene.shared.MidsceneEvents;
+import com.midscene.shared.RunDirectoryHelper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent plan/locate cache, the JVM counterpart of the TS {@code TaskCache}.
+ * Entries are appended to segment files under
+ * {@link RunDirectoryHelper.SubDirectory#CACHE} and found through an in-memory hash
+ * index keyed on cache type plus normalized prompt, so an update is one append and a
+ * lookup is one positional read instead of a YAML parse and rewrite.
+ *
+ * <p>Records carry a CRC so a torn write at the tail is detected and truncated on
+ * open. {@code fsync} is batched by record count and elapsed time. Segments that are
+ * mostly overwritten entries are compacted one at a time by copying their live records
+ * into the active segment. Reads never take the writer lock.
+ */
+public final class TaskCacheStore implements AutoCloseable {
+    static final String SEGMENT_SUFFIX = ".seg";
+    private static final int DEFAULT_MAX_FILENAME_LENGTH = 200;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+
+    /**
+     * Cache entry kinds, matching {@code PlanningCache} and {@code LocateCache}.
+     */
+    public enum Type {
+        PLAN,
+        LOCATE
+    }
+
+    /**
+     * Tuning knobs for segment size, fsync batching and compaction.
+     */
+    public record Options(long maxSegmentBytes, int syncEveryRecords, long syncIntervalMillis,
+                          double compactionThreshold) {
+        public static final Options DEFAULTS = new Options(8L << 20, 64, 1000, 0.5);
+
+        public Options {
+            if (maxSegmentBytes <= 0 || syncEveryRecords <= 0 || syncIntervalMillis < 0) {
+                throw new IllegalArgumentException("Invalid task cache options");
+            }
+            if (compactionThreshold <= 0 || compactionThreshold > 1) {
+                throw new IllegalArgumentException("compactionThreshold must be in (0, 1]: " + compactionThreshold);
+            }
+        }
+    }
+
+    private record Key(Type type, String prompt) {}
+
+    private record Location(Segment segment, long offset, int length) {}
+
+    private final Path directory;
+    private final Options options;
+    private final Map<Key, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private Segment active;
+    private int unsyncedRecords;
+    private long lastSyncNanos = System.nanoTime();
+    private volatile boolean closed;
+
+    private TaskCacheStore(Path directory, Options options) throws IOException {
+        this.directory = directory;
+        this.options = options;
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = new Segment(id, file);
+            segments.put(id, segment);
+            replay(segment);
+        }
+        active = segments.isEmpty() ? newSegment(1) : segments.lastEntry().getValue();
+    }
+
+    /**
+     * Opens the cache named {@code cacheId} inside the run directory's cache folder.
+     */
+    public static TaskCacheStore open(String cacheId) {
+        Path directory = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.CACHE)
+                .resolve(safeCacheId(cacheId));
+        return open(directory, Options.DEFAULTS);
+    }
+
+    public static TaskCacheStore open(Path directory, Options options) {
+        Objects.requireNonNull(directory, "directory");
+        Objects.requireNonNull(options, "options");
+        try {
+            return new TaskCacheStore(directory, options);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open task cache at " + directory, ex);
+        }
+    }
+
+    /**
+     * Mirrors the TS cache id handling: illegal path characters become dashes and ids
+     * longer than {@link EnvKeys#MIDSCENE_CACHE_MAX_FILENAME_LENGTH} bytes are shortened
+     * to a prefix plus a hash.
+     */
+    static String safeCacheId(String cacheId) {
+        Objects.requireNonNull(cacheId, "cacheId");
+        if (cacheId.isBlank()) {
+            throw new IllegalArgumentException("cacheId is required");
+        }
+        String safe = cacheId.replaceAll("[\\\\/:*?\"<>|\\s]", "-");
+        int maxLength = EnvironmentUtils.getEnv(EnvKeys.MIDSCENE_CACHE_MAX_FILENAME_LENGTH)
+                .flatMap(EnvironmentUtils::toInteger)
+                .filter(value -> value > 0)
+                .orElse(DEFAULT_MAX_FILENAME_LENGTH);
+        if (safe.getBytes(StandardCharsets.UTF_8).length <= maxLength) {
+            return safe;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(safe.getBytes(StandardCharsets.UTF_8));
+            return safe.substring(0, Math.min(32, safe.length())) + "-" + HexFormat.of().formatHex(digest, 0, 5);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Trims the prompt and collapses whitespace runs, so prompts that only differ in
+     * formatting share one entry.
+     */
+    static String normalizePrompt(String prompt) {
+        Objects.requireNonNull(prompt, "prompt");
+        StringBuilder normalized = new StringBuilder(prompt.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < prompt.length(); i++) {
+            char c = prompt.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    public Optional<String> get(Type type, String prompt) {
+        Key key = new Key(Objects.requireNonNull(type, "type"), normalizePrompt(prompt));
+        MidsceneEvents.CacheLookupEvent event = MidsceneEvents.beginCacheLookup();
+        Optional<String> value = lookup(key);
+        if (event != null) {
+            event.finish("task", type.name(), key.prompt(), value.isPresent());
+        }
+        return value;
+    }
+
+    private Optional<String> lookup(Key key) {
+        while (true) {
+            Location location = index.get(key);
+            if (location == null) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(readValue(location));
+            } catch (ClosedByInterruptException ex) {
+                // Our own interrupt closed the shared channel; the next read reopens it.
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reading task cache entry", ex);
+            } catch (ClosedChannelException ex) {
+                // Either the segment was compacted away after the lookup and the index
+                // already points at the copy, or another reader's interrupt closed the
+                // channel and it is reopened on the next read. Look again either way.
+                ensureOpen();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to read task cache entry", ex);
+            }
+        }
+    }
+
+    public void put(Type type, String prompt, String value) {
+        Objects.requireNonNull(type, "type");
+        Objects.requireNonNull(value, "value");
+        Key key = new Key(type, normalizePrompt(prompt));
+        MidsceneEvents.RunDirectoryWriteEvent event = MidsceneEvents.beginRunDirectoryWrite();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLock.lock();
+        try {
+            ensureOpen();
+            append(key, bytes);
+            maybeSync();
+            if (active.size >= options.maxSegmentBytes()) {
+                roll();
+                compactStep();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write task cache entry", ex);
+        } finally {
+            writeLock.unlock();
+        }
+        if (event != null) {
+            event.finish("cache", directory.toString(), bytes.length);
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /** Forces every appended record to disk. */
+    public void flush() {
+        writeLock.lock();
+        try {
+            ensureOpen();
+            sync();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to sync task cache", ex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Compacts the sealed segment with the most overwritten data, if it is above the
+     * configured threshold. Returns whether a segment was compacted.
+     */
+    public boolean compactStep() {
+        writeLock.lock();
+        try {
+            ensureOpen();
+            Segment candidate = null;
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.garbageRatio() >= options.compactionThreshold()
+                        && (candidate == null || segment.garbageRatio() > candidate.garbageRatio())) {
+                    candidate = segment;
+                }
+            }
+            if (candidate == null) {
+                return false;
+            }
+            compact(candidate);
+            return true;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to compact task cache", ex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            sync();
+            closed = true;
+            for (Segment segment : segments.values()) {
+                segment.retire();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to close task cache", ex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void append(Key key, byte[] value) throws IOException {
+        byte[] prompt = key.prompt().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 1 + Integer.BYTES + prompt.length + value.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        record.putInt(bodyLength);
+        record.putInt(0);
+        record.put((byte) key.type().ordinal());
+        record.putInt(prompt.length);
+        record.put(prompt);
+        record.put(value);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER_BYTES, bodyLength);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        record.flip();
+
+        long offset = active.size;
+        while (record.hasRemaining()) {
+            try {
+                active.channel().write(record, offset + record.position());
+            } catch (ClosedByInterruptException ex) {
+                throw ex;
+            } catch (AsynchronousCloseException ex) {
+                // A reader was interrupted mid-read and closed the channel; rewrite
+                // the remainder through the reopened one.
+            }
+        }
+        active.size += record.capacity();
+        active.liveBytes += record.capacity();
+        Location previous = index.put(key, new Location(active, offset, record.capacity()));
+        if (previous != null) {
+            previous.segment().liveBytes -= previous.length();
+        }
+        unsyncedRecords++;
+    }
+
+    private void maybeSync() throws IOException {
+        long elapsed = System.nanoTime() - lastSyncNanos;
+        if (unsyncedRecords >= options.syncEveryRecords()
+                || elapsed >= TimeUnit.MILLISECONDS.toNanos(options.syncIntervalMillis())) {
+            sync();
+        }
+    }
+
+    private void sync() throws IOException {
+        if (unsyncedRecords > 0) {
+            while (true) {
+                try {
+                    active.channel().force(false);
+                    break;
+                } catch (ClosedByInterruptException ex) {
+                    throw ex;
+                } catch (AsynchronousCloseException ex) {
+                    // Closed by an interrupted reader; force the reopened channel.
+                }
+            }
+            unsyncedRecords = 0;
+        }
+        lastSyncNanos = System.nanoTime();
+    }
+
+    private void roll() throws IOException {
+        sync();
+        active = newSegment(active.id + 1);
+    }
+
+    private void compact(Segment segment) throws IOException {
+        List<Map.Entry<Key, Location>> live = new ArrayList<>();
+        for (Map.Entry<Key, Location> entry : index.entrySet()) {
+            if (entry.getValue().segment() == segment) {
+                live.add(entry);
+            }
+        }
+        for (Map.Entry<Key, Location> entry : live) {
+            append(entry.getKey(), readValueBytes(entry.getValue()));
+        }
+        sync();
+        segments.remove(segment.id);
+        segment.retire();
+        Files.deleteIfExists(segment.file);
+    }
+
+    private Segment newSegment(int id) throws IOException {
+        Segment segment = new Segment(id, directory.resolve(String.format(Locale.ROOT, "%08d%s", id, SEGMENT_SUFFIX)));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void replay(Segment segment) throws IOException {
+        FileChannel channel = segment.channel();
+        long fileSize = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (offset + HEADER_BYTES <= fileSize) {
+            header.clear();
+            readFully(channel, header, offset);
+            int bodyLength = header.getInt(0);
+            int expectedCrc = header.getInt(Integer.BYTES);
+            if (bodyLength < 1 + Integer.BYTES || offset + HEADER_BYTES + bodyLength > fileSize) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            readFully(channel, body, offset + HEADER_BYTES);
+            CRC32C crc = new CRC32C();
+            crc.update(body.array());
+            if ((int) crc.getValue() != expectedCrc) {
+                break;
+            }
+            int typeOrdinal = body.get(0);
+            int promptLength = body.getInt(1);
+            if (typeOrdinal < 0 || typeOrdinal >= Type.values().length || promptLength < 0
+                    || 1 + Integer.BYTES + promptLength > bodyLength) {
+                break;
+            }
+            String prompt = new String(body.array(), 1 + Integer.BYTES, promptLength, StandardCharsets.UTF_8);
+            int length = HEADER_BYTES + bodyLength;
+            Location previous = index.put(new Key(Type.values()[typeOrdinal], prompt),
+                    new Location(segment, offset, length));
+            if (previous != null) {
+                previous.segment().liveBytes -= previous.length();
+            }
+            segment.liveBytes += length;
+            offset += length;
+        }
+        if (offset < fileSize) {
+            // Torn or corrupt tail from a crash mid-append: drop it.
+            channel.truncate(offset);
+            channel.force(true);
+        }
+        segment.size = offset;
+    }
+
+    private String readValue(Location location) throws IOException {
+        return new String(readValueBytes(location), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readValueBytes(Location location) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(location.length());
+        readFully(location.segment().channel(), record, location.offset());
+        int promptLength = record.getInt(HEADER_BYTES + 1);
+        int valueOffset = HEADER_BYTES + 1 + Integer.BYTES + promptLength;
+        byte[] value = new byte[location.length() - valueOffset];
+        record.get(valueOffset, value);
+        return value;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of task cache segment");
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Task cache is closed: " + directory);
+        }
+    }
+
+    /**
+     * One segment file. Interrupting a thread blocked on a {@link FileChannel} closes the
+     * channel for every user, so {@link #channel()} reopens it unless the segment was
+     * retired by compaction or {@link #close()}.
+     */
+    private static final class Segment {
+        private final int id;
+        private final Path file;
+        private volatile FileChannel channel;
+        private boolean retired;
+        private long size;
+        private long liveBytes;
+
+        private Segment(int id, Path file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = openChannel(file);
+        }
+
+        private FileChannel channel() throws IOException {
+            FileChannel current = channel;
+            if (current.isOpen()) {
+                return current;
+            }
+            synchronized (this) {
+                if (!retired && !channel.isOpen()) {
+                    channel = openChannel(file);
+                }
+                return channel;
+            }
+        }
+
+        private synchronized void retire() throws IOException {
+            retired = true;
+            channel.close();
+        }
+
+        private static FileChannel openChannel(Path file) throws IOException {
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+
+        private double garbageRatio() {
+            return size == 0 ? 0 : 1 - (double) liveBytes / size;
+        }
+    }
+}
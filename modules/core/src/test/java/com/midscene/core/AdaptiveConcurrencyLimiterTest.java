@@ -0,0 +1,154 @@
+package com.midscene.core;
+
+import com.midscene.shared.EnvValues;
+import com.midscene.shared.ModelConfigManager;
+import com.midscene.shared.ModelIntent;
+import com.midscene.shared.TestSupport;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class AdaptiveConcurrencyLimiterTest {
+
+    static void run() throws Exception {
+        growsAdditivelyWhileUsed();
+        overloadBacksOffOncePerBurst();
+        latencyInflationBacksOff();
+        mixedLatencyKeepsLimit();
+        waitsForFreePermit();
+        configuration();
+    }
+
+    private static void growsAdditivelyWhileUsed() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .initialLimit(2).maxLimit(3).clock(now::get).build();
+        for (int i = 0; i < 10; i++) {
+            AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+            AdaptiveConcurrencyLimiter.Permit second = limiter.acquire();
+            now.addAndGet(100);
+            first.onSuccess();
+            second.onSuccess();
+        }
+        TestSupport.assertEquals(3, limiter.limit(), "grows up to the max");
+        TestSupport.assertEquals(20L, limiter.stats().successes(), "successes counted");
+
+        AdaptiveConcurrencyLimiter idle = AdaptiveConcurrencyLimiter.builder()
+                .initialLimit(4).clock(now::get).build();
+        for (int i = 0; i < 10; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = idle.acquire();
+            now.addAndGet(100);
+            permit.onSuccess();
+        }
+        TestSupport.assertEquals(4, idle.limit(), "unused headroom does not grow");
+    }
+
+    private static void overloadBacksOffOncePerBurst() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .initialLimit(4).clock(now::get).build();
+        AdaptiveConcurrencyLimiter.Permit a = limiter.acquire();
+        AdaptiveConcurrencyLimiter.Permit b = limiter.acquire();
+        AdaptiveConcurrencyLimiter.Permit c = limiter.acquire();
+        now.addAndGet(100);
+        a.onOverload();
+        b.onOverload();
+        TestSupport.assertEquals(2, limiter.limit(), "one cut for calls started before it");
+        c.close();
+        c.onOverload();
+        TestSupport.assertEquals(2, limiter.limit(), "released permit ignores later outcomes");
+        AdaptiveConcurrencyLimiter.Stats stats = limiter.stats();
+        TestSupport.assertEquals(2L, stats.overloads(), "overloads counted");
+        TestSupport.assertEquals(0, stats.inFlight(), "all permits released");
+
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(100);
+            limiter.acquire().onOverload();
+        }
+        TestSupport.assertEquals(1, limiter.limit(), "never below the min");
+    }
+
+    private static void latencyInflationBacksOff() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .initialLimit(4).clock(now::get).build();
+        for (int i = 0; i < 64; i++) {
+            AdaptiveConcurrencyLimiter.Permit fast = limiter.acquire();
+            now.addAndGet(100);
+            fast.onSuccess();
+        }
+        TestSupport.assertEquals(100L, limiter.stats().baselineNanos(), "baseline learned");
+
+        AdaptiveConcurrencyLimiter.Permit slow = limiter.acquire();
+        now.addAndGet(500);
+        slow.onSuccess();
+        TestSupport.assertEquals(4, limiter.limit(), "one slow call does not cut the limit");
+
+        for (int i = 0; i < 3; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+            now.addAndGet(500);
+            permit.onSuccess();
+        }
+        AdaptiveConcurrencyLimiter.Stats stats = limiter.stats();
+        TestSupport.assertEquals(2, stats.limit(), "sustained slow calls back off");
+        TestSupport.assertEquals(1L, stats.latencyBackoffs(), "latency backoff counted");
+        TestSupport.assertTrue(stats.baselineNanos() > 100, "baseline follows slower samples");
+    }
+
+    private static void mixedLatencyKeepsLimit() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder()
+                .initialLimit(2).maxLimit(2).clock(now::get).build();
+        // Locate, plan and assert calls of one model interleaved: up to 8x apart.
+        long[] latencies = {100, 800, 150, 400, 90, 650, 120, 300};
+        for (int round = 0; round < 50; round++) {
+            for (long latency : latencies) {
+                AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+                now.addAndGet(latency);
+                permit.onSuccess();
+            }
+        }
+        AdaptiveConcurrencyLimiter.Stats stats = limiter.stats();
+        TestSupport.assertEquals(0L, stats.latencyBackoffs(), "normal variance never backs off");
+        TestSupport.assertEquals(2, stats.limit(), "limit stays put");
+    }
+
+    private static void waitsForFreePermit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.builder().initialLimit(1).build();
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<AdaptiveConcurrencyLimiter.Permit> waiting = executor.submit(limiter::acquire);
+            Thread.sleep(50);
+            TestSupport.assertFalse(waiting.isDone(), "blocked at the limit");
+            held.close();
+            waiting.get(5, TimeUnit.SECONDS).close();
+        }
+        TestSupport.assertEquals(0, limiter.stats().inFlight(), "released");
+    }
+
+    private static void configuration() {
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveConcurrencyLimiter.builder().maxLimit(0), "max must be positive");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveConcurrencyLimiter.builder().backoffRatio(1), "ratio must be below 1");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> AdaptiveConcurrencyLimiter.builder().minLimit(5).maxLimit(2).build(), "min above max");
+        TestSupport.assertEquals(2, AdaptiveConcurrencyLimiter.builder().initialLimit(8).maxLimit(2).build().limit(),
+                "initial clamped to max");
+
+        ModelConfigManager models = ModelConfigManager.fromEnv(EnvValues.of(Map.of("OPENAI_API_KEY", "sk-test")));
+        TestSupport.assertEquals(AdaptiveConcurrencyLimiter.DEFAULT_INITIAL_LIMIT,
+                AdaptiveConcurrencyLimiter.forModel(models.get(ModelIntent.DEFAULT)).limit(), "default start");
+        models = ModelConfigManager.fromEnv(EnvValues.of(Map.of("OPENAI_API_KEY", "sk-test",
+                "MIDSCENE_MODEL_MAX_CONCURRENCY", "2")));
+        TestSupport.assertEquals(2, AdaptiveConcurrencyLimiter.forModel(models.get(ModelIntent.DEFAULT)).limit(),
+                "start capped by the configured max");
+        models = ModelConfigManager.fromEnv(EnvValues.of(Map.of("OPENAI_API_KEY", "sk-test",
+                "MIDSCENE_MODEL_INITIAL_CONCURRENCY", "10")));
+        TestSupport.assertEquals(10, AdaptiveConcurrencyLimiter.forModel(models.get(ModelIntent.DEFAULT)).limit(),
+                "configured start");
+    }
+}
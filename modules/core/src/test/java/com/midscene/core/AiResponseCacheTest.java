@@ -0,0 +1,96 @@
+package com.midscene.core;
+
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.EnvKeys;
+import com.midscene.shared.TestSupport;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class AiResponseCacheTest {
+
+    static void run() {
+        keyIsContentAddressed();
+        hitsMissesAndTtl();
+        evictsLeastRecentlyUsedBySize();
+        getOrLoad();
+        fromConfig();
+    }
+
+    private static void keyIsContentAddressed() {
+        byte[] screenshot = {1, 2, 3};
+        AiResponseCache.Key key = AiResponseCache.key(Map.of("model", "gpt-4o", "baseUrl", "x"), "locate login", screenshot);
+        TestSupport.assertEquals(key,
+                AiResponseCache.key(Map.of("baseUrl", "x", "model", "gpt-4o"), "locate login", new byte[] {1, 2, 3}),
+                "config order and array identity do not matter");
+        TestSupport.assertFalse(key.equals(AiResponseCache.key(Map.of("model", "gpt-4o", "baseUrl", "x"),
+                "locate login", new byte[] {1, 2, 4})), "image bytes are part of the key");
+        TestSupport.assertFalse(AiResponseCache.key(Map.of(), "ab", new byte[] {'c'})
+                .equals(AiResponseCache.key(Map.of(), "a", new byte[] {'b', 'c'})), "parts are length-delimited");
+    }
+
+    private static void hitsMissesAndTtl() {
+        AtomicLong now = new AtomicLong();
+        AiResponseCache cache = new AiResponseCache(1 << 20, 1000, 4, now::get);
+        AiResponseCache.Key key = AiResponseCache.key(Map.of(), "plan");
+        TestSupport.assertEquals(Optional.empty(), cache.get(key), "empty cache misses");
+        cache.put(key, "{\"actions\":[]}");
+        TestSupport.assertEquals(Optional.of("{\"actions\":[]}"), cache.get(key), "hit after put");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        TestSupport.assertEquals(Optional.empty(), cache.get(key), "expired after ttl");
+        AiResponseCache.Stats stats = cache.stats();
+        TestSupport.assertEquals(1L, stats.hits(), "hit count");
+        TestSupport.assertEquals(2L, stats.misses(), "miss count");
+        TestSupport.assertEquals(1L, stats.expirations(), "expiration count");
+        TestSupport.assertEquals(0, stats.entries(), "expired entry removed");
+        TestSupport.assertEquals(0L, stats.bytes(), "bytes released");
+    }
+
+    private static void evictsLeastRecentlyUsedBySize() {
+        AiResponseCache cache = new AiResponseCache(2000, 0, 1);
+        String value = "x".repeat(300);
+        AiResponseCache.Key a = AiResponseCache.key(Map.of(), "a");
+        AiResponseCache.Key b = AiResponseCache.key(Map.of(), "b");
+        AiResponseCache.Key c = AiResponseCache.key(Map.of(), "c");
+        cache.put(a, value);
+        cache.put(b, value);
+        cache.get(a);
+        cache.put(c, value);
+        TestSupport.assertTrue(cache.get(a).isPresent(), "recently used entry kept");
+        TestSupport.assertTrue(cache.get(b).isEmpty(), "least recently used entry evicted");
+        TestSupport.assertTrue(cache.get(c).isPresent(), "new entry kept");
+        TestSupport.assertEquals(1L, cache.stats().evictions(), "eviction count");
+        TestSupport.assertTrue(cache.stats().bytes() <= 2000, "byte budget respected");
+
+        cache.put(AiResponseCache.key(Map.of(), "huge"), "y".repeat(5000));
+        TestSupport.assertEquals(2, cache.stats().entries(), "oversized values are not cached");
+    }
+
+    private static void getOrLoad() {
+        AiResponseCache cache = new AiResponseCache(1 << 20, 0, 8);
+        AtomicInteger calls = new AtomicInteger();
+        AiResponseCache.Key key = AiResponseCache.key(Map.of("model", "m"), "describe", new byte[] {9});
+        for (int i = 0; i < 3; i++) {
+            TestSupport.assertEquals("answer", cache.getOrLoad(key, k -> {
+                calls.incrementAndGet();
+                return "answer";
+            }), "loaded value returned");
+        }
+        TestSupport.assertEquals(1, calls.get(), "loader runs once");
+        cache.invalidate(key);
+        TestSupport.assertTrue(cache.get(key).isEmpty(), "invalidated");
+    }
+
+    private static void fromConfig() {
+        ConfigManager config = new ConfigManager();
+        config.set(EnvKeys.MIDSCENE_AI_CACHE_MAX_BYTES, "1000");
+        config.set(EnvKeys.MIDSCENE_AI_CACHE_STRIPES, "1");
+        AiResponseCache cache = AiResponseCache.fromConfig(config);
+        cache.put(AiResponseCache.key(Map.of(), "big"), "z".repeat(1000));
+        TestSupport.assertEquals(0, cache.stats().entries(), "configured byte budget applied");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> new AiResponseCache(0, 0, 1),
+                "non-positive budget rejected");
+    }
+}
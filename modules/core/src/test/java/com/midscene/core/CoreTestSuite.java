@@ -0,0 +1,35 @@
+package com.midscene.core;
+
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the core module checks through Maven's JUnit-based execution, following the
+ * harness used by {@code midscene-shared}.
+ */
+class CoreTestSuite {
+
+    @Test
+    void runAllSuites() throws Exception {
+        // Keep run output (debug logs, caches) out of the module directory.
+        String originalUserDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", Files.createTempDirectory("midscene-core-tests").toString());
+        try {
+            ElementStoreTest.run();
+            SpatialIndexTest.run();
+            TaskCacheStoreTest.run();
+            AiResponseCacheTest.run();
+            ScreenshotDifferTest.run();
+            StreamingRequestBodyTest.run();
+            ScreenshotStoreTest.run();
+            SingleFlightTest.run();
+            AdaptiveConcurrencyLimiterTest.run();
+            ModelRequestCoordinatorTest.run();
+            StreamingJsonExtractorTest.run();
+            ModelClientTest.run();
+            PipelinedScriptPlayerTest.run();
+        } finally {
+            System.setProperty("user.dir", originalUserDir);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.midscene.core;
+
+import com.midscene.shared.ElementTree;
+import com.midscene.shared.JsonReader;
+import com.midscene.shared.TestSupport;
+import java.util.ArrayList;
+import java.util.List;
+
+final class ElementStoreTest {
+
+    static void run() {
+        for (ElementStore.Storage storage : ElementStore.Storage.values()) {
+            checkStore(sample(storage), storage);
+        }
+        fromElementTree();
+        rejectsMisuse();
+    }
+
+    static ElementStore sample(ElementStore.Storage storage) {
+        ElementStore.Builder builder = ElementStore.builder(storage);
+        builder.beginContainer();
+        builder.beginElement("page", "CONTAINER Node", null, 0, 0, 1280, 720, true);
+        builder.beginElement("button", "BUTTON Node", "Submit", 100, 100, 80, 30, true);
+        builder.attribute("htmlTagName", "<button>").attribute("type", "submit");
+        builder.beginElement("label", "TEXT Node", "Submit", 110, 105, 40, 20, true);
+        builder.endNode();
+        builder.endNode();
+        builder.beginElement("hidden", "TEXT Node", "Tooltip", 105, 102, 10, 10, false);
+        builder.endNode();
+        builder.endNode();
+        builder.endNode();
+        return builder.build();
+    }
+
+    private static void checkStore(ElementStore store, ElementStore.Storage storage) {
+        TestSupport.assertEquals(storage, store.storage(), "storage kind");
+        TestSupport.assertEquals(5, store.size(), "node count");
+        TestSupport.assertEquals(4, store.elementCount(), "element count");
+        TestSupport.assertFalse(store.hasElement(0), "root container");
+        TestSupport.assertEquals(4, store.descendantCount(0), "root descendants");
+        TestSupport.assertEquals(2, store.parent(3), "label parent");
+        TestSupport.assertTrue(store.isAncestor(1, 3), "page contains label");
+        TestSupport.assertFalse(store.isAncestor(2, 4), "button does not contain hidden");
+
+        List<String> ids = new ArrayList<>();
+        store.forEachDescendant(1, node -> ids.add(store.id(node)));
+        TestSupport.assertEquals(List.of("button", "label", "hidden"), ids, "descendant order");
+        TestSupport.assertEquals(2L, store.descendants(1).filter(node -> "TEXT Node".equals(store.nodeType(node))).count(),
+                "descendant stream");
+
+        TestSupport.assertEquals("submit", store.attribute(2, "type"), "attribute value");
+        TestSupport.assertEquals(null, store.attribute(3, "type"), "missing attribute");
+        TestSupport.assertEquals(80f, store.width(2), "rect column");
+
+        TestSupport.assertEquals(3, store.hitTest(120, 110), "smallest element wins");
+        TestSupport.assertEquals(2, store.hitTest(175, 125), "button outside label");
+        TestSupport.assertEquals(2, store.hitTest(106, 103), "invisible element skipped");
+        TestSupport.assertEquals(ElementStore.NONE, store.hitTest(2000, 2000), "outside every element");
+        TestSupport.assertTrue(store.columnBytes() > 0, "column footprint");
+    }
+
+    private static void fromElementTree() {
+        ElementTree tree = ElementTree.read(JsonReader.of("{\"node\": null, \"children\": ["
+                + "{\"node\": {\"id\": \"a\", \"nodeType\": \"TEXT Node\", \"content\": \"A\","
+                + " \"attributes\": {\"role\": \"link\"},"
+                + " \"rect\": {\"left\": 1, \"top\": 2, \"width\": 3, \"height\": 4}}, \"children\": []},"
+                + "{\"node\": null, \"children\": []}]}"));
+        ElementStore store = ElementStore.of(tree, ElementStore.Storage.OFF_HEAP);
+        TestSupport.assertEquals(tree.size(), store.size(), "same node count");
+        TestSupport.assertEquals("a", store.id(1), "element copied");
+        TestSupport.assertEquals("link", store.attribute(1, "role"), "attributes copied");
+        TestSupport.assertEquals(1, store.hitTest(2, 3), "hit test on copied tree");
+        TestSupport.assertEquals(3, store.subtreeEnd(0), "structure copied");
+    }
+
+    private static void rejectsMisuse() {
+        TestSupport.assertThrows(IllegalStateException.class, () -> {
+            ElementStore.Builder builder = ElementStore.builder(ElementStore.Storage.HEAP);
+            builder.beginContainer();
+            builder.build();
+        }, "unclosed node");
+        TestSupport.assertThrows(IllegalStateException.class, () -> {
+            ElementStore.Builder builder = ElementStore.builder(ElementStore.Storage.HEAP);
+            builder.beginContainer();
+            builder.beginContainer();
+            builder.endNode();
+            builder.attribute("late", "value");
+        }, "attribute after child");
+    }
+}
@@ -0,0 +1,303 @@
+package com.midscene.core;
+
+import com.midscene.shared.EnvValues;
+import com.midscene.shared.ModelConfig;
+import com.midscene.shared.ModelConfigManager;
+import com.midscene.shared.ModelIntent;
+import com.midscene.shared.TestSupport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+final class ModelClientTest {
+    private static final byte[] SCREENSHOT = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+
+    static void run() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            openaiCall(server, base);
+            openaiStreamDeliversJsonEarly(server, base);
+            anthropicStream(server, base);
+            azureEndpoint(server, base);
+            errorsCarryStatus(server, base);
+            coordinatedCalls(server, base);
+            unsupportedSettings();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void openaiCall(HttpServer server, String base) {
+        Recorded recorded = new Recorded();
+        server.createContext("/v1/chat/completions", exchange -> {
+            recorded.capture(exchange);
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"```json\\n{\\\"id\\\":\\\"a1\\\"}\\n```\"}}],"
+                    + "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":3,\"total_tokens\":15}}");
+        });
+        ModelConfig config = model(Map.of("MIDSCENE_MODEL_NAME", "qwen-vl-max", "OPENAI_BASE_URL", base + "/v1/",
+                "OPENAI_API_KEY", "sk-test", "MIDSCENE_USE_QWEN_VL", "1"));
+        ModelClient client = ModelClient.builder(config).maxTokens(512).build();
+        TestSupport.assertEquals(ModelClient.Style.OPENAI, client.style(), "openai style");
+        ModelClient.Response response = client.call(new ModelClient.Request("locate", List.of(
+                ModelClient.Message.system("find elements"),
+                ModelClient.Message.user(new ModelClient.Text("the login button"), new ModelClient.Image("png", SCREENSHOT))),
+                null));
+        TestSupport.assertEquals("{\"id\":\"a1\"}", response.json(), "json from fenced answer");
+        TestSupport.assertFalse(response.streamed(), "not streamed");
+        TestSupport.assertEquals(15L, response.usage().totalTokens(), "usage from response");
+        TestSupport.assertEquals("Bearer sk-test", recorded.headers.get("authorization"), "bearer auth");
+        TestSupport.assertEquals("locate", recorded.headers.get("midscene-api-type"), "action type header");
+        TestSupport.assertContains(recorded.body, "{\"role\":\"system\",\"content\":\"find elements\"}", "plain text content");
+        TestSupport.assertContains(recorded.body, "\"image_url\":{\"url\":\"data:image/png;base64,"
+                + Base64.getEncoder().encodeToString(SCREENSHOT) + "\"}", "image data url");
+        TestSupport.assertContains(recorded.body, "\"stream\":false,\"max_tokens\":512", "common config");
+        TestSupport.assertContains(recorded.body, "\"vl_high_resolution_images\":true", "qwen option");
+        TestSupport.assertTrue(client.httpClient() == ModelClient.builder(config).build().httpClient(),
+                "connection pool shared per base url");
+        server.removeContext("/v1/chat/completions");
+    }
+
+    private static void openaiStreamDeliversJsonEarly(HttpServer server, String base) throws Exception {
+        CountDownLatch jsonSeen = new CountDownLatch(1);
+        boolean[] sentBeforeFinish = new boolean[1];
+        server.createContext("/stream/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String piece : List.of("{\\\"actions\\\":[{\\\"type\\\":", "\\\"Tap\\\"}]", "}", " done")) {
+                    event(out, "{\"choices\":[{\"delta\":{\"content\":\"" + piece + "\"}}]}");
+                }
+                // Hold the rest of the stream until the client has reported the JSON.
+                sentBeforeFinish[0] = await(jsonSeen);
+                event(out, "{\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}]}");
+                event(out, "[DONE]");
+            }
+        });
+        ModelConfig config = model(Map.of("OPENAI_BASE_URL", base + "/stream", "OPENAI_API_KEY", "sk-test"));
+        List<String> accumulated = new ArrayList<>();
+        String[] json = new String[1];
+        ModelClient.Response response = ModelClient.builder(config).build().stream(
+                new ModelClient.Request("plan", List.of(ModelClient.Message.user(new ModelClient.Text("plan"))), null),
+                new ModelClient.StreamListener() {
+                    @Override
+                    public void onChunk(String content, String reasoningContent, String soFar) {
+                        accumulated.add(soFar);
+                    }
+
+                    @Override
+                    public void onJson(String value) {
+                        json[0] = value;
+                        jsonSeen.countDown();
+                    }
+                });
+        TestSupport.assertTrue(sentBeforeFinish[0], "json reported before the stream finished");
+        TestSupport.assertEquals("{\"actions\":[{\"type\":\"Tap\"}]}", json[0], "json from stream");
+        TestSupport.assertEquals(4, accumulated.size(), "one chunk per delta");
+        TestSupport.assertEquals("{\"actions\":[{\"type\":\"Tap\"}]} done", response.content(), "accumulated content");
+        TestSupport.assertTrue(response.streamed(), "streamed");
+        TestSupport.assertEquals(Math.max(1L, response.content().length() / 4), response.usage().promptTokens(),
+                "usage estimated without usage chunk");
+        server.removeContext("/stream/chat/completions");
+    }
+
+    private static void anthropicStream(HttpServer server, String base) {
+        Recorded recorded = new Recorded();
+        server.createContext("/anthropic/messages", exchange -> {
+            recorded.capture(exchange);
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("event: message_start\n".getBytes(StandardCharsets.UTF_8));
+                event(out, "{\"type\":\"message_start\",\"message\":{\"usage\":{\"input_tokens\":20,\"output_tokens\":1}}}");
+                event(out, "{\"type\":\"content_block_delta\",\"delta\":{\"type\":\"text_delta\",\"text\":\"{\\\"ok\\\":\"}}");
+                event(out, "{\"type\":\"content_block_delta\",\"delta\":{\"type\":\"text_delta\",\"text\":\"true}\"}}");
+                event(out, "{\"type\":\"message_delta\",\"usage\":{\"output_tokens\":6}}");
+                event(out, "{\"type\":\"message_stop\"}");
+            }
+        });
+        ModelConfig config = model(Map.of("MIDSCENE_MODEL_NAME", "claude-sonnet", "MIDSCENE_USE_ANTHROPIC_SDK", "1",
+                "ANTHROPIC_API_KEY", "ak-test"));
+        ModelClient client = ModelClient.builder(config).anthropicBaseUrl(base + "/anthropic").build();
+        ModelClient.Response response = client.stream(new ModelClient.Request(null, List.of(
+                ModelClient.Message.user(new ModelClient.Text("check"), new ModelClient.Image("png", SCREENSHOT))), null),
+                new ModelClient.StreamListener() {});
+        TestSupport.assertEquals(ModelClient.Style.ANTHROPIC, client.style(), "anthropic style");
+        TestSupport.assertEquals("{\"ok\":true}", response.json(), "json from anthropic stream");
+        TestSupport.assertEquals(26L, response.usage().totalTokens(), "usage from stream events");
+        TestSupport.assertEquals("ak-test", recorded.headers.get("x-api-key"), "anthropic key header");
+        TestSupport.assertEquals(ModelClient.ANTHROPIC_VERSION, recorded.headers.get("anthropic-version"), "version header");
+        TestSupport.assertContains(recorded.body, "\"source\":{\"type\":\"base64\",\"media_type\":\"image/png\",\"data\":\""
+                + Base64.getEncoder().encodeToString(SCREENSHOT) + "\"}", "anthropic image block");
+        TestSupport.assertContains(recorded.body, "\"system\":\"" + ModelClient.ANTHROPIC_SYSTEM_PROMPT + "\"", "system prompt");
+        server.removeContext("/anthropic/messages");
+    }
+
+    private static void azureEndpoint(HttpServer server, String base) {
+        Recorded recorded = new Recorded();
+        server.createContext("/openai/deployments/", exchange -> {
+            recorded.capture(exchange);
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"yes\"}}]}");
+        });
+        ModelConfig config = model(Map.of("MIDSCENE_USE_AZURE_OPENAI", "1", "AZURE_OPENAI_KEY", "az-key",
+                "AZURE_OPENAI_ENDPOINT", base + "/", "AZURE_OPENAI_API_VERSION", "2024-06-01",
+                "AZURE_OPENAI_DEPLOYMENT", "gpt4o-prod"));
+        ModelClient.Response response = ModelClient.builder(config).build().call(new ModelClient.Request("assert",
+                List.of(ModelClient.Message.user(new ModelClient.Text("ok?"))), "{\"type\":\"json_object\"}"));
+        TestSupport.assertEquals("yes", response.content(), "azure content");
+        TestSupport.assertEquals(null, response.json(), "no json in plain answer");
+        TestSupport.assertEquals("/openai/deployments/gpt4o-prod/chat/completions?api-version=2024-06-01",
+                recorded.target, "azure deployment url");
+        TestSupport.assertEquals("az-key", recorded.headers.get("api-key"), "azure key header");
+        TestSupport.assertEquals(null, recorded.headers.get("midscene-api-type"), "no action header on azure");
+        TestSupport.assertContains(recorded.body, "\"response_format\":{\"type\":\"json_object\"}", "response format");
+        server.removeContext("/openai/deployments/");
+    }
+
+    private static void errorsCarryStatus(HttpServer server, String base) {
+        server.createContext("/limited/chat/completions",
+                exchange -> respond(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\"}}"));
+        ModelClient client = ModelClient.builder(model(Map.of("OPENAI_BASE_URL", base + "/limited",
+                "OPENAI_API_KEY", "sk-test"))).build();
+        try {
+            client.call(new ModelClient.Request(null, List.of(ModelClient.Message.user(new ModelClient.Text("hi"))), null));
+            throw new AssertionError("expected 429");
+        } catch (ModelRequestException ex) {
+            TestSupport.assertEquals(429, ex.statusCode(), "status kept");
+            TestSupport.assertTrue(ex.isOverload(), "429 is overload");
+            TestSupport.assertContains(ex.getMessage(), "Rate limit reached", "provider message kept");
+        }
+        server.removeContext("/limited/chat/completions");
+    }
+
+    private static void coordinatedCalls(HttpServer server, String base) throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        server.createContext("/shared/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            await(release);
+            respond(exchange, 200, "{\"choices\":[{\"message\":{\"content\":\"{\\\"ok\\\":true}\"}}]}");
+        });
+        server.createContext("/busy/chat/completions",
+                exchange -> respond(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\"}}"));
+        Map<String, String> env = Map.of("MIDSCENE_MODEL_NAME", "gpt-4o", "OPENAI_BASE_URL", base + "/shared",
+                "OPENAI_API_KEY", "sk-test", "MIDSCENE_MODEL_MAX_CONCURRENCY", "4");
+        ModelConfigManager models = ModelConfigManager.fromEnv(EnvValues.of(env));
+        ModelConfig config = models.get(ModelIntent.DEFAULT);
+        ModelRequestCoordinator<ModelClient.Response> coordinator = new ModelRequestCoordinator<>(models);
+        ModelClient client = ModelClient.builder(config).coordinator(coordinator).build();
+        ModelClient.Request request = new ModelClient.Request("assert", List.of(ModelClient.Message.user(
+                new ModelClient.Text("is it shown"), new ModelClient.Image("png", SCREENSHOT))), null);
+
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<ModelClient.Response> first = callers.submit(() -> client.call(request));
+            TestSupport.assertTrue(waitFor(() -> requests.get() == 1), "first request sent");
+            Future<ModelClient.Response> second = callers.submit(() -> client.call(request));
+            TestSupport.assertTrue(waitFor(() -> coordinator.coalescing().coalesced() == 1), "identical call joined");
+            release.countDown();
+            ModelClient.Response shared = first.get(5, TimeUnit.SECONDS);
+            TestSupport.assertTrue(shared == second.get(5, TimeUnit.SECONDS), "one response for both callers");
+            TestSupport.assertEquals("{\"ok\":true}", shared.json(), "shared json");
+            TestSupport.assertEquals(1, requests.get(), "one HTTP request");
+        } finally {
+            callers.shutdownNow();
+        }
+        ModelClient.Response other = client.call(new ModelClient.Request("assert", List.of(ModelClient.Message.user(
+                new ModelClient.Text("is it hidden"), new ModelClient.Image("png", SCREENSHOT))), null));
+        TestSupport.assertEquals("{\"ok\":true}", other.json(), "different prompt answered");
+        TestSupport.assertEquals(2, requests.get(), "different prompt sent on its own");
+
+        int before = coordinator.limiter(config).limit();
+        ModelClient busy = ModelClient.builder(model(Map.of("MIDSCENE_MODEL_NAME", "gpt-4o",
+                "OPENAI_BASE_URL", base + "/busy", "OPENAI_API_KEY", "sk-test"))).coordinator(coordinator).build();
+        TestSupport.assertThrows(ModelRequestException.class, () -> busy.call(request), "429 surfaces");
+        TestSupport.assertTrue(coordinator.limiter(config).limit() < before, "429 lowers the model's limit");
+        server.removeContext("/shared/chat/completions");
+        server.removeContext("/busy/chat/completions");
+    }
+
+    private static void unsupportedSettings() {
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> ModelClient.builder(model(Map.of(
+                "OPENAI_API_KEY", "sk-test", "MIDSCENE_OPENAI_SOCKS_PROXY", "socks5://127.0.0.1:1080"))).build(),
+                "socks proxy rejected");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> ModelClient.builder(model(Map.of(
+                "MIDSCENE_USE_AZURE_OPENAI", "1", "AZURE_OPENAI_KEY", "k", "MIDSCENE_AZURE_OPENAI_SCOPE", "scope",
+                "AZURE_OPENAI_ENDPOINT", "https://azure", "AZURE_OPENAI_API_VERSION", "v"))).build(),
+                "keyless azure rejected");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> ModelClient.builder(model(Map.of("OPENAI_API_KEY", "sk-test"))).maxTokens(0), "max tokens positive");
+    }
+
+    private static ModelConfig model(Map<String, String> env) {
+        return ModelConfigManager.fromEnv(EnvValues.of(env)).get(ModelIntent.DEFAULT);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void event(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Last request seen by a stub handler.
+     */
+    private static final class Recorded {
+        private final Map<String, String> headers = new HashMap<>();
+        private String target;
+        private String body;
+
+        private void capture(HttpExchange exchange) throws IOException {
+            target = exchange.getRequestURI().toString();
+            exchange.getRequestHeaders().forEach((name, values) -> headers.put(name.toLowerCase(), values.get(0)));
+            body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.midscene.core;
+
+import com.midscene.shared.EnvValues;
+import com.midscene.shared.ModelConfigManager;
+import com.midscene.shared.ModelIntent;
+import com.midscene.shared.TestSupport;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class ModelRequestCoordinatorTest {
+
+    static void run() throws Exception {
+        coalescesIdenticalRequests();
+        overloadShrinksModelLimit();
+    }
+
+    private static void coalescesIdenticalRequests() throws Exception {
+        ModelRequestCoordinator<String> coordinator = new ModelRequestCoordinator<>(models(Map.of()));
+        AiResponseCache.Key key = AiResponseCache.key(Map.of("model", "gpt-4o"), "locate login", new byte[] {1});
+        AtomicInteger sent = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> coordinator.call(ModelIntent.GROUNDING, key, () -> {
+                    sent.incrementAndGet();
+                    SingleFlightTest.await(release);
+                    return "{\"id\":\"login\"}";
+                })));
+            }
+            SingleFlightTest.waitFor(() -> coordinator.coalescing().coalesced() == 3);
+            release.countDown();
+            for (Future<String> result : results) {
+                TestSupport.assertEquals("{\"id\":\"login\"}", result.get(5, TimeUnit.SECONDS), "shared response");
+            }
+        }
+        TestSupport.assertEquals(1, sent.get(), "one network call");
+        TestSupport.assertEquals("uncoalesced", coordinator.call(ModelIntent.GROUNDING, null, () -> "uncoalesced"),
+                "null key skips the table");
+    }
+
+    private static void overloadShrinksModelLimit() {
+        ModelConfigManager models = models(Map.of("MIDSCENE_MODEL_INITIAL_CONCURRENCY", "8"));
+        ModelRequestCoordinator<String> coordinator = new ModelRequestCoordinator<>(models);
+        AdaptiveConcurrencyLimiter limiter = coordinator.limiter(models.get(ModelIntent.PLANNING));
+        TestSupport.assertTrue(limiter == coordinator.limiter(models.get(ModelIntent.VQA)), "one limiter per model");
+        TestSupport.assertEquals(8, limiter.limit(), "configured start");
+        TestSupport.assertThrows(ModelRequestException.class, () -> coordinator.call(ModelIntent.PLANNING, null, () -> {
+            throw new ModelRequestException(429, "rate limited");
+        }), "error propagates");
+        TestSupport.assertEquals(4, limiter.limit(), "429 halves the limit");
+        TestSupport.assertThrows(ModelRequestException.class, () -> coordinator.call(ModelIntent.PLANNING, null, () -> {
+            throw new ModelRequestException(400, "bad request");
+        }), "client error propagates");
+        TestSupport.assertEquals(4, limiter.limit(), "client errors leave the limit");
+        TestSupport.assertEquals(0, limiter.stats().inFlight(), "permits released");
+    }
+
+    private static ModelConfigManager models(Map<String, String> extra) {
+        Map<String, String> env = new HashMap<>(extra);
+        env.put("OPENAI_API_KEY", "sk-test");
+        return ModelConfigManager.fromEnv(EnvValues.of(env));
+    }
+}
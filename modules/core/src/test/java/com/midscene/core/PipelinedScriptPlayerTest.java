@@ -0,0 +1,266 @@
+package com.midscene.core;
+
+import com.midscene.core.PipelinedScriptPlayer.FlowItem;
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.EnvKeys;
+import com.midscene.shared.TestSupport;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+final class PipelinedScriptPlayerTest {
+
+    static void run() {
+        observeRunIsPreparedInParallelAndCommittedInOrder();
+        unchangedScreenUsesSpeculation();
+        changedScreenDiscardsSpeculation();
+        failedAssertStopsFlow();
+        playWaitsForCancelledPreparations();
+        builderAndConfig();
+    }
+
+    private static void observeRunIsPreparedInParallelAndCommittedInOrder() {
+        CountDownLatch together = new CountDownLatch(4);
+        FakeDriver driver = new FakeDriver(together);
+        PipelinedScriptPlayer.Result result = PipelinedScriptPlayer.builder(driver).build().play(List.of(
+                new FlowItem("aiQuery", "title", "title", null),
+                new FlowItem("aiString", "user name"),
+                new FlowItem("aiNumber", "cart count", "count", null),
+                new FlowItem("aiBoolean", "logged in")));
+        TestSupport.assertTrue(result.ok(), "flow ok");
+        TestSupport.assertEquals(List.of("title", "0", "count", "1"), List.copyOf(result.results().keySet()),
+                "results in script order, unnamed by index");
+        TestSupport.assertEquals("cart count@0", result.results().get("count"), "result from first screen");
+        TestSupport.assertEquals(4, result.stats().maxParallel(), "whole observe run prepared at once");
+    }
+
+    private static void unchangedScreenUsesSpeculation() {
+        FakeDriver driver = new FakeDriver(null);
+        PipelinedScriptPlayer.Result result = PipelinedScriptPlayer.builder(driver).build().play(List.of(
+                new FlowItem("aiHover", "menu"),
+                new FlowItem("aiQuery", "title", "title", null)));
+        TestSupport.assertTrue(result.ok(), "flow ok");
+        TestSupport.assertEquals("title@0", result.results().get("title"), "speculative result");
+        TestSupport.assertEquals(1, driver.prepares("title"), "query prepared once");
+        TestSupport.assertEquals(new PipelinedScriptPlayer.Stats(1, 1, 0, 1), result.stats(), "one speculation hit");
+    }
+
+    private static void changedScreenDiscardsSpeculation() {
+        FakeDriver driver = new FakeDriver(null);
+        PipelinedScriptPlayer.Result result = PipelinedScriptPlayer.builder(driver).build().play(List.of(
+                new FlowItem("aiTap", "next page", null, Map.of("navigates", true)),
+                new FlowItem("aiQuery", "title", "title", null)));
+        TestSupport.assertTrue(result.ok(), "flow ok");
+        TestSupport.assertEquals("title@1", result.results().get("title"), "prepared again against new screen");
+        TestSupport.assertEquals(2, driver.prepares("title"), "speculation redone");
+        TestSupport.assertEquals(1, result.stats().discarded(), "speculation discarded");
+        TestSupport.assertEquals(0, result.stats().hits(), "no hit after change");
+    }
+
+    private static void failedAssertStopsFlow() {
+        FakeDriver driver = new FakeDriver(null);
+        PipelinedScriptPlayer.Result result = PipelinedScriptPlayer.builder(driver).build().play(List.of(
+                new FlowItem("aiQuery", "title", "title", null),
+                new FlowItem("aiAssert", "fail: cart is empty"),
+                new FlowItem("aiQuery", "footer", "footer", null),
+                new FlowItem("aiTap", "checkout")));
+        TestSupport.assertFalse(result.ok(), "flow failed");
+        TestSupport.assertEquals(1, result.failedIndex(), "failing item");
+        TestSupport.assertContains(result.error().getMessage(), "cart is empty", "assert message");
+        TestSupport.assertEquals(List.of("title"), List.copyOf(result.results().keySet()), "later results dropped");
+        TestSupport.assertEquals(0, driver.performs("checkout"), "later action not performed");
+    }
+
+    private static void playWaitsForCancelledPreparations() {
+        StubbornDriver driver = new StubbornDriver(Duration.ofMillis(200));
+        PipelinedScriptPlayer.Result result = PipelinedScriptPlayer.builder(driver).build().play(List.of(
+                new FlowItem("aiAssert", "fail: cart is empty"),
+                new FlowItem("aiQuery", "slow", "slow", null)));
+        TestSupport.assertFalse(result.ok(), "flow failed");
+        TestSupport.assertTrue(driver.interrupted.get(), "slow preparation interrupted");
+        TestSupport.assertTrue(driver.finished.get(), "play returned after the preparation stopped");
+
+        StubbornDriver stuck = new StubbornDriver(Duration.ofSeconds(5));
+        long start = System.nanoTime();
+        result = PipelinedScriptPlayer.builder(stuck).shutdownTimeout(Duration.ofMillis(100)).build().play(List.of(
+                new FlowItem("aiAssert", "fail: cart is empty"),
+                new FlowItem("aiQuery", "slow", "slow", null)));
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        TestSupport.assertFalse(result.ok(), "flow failed");
+        TestSupport.assertTrue(waited < 3000, "wait bounded by the shutdown timeout: " + waited + "ms");
+        TestSupport.assertFalse(stuck.finished.get(), "preparation ignoring interrupts outlives play");
+        stuck.release.countDown();
+    }
+
+    private static void builderAndConfig() {
+        FakeDriver driver = new FakeDriver(null);
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> PipelinedScriptPlayer.builder(driver).parallelism(0), "parallelism must be positive");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> PipelinedScriptPlayer.builder(driver).shutdownTimeout(Duration.ZERO), "shutdown timeout must be positive");
+
+        ConfigManager config = new ConfigManager();
+        config.set(EnvKeys.MIDSCENE_PLAYER_SPECULATE, "false");
+        config.set(EnvKeys.MIDSCENE_PLAYER_PARALLELISM, "1");
+        PipelinedScriptPlayer.Result result = PipelinedScriptPlayer.fromConfig(driver, config).play(List.of(
+                new FlowItem("aiQuery", "a", "a", null),
+                new FlowItem("aiQuery", "b", "b", null),
+                new FlowItem("aiHover", "menu"),
+                new FlowItem("aiQuery", "c", "c", null)));
+        TestSupport.assertTrue(result.ok(), "flow ok");
+        TestSupport.assertEquals(new PipelinedScriptPlayer.Stats(0, 0, 0, 1), result.stats(), "no speculation, one at a time");
+        TestSupport.assertEquals("c@0", result.results().get("c"), "sequential result");
+    }
+
+    /**
+     * Fails on a {@code fail:} assert, prepared once the {@code slow} item is running,
+     * and keeps preparing {@code slow} items for
+     * {@code linger} after being interrupted, as a driver stuck in a blocking call would.
+     */
+    private static final class StubbornDriver implements PipelinedScriptPlayer.Driver {
+        private final Duration linger;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicBoolean interrupted = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private StubbornDriver(Duration linger) {
+            this.linger = linger;
+        }
+
+        @Override
+        public byte[] screenshot() {
+            return FakeDriver.render(0);
+        }
+
+        @Override
+        public Object prepare(FlowItem item, byte[] screenshot) {
+            if (!item.prompt().equals("slow")) {
+                try {
+                    started.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(ex);
+                }
+                return item.prompt();
+            }
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                interrupted.set(true);
+            }
+            long until = System.nanoTime() + linger.toNanos();
+            while (release.getCount() > 0 && System.nanoTime() < until) {
+                try {
+                    release.await(until - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException ignored) {
+                    // Ignored on purpose.
+                }
+            }
+            finished.set(true);
+            return item.prompt();
+        }
+
+        @Override
+        public Object perform(FlowItem item, Object prepared) {
+            if (item.prompt().startsWith("fail:")) {
+                throw new IllegalStateException("Assertion failed: " + item.prompt().substring(5).trim());
+            }
+            return prepared;
+        }
+    }
+
+    /**
+     * Renders one of two page states. Items with option {@code navigates} switch pages;
+     * prepared answers record which page they were computed from.
+     */
+    private static final class FakeDriver implements PipelinedScriptPlayer.Driver {
+        private final CountDownLatch together;
+        private final Map<byte[], Integer> pageOf = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> prepares = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> performs = new ConcurrentHashMap<>();
+        private int page;
+
+        private FakeDriver(CountDownLatch together) {
+            this.together = together;
+        }
+
+        @Override
+        public byte[] screenshot() {
+            byte[] bytes = render(page);
+            pageOf.put(bytes, page);
+            return bytes;
+        }
+
+        @Override
+        public Object prepare(FlowItem item, byte[] screenshot) {
+            prepares.computeIfAbsent(item.prompt(), k -> new AtomicInteger()).incrementAndGet();
+            if (together != null) {
+                together.countDown();
+                try {
+                    together.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(ex);
+                }
+            }
+            return item.prompt() + "@" + pageOf.get(screenshot);
+        }
+
+        @Override
+        public Object perform(FlowItem item, Object prepared) {
+            performs.computeIfAbsent(item.prompt(), k -> new AtomicInteger()).incrementAndGet();
+            if (item.type().equals("aiAssert") && item.prompt().startsWith("fail:")) {
+                throw new IllegalStateException("Assertion failed: " + item.prompt().substring(5).trim());
+            }
+            if (Boolean.TRUE.equals(item.options().get("navigates"))) {
+                page++;
+            }
+            return prepared;
+        }
+
+        int prepares(String prompt) {
+            AtomicInteger count = prepares.get(prompt);
+            return count == null ? 0 : count.get();
+        }
+
+        int performs(String prompt) {
+            AtomicInteger count = performs.get(prompt);
+            return count == null ? 0 : count.get();
+        }
+
+        private static byte[] render(int page) {
+            BufferedImage image = new BufferedImage(320, 200, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, 320, 200);
+            g.setColor(Color.DARK_GRAY);
+            if (page % 2 == 0) {
+                g.fillRect(0, 0, 320, 40);
+            } else {
+                g.fillRect(0, 0, 160, 200);
+            }
+            g.dispose();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(image, "png", out);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return out.toByteArray();
+        }
+    }
+}
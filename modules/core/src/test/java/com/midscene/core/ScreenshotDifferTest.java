@@ -0,0 +1,124 @@
+package com.midscene.core;
+
+import com.midscene.shared.ConfigManager;
+import com.midscene.shared.EnvKeys;
+import com.midscene.shared.ImageTransform;
+import com.midscene.shared.TestSupport;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+final class ScreenshotDifferTest {
+
+    static void run() throws IOException {
+        unchangedFrameReusesPreviousBytes();
+        smallChangeReportsRegion();
+        navigationIsFullScreenChange();
+        uploadSkipsOrCrops();
+        fromConfig();
+    }
+
+    private static void unchangedFrameReusesPreviousBytes() throws IOException {
+        ScreenshotDiffer differ = new ScreenshotDiffer(32, 24, 4, 12);
+        byte[] first = png(page(null));
+        ScreenshotDiffer.Result initial = differ.observe(first);
+        TestSupport.assertFalse(initial.unchanged(), "first frame counts as changed");
+        TestSupport.assertEquals(List.of(new ImageTransform.Rect(0, 0, 320, 200)), initial.changedRegions(), "first frame is full screen");
+
+        byte[] again = png(page(null));
+        ScreenshotDiffer.Result repeat = differ.observe(again);
+        TestSupport.assertTrue(repeat.unchanged(), "identical frame unchanged");
+        TestSupport.assertTrue(repeat.screenshot() == first, "unchanged frame reuses reference bytes");
+        TestSupport.assertEquals(null, repeat.bounds(), "no bounds when unchanged");
+
+        differ.reset();
+        TestSupport.assertFalse(differ.observe(again).unchanged(), "reset forgets reference");
+    }
+
+    private static void smallChangeReportsRegion() throws IOException {
+        ScreenshotDiffer differ = new ScreenshotDiffer(32, 24, 4, 12);
+        differ.observe(png(page(null)));
+        ScreenshotDiffer.Result result = differ.observe(png(page(new Rectangle(200, 70, 20, 20))));
+        TestSupport.assertFalse(result.unchanged(), "small change detected");
+        TestSupport.assertTrue(result.hashDistance() <= 12, "small change keeps hash close");
+        TestSupport.assertEquals(List.of(new ImageTransform.Rect(192, 64, 32, 32)), result.changedRegions(), "changed tile");
+        TestSupport.assertEquals(new ImageTransform.Rect(192, 64, 32, 32), result.bounds(), "bounds of change");
+    }
+
+    private static void navigationIsFullScreenChange() throws IOException {
+        ScreenshotDiffer differ = new ScreenshotDiffer(32, 24, 4, 12);
+        differ.observe(png(page(null)));
+        BufferedImage other = new BufferedImage(320, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = other.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 320, 200);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, 160, 200);
+        g.dispose();
+        ScreenshotDiffer.Result result = differ.observe(png(other));
+        TestSupport.assertTrue(result.hashDistance() > 12, "hash far apart");
+        TestSupport.assertEquals(List.of(new ImageTransform.Rect(0, 0, 320, 200)), result.changedRegions(), "full screen");
+    }
+
+    private static void uploadSkipsOrCrops() throws IOException {
+        ScreenshotDiffer differ = new ScreenshotDiffer(32, 24, 4, 12);
+        byte[] first = png(page(null));
+        ScreenshotDiffer.Upload initial = differ.observe(first).upload(0.5);
+        TestSupport.assertEquals(ScreenshotDiffer.UploadKind.FULL, initial.kind(), "first frame sent whole");
+        TestSupport.assertTrue(initial.image() == first, "full upload is the frame itself");
+
+        ScreenshotDiffer.Upload same = differ.observe(png(page(null))).upload(0.5);
+        TestSupport.assertEquals(ScreenshotDiffer.UploadKind.SKIP, same.kind(), "unchanged frame skipped");
+        TestSupport.assertEquals(null, same.image(), "nothing to send");
+
+        ScreenshotDiffer.Upload crop = differ.observe(png(page(new Rectangle(200, 70, 20, 20)))).upload(0.5);
+        TestSupport.assertEquals(ScreenshotDiffer.UploadKind.CROP, crop.kind(), "small change cropped");
+        TestSupport.assertEquals(new ImageTransform.Rect(192, 64, 32, 32), crop.region(), "crop region");
+        TestSupport.assertEquals(new ImageTransform.Size(32, 32), ImageTransform.readSize(crop.image()), "crop size");
+
+        ScreenshotDiffer.Result moved = differ.observe(png(page(new Rectangle(20, 150, 20, 20))));
+        TestSupport.assertEquals(ScreenshotDiffer.UploadKind.FULL, moved.upload(0).kind(), "crop disabled by ratio");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> moved.upload(2), "ratio validated");
+    }
+
+    private static void fromConfig() throws IOException {
+        ConfigManager config = new ConfigManager();
+        config.set(EnvKeys.MIDSCENE_SCREENSHOT_DIFF_TILE_SIZE, "64");
+        config.set(EnvKeys.MIDSCENE_SCREENSHOT_DIFF_MIN_PIXELS, "1000");
+        ScreenshotDiffer differ = ScreenshotDiffer.fromConfig(config);
+        differ.observe(png(page(null)));
+        TestSupport.assertTrue(differ.observe(png(page(new Rectangle(200, 70, 20, 20)))).unchanged(),
+                "configured min pixels ignores small change");
+    }
+
+    /** A light page with a header bar and a few text-like blocks. */
+    private static BufferedImage page(Rectangle marker) {
+        BufferedImage image = new BufferedImage(320, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 320, 200);
+        g.setColor(new Color(30, 60, 120));
+        g.fillRect(0, 0, 320, 40);
+        g.setColor(Color.DARK_GRAY);
+        for (int i = 0; i < 5; i++) {
+            g.fillRect(20, 60 + i * 25, 120 + i * 20, 10);
+        }
+        if (marker != null) {
+            g.setColor(Color.RED);
+            g.fill(marker);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
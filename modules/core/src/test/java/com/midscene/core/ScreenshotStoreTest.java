@@ -0,0 +1,106 @@
+package com.midscene.core;
+
+import com.midscene.shared.TestSupport;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.stream.Stream;
+
+final class ScreenshotStoreTest {
+
+    static void run() throws IOException {
+        deduplicatesByContent();
+        externalizesAndResolvesDumps();
+        leavesEscapedDataUrlsInStrings();
+        leavesLookalikesAlone();
+        refParsing();
+    }
+
+    private static void deduplicatesByContent() throws IOException {
+        ScreenshotStore store = ScreenshotStore.open(Files.createTempDirectory("midscene-blobs"));
+        byte[] image = {1, 2, 3, 4};
+        ScreenshotStore.Ref first = store.put("png", image);
+        ScreenshotStore.Ref second = store.put("png", new byte[] {1, 2, 3, 4});
+        TestSupport.assertEquals(first, second, "same bytes share a ref");
+        TestSupport.assertTrue(store.contains(first), "blob stored");
+        TestSupport.assertEquals(first.digest().substring(0, 2), store.path(first).getParent().getFileName().toString(), "sharded by prefix");
+        TestSupport.assertEquals(4, store.read(first).length, "blob readable");
+
+        ScreenshotStore.Stats stats = store.stats();
+        TestSupport.assertEquals(2L, stats.puts(), "puts counted");
+        TestSupport.assertEquals(1L, stats.deduplicated(), "second put deduplicated");
+        TestSupport.assertEquals(4L, stats.bytesWritten(), "written once");
+
+        ScreenshotStore reopened = ScreenshotStore.open(store.directory());
+        reopened.put("png", image);
+        TestSupport.assertEquals(1L, reopened.stats().deduplicated(), "dedup survives reopen");
+        try (Stream<Path> files = Files.walk(store.directory())) {
+            TestSupport.assertEquals(1L, files.filter(Files::isRegularFile).count(), "one file on disk");
+        }
+    }
+
+    private static void externalizesAndResolvesDumps() throws IOException {
+        ScreenshotStore store = ScreenshotStore.open(Files.createTempDirectory("midscene-blobs"));
+        String screenshot = "data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[5000]);
+        String other = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(new byte[] {9, 8, 7});
+        String dump = "{\"executions\":[{\"screenshotBase64\":\"" + screenshot + "\"},"
+                + "{\"screenshotBase64\":\"" + screenshot + "\",\"after\":\"" + other + "\",\"name\":\"data:text\"}]}";
+
+        String externalized = store.externalize(dump);
+        TestSupport.assertFalse(externalized.contains("base64,"), "inline images removed");
+        TestSupport.assertContains(externalized, "\"name\":\"data:text\"", "other strings kept");
+        TestSupport.assertTrue(externalized.length() < 400, "dump shrinks: " + externalized.length());
+        TestSupport.assertEquals(2L, store.stats().puts() - store.stats().deduplicated(), "two distinct blobs");
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        store.writeResolved(externalized, report);
+        TestSupport.assertEquals(dump, report.toString(StandardCharsets.UTF_8), "report restores inline images");
+
+        String ref = externalized.substring(externalized.indexOf(ScreenshotStore.REF_PREFIX), externalized.indexOf('"',
+                externalized.indexOf(ScreenshotStore.REF_PREFIX)));
+        TestSupport.assertEquals(screenshot, store.resolveBase64(ref), "lazy resolve");
+        TestSupport.assertEquals("plain", store.resolveBase64("plain"), "non-ref passes through");
+    }
+
+    private static void leavesEscapedDataUrlsInStrings() throws IOException {
+        ScreenshotStore store = ScreenshotStore.open(Files.createTempDirectory("midscene-blobs"));
+        String screenshot = "data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[] {1, 2, 3});
+        String dump = "{\"html\":\"<img src=\\\"" + screenshot + "\\\">\",\"screenshotBase64\":\"" + screenshot + "\"}";
+
+        String externalized = store.externalize(dump);
+        TestSupport.assertContains(externalized, "<img src=\\\"" + screenshot + "\\\">", "escaped data URL kept as text");
+        TestSupport.assertContains(externalized, "\"screenshotBase64\":\"" + ScreenshotStore.REF_PREFIX, "image field externalized");
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        store.writeResolved(externalized, report);
+        TestSupport.assertEquals(dump, report.toString(StandardCharsets.UTF_8), "round trip");
+    }
+
+    private static void leavesLookalikesAlone() throws IOException {
+        ScreenshotStore store = ScreenshotStore.open(Files.createTempDirectory("midscene-blobs"));
+        String withParameters = "data:image/png;charset=utf-8;base64," + Base64.getEncoder().encodeToString(new byte[] {1, 2});
+        String dump = "{\"screenshotBase64\":\"" + withParameters + "\",\"note\":\"" + ScreenshotStore.REF_PREFIX
+                + "see docs\",\"other\":\"" + ScreenshotStore.REF_PREFIX + "abc.png\"}";
+
+        String externalized = store.externalize(dump);
+        TestSupport.assertEquals(dump, externalized, "data URL with parameters kept inline");
+        TestSupport.assertEquals(0L, store.stats().puts(), "nothing stored");
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        store.writeResolved(externalized, report);
+        TestSupport.assertEquals(dump, report.toString(StandardCharsets.UTF_8), "ref lookalikes written as they are");
+        TestSupport.assertEquals(ScreenshotStore.REF_PREFIX + "see docs",
+                store.resolveBase64(ScreenshotStore.REF_PREFIX + "see docs"), "malformed ref passes through");
+    }
+
+    private static void refParsing() {
+        String digest = "ab".repeat(32);
+        ScreenshotStore.Ref ref = ScreenshotStore.Ref.parse(ScreenshotStore.REF_PREFIX + digest + ".svg+xml");
+        TestSupport.assertEquals("svg+xml", ref.format(), "format parsed");
+        TestSupport.assertEquals(ref, ScreenshotStore.Ref.parse(ref.toString()), "round trip");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> ScreenshotStore.Ref.parse(ScreenshotStore.REF_PREFIX + "../../etc.png"), "path traversal rejected");
+    }
+}
@@ -0,0 +1,172 @@
+package com.midscene.core;
+
+import com.midscene.shared.TestSupport;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+final class SingleFlightTest {
+
+    static void run() throws Exception {
+        concurrentDuplicatesShareOneLoad();
+        failureReachesEveryCaller();
+        finishedLoadIsNotReused();
+        waitingIsInterruptible();
+        followerTakesOverFromInterruptedLeader();
+    }
+
+    private static void concurrentDuplicatesShareOneLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> flight.execute("locate login", key -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "{\"id\":\"a1\"}";
+                })));
+            }
+            waitFor(() -> flight.stats().coalesced() == 7);
+            release.countDown();
+            for (Future<String> result : results) {
+                TestSupport.assertEquals("{\"id\":\"a1\"}", result.get(5, TimeUnit.SECONDS), "shared result");
+            }
+        }
+        TestSupport.assertEquals(1, loads.get(), "one load for concurrent duplicates");
+        SingleFlight.Stats stats = flight.stats();
+        TestSupport.assertEquals(8L, stats.calls(), "calls counted");
+        TestSupport.assertEquals(0, stats.inFlight(), "entry removed after load");
+    }
+
+    private static void failureReachesEveryCaller() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> flight.execute("plan", key -> {
+                await(release);
+                throw new ModelRequestException(503, "unavailable");
+            }));
+            waitFor(() -> flight.stats().inFlight() == 1);
+            Future<String> follower = executor.submit(() -> flight.execute("plan", key -> "unused"));
+            waitFor(() -> flight.stats().coalesced() == 1);
+            release.countDown();
+            for (Future<String> result : List.of(leader, follower)) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    throw new AssertionError("expected failure");
+                } catch (ExecutionException ex) {
+                    TestSupport.assertTrue(ex.getCause() instanceof ModelRequestException, "leader's exception rethrown");
+                }
+            }
+        }
+        TestSupport.assertEquals("retried", flight.execute("plan", key -> "retried"), "failed load not kept");
+    }
+
+    private static void finishedLoadIsNotReused() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        flight.execute("a", key -> loads.incrementAndGet());
+        flight.execute("a", key -> loads.incrementAndGet());
+        TestSupport.assertEquals(2, loads.get(), "sequential calls each load");
+        TestSupport.assertEquals(0L, flight.stats().coalesced(), "nothing coalesced");
+    }
+
+    private static void waitingIsInterruptible() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> flight.execute("plan", key -> {
+                await(release);
+                return "plan";
+            }));
+            waitFor(() -> flight.stats().inFlight() == 1);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicBoolean stillInterrupted = new AtomicBoolean();
+            Thread follower = Thread.ofVirtual().start(() -> {
+                try {
+                    flight.execute("plan", key -> "unused");
+                } catch (RuntimeException ex) {
+                    failure.set(ex);
+                }
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            });
+            waitFor(() -> flight.stats().coalesced() == 1);
+            follower.interrupt();
+            follower.join(Duration.ofSeconds(5));
+            TestSupport.assertFalse(follower.isAlive(), "interrupted follower stops waiting");
+            TestSupport.assertTrue(failure.get() instanceof IllegalStateException, "interrupt reported");
+            TestSupport.assertTrue(stillInterrupted.get(), "interrupt flag restored");
+            release.countDown();
+            TestSupport.assertEquals("plan", leader.get(5, TimeUnit.SECONDS), "leader unaffected");
+        }
+    }
+
+    private static void followerTakesOverFromInterruptedLeader() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicReference<Thread> leaderThread = new AtomicReference<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> flight.execute("plan", key -> {
+                loads.incrementAndGet();
+                leaderThread.set(Thread.currentThread());
+                try {
+                    never.await();
+                    return "leader";
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("cancelled", ex);
+                }
+            }));
+            waitFor(() -> leaderThread.get() != null);
+            Future<String> follower = executor.submit(() -> flight.execute("plan", key -> {
+                loads.incrementAndGet();
+                return "follower";
+            }));
+            waitFor(() -> flight.stats().coalesced() == 1);
+            leaderThread.get().interrupt();
+            TestSupport.assertEquals("follower", follower.get(5, TimeUnit.SECONDS), "follower ran the load itself");
+            try {
+                leader.get(5, TimeUnit.SECONDS);
+                throw new AssertionError("expected failure");
+            } catch (ExecutionException ex) {
+                TestSupport.assertTrue(ex.getCause() instanceof IllegalStateException, "leader sees its own failure");
+            }
+        }
+        TestSupport.assertEquals(2, loads.get(), "load retried once");
+        TestSupport.assertEquals(0, flight.stats().inFlight(), "entries removed");
+    }
+
+    static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new AssertionError("latch timed out");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(ex);
+        }
+    }
+
+    static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not reached");
+            }
+            Thread.sleep(1);
+        }
+    }
+}
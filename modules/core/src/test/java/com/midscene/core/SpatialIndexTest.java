@@ -0,0 +1,138 @@
+package com.midscene.core;
+
+import com.midscene.shared.TestSupport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+final class SpatialIndexTest {
+
+    static void run() {
+        matchesLinearScan();
+        identicalRectsTieLikeLinearScan();
+        smallTree();
+        emptyIndex();
+    }
+
+    private static void matchesLinearScan() {
+        Random random = new Random(42);
+        ElementStore.Builder builder = ElementStore.builder(ElementStore.Storage.HEAP);
+        builder.beginContainer();
+        for (int i = 0; i < 2000; i++) {
+            float left = random.nextInt(1200);
+            float top = random.nextInt(4000);
+            builder.beginElement("e" + i, "TEXT Node", null, left, top,
+                    1 + random.nextInt(200), 1 + random.nextInt(80), i % 7 != 0);
+            builder.endNode();
+        }
+        builder.endNode();
+        ElementStore store = builder.build();
+        SpatialIndex index = SpatialIndex.build(store);
+
+        for (int q = 0; q < 200; q++) {
+            float x = random.nextInt(1400);
+            float y = random.nextInt(4100);
+            TestSupport.assertEquals(store.hitTest(x, y), index.hitTest(x, y), "hit test matches linear scan");
+
+            List<Integer> expected = new ArrayList<>();
+            for (int node = 0; node < store.size(); node++) {
+                if (store.hasElement(node) && store.isVisible(node) && store.contains(node, x, y)) {
+                    expected.add(node);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            index.queryPoint(x, y, actual::add);
+            actual.sort(null);
+            TestSupport.assertEquals(expected, actual, "point query matches linear scan");
+
+            float right = x + 150;
+            float bottom = y + 90;
+            List<Integer> expectedRect = new ArrayList<>();
+            for (int node = 0; node < store.size(); node++) {
+                if (!store.hasElement(node) || !store.isVisible(node)) {
+                    continue;
+                }
+                float l = Math.max(x, store.left(node));
+                float t = Math.max(y, store.top(node));
+                float r = Math.min(right, store.left(node) + store.width(node));
+                float b = Math.min(bottom, store.top(node) + store.height(node));
+                if (l < r && t < b) {
+                    expectedRect.add(node);
+                }
+            }
+            List<Integer> actualRect = new ArrayList<>();
+            index.queryRect(x, y, right, bottom, actualRect::add);
+            actualRect.sort(null);
+            TestSupport.assertEquals(expectedRect, actualRect, "rect query matches linear scan");
+
+            int[] nearest = index.nearest(x, y, 5);
+            TestSupport.assertEquals(5, nearest.length, "k nearest count");
+            float[] distances = new float[store.size()];
+            int visible = 0;
+            for (int node = 0; node < store.size(); node++) {
+                if (store.hasElement(node) && store.isVisible(node)) {
+                    distances[visible++] = distance(store, node, x, y);
+                }
+            }
+            float[] sorted = Arrays.copyOf(distances, visible);
+            Arrays.sort(sorted);
+            for (int i = 0; i < nearest.length; i++) {
+                TestSupport.assertEquals(sorted[i], distance(store, nearest[i], x, y), "k nearest order");
+            }
+        }
+    }
+
+    private static void identicalRectsTieLikeLinearScan() {
+        ElementStore.Builder builder = ElementStore.builder(ElementStore.Storage.HEAP);
+        builder.beginContainer();
+        for (int i = 0; i < 50; i++) {
+            // Wrapper and child share a rect, spread over several leaves of the tree.
+            builder.beginElement("wrap" + i, "TEXT Node", null, (i % 5) * 100, (i / 5) * 40, 100, 40, true);
+            builder.beginElement("child" + i, "TEXT Node", null, (i % 5) * 100, (i / 5) * 40, 100, 40, true);
+            builder.endNode();
+            builder.endNode();
+        }
+        for (int i = 0; i < 50; i++) {
+            builder.beginElement("late" + i, "TEXT Node", null, (i % 5) * 100, (i / 5) * 40, 100, 40, true);
+            builder.endNode();
+        }
+        builder.endNode();
+        ElementStore store = builder.build();
+        SpatialIndex index = SpatialIndex.build(store);
+        for (int y = 5; y < 400; y += 40) {
+            for (int x = 5; x < 500; x += 100) {
+                int expected = store.hitTest(x, y);
+                TestSupport.assertTrue(expected != ElementStore.NONE, "point is covered");
+                TestSupport.assertEquals(expected, index.hitTest(x, y), "equal areas resolve to the lowest node");
+            }
+        }
+    }
+
+    private static void smallTree() {
+        ElementStore store = ElementStoreTest.sample(ElementStore.Storage.OFF_HEAP);
+        SpatialIndex index = SpatialIndex.build(store);
+        TestSupport.assertEquals(3, index.size(), "only visible elements indexed");
+        TestSupport.assertEquals(3, index.hitTest(120, 110), "smallest element");
+        TestSupport.assertEquals(1, index.nearest(1300, 115, 1, 200)[0], "nearest within distance");
+        TestSupport.assertEquals(2, index.nearest(120, 140, 2)[1], "second nearest");
+        TestSupport.assertEquals(0, index.nearest(3000, 3000, 1, 10).length, "nothing within distance");
+    }
+
+    private static void emptyIndex() {
+        ElementStore store = ElementStore.builder(ElementStore.Storage.HEAP).build();
+        SpatialIndex index = SpatialIndex.build(store);
+        TestSupport.assertEquals(ElementStore.NONE, index.hitTest(1, 1), "empty hit test");
+        TestSupport.assertEquals(0, index.nearest(1, 1, 3).length, "empty nearest");
+    }
+
+    private static float distance(ElementStore store, int node, float x, float y) {
+        float left = store.left(node);
+        float top = store.top(node);
+        float right = left + store.width(node);
+        float bottom = top + store.height(node);
+        float dx = x < left ? left - x : x > right ? x - right : 0;
+        float dy = y < top ? top - y : y > bottom ? y - bottom : 0;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,39 @@
+package com.midscene.core;
+
+import com.midscene.shared.TestSupport;
+
+final class StreamingJsonExtractorTest {
+
+    static void run() {
+        reportsObjectWhenClosed();
+        skipsFenceAndHandlesStrings();
+        reportsOnlyFirstObject();
+    }
+
+    private static void reportsObjectWhenClosed() {
+        String answer = "{\"actions\":[{\"type\":\"Tap\",\"param\":{\"id\":\"a1\"}}],\"log\":\"tap\"}";
+        StreamingJsonExtractor extractor = new StreamingJsonExtractor();
+        for (int i = 0; i < answer.length() - 1; i++) {
+            TestSupport.assertEquals(null, extractor.feed(answer.substring(i, i + 1)), "open at " + i);
+        }
+        TestSupport.assertEquals(answer, extractor.feed("}"), "complete on closing brace");
+        TestSupport.assertEquals(answer, extractor.json(), "kept after completion");
+    }
+
+    private static void skipsFenceAndHandlesStrings() {
+        StreamingJsonExtractor extractor = new StreamingJsonExtractor();
+        TestSupport.assertEquals(null, extractor.feed("Sure, here it is:\n```json\n{\"log\":\"press } and {"), "brace in string");
+        TestSupport.assertEquals(null, extractor.feed(" then \\\"quote\\\" }\",\"a\":[1,{\"b\":2}]"), "escaped quotes");
+        String json = extractor.feed("}\n```\ntrailing text");
+        TestSupport.assertEquals("{\"log\":\"press } and { then \\\"quote\\\" }\",\"a\":[1,{\"b\":2}]}", json,
+                "object cut at its real end");
+    }
+
+    private static void reportsOnlyFirstObject() {
+        StreamingJsonExtractor extractor = new StreamingJsonExtractor();
+        TestSupport.assertEquals("{}", extractor.feed("{} {\"second\":true}"), "first object");
+        TestSupport.assertEquals(null, extractor.feed("{\"third\":1}"), "later objects ignored");
+        TestSupport.assertEquals("{}", extractor.json(), "first kept");
+        TestSupport.assertEquals(null, new StreamingJsonExtractor().feed("no json here"), "plain text");
+    }
+}
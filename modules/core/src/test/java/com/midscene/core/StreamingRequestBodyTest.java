@@ -0,0 +1,110 @@
+package com.midscene.core;
+
+import com.midscene.shared.TestSupport;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+final class StreamingRequestBodyTest {
+
+    static void run() throws Exception {
+        matchesStringConcatenation();
+        streamsFileImages();
+        publisherDeliversBoundedChunks();
+    }
+
+    private static void matchesStringConcatenation() throws IOException {
+        for (int size : new int[] {0, 1, 2, 3, StreamingRequestBody.CHUNK_SOURCE_BYTES, StreamingRequestBody.CHUNK_SOURCE_BYTES + 1}) {
+            byte[] image = random(size);
+            StreamingRequestBody body = StreamingRequestBody.builder()
+                    .json("{\"model\":").string("gpt-4o \"vision\"\n")
+                    .json(",\"url\":").image("png", image)
+                    .json("}")
+                    .build();
+            String expected = "{\"model\":\"gpt-4o \\\"vision\\\"\\n\",\"url\":\"data:image/png;base64,"
+                    + Base64.getEncoder().encodeToString(image) + "\"}";
+            String actual = asString(body);
+            TestSupport.assertEquals(expected, actual, "body for " + size + " bytes");
+            TestSupport.assertEquals((long) expected.length(), body.contentLength(), "content length for " + size + " bytes");
+            TestSupport.assertEquals(actual, asString(body), "body is replayable");
+
+            StreamingRequestBody raw = StreamingRequestBody.builder().json("{\"data\":").base64(image).json("}").build();
+            String rawExpected = "{\"data\":\"" + Base64.getEncoder().encodeToString(image) + "\"}";
+            TestSupport.assertEquals(rawExpected, asString(raw), "bare base64 for " + size + " bytes");
+            TestSupport.assertEquals((long) rawExpected.length(), raw.contentLength(), "bare base64 length for " + size + " bytes");
+        }
+    }
+
+    private static void streamsFileImages() throws IOException {
+        Path dir = Files.createTempDirectory("midscene-body");
+        Path file = dir.resolve("shot.svg");
+        byte[] image = random(1000);
+        Files.write(file, image);
+        StreamingRequestBody body = StreamingRequestBody.builder()
+                .json("[").imageUrl(file.toString())
+                .json(",").imageUrl("https://example.com/a.png")
+                .json("]")
+                .build();
+        TestSupport.assertEquals("[\"data:image/svg+xml;base64," + Base64.getEncoder().encodeToString(image)
+                + "\",\"https://example.com/a.png\"]", asString(body), "file and url images");
+    }
+
+    private static void publisherDeliversBoundedChunks() throws Exception {
+        byte[] image = random(3 << 20);
+        StreamingRequestBody body = StreamingRequestBody.builder().json("{\"u\":").image("jpeg", image).json("}").build();
+        TestSupport.assertEquals(body.contentLength(), body.publisher().contentLength(), "publisher length");
+
+        ByteArrayOutputStream collected = new ByteArrayOutputStream();
+        int[] largest = new int[1];
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        body.publisher().subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                largest[0] = Math.max(largest[0], item.remaining());
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                collected.writeBytes(bytes);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.get(30, TimeUnit.SECONDS);
+        TestSupport.assertEquals(body.contentLength(), (long) collected.size(), "published all bytes");
+        TestSupport.assertEquals(asString(body), collected.toString(StandardCharsets.US_ASCII), "published content");
+        TestSupport.assertTrue(largest[0] < image.length / 4, "chunks stay small: " + largest[0]);
+    }
+
+    private static String asString(StreamingRequestBody body) throws IOException {
+        try (InputStream in = body.openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] random(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
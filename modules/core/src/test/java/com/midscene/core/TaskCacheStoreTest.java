@@ -0,0 +1,200 @@
+package com.midscene.core;
+
+import com.midscene.shared.EnvKeys;
+import com.midscene.shared.EnvironmentUtils;
+import com.midscene.shared.TestSupport;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+final class TaskCacheStoreTest {
+
+    static void run() throws Exception {
+        putGetAndReopen();
+        emptyRecordSurvivesReopen();
+        truncatesTornTail();
+        compactsOverwrittenSegments();
+        concurrentReaders();
+        interruptedReader();
+        safeCacheId();
+    }
+
+    private static void putGetAndReopen() throws IOException {
+        Path dir = Files.createTempDirectory("task-cache");
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            store.put(TaskCacheStore.Type.PLAN, "  click   the\nlogin button ", "flow: [tap]");
+            store.put(TaskCacheStore.Type.LOCATE, "click the login button", "{\"xpaths\":[\"/html/body\"]}");
+            TestSupport.assertEquals(Optional.of("flow: [tap]"),
+                    store.get(TaskCacheStore.Type.PLAN, "click the login button"), "normalized prompt hit");
+            TestSupport.assertEquals(Optional.of("{\"xpaths\":[\"/html/body\"]}"),
+                    store.get(TaskCacheStore.Type.LOCATE, "click the login button"), "type is part of the key");
+            TestSupport.assertEquals(Optional.empty(), store.get(TaskCacheStore.Type.PLAN, "other"), "miss");
+            store.put(TaskCacheStore.Type.PLAN, "click the login button", "flow: [tap, type]");
+            TestSupport.assertEquals(2, store.size(), "update replaces the entry");
+        }
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            TestSupport.assertEquals(Optional.of("flow: [tap, type]"),
+                    store.get(TaskCacheStore.Type.PLAN, "click the login button"), "latest value survives reopen");
+            TestSupport.assertEquals(2, store.size(), "index rebuilt on reopen");
+        }
+    }
+
+    private static void emptyRecordSurvivesReopen() throws IOException {
+        Path dir = Files.createTempDirectory("task-cache");
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            store.put(TaskCacheStore.Type.PLAN, "  ", "");
+            store.put(TaskCacheStore.Type.PLAN, "after", "kept");
+        }
+        long size = Files.size(segments(dir).get(0));
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            TestSupport.assertEquals(Optional.of(""), store.get(TaskCacheStore.Type.PLAN, ""), "empty record replayed");
+            TestSupport.assertEquals(Optional.of("kept"), store.get(TaskCacheStore.Type.PLAN, "after"),
+                    "records after an empty one replayed");
+        }
+        TestSupport.assertEquals(size, Files.size(segments(dir).get(0)), "segment not truncated");
+    }
+
+    private static void truncatesTornTail() throws IOException {
+        Path dir = Files.createTempDirectory("task-cache");
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            store.put(TaskCacheStore.Type.PLAN, "first", "one");
+            store.put(TaskCacheStore.Type.PLAN, "second", "two");
+        }
+        Path segment = segments(dir).get(0);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 2);
+        }
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            TestSupport.assertEquals(Optional.of("one"), store.get(TaskCacheStore.Type.PLAN, "first"), "intact record kept");
+            TestSupport.assertEquals(Optional.empty(), store.get(TaskCacheStore.Type.PLAN, "second"), "torn record dropped");
+            store.put(TaskCacheStore.Type.PLAN, "third", "three");
+        }
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            TestSupport.assertEquals(Optional.of("three"), store.get(TaskCacheStore.Type.PLAN, "third"),
+                    "appends after truncation are readable");
+        }
+    }
+
+    private static void compactsOverwrittenSegments() throws IOException {
+        Path dir = Files.createTempDirectory("task-cache");
+        TaskCacheStore.Options options = new TaskCacheStore.Options(512, 8, 1000, 0.5);
+        try (TaskCacheStore store = TaskCacheStore.open(dir, options)) {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 5; i++) {
+                    store.put(TaskCacheStore.Type.LOCATE, "prompt " + i, "value " + i + " round " + round);
+                }
+            }
+            while (store.compactStep()) {
+                // drain remaining candidates
+            }
+            TestSupport.assertTrue(store.segmentCount() < 10, "compaction removed overwritten segments");
+            TestSupport.assertEquals(segments(dir).size(), store.segmentCount(), "compacted files deleted");
+            for (int i = 0; i < 5; i++) {
+                TestSupport.assertEquals(Optional.of("value " + i + " round 19"),
+                        store.get(TaskCacheStore.Type.LOCATE, "prompt " + i), "live values kept by compaction");
+            }
+        }
+        try (TaskCacheStore store = TaskCacheStore.open(dir, options)) {
+            TestSupport.assertEquals(5, store.size(), "entries after compaction and reopen");
+            TestSupport.assertEquals(Optional.of("value 3 round 19"),
+                    store.get(TaskCacheStore.Type.LOCATE, "prompt 3"), "compacted value survives reopen");
+        }
+    }
+
+    private static void concurrentReaders() throws Exception {
+        Path dir = Files.createTempDirectory("task-cache");
+        TaskCacheStore.Options options = new TaskCacheStore.Options(1024, 16, 1000, 0.3);
+        try (TaskCacheStore store = TaskCacheStore.open(dir, options);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                store.put(TaskCacheStore.Type.PLAN, "step " + i, "plan " + i);
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 8; r++) {
+                readers.add(executor.submit(() -> {
+                    for (int n = 0; n < 500; n++) {
+                        int i = n % 50;
+                        String value = store.get(TaskCacheStore.Type.PLAN, "step " + i).orElseThrow();
+                        TestSupport.assertTrue(value.startsWith("plan " + i), "reader sees a complete value");
+                    }
+                    return null;
+                }));
+            }
+            for (int n = 0; n < 300; n++) {
+                int i = n % 50;
+                store.put(TaskCacheStore.Type.PLAN, "step " + i, "plan " + i + " v" + n);
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        }
+    }
+
+    private static void interruptedReader() throws Exception {
+        Path dir = Files.createTempDirectory("task-cache");
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            store.put(TaskCacheStore.Type.PLAN, "step", "plan");
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicBoolean stillInterrupted = new AtomicBoolean();
+            Thread reader = Thread.ofVirtual().start(() -> {
+                Thread.currentThread().interrupt();
+                try {
+                    store.get(TaskCacheStore.Type.PLAN, "step");
+                } catch (RuntimeException ex) {
+                    failure.set(ex);
+                }
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            });
+            reader.join(Duration.ofSeconds(5));
+            TestSupport.assertFalse(reader.isAlive(), "interrupted reader does not spin");
+            TestSupport.assertTrue(failure.get() instanceof IllegalStateException, "interrupt reported");
+            TestSupport.assertTrue(stillInterrupted.get(), "interrupt flag restored");
+
+            TestSupport.assertEquals(Optional.of("plan"), store.get(TaskCacheStore.Type.PLAN, "step"),
+                    "other readers reopen the channel");
+            store.put(TaskCacheStore.Type.PLAN, "next", "written");
+            store.flush();
+        }
+        try (TaskCacheStore store = TaskCacheStore.open(dir, TaskCacheStore.Options.DEFAULTS)) {
+            TestSupport.assertEquals(Optional.of("written"), store.get(TaskCacheStore.Type.PLAN, "next"),
+                    "writes after the interrupt persisted");
+        }
+    }
+
+    private static void safeCacheId() {
+        TestSupport.assertEquals("login-flow-spec.ts", TaskCacheStore.safeCacheId("login flow/spec.ts"),
+                "illegal characters replaced");
+        String shortened = TaskCacheStore.safeCacheId("x".repeat(300));
+        TestSupport.assertTrue(shortened.length() < 50, "long ids are shortened");
+        TestSupport.assertEquals(shortened, TaskCacheStore.safeCacheId("x".repeat(300)), "shortening is stable");
+        TestSupport.assertThrows(IllegalArgumentException.class, () -> TaskCacheStore.safeCacheId(" "),
+                "blank id rejected");
+
+        EnvironmentUtils.override(EnvKeys.MIDSCENE_CACHE_MAX_FILENAME_LENGTH, "8");
+        try {
+            TestSupport.assertTrue(TaskCacheStore.safeCacheId("login-flow").startsWith("login-flow-"),
+                    "id shorter than the prefix keeps all of it");
+        } finally {
+            EnvironmentUtils.resetEnvProvider();
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(TaskCacheStore.SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+}
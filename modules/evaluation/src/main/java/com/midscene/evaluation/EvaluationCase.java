@@ -0,0 +1,30 @@
+package com.midscene.evaluation;
+
+import java.util.Objects;
+
+/**
+ * One locate case from {@code packages/evaluation/page-cases}: a prompt against a
+ * page fixture plus the expected answer. {@code expectedRect} is checked in VL mode,
+ * the element id or index id otherwise, as in the TS {@code TestResultCollector}.
+ */
+public record EvaluationCase(String source, int index, String prompt, Rect expectedRect,
+                             String expectedElementId, String expectedIndexId) {
+
+    public EvaluationCase {
+        Objects.requireNonNull(source, "source");
+        Objects.requireNonNull(prompt, "prompt");
+    }
+
+    /**
+     * Rect in screenshot pixels.
+     */
+    public record Rect(double left, double top, double width, double height) {
+
+        /** Distance between the centers of two rects. */
+        public double distanceTo(Rect other) {
+            double dx = left + width / 2 - (other.left + other.width / 2);
+            double dy = top + height / 2 - (other.top + other.height / 2);
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+}
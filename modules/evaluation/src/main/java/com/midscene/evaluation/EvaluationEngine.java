@@ -0,0 +1,174 @@
+package com.midscene.evaluation;
+
+import com.midscene.shared.MidsceneLoggerFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs evaluation cases against a {@link LocateModel} in parallel. The TS tests run
+ * cases one after another; here each case gets a virtual thread and a semaphore caps
+ * how many model calls are in flight, so a suite against a remote model is bounded
+ * by {@code concurrency} rather than by the sum of its latencies.
+ *
+ * <p>Results are judged like the TS {@code TestResultCollector}: with
+ * {@code compareRects} the located rect center must be within {@code distanceThreshold}
+ * pixels of the expected one, otherwise the element id or index id must match.
+ */
+public final class EvaluationEngine {
+    private static final MidsceneLoggerFactory.DebugFunction DEBUG = MidsceneLoggerFactory.getDebug("evaluation");
+
+    private final FixtureLoader fixtures;
+    private final LocateModel model;
+    private final int concurrency;
+    private final boolean compareRects;
+    private final double distanceThreshold;
+
+    private EvaluationEngine(Builder builder) {
+        this.fixtures = Objects.requireNonNull(builder.fixtures, "fixtures");
+        this.model = Objects.requireNonNull(builder.model, "model");
+        this.concurrency = builder.concurrency;
+        this.compareRects = builder.compareRects;
+        this.distanceThreshold = builder.distanceThreshold;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs all cases and returns their results in input order.
+     */
+    public EvaluationReport run(List<EvaluationCase> cases) {
+        Objects.requireNonNull(cases, "cases");
+        DEBUG.log("evaluating", cases.size(), "cases, concurrency", concurrency);
+        AtomicReferenceArray<EvaluationReport.CaseResult> results = new AtomicReferenceArray<>(cases.size());
+        Semaphore permits = new Semaphore(concurrency, true);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("midscene-evaluation-", 0).factory())) {
+            for (int i = 0; i < cases.size(); i++) {
+                int slot = i;
+                EvaluationCase testCase = cases.get(i);
+                executor.execute(() -> results.set(slot, runCase(testCase, permits)));
+            }
+        }
+        long wallNanos = System.nanoTime() - start;
+        EvaluationReport.CaseResult[] ordered = new EvaluationReport.CaseResult[cases.size()];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = results.get(i);
+        }
+        return new EvaluationReport(List.of(ordered), wallNanos, concurrency);
+    }
+
+    private EvaluationReport.CaseResult runCase(EvaluationCase testCase, Semaphore permits) {
+        PageFixture page;
+        try {
+            page = fixtures.page(testCase.source());
+        } catch (RuntimeException | Error ex) {
+            return new EvaluationReport.CaseResult(testCase, false, 0, "fixture error: " + message(ex));
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new EvaluationReport.CaseResult(testCase, false, 0, "interrupted");
+        }
+        long start = System.nanoTime();
+        try {
+            LocateModel.Result result = model.locate(page, testCase.prompt());
+            long latency = System.nanoTime() - start;
+            String failure = judge(testCase, result);
+            return new EvaluationReport.CaseResult(testCase, failure == null, latency, failure);
+        } catch (Throwable ex) {
+            // Errors from a model (AssertionError, StackOverflowError) fail the case; an
+            // empty slot would lose the whole report.
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return new EvaluationReport.CaseResult(testCase, false, System.nanoTime() - start, "got error: " + message(ex));
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Returns {@code null} on a pass, otherwise why the case failed. */
+    String judge(EvaluationCase testCase, LocateModel.Result result) {
+        if (result == null) {
+            return "no result";
+        }
+        if (compareRects && testCase.expectedRect() != null) {
+            if (result.rect() == null) {
+                return "result rect is not set";
+            }
+            double distance = result.rect().distanceTo(testCase.expectedRect());
+            return distance > distanceThreshold
+                    ? String.format(Locale.ROOT, "distance %.1f exceeds threshold %.1f", distance, distanceThreshold)
+                    : null;
+        }
+        if (testCase.expectedElementId() != null || testCase.expectedIndexId() != null) {
+            String actual = result.elementId();
+            if (actual != null && (actual.equals(testCase.expectedElementId())
+                    || actual.equals(testCase.expectedIndexId()))) {
+                return null;
+            }
+            return "element " + actual + " does not match " + testCase.expectedElementId();
+        }
+        return "unknown expected result type";
+    }
+
+    private static String message(Throwable ex) {
+        return ex.getMessage() != null ? ex.getMessage() : ex.toString();
+    }
+
+    public static final class Builder {
+        private FixtureLoader fixtures;
+        private LocateModel model;
+        private int concurrency = Runtime.getRuntime().availableProcessors();
+        private boolean compareRects;
+        private double distanceThreshold = 16;
+
+        private Builder() {}
+
+        public Builder fixtures(FixtureLoader fixtures) {
+            this.fixtures = Objects.requireNonNull(fixtures, "fixtures");
+            return this;
+        }
+
+        public Builder model(LocateModel model) {
+            this.model = Objects.requireNonNull(model, "model");
+            return this;
+        }
+
+        /** Maximum number of model calls in flight; defaults to the processor count. */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /** Judge by rect distance where the case has an expected rect (VL mode). */
+        public Builder compareRects(boolean compareRects) {
+            this.compareRects = compareRects;
+            return this;
+        }
+
+        public Builder distanceThreshold(double distanceThreshold) {
+            if (!(distanceThreshold >= 0)) {
+                throw new IllegalArgumentException("distanceThreshold must not be negative: " + distanceThreshold);
+            }
+            this.distanceThreshold = distanceThreshold;
+            return this;
+        }
+
+        public EvaluationEngine build() {
+            return new EvaluationEngine(this);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.midscene.evaluation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Outcome of one {@link EvaluationEngine} run: per-case results, per-source pass
+ * rates like the TS {@code TestResultCollector.printSummary}, and latency percentiles
+ * and throughput for the run as a whole.
+ */
+public final class EvaluationReport {
+
+    /**
+     * @param latencyNanos time spent in the model call; 0 when it never ran
+     * @param message      failure reason, {@code null} on a pass
+     */
+    public record CaseResult(EvaluationCase testCase, boolean passed, long latencyNanos, String message) {}
+
+    public record SourceSummary(String source, int cases, int passed, double averageMillis) {
+        public double passRate() {
+            return cases == 0 ? 0 : (double) passed / cases;
+        }
+    }
+
+    /**
+     * Nearest-rank percentiles of per-case latency, in milliseconds, over the cases
+     * whose model call ran; cases that failed before it are left out.
+     */
+    public record Latency(double p50Millis, double p90Millis, double p99Millis, double maxMillis) {}
+
+    private final List<CaseResult> results;
+    private final long wallNanos;
+    private final int concurrency;
+
+    EvaluationReport(List<CaseResult> results, long wallNanos, int concurrency) {
+        this.results = List.copyOf(results);
+        this.wallNanos = wallNanos;
+        this.concurrency = concurrency;
+    }
+
+    public List<CaseResult> results() {
+        return results;
+    }
+
+    public int passed() {
+        int passed = 0;
+        for (CaseResult result : results) {
+            if (result.passed()) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    public double passRate() {
+        return results.isEmpty() ? 0 : (double) passed() / results.size();
+    }
+
+    public long wallNanos() {
+        return wallNanos;
+    }
+
+    public int concurrency() {
+        return concurrency;
+    }
+
+    /** Cases completed per second of wall time. */
+    public double throughput() {
+        return wallNanos == 0 ? 0 : results.size() * 1e9 / wallNanos;
+    }
+
+    /** Per-source summaries in the order sources first appear. */
+    public List<SourceSummary> sources() {
+        Map<String, List<CaseResult>> bySource = new LinkedHashMap<>();
+        for (CaseResult result : results) {
+            bySource.computeIfAbsent(result.testCase().source(), source -> new ArrayList<>()).add(result);
+        }
+        List<SourceSummary> summaries = new ArrayList<>(bySource.size());
+        bySource.forEach((source, sourceResults) -> {
+            int passed = 0;
+            long totalNanos = 0;
+            for (CaseResult result : sourceResults) {
+                passed += result.passed() ? 1 : 0;
+                totalNanos += result.latencyNanos();
+            }
+            summaries.add(new SourceSummary(source, sourceResults.size(), passed,
+                    totalNanos / 1e6 / sourceResults.size()));
+        });
+        return summaries;
+    }
+
+    public Latency latency() {
+        long[] sorted = results.stream()
+                .mapToLong(CaseResult::latencyNanos)
+                .filter(nanos -> nanos > 0)
+                .sorted()
+                .toArray();
+        return new Latency(percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    static double percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    /** Plain-text table for logs and the console. */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-20s %6s %6s %9s %10s%n", "source", "cases", "passed", "pass rate", "avg ms"));
+        for (SourceSummary summary : sources()) {
+            out.append(String.format(Locale.ROOT, "%-20s %6d %6d %8.1f%% %10.2f%n", summary.source(), summary.cases(),
+                    summary.passed(), summary.passRate() * 100, summary.averageMillis()));
+        }
+        Latency latency = latency();
+        out.append(String.format(Locale.ROOT,
+                "total %d cases, %d passed (%.1f%%), concurrency %d%n", results.size(), passed(), passRate() * 100, concurrency));
+        out.append(String.format(Locale.ROOT,
+                "latency ms p50 %.2f p90 %.2f p99 %.2f max %.2f%n", latency.p50Millis(), latency.p90Millis(),
+                latency.p99Millis(), latency.maxMillis()));
+        out.append(String.format(Locale.ROOT, "wall %.1f ms, throughput %.1f cases/s%n", wallNanos / 1e6, throughput()));
+        return out.toString();
+    }
+}
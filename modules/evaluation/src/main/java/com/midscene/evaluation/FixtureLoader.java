@@ -0,0 +1,96 @@
+package com.midscene.evaluation;
+
+import com.midscene.shared.ElementTree;
+import com.midscene.shared.JsonReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads cases and page fixtures from the {@code packages/evaluation} directory. Each
+ * page is parsed once and shared across threads, so fixture I/O stays out of the
+ * per-case latency the engine measures.
+ */
+public final class FixtureLoader {
+    /** Sources of {@code llm-locator.test.ts}. */
+    public static final List<String> LOCATOR_SOURCES = List.of(
+            "antd-carousel", "todo", "online_order", "online_order_list", "taobao", "aweme-login", "aweme-play");
+
+    private final Path root;
+    private final Map<String, PageFixture> pages = new ConcurrentHashMap<>();
+
+    /**
+     * @param root the {@code packages/evaluation} directory holding {@code page-data}
+     *             and {@code page-cases}
+     */
+    public FixtureLoader(Path root) {
+        this.root = Objects.requireNonNull(root, "root");
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    /** Returns the cached fixture for {@code page-data/<name>}, loading it on first use. */
+    public PageFixture page(String name) {
+        return pages.computeIfAbsent(name, this::loadPage);
+    }
+
+    /** Cases of {@code page-cases/<type>/<source>.json}, e.g. {@code ("inspect", "todo")}. */
+    public List<EvaluationCase> cases(String type, String source) {
+        Path file = root.resolve("page-cases").resolve(type).resolve(source + ".json");
+        Object parsed;
+        try {
+            parsed = JsonReader.of(Files.readAllBytes(file)).readValue();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read cases " + file, ex);
+        }
+        if (!(parsed instanceof Map<?, ?> root) || !(root.get("testCases") instanceof List<?> testCases)) {
+            throw new IllegalArgumentException("Case file has no testCases array: " + file);
+        }
+        String page = root.get("testDataPath") instanceof String path ? path : source;
+        List<EvaluationCase> cases = new ArrayList<>(testCases.size());
+        for (int i = 0; i < testCases.size(); i++) {
+            if (!(testCases.get(i) instanceof Map<?, ?> testCase) || !(testCase.get("prompt") instanceof String prompt)) {
+                throw new IllegalArgumentException("Case " + i + " has no prompt: " + file);
+            }
+            EvaluationCase.Rect rect = null;
+            if (testCase.get("response_rect") instanceof Map<?, ?> r) {
+                rect = new EvaluationCase.Rect(number(r.get("left")), number(r.get("top")),
+                        number(r.get("width")), number(r.get("height")));
+            }
+            String elementId = null;
+            String indexId = null;
+            if (testCase.get("response_element") instanceof Map<?, ?> element) {
+                elementId = element.get("id") == null ? null : String.valueOf(element.get("id"));
+                indexId = element.get("indexId") == null ? null : String.valueOf(element.get("indexId"));
+            }
+            cases.add(new EvaluationCase(page, i, prompt, rect, elementId, indexId));
+        }
+        return cases;
+    }
+
+    /** All inspect cases of the given sources, in source order. */
+    public List<EvaluationCase> locatorCases(List<String> sources) {
+        List<EvaluationCase> cases = new ArrayList<>();
+        for (String source : sources) {
+            cases.addAll(cases("inspect", source));
+        }
+        return cases;
+    }
+
+    private PageFixture loadPage(String name) {
+        Path dir = root.resolve("page-data").resolve(name);
+        return new PageFixture(name, ElementTree.load(dir.resolve("element-tree.json")), dir.resolve("input.png"));
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number number ? number.doubleValue() : 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.midscene.evaluation;
+
+/**
+ * The model under evaluation. Implementations wrap a real service caller or, for
+ * offline runs, {@link StubLocateModel}. Called concurrently from many threads.
+ */
+@FunctionalInterface
+public interface LocateModel {
+
+    Result locate(PageFixture page, String prompt) throws Exception;
+
+    /**
+     * Located element id and/or rect; either may be {@code null}.
+     */
+    record Result(String elementId, EvaluationCase.Rect rect) {
+    }
+}
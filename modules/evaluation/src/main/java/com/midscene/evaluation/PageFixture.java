@@ -0,0 +1,11 @@
+package com.midscene.evaluation;
+
+import com.midscene.shared.ElementTree;
+import java.nio.file.Path;
+
+/**
+ * A loaded {@code page-data/<name>} directory: the element tree and the screenshot
+ * path. Fixtures are immutable and shared by every case on the page.
+ */
+public record PageFixture(String name, ElementTree tree, Path screenshot) {
+}
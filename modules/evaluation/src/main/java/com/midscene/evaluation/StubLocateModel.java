@@ -0,0 +1,82 @@
+package com.midscene.evaluation;
+
+import com.midscene.shared.ElementTree;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Deterministic offline model: picks the element whose text shares the most words
+ * with the prompt (CJK characters count as words), earliest element on ties. An
+ * optional fixed delay stands in for network latency when measuring throughput.
+ */
+public final class StubLocateModel implements LocateModel {
+    private final long delayNanos;
+
+    public StubLocateModel() {
+        this(Duration.ZERO);
+    }
+
+    public StubLocateModel(Duration delay) {
+        if (delay.isNegative()) {
+            throw new IllegalArgumentException("delay must not be negative: " + delay);
+        }
+        this.delayNanos = delay.toNanos();
+    }
+
+    @Override
+    public Result locate(PageFixture page, String prompt) throws InterruptedException {
+        if (delayNanos > 0) {
+            Thread.sleep(Duration.ofNanos(delayNanos));
+        }
+        Set<String> words = words(prompt);
+        ElementTree tree = page.tree();
+        int best = ElementTree.NONE;
+        int bestScore = 0;
+        for (int node = 0; node < tree.size(); node++) {
+            if (!tree.hasElement(node) || tree.content(node) == null) {
+                continue;
+            }
+            int score = 0;
+            for (String word : words(tree.content(node))) {
+                if (words.contains(word)) {
+                    score++;
+                }
+            }
+            if (score > bestScore) {
+                best = node;
+                bestScore = score;
+            }
+        }
+        if (best == ElementTree.NONE) {
+            return new Result(null, null);
+        }
+        return new Result(tree.id(best), new EvaluationCase.Rect(
+                tree.left(best), tree.top(best), tree.width(best), tree.height(best)));
+    }
+
+    static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        text.toLowerCase(Locale.ROOT).codePoints().forEach(c -> {
+            if (Character.isIdeographic(c)) {
+                flush(word, words);
+                words.add(new String(Character.toChars(c)));
+            } else if (Character.isLetterOrDigit(c)) {
+                word.appendCodePoint(c);
+            } else {
+                flush(word, words);
+            }
+        });
+        flush(word, words);
+        return words;
+    }
+
+    private static void flush(StringBuilder word, Set<String> words) {
+        if (word.length() > 0) {
+            words.add(word.toString());
+            word.setLength(0);
+        }
+    }
+}
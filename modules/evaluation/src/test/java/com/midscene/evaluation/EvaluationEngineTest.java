@@ -0,0 +1,130 @@
+package com.midscene.evaluation;
+
+import com.midscene.shared.TestSupport;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+final class EvaluationEngineTest {
+
+    private static final Path EVALUATION_ROOT = Path.of("../../packages/evaluation");
+
+    static void run() throws Exception {
+        loadsFixtures();
+        stubIsDeterministic();
+        judgesLikeTsCollector();
+        computesPercentiles();
+        parallelRunOverlapsLatency();
+        reportsModelErrors();
+    }
+
+    private static void loadsFixtures() {
+        FixtureLoader loader = new FixtureLoader(EVALUATION_ROOT);
+        List<EvaluationCase> cases = loader.cases("inspect", "todo");
+        TestSupport.assertTrue(!cases.isEmpty(), "todo cases loaded");
+        EvaluationCase first = cases.get(0);
+        TestSupport.assertEquals("todo", first.source(), "source from testDataPath");
+        TestSupport.assertTrue(first.expectedRect() != null || first.expectedElementId() != null, "expectation present");
+        PageFixture page = loader.page("todo");
+        TestSupport.assertTrue(page.tree().size() > 0, "element tree parsed");
+        TestSupport.assertTrue(Files.exists(page.screenshot()), "screenshot path resolved");
+        TestSupport.assertTrue(page == loader.page("todo"), "fixture cached");
+    }
+
+    private static void stubIsDeterministic() throws Exception {
+        FixtureLoader loader = new FixtureLoader(EVALUATION_ROOT);
+        List<EvaluationCase> cases = loader.locatorCases(FixtureLoader.LOCATOR_SOURCES);
+        EvaluationEngine engine = EvaluationEngine.builder()
+                .fixtures(loader).model(new StubLocateModel()).concurrency(8).build();
+        EvaluationReport first = engine.run(cases);
+        EvaluationReport second = engine.run(cases);
+        TestSupport.assertEquals(cases.size(), first.results().size(), "one result per case");
+        for (int i = 0; i < cases.size(); i++) {
+            TestSupport.assertTrue(first.results().get(i).testCase() == cases.get(i), "results in input order");
+            TestSupport.assertEquals(first.results().get(i).passed(), second.results().get(i).passed(),
+                    "stable outcome for case " + i);
+        }
+        TestSupport.assertEquals(FixtureLoader.LOCATOR_SOURCES.size(), first.sources().size(), "one summary per source");
+        TestSupport.assertContains(first.format(), "throughput", "format includes throughput");
+
+        TestSupport.assertEquals(Set.of("login", "按", "钮", "2"), StubLocateModel.words("Login 按钮, #2"), "words split");
+    }
+
+    private static void judgesLikeTsCollector() {
+        EvaluationEngine rects = EvaluationEngine.builder()
+                .fixtures(new FixtureLoader(EVALUATION_ROOT)).model((page, prompt) -> null).compareRects(true).build();
+        EvaluationCase.Rect expected = new EvaluationCase.Rect(100, 100, 20, 20);
+        EvaluationCase rectCase = new EvaluationCase("todo", 0, "p", expected, "a", null);
+        TestSupport.assertEquals(null, rects.judge(rectCase,
+                new LocateModel.Result(null, new EvaluationCase.Rect(110, 100, 20, 20))), "within threshold");
+        TestSupport.assertContains(rects.judge(rectCase,
+                new LocateModel.Result("a", new EvaluationCase.Rect(130, 100, 20, 20))), "exceeds", "rect wins in VL mode");
+        TestSupport.assertContains(rects.judge(rectCase, new LocateModel.Result("a", null)), "not set", "missing rect");
+
+        EvaluationEngine ids = EvaluationEngine.builder()
+                .fixtures(new FixtureLoader(EVALUATION_ROOT)).model((page, prompt) -> null).build();
+        TestSupport.assertEquals(null, ids.judge(rectCase, new LocateModel.Result("a", null)), "id match");
+        EvaluationCase indexCase = new EvaluationCase("todo", 1, "p", null, "a", "7");
+        TestSupport.assertEquals(null, ids.judge(indexCase, new LocateModel.Result("7", null)), "index id match");
+        TestSupport.assertContains(ids.judge(indexCase, new LocateModel.Result("b", null)), "does not match", "id mismatch");
+        TestSupport.assertContains(ids.judge(new EvaluationCase("todo", 2, "p", null, null, null),
+                new LocateModel.Result("a", null)), "unknown", "no expectation");
+    }
+
+    private static void computesPercentiles() {
+        long[] sorted = new long[100];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = (i + 1) * 1_000_000L;
+        }
+        TestSupport.assertEquals(50.0, EvaluationReport.percentile(sorted, 50), "p50");
+        TestSupport.assertEquals(90.0, EvaluationReport.percentile(sorted, 90), "p90");
+        TestSupport.assertEquals(99.0, EvaluationReport.percentile(sorted, 99), "p99");
+        TestSupport.assertEquals(1.0, EvaluationReport.percentile(new long[] {1_000_000L}, 99), "single sample");
+        TestSupport.assertEquals(0.0, EvaluationReport.percentile(new long[0], 50), "empty");
+
+        EvaluationCase testCase = new EvaluationCase("todo", 0, "p", null, null, null);
+        EvaluationReport report = new EvaluationReport(List.of(
+                new EvaluationReport.CaseResult(testCase, true, 30_000_000L, null),
+                new EvaluationReport.CaseResult(testCase, false, 0, "fixture error"),
+                new EvaluationReport.CaseResult(testCase, false, 0, "fixture error"),
+                new EvaluationReport.CaseResult(testCase, true, 10_000_000L, null)), 40_000_000L, 1);
+        TestSupport.assertEquals(new EvaluationReport.Latency(10.0, 30.0, 30.0, 30.0), report.latency(),
+                "cases that never ran left out of percentiles");
+    }
+
+    private static void parallelRunOverlapsLatency() {
+        FixtureLoader loader = new FixtureLoader(EVALUATION_ROOT);
+        List<EvaluationCase> cases = loader.cases("inspect", "todo");
+        StubLocateModel slow = new StubLocateModel(Duration.ofMillis(40));
+        EvaluationReport serial = EvaluationEngine.builder().fixtures(loader).model(slow).concurrency(1).build().run(cases);
+        EvaluationReport parallel = EvaluationEngine.builder().fixtures(loader).model(slow).concurrency(cases.size()).build().run(cases);
+        TestSupport.assertTrue(serial.latency().p50Millis() >= 40, "latency includes model delay");
+        TestSupport.assertTrue(parallel.wallNanos() * 2 < serial.wallNanos(),
+                "parallel run overlaps model calls: " + parallel.wallNanos() + " vs " + serial.wallNanos());
+        TestSupport.assertTrue(parallel.throughput() > serial.throughput(), "throughput grows with concurrency");
+        TestSupport.assertEquals(serial.passed(), parallel.passed(), "same outcome");
+    }
+
+    private static void reportsModelErrors() {
+        FixtureLoader loader = new FixtureLoader(EVALUATION_ROOT);
+        EvaluationReport report = EvaluationEngine.builder().fixtures(loader)
+                .model((page, prompt) -> { throw new IllegalStateException("model down"); })
+                .build()
+                .run(List.of(new EvaluationCase("todo", 0, "p", null, "a", null),
+                        new EvaluationCase("missing-page", 0, "p", null, "a", null)));
+        TestSupport.assertContains(report.results().get(0).message(), "model down", "model error recorded");
+        TestSupport.assertContains(report.results().get(1).message(), "fixture error", "fixture error recorded");
+        TestSupport.assertEquals(0, report.passed(), "nothing passed");
+
+        EvaluationReport errors = EvaluationEngine.builder().fixtures(loader)
+                .model((page, prompt) -> { throw new AssertionError("model bug"); })
+                .build()
+                .run(List.of(new EvaluationCase("todo", 0, "p", null, "a", null)));
+        TestSupport.assertEquals(1, errors.results().size(), "report survives an Error");
+        TestSupport.assertContains(errors.results().get(0).message(), "model bug", "Error recorded as failure");
+        TestSupport.assertThrows(IllegalArgumentException.class,
+                () -> EvaluationEngine.builder().concurrency(0), "concurrency validated");
+    }
+}
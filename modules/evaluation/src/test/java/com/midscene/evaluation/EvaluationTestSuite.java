@@ -0,0 +1,23 @@
+package com.midscene.evaluation;
+
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the evaluation module checks through Maven's JUnit-based execution, following
+ * the harness used by {@code midscene-shared}.
+ */
+class EvaluationTestSuite {
+
+    @Test
+    void runAllSuites() throws Exception {
+        // Keep run output (debug logs, caches) out of the module directory.
+        String originalUserDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", Files.createTempDirectory("midscene-evaluation-tests").toString());
+        try {
+            EvaluationEngineTest.run();
+        } finally {
+            System.setProperty("user.dir", originalUserDir);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.midscene.visualizer;
+
+import com.midscene.core.ScreenshotStore;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads reports written by {@link StreamingReportWriter} one line at a time, so a
+ * report of any length is processed with memory for a single execution. A trailing
+ * line without a newline belongs to an append in progress and is skipped.
+ */
+public final class ReportReader {
+    private static final String SCRIPT_OPEN = "<script type=\"midscene_web_dump\" type=\"application/json\">\n";
+    private static final String SCRIPT_CLOSE = "\n</script>";
+
+    private ReportReader() {
+    }
+
+    /**
+     * Receives report records in file order.
+     */
+    public interface Listener {
+        default void onGroup(String groupJson) throws IOException {}
+
+        void onExecution(String executionJson) throws IOException;
+    }
+
+    /**
+     * @param executions executions read
+     * @param complete   whether the end record was present
+     */
+    public record Summary(int executions, boolean complete) {}
+
+    public static Summary read(Path file, Listener listener) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            LineSource lines = new LineSource(reader);
+            int executions = 0;
+            boolean complete = false;
+            String line;
+            while ((line = lines.next()) != null) {
+                if (line.startsWith(StreamingReportWriter.EXECUTION_PREFIX)) {
+                    listener.onExecution(body(line, StreamingReportWriter.EXECUTION_PREFIX));
+                    executions++;
+                } else if (line.startsWith(StreamingReportWriter.GROUP_PREFIX)) {
+                    listener.onGroup(body(line, StreamingReportWriter.GROUP_PREFIX));
+                } else if (line.startsWith(StreamingReportWriter.END_PREFIX)) {
+                    complete = true;
+                }
+                // Unknown record types are skipped for forward compatibility.
+            }
+            return new Summary(executions, complete);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read report " + file, ex);
+        }
+    }
+
+    /**
+     * Writes the HTML report the viewer loads today: {@code template} followed by one
+     * {@code midscene_web_dump} script holding the grouped dump. Executions are copied
+     * through one at a time; blob refs are expanded from {@code screenshots} when it
+     * is not {@code null}.
+     */
+    public static Summary writeHtml(Path file, String template, OutputStream out, ScreenshotStore screenshots) {
+        try {
+            out.write(template.getBytes(StandardCharsets.UTF_8));
+            out.write(SCRIPT_OPEN.getBytes(StandardCharsets.UTF_8));
+            boolean[] first = {true};
+            boolean[] grouped = {false};
+            Summary summary = read(file, new Listener() {
+                @Override
+                public void onGroup(String groupJson) throws IOException {
+                    grouped[0] = true;
+                    // Reopen the group object to add the executions array.
+                    write(groupJson.substring(0, groupJson.length() - 1) + ",\"executions\":[", out, screenshots);
+                }
+
+                @Override
+                public void onExecution(String executionJson) throws IOException {
+                    if (!grouped[0]) {
+                        throw new IOException("Execution before group record");
+                    }
+                    if (!first[0]) {
+                        out.write(',');
+                    }
+                    first[0] = false;
+                    write(executionJson, out, screenshots);
+                }
+            });
+            if (!grouped[0]) {
+                throw new IOException("Report has no group record");
+            }
+            out.write("]}".getBytes(StandardCharsets.UTF_8));
+            out.write(SCRIPT_CLOSE.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return summary;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write HTML report from " + file, ex);
+        }
+    }
+
+    /** Escapes angle brackets like {@code escapeScriptTag}, then writes UTF-8. */
+    private static void write(String json, OutputStream out, ScreenshotStore screenshots) throws IOException {
+        String escaped = json.replace("<", "__midscene_lt__").replace(">", "__midscene_gt__");
+        if (screenshots == null) {
+            out.write(escaped.getBytes(StandardCharsets.UTF_8));
+        } else {
+            screenshots.writeResolved(escaped, out);
+        }
+    }
+
+    private static String body(String line, String prefix) {
+        return line.substring(prefix.length(), line.length() - 1);
+    }
+
+    /**
+     * Splits a reader into newline-terminated lines; an unterminated tail is dropped.
+     */
+    private static final class LineSource {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+
+        private LineSource(Reader reader) {
+            this.reader = reader;
+        }
+
+        private String next() throws IOException {
+            line.setLength(0);
+            while (true) {
+                if (position == limit) {
+                    limit = reader.read(buffer);
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        return null;
+                    }
+                }
+                for (int i = position; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        line.append(buffer, position, i - position);
+                        position = i + 1;
+                        return line.toString();
+                    }
+                }
+                line.append(buffer, position, limit - position);
+                position = limit;
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.midscene.visualizer;
+
+import com.midscene.core.ScreenshotStore;
+import com.midscene.shared.JsonStrings;
+import com.midscene.shared.MidsceneEvents;
+import com.midscene.shared.RunDirectoryHelper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes a report incrementally as newline-delimited JSON. The TS report collects the
+ * whole {@code GroupedActionDump} and serializes it at the end; here every execution
+ * is appended and flushed as soon as it finishes, so memory is bounded by one
+ * execution and {@link ReportReader} can load a report that is still being written.
+ *
+ * <p>Layout, one JSON object per line:
+ *
+ * <pre>
+ * {"type":"group","group":{"sdkVersion":...,"groupName":...,"modelBriefs":[...]}}
+ * {"type":"execution","execution":{...ExecutionDump...}}
+ * ...
+ * {"type":"end","executions":N}
+ * </pre>
+ *
+ * <p>The end line is only written by {@link #close()}, so its absence marks a run that
+ * is in progress or was interrupted. With a {@link ScreenshotStore}, inline screenshots
+ * are replaced by blob refs before the execution is written.
+ */
+public final class StreamingReportWriter implements AutoCloseable {
+    public static final String FILE_SUFFIX = ".ndjson";
+    static final String GROUP_PREFIX = "{\"type\":\"group\",\"group\":";
+    static final String EXECUTION_PREFIX = "{\"type\":\"execution\",\"execution\":";
+    static final String END_PREFIX = "{\"type\":\"end\",\"executions\":";
+
+    /**
+     * Report-level fields of {@code GroupedActionDump}.
+     */
+    public record Group(String sdkVersion, String groupName, String groupDescription, List<String> modelBriefs) {
+        public Group {
+            Objects.requireNonNull(sdkVersion, "sdkVersion");
+            Objects.requireNonNull(groupName, "groupName");
+            modelBriefs = List.copyOf(modelBriefs);
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder("{\"sdkVersion\":");
+            JsonStrings.appendQuoted(json, sdkVersion);
+            json.append(",\"groupName\":");
+            JsonStrings.appendQuoted(json, groupName);
+            if (groupDescription != null) {
+                json.append(",\"groupDescription\":");
+                JsonStrings.appendQuoted(json, groupDescription);
+            }
+            json.append(",\"modelBriefs\":[");
+            for (int i = 0; i < modelBriefs.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                JsonStrings.appendQuoted(json, modelBriefs.get(i));
+            }
+            return json.append("]}").toString();
+        }
+    }
+
+    private final Path file;
+    private final ScreenshotStore screenshots;
+    private final Writer writer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int executionCount;
+    private boolean closed;
+
+    private StreamingReportWriter(Path file, Group group, ScreenshotStore screenshots) throws IOException {
+        this.file = file;
+        this.screenshots = screenshots;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writeLine(GROUP_PREFIX, group.toJson());
+    }
+
+    /** Opens {@code <run dir>/report/<reportName>.ndjson}. */
+    public static StreamingReportWriter open(String reportName, Group group) {
+        Objects.requireNonNull(reportName, "reportName");
+        String safeName = reportName.replaceAll("[^A-Za-z0-9._-]", "-");
+        Path file = RunDirectoryHelper.getRunSubDir(RunDirectoryHelper.SubDirectory.REPORT).resolve(safeName + FILE_SUFFIX);
+        return open(file, group, null);
+    }
+
+    /**
+     * @param screenshots store that receives inline screenshots, or {@code null} to
+     *                    keep them inline
+     */
+    public static StreamingReportWriter open(Path file, Group group, ScreenshotStore screenshots) {
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(group, "group");
+        try {
+            return new StreamingReportWriter(file, group, screenshots);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open report " + file, ex);
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Appends one {@code ExecutionDump} as JSON and flushes it. Safe to call from
+     * several threads; executions appear in the order the calls complete.
+     */
+    public void append(String executionJson) {
+        Objects.requireNonNull(executionJson, "executionJson");
+        String json = screenshots == null ? executionJson : screenshots.externalize(executionJson);
+        MidsceneEvents.RunDirectoryWriteEvent event = MidsceneEvents.beginRunDirectoryWrite();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Report is closed: " + file);
+            }
+            writeLine(EXECUTION_PREFIX, json);
+            executionCount++;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to append to report " + file, ex);
+        } finally {
+            lock.unlock();
+        }
+        if (event != null) {
+            // Character count; close to bytes for the ASCII-heavy dump JSON.
+            event.finish("report", file.toString(), EXECUTION_PREFIX.length() + json.length() + 2);
+        }
+    }
+
+    public int executionCount() {
+        lock.lock();
+        try {
+            return executionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (writer) {
+                writeLine(END_PREFIX, Integer.toString(executionCount));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to close report " + file, ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes {@code prefix + json + "}\n"}. Raw line breaks can only occur as JSON
+     * whitespace (inside strings they are escaped), so they are written as spaces to
+     * keep the record on one line.
+     */
+    private void writeLine(String prefix, String json) throws IOException {
+        writer.write(prefix);
+        int start = 0;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '\n' || c == '\r') {
+                writer.write(json, start, i - start);
+                writer.write(' ');
+                start = i + 1;
+            }
+        }
+        writer.write(json, start, json.length() - start);
+        writer.write("}\n");
+        writer.flush();
+    }
+}
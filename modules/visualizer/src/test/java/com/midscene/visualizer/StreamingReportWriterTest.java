@@ -0,0 +1,101 @@
+package com.midscene.visualizer;
+
+import com.midscene.core.ScreenshotStore;
+import com.midscene.shared.TestSupport;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+final class StreamingReportWriterTest {
+
+    private static final StreamingReportWriter.Group GROUP =
+            new StreamingReportWriter.Group("0.1.0", "login \"suite\"", null, List.of("gpt-4o"));
+
+    static void run() throws Exception {
+        appendsAndReadsProgressively();
+        concurrentAppends();
+        writesViewerHtml();
+    }
+
+    private static void appendsAndReadsProgressively() throws IOException {
+        Path file = Files.createTempDirectory("midscene-report").resolve("run.ndjson");
+        StreamingReportWriter writer = StreamingReportWriter.open(file, GROUP, null);
+        writer.append("{\"name\":\"first\",\n  \"tasks\":[]}");
+
+        List<String> seen = new ArrayList<>();
+        ReportReader.Summary partial = ReportReader.read(file, seen::add);
+        TestSupport.assertEquals(new ReportReader.Summary(1, false), partial, "readable while running");
+        TestSupport.assertEquals("{\"name\":\"first\",   \"tasks\":[]}", seen.get(0), "execution kept on one line");
+
+        Files.writeString(file, StreamingReportWriter.EXECUTION_PREFIX + "{\"torn", StandardOpenOption.APPEND);
+        TestSupport.assertEquals(1, ReportReader.read(file, json -> { }).executions(), "torn tail skipped");
+
+        Path fresh = file.resolveSibling("fresh.ndjson");
+        try (StreamingReportWriter second = StreamingReportWriter.open(fresh, GROUP, null)) {
+            second.append("{\"name\":\"a\"}");
+            second.append("{\"name\":\"b\"}");
+        }
+        String[] groups = new String[1];
+        ReportReader.Summary done = ReportReader.read(fresh, new ReportReader.Listener() {
+            @Override
+            public void onGroup(String groupJson) {
+                groups[0] = groupJson;
+            }
+
+            @Override
+            public void onExecution(String executionJson) {
+            }
+        });
+        TestSupport.assertEquals(new ReportReader.Summary(2, true), done, "complete report");
+        TestSupport.assertEquals("{\"sdkVersion\":\"0.1.0\",\"groupName\":\"login \\\"suite\\\"\",\"modelBriefs\":[\"gpt-4o\"]}",
+                groups[0], "group record");
+        writer.close();
+    }
+
+    private static void concurrentAppends() throws Exception {
+        Path file = Files.createTempDirectory("midscene-report").resolve("parallel.ndjson");
+        try (StreamingReportWriter writer = StreamingReportWriter.open(file, GROUP, null);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                int id = i;
+                executor.submit(() -> writer.append("{\"id\":" + id + ",\"pad\":\"" + "x".repeat(500) + "\"}"));
+            }
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+            TestSupport.assertEquals(200, writer.executionCount(), "all appended");
+        }
+        TestSupport.assertEquals(new ReportReader.Summary(200, true), ReportReader.read(file, json -> {
+            TestSupport.assertTrue(json.startsWith("{\"id\":") && json.endsWith("\"}"), "records not interleaved");
+        }), "concurrent report complete");
+    }
+
+    private static void writesViewerHtml() throws IOException {
+        Path dir = Files.createTempDirectory("midscene-report");
+        ScreenshotStore store = ScreenshotStore.open(dir.resolve("blobs"));
+        String screenshot = "data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[3000]);
+        Path file = dir.resolve("html.ndjson");
+        try (StreamingReportWriter writer = StreamingReportWriter.open(file, GROUP, store)) {
+            writer.append("{\"name\":\"<b>one</b>\",\"screenshot\":\"" + screenshot + "\"}");
+            writer.append("{\"name\":\"two\",\"screenshot\":\"" + screenshot + "\"}");
+        }
+        TestSupport.assertFalse(Files.readString(file).contains("base64,"), "report stores refs");
+        TestSupport.assertTrue(Files.size(file) < 1000, "report stays small");
+
+        ByteArrayOutputStream html = new ByteArrayOutputStream();
+        ReportReader.writeHtml(file, "<html>tpl</html>", html, store);
+        String expected = "<html>tpl</html><script type=\"midscene_web_dump\" type=\"application/json\">\n"
+                + "{\"sdkVersion\":\"0.1.0\",\"groupName\":\"login \\\"suite\\\"\",\"modelBriefs\":[\"gpt-4o\"],\"executions\":["
+                + "{\"name\":\"__midscene_lt__b__midscene_gt__one__midscene_lt__/b__midscene_gt__\",\"screenshot\":\"" + screenshot + "\"},"
+                + "{\"name\":\"two\",\"screenshot\":\"" + screenshot + "\"}]}\n</script>";
+        TestSupport.assertEquals(expected, html.toString(StandardCharsets.UTF_8), "viewer html");
+    }
+}